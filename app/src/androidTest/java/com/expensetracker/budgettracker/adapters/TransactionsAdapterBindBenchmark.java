@@ -0,0 +1,90 @@
+package com.expensetracker.budgettracker.adapters;
+
+import android.content.Context;
+import android.os.Debug;
+import android.util.Log;
+import android.view.ContextThemeWrapper;
+import android.widget.FrameLayout;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.expensetracker.budgettracker.R;
+import com.expensetracker.budgettracker.models.Transaction;
+import com.expensetracker.budgettracker.utils.EpochDays;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Binds a long list through a small pool of holders, as RecyclerView does while
+ * scrolling, and reports the mean bind time and allocations per row under the
+ * "AdapterBindBenchmark" tag.
+ */
+@RunWith(AndroidJUnit4.class)
+public class TransactionsAdapterBindBenchmark {
+    private static final String TAG = "AdapterBindBenchmark";
+    private static final String[] CATEGORIES = {"Food & Drink", "Transportation", "Shopping", "Salary", "Gifts"};
+    private static final int ROWS = 5_000;
+    private static final int HOLDERS = 12;
+    private static final int PASSES = 5;
+
+    @Test
+    public void bindTimeAndAllocationsPerRow() {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> {
+            Context context = new ContextThemeWrapper(
+                    InstrumentationRegistry.getInstrumentation().getTargetContext(), R.style.Theme_BudgetTracker);
+            TransactionsAdapter adapter = new TransactionsAdapter(null);
+            // The first list is applied synchronously; only later lists are diffed in the background
+            adapter.submitList(generate());
+            assertEquals(ROWS, adapter.getItemCount());
+
+            FrameLayout parent = new FrameLayout(context);
+            List<TransactionsAdapter.TransactionViewHolder> holders = new ArrayList<>(HOLDERS);
+            for (int i = 0; i < HOLDERS; i++) {
+                holders.add(adapter.onCreateViewHolder(parent, 0));
+            }
+
+            // Warm up: JIT, view internals and the date label cache
+            bindAll(adapter, holders);
+
+            Debug.startAllocCounting();
+            Debug.resetThreadAllocCount();
+            long start = System.nanoTime();
+            for (int pass = 0; pass < PASSES; pass++) {
+                bindAll(adapter, holders);
+            }
+            long elapsed = System.nanoTime() - start;
+            int allocations = Debug.getThreadAllocCount();
+            Debug.stopAllocCounting();
+
+            int binds = ROWS * PASSES;
+            Log.i(TAG, String.format("%d binds: %.2f us/row, %.2f allocations/row",
+                    binds, elapsed / 1000.0 / binds, allocations / (double) binds));
+        });
+    }
+
+    private static void bindAll(TransactionsAdapter adapter, List<TransactionsAdapter.TransactionViewHolder> holders) {
+        for (int position = 0; position < ROWS; position++) {
+            adapter.onBindViewHolder(holders.get(position % HOLDERS), position);
+        }
+    }
+
+    private static List<Transaction> generate() {
+        List<Transaction> transactions = new ArrayList<>(ROWS);
+        int today = EpochDays.of(2024, 6, 30);
+        for (int i = 0; i < ROWS; i++) {
+            String category = CATEGORIES[i % CATEGORIES.length];
+            Transaction transaction = new Transaction(category, 100 + i * 37L,
+                    today - i / 20, "Salary".equals(category) ? "income" : "expense");
+            transaction.setId(ROWS - i);
+            transactions.add(transaction);
+        }
+        return transactions;
+    }
+}
@@ -0,0 +1,100 @@
+package com.expensetracker.budgettracker.data;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.expensetracker.budgettracker.models.Transaction;
+import com.expensetracker.budgettracker.utils.EpochDays;
+
+import net.zetetic.database.DatabaseUtils;
+import net.zetetic.database.sqlcipher.SQLiteDatabase;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Compares inserting rows one {@code db.insert} at a time, each in its own implicit
+ * transaction, against {@link TransactionRepository#insertBatch} inside a single
+ * transaction. Throughput in rows/sec is written to logcat under the "BulkInsertBenchmark" tag.
+ */
+@RunWith(AndroidJUnit4.class)
+public class BulkInsertBenchmark {
+    private static final String TAG = "BulkInsertBenchmark";
+    private static final long USER_ID = 1;
+    private static final int PER_ROW_COUNT = 2_000;
+    private static final int BATCH_COUNT = 100_000;
+
+    @BeforeClass
+    public static void loadSqlCipher() {
+        DatabaseHelper.loadLibrary();
+    }
+
+    @Test
+    public void perRowVersusBatched() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        File file = new File(context.getCacheDir(), "bulk-insert-benchmark.db");
+        SQLiteDatabase.deleteDatabase(file);
+        SQLiteDatabase db = SQLiteDatabase.openDatabase(file.getPath(), null,
+                SQLiteDatabase.CREATE_IF_NECESSARY | SQLiteDatabase.ENABLE_WRITE_AHEAD_LOGGING);
+        try {
+            DatabaseHelper.createSchema(db);
+            db.execSQL("INSERT INTO users (user_id, username, email, password) VALUES (1, 'bench', 'bench@example.com', 'x')");
+
+            List<Transaction> perRow = generate(PER_ROW_COUNT);
+            long start = System.nanoTime();
+            for (Transaction transaction : perRow) {
+                ContentValues values = new ContentValues();
+                values.put(DatabaseHelper.COLUMN_AMOUNT, transaction.getAmountCents());
+                values.put(DatabaseHelper.COLUMN_CATEGORY_ID, CategoryDictionary.getInstance().idOf(transaction.getCategory()));
+                values.put(DatabaseHelper.COLUMN_DATE, transaction.getEpochDay());
+                values.put(DatabaseHelper.COLUMN_TYPE, transaction.getType());
+                values.put(DatabaseHelper.COLUMN_USER_ID, USER_ID);
+                db.insert(DatabaseHelper.TABLE_TRANSACTIONS, null, values);
+            }
+            report("per-row insert", PER_ROW_COUNT, System.nanoTime() - start);
+
+            List<Transaction> batch = generate(BATCH_COUNT);
+            start = System.nanoTime();
+            db.beginTransactionNonExclusive();
+            try {
+                TransactionRepository.insertBatch(db, USER_ID, batch);
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+            report("batched insert", BATCH_COUNT, System.nanoTime() - start);
+
+            assertEquals(PER_ROW_COUNT + BATCH_COUNT,
+                    DatabaseUtils.queryNumEntries(db, DatabaseHelper.TABLE_TRANSACTIONS));
+        } finally {
+            db.close();
+            SQLiteDatabase.deleteDatabase(file);
+        }
+    }
+
+    private static List<Transaction> generate(int count) {
+        List<Transaction> transactions = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            transactions.add(new Transaction(i % 2 == 0 ? "Food & Drink" : "Shopping", 100 + i % 50_000,
+                    EpochDays.of(2020 + i % 5, 1 + i % 12, 1 + i % 28),
+                    i % 10 == 0 ? "income" : "expense"));
+        }
+        return transactions;
+    }
+
+    private static void report(String label, int rows, long nanos) {
+        Log.i(TAG, String.format("%s: %d rows in %.1f ms, %.0f rows/sec",
+                label, rows, nanos / 1_000_000.0, rows / (nanos / 1_000_000_000.0)));
+    }
+}
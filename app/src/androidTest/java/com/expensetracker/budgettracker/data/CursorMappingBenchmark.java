@@ -0,0 +1,113 @@
+package com.expensetracker.budgettracker.data;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.expensetracker.budgettracker.benchmark.BenchmarkRunner;
+import com.expensetracker.budgettracker.benchmark.LedgerGenerator;
+import com.expensetracker.budgettracker.models.Transaction;
+
+import net.zetetic.database.sqlcipher.SQLiteDatabase;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Reading a generated ledger back into {@link Transaction} objects through the same keyset
+ * query and cursor mapping the ledger screen pages with: the first page, and every page
+ * down to the oldest row (what loading the whole list used to cost). Writes
+ * {@code cursor-mapping.json} to the app's external files under {@code benchmarks/}.
+ * <p>
+ * Sizes default to 1k to 1M rows; pass {@code -e benchmark.sizes 1000,10000} to run fewer.
+ */
+@RunWith(AndroidJUnit4.class)
+public class CursorMappingBenchmark {
+    private static final String TAG = "CursorMappingBenchmark";
+    private static final long USER_ID = 1;
+    private static final int CHUNK = 10_000;
+    private static final int PAGE = 50;
+    // Larger pages for the full read, which stands in for the old load-everything query
+    private static final int SCAN_PAGE = 500;
+
+    @BeforeClass
+    public static void loadSqlCipher() {
+        DatabaseHelper.loadLibrary();
+    }
+
+    @Test
+    public void cursorMapping() throws Exception {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        int[] sizes = BenchmarkRunner.sizes(InstrumentationRegistry.getArguments().getString("benchmark.sizes"));
+        BenchmarkRunner runner = new BenchmarkRunner("cursor-mapping");
+        File file = new File(context.getCacheDir(), "cursor-benchmark.db");
+
+        for (int size : sizes) {
+            SQLiteDatabase.deleteDatabase(file);
+            SQLiteDatabase db = SQLiteDatabase.openDatabase(file.getPath(), null,
+                    SQLiteDatabase.CREATE_IF_NECESSARY | SQLiteDatabase.ENABLE_WRITE_AHEAD_LOGGING);
+            try {
+                DatabaseHelper.createSchema(db);
+                db.execSQL("INSERT INTO users (user_id, username, email, password) VALUES (1, 'bench', 'bench@example.com', 'x')");
+                seed(db, size);
+
+                int[] value = {size};
+                runner.run("firstPage", "rows", value, rows -> db,
+                        database -> TransactionRepository.loadOlder(database, USER_ID, null, PAGE));
+                runner.run("allPages", "rows", value, rows -> db, CursorMappingBenchmark::readAll);
+                assertEquals(size, (int) readAll(db));
+            } finally {
+                db.close();
+                SQLiteDatabase.deleteDatabase(file);
+            }
+        }
+
+        File dir = context.getExternalFilesDir("benchmarks");
+        File json = runner.writeJson(dir != null ? dir : new File(context.getFilesDir(), "benchmarks"));
+        Log.i(TAG, "Results written to " + json);
+    }
+
+    /**
+     * Map every row, a page at a time, keeping only the count so memory stays flat.
+     */
+    private static Integer readAll(SQLiteDatabase db) {
+        int count = 0;
+        Transaction anchor = null;
+        List<Transaction> page;
+        do {
+            page = TransactionRepository.loadOlder(db, USER_ID, anchor, SCAN_PAGE);
+            count += page.size();
+            if (!page.isEmpty()) {
+                anchor = page.get(page.size() - 1);
+            }
+        } while (page.size() == SCAN_PAGE);
+        return count;
+    }
+
+    private static void seed(SQLiteDatabase db, int rows) {
+        LedgerGenerator ledger = new LedgerGenerator(rows, rows);
+        List<Transaction> chunk = new ArrayList<>(CHUNK);
+        while (ledger.hasNext()) {
+            chunk.add(ledger.next());
+            if (chunk.size() == CHUNK || !ledger.hasNext()) {
+                db.beginTransaction();
+                try {
+                    TransactionRepository.insertBatch(db, USER_ID, chunk);
+                    db.setTransactionSuccessful();
+                } finally {
+                    db.endTransaction();
+                }
+                chunk.clear();
+            }
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.expensetracker.budgettracker.data;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.expensetracker.budgettracker.benchmark.LedgerGenerator;
+import com.expensetracker.budgettracker.models.Transaction;
+
+import net.zetetic.database.DatabaseUtils;
+import net.zetetic.database.sqlcipher.SQLiteDatabase;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Paging through a generated 100k-row ledger file with {@link TransactionRepository#loadOlder},
+ * the query behind {@code loadTransactions}, once stored in the clear and once encrypted the
+ * way {@link LedgerPartitions} stores it: pages under {@link LedgerCipher#databaseKey} and
+ * notes sealed on top. Every row gets a note, so each one pays for an open. Also checks that
+ * a notes search finds the same rows through the sealed notes' tokens. Medians go to logcat
+ * under the "CipherBenchmark" tag; fails if encryption costs more than {@link #MAX_OVERHEAD}
+ * in rows per second.
+ */
+@RunWith(AndroidJUnit4.class)
+public class LedgerCipherBenchmark {
+    private static final String TAG = "CipherBenchmark";
+    private static final long USER_ID = 1;
+    private static final int ROWS = 100_000;
+    private static final int PAGE = 50;
+    private static final int RUNS = 7;
+    private static final double MAX_OVERHEAD = 0.15;
+
+    @BeforeClass
+    public static void loadSqlCipher() {
+        DatabaseHelper.loadLibrary();
+    }
+
+    @Test
+    public void encryptedLedger_pagesWithinBudget() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        File plainFile = new File(context.getCacheDir(), "cipher-bench-plain.db");
+        File sealedFile = new File(context.getCacheDir(), "cipher-bench-sealed.db");
+        SQLiteDatabase.deleteDatabase(plainFile);
+        SQLiteDatabase.deleteDatabase(sealedFile);
+        LedgerCipher cipher = LedgerCipher.getInstance();
+        byte[] master = new byte[32];
+        Arrays.fill(master, (byte) 42);
+        cipher.setMasterKey(() -> master);
+        byte[] key = cipher.databaseKey(USER_ID);
+        cipher.setMasterKey(null);
+        SQLiteDatabase plain = SQLiteDatabase.openOrCreateDatabase(plainFile, (byte[]) null, null, null, null);
+        SQLiteDatabase sealed = SQLiteDatabase.openOrCreateDatabase(sealedFile, key, null, null, null);
+        try {
+            populate(plain);
+            double plainMs = medianMillis(plain);
+            String plainMatches = search(plain, "groc");
+
+            cipher.setMasterKey(() -> master);
+            populate(sealed);
+            long sealedRows = DatabaseUtils.longForQuery(sealed, "SELECT COUNT(*) FROM " +
+                    DatabaseHelper.TABLE_TRANSACTIONS + " WHERE typeof(" + DatabaseHelper.COLUMN_NOTES + ") = 'blob'", null);
+            double sealedMs = medianMillis(sealed);
+            String sealedMatches = search(sealed, "groc");
+
+            // Same rows either way
+            assertEquals(notes(plain), notes(sealed));
+            assertEquals(ROWS, sealedRows);
+            assertTrue(plainMatches.contains("groceries"));
+            assertEquals(plainMatches, sealedMatches);
+
+            double overhead = sealedMs / plainMs - 1;
+            Log.i(TAG, String.format("%,d rows in pages of %d: plain %.1f ms (%,.0f rows/s), " +
+                            "encrypted %.1f ms (%,.0f rows/s), overhead %.1f%%, %,d notes sealed",
+                    ROWS, PAGE, plainMs, ROWS / plainMs * 1000, sealedMs, ROWS / sealedMs * 1000,
+                    overhead * 100, sealedRows));
+            assertTrue(String.format("overhead %.1f%%", overhead * 100), overhead < MAX_OVERHEAD);
+        } finally {
+            cipher.setMasterKey(null);
+            plain.close();
+            sealed.close();
+            SQLiteDatabase.deleteDatabase(plainFile);
+            SQLiteDatabase.deleteDatabase(sealedFile);
+        }
+    }
+
+    private static void populate(SQLiteDatabase db) {
+        DatabaseHelper.createSchema(db);
+        db.beginTransaction();
+        try {
+            TransactionRepository.insertBatch(db, USER_ID, withNotes(LedgerGenerator.generate(ROWS, 7)));
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        db.execSQL("ANALYZE");
+    }
+
+    // The generator leaves some notes empty, which are stored as-is and would not be measured
+    private static List<Transaction> withNotes(List<Transaction> ledger) {
+        List<Transaction> noted = new ArrayList<>(ledger.size());
+        for (Transaction row : ledger) {
+            String notes = row.getNotes().isEmpty() ? "transfer ref " + row.getId() : row.getNotes();
+            Transaction copy = new Transaction(row.getCategoryId(), row.getCategory(), row.getAmountCents(),
+                    row.getEpochDay(), row.getType(), notes);
+            copy.setId(row.getId());
+            noted.add(copy);
+        }
+        return noted;
+    }
+
+    private static String notes(SQLiteDatabase db) {
+        StringBuilder notes = new StringBuilder();
+        for (Transaction transaction : TransactionRepository.loadOlder(db, USER_ID, null, 1_000)) {
+            notes.append(transaction.getNotes()).append('|');
+        }
+        return notes.toString();
+    }
+
+    private static String search(SQLiteDatabase db, String text) {
+        StringBuilder notes = new StringBuilder();
+        SearchQuery query = new SearchQuery.Builder().text(text).build();
+        for (Transaction transaction : new TransactionSearch(() -> db, USER_ID, query).loadOlder(null, 1_000)) {
+            notes.append(transaction.getId()).append(' ').append(transaction.getNotes()).append('|');
+        }
+        return notes.toString();
+    }
+
+    private static double medianMillis(SQLiteDatabase db) {
+        // Warm-up pass, so both sides start from the page cache
+        pageThrough(db);
+        long[] samples = new long[RUNS];
+        for (int run = 0; run < RUNS; run++) {
+            long start = System.nanoTime();
+            assertEquals(ROWS, pageThrough(db));
+            samples[run] = System.nanoTime() - start;
+        }
+        Arrays.sort(samples);
+        return samples[RUNS / 2] / 1_000_000.0;
+    }
+
+    private static int pageThrough(SQLiteDatabase db) {
+        int rows = 0;
+        Transaction anchor = null;
+        List<Transaction> page;
+        do {
+            page = TransactionRepository.loadOlder(db, USER_ID, anchor, PAGE);
+            rows += page.size();
+            anchor = page.isEmpty() ? null : page.get(page.size() - 1);
+        } while (page.size() == PAGE);
+        return rows;
+    }
+}
@@ -0,0 +1,119 @@
+package com.expensetracker.budgettracker.data;
+
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.expensetracker.budgettracker.benchmark.LedgerGenerator;
+import com.expensetracker.budgettracker.models.Transaction;
+
+import net.zetetic.database.DatabaseUtils;
+import net.zetetic.database.sqlcipher.SQLiteDatabase;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * One user's first page and monthly totals, read from a shared file holding 20 users'
+ * ledgers and again from that user's own partition after {@link LedgerPartitions#moveUserRows}.
+ * Checks the move copies exactly the user's rows and leaves everyone else's in place.
+ * Medians go to logcat under the "PartitionBenchmark" tag.
+ */
+@RunWith(AndroidJUnit4.class)
+public class LedgerPartitionsBenchmark {
+    private static final String TAG = "PartitionBenchmark";
+    private static final int USERS = 20;
+    private static final int ROWS_PER_USER = 10_000;
+    private static final long USER_ID = 7;
+    private static final int RUNS = 15;
+
+    @BeforeClass
+    public static void loadSqlCipher() {
+        DatabaseHelper.loadLibrary();
+    }
+
+    @Test
+    public void movedLedger_matchesAndReadsOnlyItsOwnPages() {
+        SQLiteDatabase shared = SQLiteDatabase.create(null);
+        SQLiteDatabase ledger = SQLiteDatabase.create(null);
+        try {
+            DatabaseHelper.createSchema(shared);
+            DatabaseHelper.createSchema(ledger);
+            shared.beginTransaction();
+            try {
+                for (long user = 1; user <= USERS; user++) {
+                    TransactionRepository.insertBatch(shared, user, LedgerGenerator.generate(ROWS_PER_USER, user));
+                }
+                shared.setTransactionSuccessful();
+            } finally {
+                shared.endTransaction();
+            }
+            shared.execSQL("ANALYZE");
+
+            List<Transaction> expectedPage = TransactionRepository.loadOlder(shared, USER_ID, null, 50);
+            String expectedTotals = rollups(shared);
+            double sharedMs = medianMillis(shared);
+
+            LedgerPartitions.moveUserRows(shared, ledger, USER_ID);
+            ledger.execSQL("ANALYZE");
+            double partitionMs = medianMillis(ledger);
+
+            assertEquals(ROWS_PER_USER, count(ledger, "user_id = " + USER_ID));
+            assertEquals(ROWS_PER_USER, count(ledger, "1"));
+            assertEquals(0, count(shared, "user_id = " + USER_ID));
+            assertEquals((USERS - 1) * ROWS_PER_USER, count(shared, "1"));
+            assertEquals(ids(expectedPage), ids(TransactionRepository.loadOlder(ledger, USER_ID, null, 50)));
+            assertEquals(expectedTotals, rollups(ledger));
+
+            // A second open finds nothing left to move
+            LedgerPartitions.moveUserRows(shared, ledger, USER_ID);
+            assertEquals(ROWS_PER_USER, count(ledger, "1"));
+
+            Log.i(TAG, String.format("user %d of %d, %,d rows each: shared %.3f ms, partition %.3f ms",
+                    USER_ID, USERS, ROWS_PER_USER, sharedMs, partitionMs));
+        } finally {
+            shared.close();
+            ledger.close();
+        }
+    }
+
+    private static long count(SQLiteDatabase db, String where) {
+        return DatabaseUtils.longForQuery(db,
+                "SELECT COUNT(*) FROM " + DatabaseHelper.TABLE_TRANSACTIONS + " WHERE " + where, null);
+    }
+
+    private static String rollups(SQLiteDatabase db) {
+        StringBuilder rows = new StringBuilder();
+        for (AggregateStore.Aggregate row : MonthlyRollups.read(db, USER_ID)) {
+            rows.append(row.month).append(' ').append(row.categoryId).append(' ').append(row.type)
+                    .append(' ').append(row.total).append(' ').append(row.count).append('\n');
+        }
+        return rows.toString();
+    }
+
+    private static String ids(List<Transaction> page) {
+        long[] ids = new long[page.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = page.get(i).getId();
+        }
+        return Arrays.toString(ids);
+    }
+
+    private static double medianMillis(SQLiteDatabase db) {
+        long[] samples = new long[RUNS];
+        for (int run = 0; run < RUNS; run++) {
+            long start = System.nanoTime();
+            TransactionRepository.loadOlder(db, USER_ID, null, 50);
+            MonthlyRollups.read(db, USER_ID);
+            samples[run] = System.nanoTime() - start;
+        }
+        Arrays.sort(samples);
+        return samples[RUNS / 2] / 1_000_000.0;
+    }
+}
@@ -0,0 +1,126 @@
+package com.expensetracker.budgettracker.data;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.expensetracker.budgettracker.models.Transaction;
+import com.expensetracker.budgettracker.utils.EpochDays;
+
+import net.zetetic.database.sqlcipher.SQLiteDatabase;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Loads one user's totals from {@code monthly_rollups} and from a GROUP BY over the full
+ * ledger at 1M rows, checks that both agree, and writes median latencies to logcat under
+ * the "RollupBenchmark" tag.
+ */
+@RunWith(AndroidJUnit4.class)
+public class MonthlyRollupBenchmark {
+    private static final String TAG = "RollupBenchmark";
+    private static final String[] CATEGORIES = {"Food & Drink", "Transportation", "Shopping", "Housing", "Salary"};
+    private static final long USER_ID = 1;
+    private static final int ROWS = 1_000_000;
+    private static final int CHUNK = 10_000;
+    private static final int RUNS = 9;
+
+    private static final String FULL_SCAN = "SELECT " + MonthlyRollups.monthKeySql(DatabaseHelper.COLUMN_DATE) +
+            ", category_id, type, SUM(amount), COUNT(*) FROM transactions WHERE user_id = ? GROUP BY 1, 2, 3";
+
+    @BeforeClass
+    public static void loadSqlCipher() {
+        DatabaseHelper.loadLibrary();
+    }
+
+    @Test
+    public void rollupReadVersusFullScan() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        File file = new File(context.getCacheDir(), "rollup-benchmark.db");
+        SQLiteDatabase.deleteDatabase(file);
+        SQLiteDatabase db = SQLiteDatabase.openDatabase(file.getPath(), null,
+                SQLiteDatabase.CREATE_IF_NECESSARY | SQLiteDatabase.ENABLE_WRITE_AHEAD_LOGGING);
+        try {
+            DatabaseHelper.createSchema(db);
+            db.execSQL("INSERT INTO users (user_id, username, email, password) VALUES (1, 'bench', 'bench@example.com', 'x')");
+            seed(db);
+
+            assertTrue(MonthlyRollups.check(db, USER_ID).isEmpty());
+
+            AggregateStore fromRollups = new AggregateStore();
+            AggregateStore fromScan = new AggregateStore();
+            long[] rollupTimes = new long[RUNS];
+            long[] scanTimes = new long[RUNS];
+            for (int run = 0; run < RUNS; run++) {
+                long start = System.nanoTime();
+                fromRollups.rebuild(USER_ID, MonthlyRollups.read(db, USER_ID));
+                rollupTimes[run] = System.nanoTime() - start;
+
+                start = System.nanoTime();
+                fromScan.rebuild(USER_ID, fullScan(db));
+                scanTimes[run] = System.nanoTime() - start;
+            }
+
+            assertEquals(fromScan.getTotalExpense(USER_ID), fromRollups.getTotalExpense(USER_ID));
+            assertEquals(fromScan.getTotalIncome(USER_ID), fromRollups.getTotalIncome(USER_ID));
+            assertEquals(fromScan.getCategoryTotals(USER_ID), fromRollups.getCategoryTotals(USER_ID));
+
+            Log.i(TAG, String.format("%d rows, %d rollup rows: rollups %.3f ms, full scan %.3f ms (median of %d)",
+                    ROWS, MonthlyRollups.read(db, USER_ID).size(),
+                    median(rollupTimes), median(scanTimes), RUNS));
+        } finally {
+            db.close();
+            SQLiteDatabase.deleteDatabase(file);
+        }
+    }
+
+    private static void seed(SQLiteDatabase db) {
+        int firstDay = EpochDays.of(2020, 1, 1);
+        List<Transaction> chunk = new ArrayList<>(CHUNK);
+        for (int i = 0; i < ROWS; i++) {
+            String category = CATEGORIES[i % CATEGORIES.length];
+            chunk.add(new Transaction(category, 100 + i % 100_000, firstDay + i % 1_826,
+                    "Salary".equals(category) ? "income" : "expense"));
+            if (chunk.size() == CHUNK) {
+                db.beginTransaction();
+                try {
+                    TransactionRepository.insertBatch(db, USER_ID, chunk);
+                    db.setTransactionSuccessful();
+                } finally {
+                    db.endTransaction();
+                }
+                chunk.clear();
+            }
+        }
+    }
+
+    private static List<AggregateStore.Aggregate> fullScan(SQLiteDatabase db) {
+        List<AggregateStore.Aggregate> rows = new ArrayList<>();
+        try (Cursor cursor = db.rawQuery(FULL_SCAN, new String[]{String.valueOf(USER_ID)})) {
+            while (cursor.moveToNext()) {
+                rows.add(new AggregateStore.Aggregate(cursor.getInt(0), cursor.getInt(1),
+                        cursor.getString(2), cursor.getLong(3), cursor.getInt(4)));
+            }
+        }
+        return rows;
+    }
+
+    private static double median(long[] nanos) {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2] / 1_000_000.0;
+    }
+}
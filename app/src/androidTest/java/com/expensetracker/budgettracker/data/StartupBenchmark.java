@@ -0,0 +1,189 @@
+package com.expensetracker.budgettracker.data;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.expensetracker.budgettracker.benchmark.LedgerGenerator;
+import com.expensetracker.budgettracker.models.Transaction;
+
+import net.zetetic.database.sqlcipher.SQLiteDatabase;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Cold start of the main screen on a generated 500k-row ledger: the time from
+ * {@link StartupLoader#start} until the session is validated and the first page and totals
+ * are in memory, which is everything the first frame draws. Compared against the old
+ * sequence (check the user, then load the page and totals twice), with the totals dropped
+ * before every run so each one is cold. Medians go to logcat under the "StartupBenchmark"
+ * tag; fails if the pipeline misses {@link #TARGET_MS} or is slower than the old sequence.
+ */
+@RunWith(AndroidJUnit4.class)
+public class StartupBenchmark {
+    private static final String TAG = "StartupBenchmark";
+    private static final long USER_ID = 1;
+    private static final int ROWS = 500_000;
+    private static final int CHUNK = 10_000;
+    private static final int PAGE = 50;
+    private static final int RUNS = 9;
+    // Time to first frame's data, with 2x room for slower test devices
+    private static final double TARGET_MS = 100;
+
+    /**
+     * The production steps, run against the benchmark database and a private aggregate store.
+     */
+    private static final class DatabaseSteps implements StartupLoader.Steps {
+        final SQLiteDatabase db;
+        AggregateStore aggregates = new AggregateStore();
+
+        DatabaseSteps(SQLiteDatabase db) {
+            this.db = db;
+        }
+
+        @Nullable
+        @Override
+        public String username(long userId) {
+            try (Cursor cursor = db.query(DatabaseHelper.TABLE_USERS, new String[]{DatabaseHelper.COLUMN_USERNAME},
+                    DatabaseHelper.COLUMN_USER_ID + " = ?", new String[]{String.valueOf(userId)},
+                    null, null, null)) {
+                return cursor.moveToFirst() ? cursor.getString(0) : null;
+            }
+        }
+
+        @Override
+        public List<Transaction> firstPage(long userId, int limit) {
+            return TransactionRepository.loadOlder(db, userId, null, limit);
+        }
+
+        @Override
+        public void loadTotals(long userId) {
+            if (!aggregates.isLoaded(userId)) {
+                aggregates.rebuild(userId, MonthlyRollups.read(db, userId));
+            }
+        }
+    }
+
+    @BeforeClass
+    public static void loadSqlCipher() {
+        DatabaseHelper.loadLibrary();
+    }
+
+    @Test
+    public void timeToFirstFrameAt500kRows() throws Exception {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        File file = new File(context.getCacheDir(), "startup-benchmark.db");
+        SQLiteDatabase.deleteDatabase(file);
+        SQLiteDatabase db = SQLiteDatabase.openDatabase(file.getPath(), null,
+                SQLiteDatabase.CREATE_IF_NECESSARY | SQLiteDatabase.ENABLE_WRITE_AHEAD_LOGGING);
+        ExecutorService readPool = Executors.newFixedThreadPool(3);
+        try {
+            DatabaseHelper.createSchema(db);
+            db.execSQL("INSERT INTO users (user_id, username, email, password) VALUES (1, 'bench', 'bench@example.com', 'x')");
+            seed(db);
+            DatabaseSteps steps = new DatabaseSteps(db);
+
+            long[] pipelineTimes = new long[RUNS];
+            long[] sequentialTimes = new long[RUNS];
+            for (int run = 0; run < RUNS; run++) {
+                steps.aggregates = new AggregateStore();
+                long start = System.nanoTime();
+                List<Transaction> page = startPipeline(steps, readPool);
+                pipelineTimes[run] = System.nanoTime() - start;
+                assertEquals(PAGE, page.size());
+
+                steps.aggregates = new AggregateStore();
+                start = System.nanoTime();
+                startSequentially(steps);
+                sequentialTimes[run] = System.nanoTime() - start;
+            }
+            assertTrue(steps.aggregates.getTotalExpense(USER_ID) > 0);
+
+            double pipelineMs = median(pipelineTimes);
+            double sequentialMs = median(sequentialTimes);
+            Log.i(TAG, String.format("%d rows, time to first frame's data (median of %d): "
+                    + "pipeline %.2f ms, sequential %.2f ms", ROWS, RUNS, pipelineMs, sequentialMs));
+
+            assertTrue("pipeline " + pipelineMs + " ms", pipelineMs < TARGET_MS);
+            assertTrue("pipeline " + pipelineMs + " ms, sequential " + sequentialMs + " ms",
+                    pipelineMs <= sequentialMs);
+        } finally {
+            readPool.shutdownNow();
+            db.close();
+            SQLiteDatabase.deleteDatabase(file);
+        }
+    }
+
+    /**
+     * What MainActivity and TransactionViewModel now do: start, wait for the check, then take
+     * the preloaded page and totals.
+     */
+    private static List<Transaction> startPipeline(DatabaseSteps steps, ExecutorService readPool)
+            throws InterruptedException {
+        StartupLoader loader = new StartupLoader(steps, readPool, Runnable::run, null);
+        CountDownLatch validated = new CountDownLatch(1);
+        loader.start(USER_ID, PAGE, username -> {
+            assertNotNull(username);
+            validated.countDown();
+        });
+        assertTrue(validated.await(10, TimeUnit.SECONDS));
+        List<Transaction> page = loader.takeFirstPage(USER_ID, PAGE);
+        loader.awaitTotals(USER_ID);
+        return page;
+    }
+
+    /**
+     * What the main screen did before: check the user, then both view models loaded the
+     * page and totals one after the other.
+     */
+    private static void startSequentially(DatabaseSteps steps) {
+        assertNotNull(steps.username(USER_ID));
+        for (int i = 0; i < 2; i++) {
+            steps.firstPage(USER_ID, PAGE);
+            steps.loadTotals(USER_ID);
+        }
+    }
+
+    private static void seed(SQLiteDatabase db) {
+        LedgerGenerator ledger = new LedgerGenerator(ROWS, 42);
+        List<Transaction> chunk = new ArrayList<>(CHUNK);
+        while (ledger.hasNext()) {
+            chunk.add(ledger.next());
+            if (chunk.size() == CHUNK || !ledger.hasNext()) {
+                db.beginTransaction();
+                try {
+                    TransactionRepository.insertBatch(db, USER_ID, chunk);
+                    db.setTransactionSuccessful();
+                } finally {
+                    db.endTransaction();
+                }
+                chunk.clear();
+            }
+        }
+    }
+
+    private static double median(long[] nanos) {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2] / 1_000_000.0;
+    }
+}
@@ -0,0 +1,101 @@
+package com.expensetracker.budgettracker.data;
+
+import android.content.Context;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.expensetracker.budgettracker.models.Transaction;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * Rebuilds the in-memory totals while inserts commit on either side of the rebuild, and
+ * checks every insert is counted exactly once.
+ */
+@RunWith(AndroidJUnit4.class)
+public class TotalsRebuildTest {
+    private static final long USER_ID = 9_000_002;
+    private static final int DAY = 20_000;
+
+    private final ExecutorService writer = Executors.newSingleThreadExecutor();
+    private LedgerPartitions partitions;
+    private WriteQueue queue;
+    private AggregateStore aggregates;
+    private DailyTotals dailyTotals;
+    private TransactionRepository repository;
+
+    @Before
+    public void setUp() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        partitions = new LedgerPartitions(context, new DatabaseHelper(context, null));
+        queue = new WriteQueue(partitions, writer);
+        aggregates = new AggregateStore();
+        dailyTotals = new DailyTotals();
+        repository = new TransactionRepository(partitions, aggregates, dailyTotals, queue);
+    }
+
+    @After
+    public void tearDown() {
+        writer.shutdownNow();
+        partitions.delete(USER_ID);
+    }
+
+    @Test
+    public void rebuild_countsCommitsAroundItExactlyOnce() throws Exception {
+        // Committed before anything is loaded: only the rebuild can count it
+        repository.insert(USER_ID, expense(100), null);
+        queue.submitAndWait(USER_ID, db -> null);
+
+        // Hold the writer so the next inserts and both rebuilds queue up together
+        CountDownLatch release = new CountDownLatch(1);
+        queue.submit(USER_ID, db -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return null;
+        });
+        repository.insert(USER_ID, expense(200), null);
+        Thread aggregateLoader = new Thread(() -> repository.ensureAggregatesLoaded(USER_ID));
+        Thread dailyLoader = new Thread(() -> repository.ensureDailyTotalsLoaded(USER_ID));
+        aggregateLoader.start();
+        dailyLoader.start();
+        awaitWaiting(aggregateLoader);
+        awaitWaiting(dailyLoader);
+        repository.insert(USER_ID, expense(300), null);
+
+        release.countDown();
+        aggregateLoader.join(5_000);
+        dailyLoader.join(5_000);
+        assertFalse(aggregateLoader.isAlive() || dailyLoader.isAlive());
+        queue.submitAndWait(USER_ID, db -> null);
+
+        assertEquals(600, aggregates.getTotalExpense(USER_ID));
+        assertEquals(6f, dailyTotals.series(USER_ID, DAY, DAY, 10).y[0], 0f);
+    }
+
+    private static Transaction expense(long amount) {
+        return new Transaction("Groceries", amount, DAY, AggregateStore.TYPE_EXPENSE);
+    }
+
+    // Parked on its write once it has been queued
+    private static void awaitWaiting(Thread thread) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (thread.getState() != Thread.State.WAITING && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(Thread.State.WAITING, thread.getState());
+    }
+}
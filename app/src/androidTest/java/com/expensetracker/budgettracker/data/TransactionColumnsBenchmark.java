@@ -0,0 +1,141 @@
+package com.expensetracker.budgettracker.data;
+
+import android.content.Context;
+import android.os.Debug;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.expensetracker.budgettracker.benchmark.BenchmarkRunner;
+import com.expensetracker.budgettracker.benchmark.LedgerGenerator;
+import com.expensetracker.budgettracker.models.Transaction;
+
+import net.zetetic.database.sqlcipher.SQLiteDatabase;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Expense totals per category over a whole ledger, read as {@link TransactionColumns}
+ * against mapping it to {@link Transaction} objects page by page, as
+ * {@code TransactionRepository.queryPage} does, and summing those. Records rows per second and bytes allocated per row (from ART's allocation counter, so
+ * other threads' allocations add noise) into {@code transaction-columns.json}.
+ * <p>
+ * Sizes default to 1k to 1M rows; pass {@code -e benchmark.sizes 1000,10000} to run fewer.
+ */
+@RunWith(AndroidJUnit4.class)
+public class TransactionColumnsBenchmark {
+    private static final String TAG = "TransactionColumnsBenchmark";
+    private static final long USER_ID = 1;
+    private static final int CHUNK = 10_000;
+    private static final int PAGE = 500;
+
+    @BeforeClass
+    public static void loadSqlCipher() {
+        DatabaseHelper.loadLibrary();
+    }
+
+    @Test
+    public void columnsAgainstObjects() throws Exception {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        int[] sizes = BenchmarkRunner.sizes(InstrumentationRegistry.getArguments().getString("benchmark.sizes"));
+        BenchmarkRunner runner = new BenchmarkRunner("transaction-columns");
+        File file = new File(context.getCacheDir(), "columns-benchmark.db");
+
+        for (int size : sizes) {
+            SQLiteDatabase.deleteDatabase(file);
+            SQLiteDatabase db = SQLiteDatabase.openDatabase(file.getPath(), null,
+                    SQLiteDatabase.CREATE_IF_NECESSARY | SQLiteDatabase.ENABLE_WRITE_AHEAD_LOGGING);
+            try {
+                DatabaseHelper.createSchema(db);
+                db.execSQL("INSERT INTO users (user_id, username, email, password) VALUES (1, 'bench', 'bench@example.com', 'x')");
+                seed(db, size);
+                assertEquals(fromObjects(db), fromColumns(db));
+
+                int[] value = {size};
+                runner.run("columns", "rows", value, rows -> db, TransactionColumnsBenchmark::fromColumns);
+                runner.run("objects", "rows", value, rows -> db, TransactionColumnsBenchmark::fromObjects);
+
+                for (String benchmark : new String[]{"columns", "objects"}) {
+                    runner.record(benchmark, "rows", size, "rowsPerSecond",
+                            size * 1e9 / runner.medianNs(benchmark, size));
+                }
+                runner.record("columns", "rows", size, "bytesPerRow", bytesPerRow(size, () -> fromColumns(db)));
+                runner.record("objects", "rows", size, "bytesPerRow", bytesPerRow(size, () -> fromObjects(db)));
+            } finally {
+                db.close();
+                SQLiteDatabase.deleteDatabase(file);
+            }
+        }
+
+        File dir = context.getExternalFilesDir("benchmarks");
+        File json = runner.writeJson(dir != null ? dir : new File(context.getFilesDir(), "benchmarks"));
+        Log.i(TAG, "Results written to " + json);
+    }
+
+    private static Map<Integer, Long> fromColumns(SQLiteDatabase db) {
+        return TransactionRepository.loadColumns(db, USER_ID, 0, Integer.MAX_VALUE).expenseTotalsByCategory();
+    }
+
+    /**
+     * Every row as objects, in pages like the ledger screen reads them, dropping each page
+     * once it is summed.
+     */
+    private static Map<Integer, Long> fromObjects(SQLiteDatabase db) {
+        Map<Integer, Long> totals = new HashMap<>();
+        Transaction anchor = null;
+        List<Transaction> page;
+        do {
+            page = TransactionRepository.loadOlder(db, USER_ID, anchor, PAGE);
+            for (Transaction row : page) {
+                if (!row.isIncome()) {
+                    totals.merge(row.getCategoryId(), row.getAmountCents(), Long::sum);
+                }
+            }
+            if (!page.isEmpty()) {
+                anchor = page.get(page.size() - 1);
+            }
+        } while (page.size() == PAGE);
+        return totals;
+    }
+
+    private static double bytesPerRow(int rows, Runnable read) {
+        long before = allocatedBytes();
+        read.run();
+        long after = allocatedBytes();
+        return before < 0 || after < 0 ? Double.NaN : (after - before) / (double) rows;
+    }
+
+    private static long allocatedBytes() {
+        String stat = Debug.getRuntimeStat("art.gc.bytes-allocated");
+        return stat != null ? Long.parseLong(stat) : -1;
+    }
+
+    private static void seed(SQLiteDatabase db, int rows) {
+        LedgerGenerator ledger = new LedgerGenerator(rows, rows);
+        List<Transaction> chunk = new ArrayList<>(CHUNK);
+        while (ledger.hasNext()) {
+            chunk.add(ledger.next());
+            if (chunk.size() == CHUNK || !ledger.hasNext()) {
+                db.beginTransaction();
+                try {
+                    TransactionRepository.insertBatch(db, USER_ID, chunk);
+                    db.setTransactionSuccessful();
+                } finally {
+                    db.endTransaction();
+                }
+                chunk.clear();
+            }
+        }
+    }
+}
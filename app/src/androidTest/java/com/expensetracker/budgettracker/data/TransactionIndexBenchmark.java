@@ -0,0 +1,134 @@
+package com.expensetracker.budgettracker.data;
+
+import android.database.Cursor;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.expensetracker.budgettracker.data.migrations.Migrations;
+
+import net.zetetic.database.sqlcipher.SQLiteDatabase;
+import net.zetetic.database.sqlcipher.SQLiteStatement;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compares query plans and latency of the ledger queries before and after the
+ * version 3 indexes, on generated ledgers of 10k, 100k and 1M rows.
+ * Results are written to logcat under the "IndexBenchmark" tag.
+ */
+@RunWith(AndroidJUnit4.class)
+public class TransactionIndexBenchmark {
+    private static final String TAG = "IndexBenchmark";
+    private static final int[] LEDGER_SIZES = {10_000, 100_000, 1_000_000};
+    private static final int USERS = 20;
+    private static final String[] CATEGORIES = {
+            "Food & Drink", "Transportation", "Housing & Utilities",
+            "Personal Care", "Shopping", "Salary"
+    };
+    private static final int RUNS = 15;
+
+    private static final String PAGE_QUERY = "SELECT transaction_id, amount, category, date, type" +
+            " FROM transactions WHERE user_id = ?" +
+            " ORDER BY date DESC, transaction_id DESC LIMIT 50";
+    private static final String CATEGORY_QUERY = "SELECT SUM(amount) FROM transactions" +
+            " WHERE user_id = ? AND category = ? AND date BETWEEN ? AND ?";
+
+    @BeforeClass
+    public static void loadSqlCipher() {
+        DatabaseHelper.loadLibrary();
+    }
+
+    @Test
+    public void compareQueryPlansAndLatency() {
+        for (int rows : LEDGER_SIZES) {
+            SQLiteDatabase db = SQLiteDatabase.create(null);
+            try {
+                DatabaseHelper.createBaselineSchema(db);
+                populate(db, rows);
+
+                report(db, rows, "baseline");
+                Migrations.MIGRATION_2_3.migrate(db);
+                db.execSQL("ANALYZE");
+                report(db, rows, "indexed");
+
+                assertTrue(queryPlan(db, PAGE_QUERY, "7").contains(Migrations.INDEX_TRANSACTIONS_USER_DATE));
+                assertTrue(queryPlan(db, CATEGORY_QUERY, "7", "Shopping", "2024-01-01", "2024-06-30")
+                        .contains(Migrations.INDEX_TRANSACTIONS_USER_CATEGORY_DATE));
+            } finally {
+                db.close();
+            }
+        }
+    }
+
+    private void report(SQLiteDatabase db, int rows, String label) {
+        Log.i(TAG, String.format("%,d rows [%s] page query plan: %s",
+                rows, label, queryPlan(db, PAGE_QUERY, "7")));
+        Log.i(TAG, String.format("%,d rows [%s] page query median: %.3f ms",
+                rows, label, medianMillis(db, PAGE_QUERY, "7")));
+        Log.i(TAG, String.format("%,d rows [%s] category query plan: %s",
+                rows, label, queryPlan(db, CATEGORY_QUERY, "7", "Shopping", "2024-01-01", "2024-06-30")));
+        Log.i(TAG, String.format("%,d rows [%s] category query median: %.3f ms",
+                rows, label, medianMillis(db, CATEGORY_QUERY, "7", "Shopping", "2024-01-01", "2024-06-30")));
+    }
+
+    private static void populate(SQLiteDatabase db, int rows) {
+        Random random = new Random(42);
+        db.beginTransaction();
+        try {
+            for (int user = 1; user <= USERS; user++) {
+                db.execSQL("INSERT INTO users (user_id, username, email, password) VALUES (?, ?, ?, ?)",
+                        new Object[]{user, "user" + user, "user" + user + "@example.com", "x"});
+            }
+            SQLiteStatement insert = db.compileStatement(
+                    "INSERT INTO transactions (user_id, amount, category, date, type) VALUES (?, ?, ?, ?, ?)");
+            for (int i = 0; i < rows; i++) {
+                String category = CATEGORIES[random.nextInt(CATEGORIES.length)];
+                insert.bindLong(1, 1 + random.nextInt(USERS));
+                insert.bindDouble(2, random.nextInt(500_000) / 100.0);
+                insert.bindString(3, category);
+                insert.bindString(4, String.format("%04d-%02d-%02d",
+                        2020 + random.nextInt(5), 1 + random.nextInt(12), 1 + random.nextInt(28)));
+                insert.bindString(5, "Salary".equals(category) ? "income" : "expense");
+                insert.executeInsert();
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    private static String queryPlan(SQLiteDatabase db, String sql, String... args) {
+        StringBuilder plan = new StringBuilder();
+        try (Cursor cursor = db.rawQuery("EXPLAIN QUERY PLAN " + sql, args)) {
+            int detail = cursor.getColumnIndexOrThrow("detail");
+            while (cursor.moveToNext()) {
+                if (plan.length() > 0) plan.append(" | ");
+                plan.append(cursor.getString(detail));
+            }
+        }
+        return plan.toString();
+    }
+
+    private static double medianMillis(SQLiteDatabase db, String sql, String... args) {
+        long[] samples = new long[RUNS];
+        for (int run = 0; run < RUNS; run++) {
+            long start = System.nanoTime();
+            try (Cursor cursor = db.rawQuery(sql, args)) {
+                while (cursor.moveToNext()) {
+                    cursor.getString(0);
+                }
+            }
+            samples[run] = System.nanoTime() - start;
+        }
+        Arrays.sort(samples);
+        return samples[RUNS / 2] / 1_000_000.0;
+    }
+}
@@ -0,0 +1,150 @@
+package com.expensetracker.budgettracker.data;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.expensetracker.budgettracker.models.Transaction;
+import com.expensetracker.budgettracker.utils.EpochDays;
+
+import net.zetetic.database.sqlcipher.SQLiteDatabase;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Searches a generated 500k-row ledger for the first page of 50 results through
+ * {@link TransactionSearch}, checks the results, and writes median latencies to logcat under
+ * the "SearchBenchmark" tag. Fails if a median misses the targets in the
+ * {@link TransactionSearch} docs by more than 2x, leaving room for slower test devices.
+ */
+@RunWith(AndroidJUnit4.class)
+public class TransactionSearchBenchmark {
+    private static final String TAG = "SearchBenchmark";
+    private static final String[] CATEGORIES = {"Food & Drink", "Transportation", "Shopping", "Housing", "Salary"};
+    private static final String[] NOTES = {"", "coffee with team", "grab taxi home", "groceries", "rent", "movie night", ""};
+    private static final long USER_ID = 1;
+    private static final int ROWS = 500_000;
+    private static final int CHUNK = 10_000;
+    private static final int PAGE = 50;
+    private static final int RUNS = 9;
+
+    @BeforeClass
+    public static void loadSqlCipher() {
+        DatabaseHelper.loadLibrary();
+    }
+
+    @Test
+    public void searchLatencyAt500kRows() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        File file = new File(context.getCacheDir(), "search-benchmark.db");
+        SQLiteDatabase.deleteDatabase(file);
+        SQLiteDatabase db = SQLiteDatabase.openDatabase(file.getPath(), null,
+                SQLiteDatabase.CREATE_IF_NECESSARY | SQLiteDatabase.ENABLE_WRITE_AHEAD_LOGGING);
+        try {
+            DatabaseHelper.createSchema(db);
+            db.execSQL("INSERT INTO users (user_id, username, email, password) VALUES (1, 'bench', 'bench@example.com', 'x')");
+            int firstDay = EpochDays.of(2020, 1, 1);
+            seed(db, firstDay);
+            // One row that only a rare word finds
+            db.execSQL("UPDATE transactions SET notes = 'anniversary dinner' WHERE transaction_id = 1234");
+
+            SearchQuery prefix = new SearchQuery.Builder().text("cof").build();
+            SearchQuery twoWords = new SearchQuery.Builder().text("grab tax").build();
+            SearchQuery rare = new SearchQuery.Builder().text("anniv").build();
+            SearchQuery dateRange = new SearchQuery.Builder().dateBetween(firstDay + 300, firstDay + 330).build();
+            SearchQuery textAndAmount = new SearchQuery.Builder().text("food").amountBetween(10_000L, 20_000L).build();
+
+            List<Transaction> rareRows = search(db, rare).loadOlder(null, PAGE);
+            assertEquals(1, rareRows.size());
+            assertEquals("anniversary dinner", rareRows.get(0).getNotes());
+            List<Transaction> prefixRows = search(db, prefix).loadOlder(null, PAGE);
+            assertEquals(PAGE, prefixRows.size());
+            for (Transaction row : prefixRows) {
+                assertTrue(row.getNotes().startsWith("coffee"));
+            }
+
+            double prefixMs = time(db, prefix);
+            double twoWordsMs = time(db, twoWords);
+            double rareMs = time(db, rare);
+            double dateMs = time(db, dateRange);
+            double textAndAmountMs = time(db, textAndAmount);
+            double nextPageMs = timeSecondPage(db, prefix);
+
+            Log.i(TAG, String.format("%d rows, first page of %d (median of %d): prefix %.2f ms, two words %.2f ms, "
+                            + "rare word %.2f ms, date range %.2f ms, text + amount %.2f ms, prefix next page %.2f ms",
+                    ROWS, PAGE, RUNS, prefixMs, twoWordsMs, rareMs, dateMs, textAndAmountMs, nextPageMs));
+
+            assertTrue("prefix search " + prefixMs + " ms", prefixMs < 100);
+            assertTrue("rare word search " + rareMs + " ms", rareMs < 20);
+            assertTrue("date range search " + dateMs + " ms", dateMs < 40);
+        } finally {
+            db.close();
+            SQLiteDatabase.deleteDatabase(file);
+        }
+    }
+
+    private static TransactionSearch search(SQLiteDatabase db, SearchQuery query) {
+        return new TransactionSearch(() -> db, USER_ID, query);
+    }
+
+    private static double time(SQLiteDatabase db, SearchQuery query) {
+        long[] times = new long[RUNS];
+        for (int run = 0; run < RUNS; run++) {
+            long start = System.nanoTime();
+            // A fresh source per run, so the plan probe is part of the measurement
+            search(db, query).loadOlder(null, PAGE);
+            times[run] = System.nanoTime() - start;
+        }
+        return median(times);
+    }
+
+    private static double timeSecondPage(SQLiteDatabase db, SearchQuery query) {
+        TransactionSearch source = search(db, query);
+        List<Transaction> first = source.loadOlder(null, PAGE);
+        Transaction anchor = first.get(first.size() - 1);
+        long[] times = new long[RUNS];
+        for (int run = 0; run < RUNS; run++) {
+            long start = System.nanoTime();
+            source.loadOlder(anchor, PAGE);
+            times[run] = System.nanoTime() - start;
+        }
+        return median(times);
+    }
+
+    private static void seed(SQLiteDatabase db, int firstDay) {
+        List<Transaction> chunk = new ArrayList<>(CHUNK);
+        for (int i = 0; i < ROWS; i++) {
+            String category = CATEGORIES[i % CATEGORIES.length];
+            chunk.add(new Transaction(category, 100 + (i * 37L) % 100_000, firstDay + i % 1_826,
+                    "Salary".equals(category) ? "income" : "expense", NOTES[i % NOTES.length]));
+            if (chunk.size() == CHUNK) {
+                db.beginTransaction();
+                try {
+                    TransactionRepository.insertBatch(db, USER_ID, chunk);
+                    db.setTransactionSuccessful();
+                } finally {
+                    db.endTransaction();
+                }
+                chunk.clear();
+            }
+        }
+    }
+
+    private static double median(long[] nanos) {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2] / 1_000_000.0;
+    }
+}
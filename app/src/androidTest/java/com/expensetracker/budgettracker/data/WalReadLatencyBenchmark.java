@@ -0,0 +1,147 @@
+package com.expensetracker.budgettracker.data;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.expensetracker.budgettracker.utils.EpochDays;
+
+import net.zetetic.database.sqlcipher.SQLiteDatabase;
+import net.zetetic.database.sqlcipher.SQLiteStatement;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Measures dashboard read latency while a writer streams single-row inserts, with
+ * write-ahead logging on and off. Results are written to logcat under the
+ * "WalBenchmark" tag.
+ */
+@RunWith(AndroidJUnit4.class)
+public class WalReadLatencyBenchmark {
+    private static final String TAG = "WalBenchmark";
+    private static final int SEED_ROWS = 50_000;
+    private static final int READER_THREADS = 2;
+    private static final long DURATION_MS = 5_000;
+    private static final int MAX_SAMPLES = 200_000;
+
+    private static final String PAGE_QUERY = "SELECT transaction_id, amount, category_id, date, type" +
+            " FROM transactions WHERE user_id = ?" +
+            " ORDER BY date DESC, transaction_id DESC LIMIT 50";
+
+    @BeforeClass
+    public static void loadSqlCipher() {
+        DatabaseHelper.loadLibrary();
+    }
+
+    @Test
+    public void readLatencyUnderInsertStream() throws Exception {
+        long[] journal = run(false);
+        long[] wal = run(true);
+
+        report("rollback journal", journal);
+        report("WAL", wal);
+        assertTrue("readers made no progress with WAL", wal.length > 0);
+    }
+
+    private long[] run(boolean writeAheadLogging) throws Exception {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        File file = new File(context.getCacheDir(), "wal-benchmark.db");
+        SQLiteDatabase.deleteDatabase(file);
+
+        int flags = SQLiteDatabase.CREATE_IF_NECESSARY;
+        if (writeAheadLogging) flags |= SQLiteDatabase.ENABLE_WRITE_AHEAD_LOGGING;
+        SQLiteDatabase db = SQLiteDatabase.openDatabase(file.getPath(), null, flags);
+        try {
+            DatabaseHelper.createSchema(db);
+            seed(db);
+
+            AtomicBoolean running = new AtomicBoolean(true);
+            long[] samples = new long[MAX_SAMPLES];
+            AtomicLong sampleCount = new AtomicLong();
+            CountDownLatch done = new CountDownLatch(READER_THREADS + 1);
+
+            new Thread(() -> {
+                SQLiteStatement insert = db.compileStatement(
+                        "INSERT INTO transactions (user_id, amount, category_id, date, type) VALUES (1, 1250, " +
+                                CategoryDictionary.SHOPPING + ", " + EpochDays.of(2024, 6, 1) + ", 'expense')");
+                while (running.get()) {
+                    // One implicit transaction per insert, as the app did before batching
+                    insert.executeInsert();
+                }
+                insert.close();
+                done.countDown();
+            }).start();
+
+            for (int r = 0; r < READER_THREADS; r++) {
+                new Thread(() -> {
+                    while (running.get()) {
+                        long start = System.nanoTime();
+                        try (Cursor cursor = db.rawQuery(PAGE_QUERY, new String[]{"1"})) {
+                            while (cursor.moveToNext()) {
+                                cursor.getLong(1);
+                            }
+                        }
+                        long index = sampleCount.getAndIncrement();
+                        if (index < MAX_SAMPLES) samples[(int) index] = System.nanoTime() - start;
+                    }
+                    done.countDown();
+                }).start();
+            }
+
+            Thread.sleep(DURATION_MS);
+            running.set(false);
+            done.await();
+            return Arrays.copyOf(samples, (int) Math.min(sampleCount.get(), MAX_SAMPLES));
+        } finally {
+            db.close();
+            SQLiteDatabase.deleteDatabase(file);
+        }
+    }
+
+    private static void seed(SQLiteDatabase db) {
+        db.beginTransaction();
+        try {
+            db.execSQL("INSERT INTO users (user_id, username, email, password) VALUES (1, 'bench', 'bench@example.com', 'x')");
+            SQLiteStatement insert = db.compileStatement(
+                    "INSERT INTO transactions (user_id, amount, category_id, date, type) VALUES (1, ?, " +
+                            CategoryDictionary.FOOD_AND_DRINK + ", ?, 'expense')");
+            for (int i = 0; i < SEED_ROWS; i++) {
+                insert.bindLong(1, i % 100_000);
+                insert.bindLong(2, EpochDays.of(2020 + i % 5, 1 + i % 12, 1 + i % 28));
+                insert.executeInsert();
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    private static void report(String label, long[] samples) {
+        Arrays.sort(samples);
+        if (samples.length == 0) {
+            Log.i(TAG, label + ": no reads completed");
+            return;
+        }
+        Log.i(TAG, String.format("%s: %d reads in %d ms, p50 %.3f ms, p95 %.3f ms, p99 %.3f ms, max %.3f ms",
+                label, samples.length, DURATION_MS,
+                percentile(samples, 0.50), percentile(samples, 0.95),
+                percentile(samples, 0.99), samples[samples.length - 1] / 1_000_000.0));
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        return sorted[(int) Math.min(sorted.length - 1, Math.round(p * (sorted.length - 1)))] / 1_000_000.0;
+    }
+}
@@ -0,0 +1,104 @@
+package com.expensetracker.budgettracker.data;
+
+import android.content.ContentValues;
+import android.content.Context;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import net.zetetic.database.DatabaseUtils;
+import net.zetetic.database.sqlcipher.SQLiteDatabase;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Runs the queue against a real ledger, draining it by hand so every write submitted
+ * before the drain lands in the same batch.
+ */
+@RunWith(AndroidJUnit4.class)
+public class WriteQueueTest {
+    private static final long USER_ID = 9_000_001;
+
+    private final Queue<Runnable> writer = new ArrayDeque<>();
+    private LedgerPartitions partitions;
+    private WriteQueue queue;
+
+    @Before
+    public void setUp() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        partitions = new LedgerPartitions(context, new DatabaseHelper(context, null));
+        queue = new WriteQueue(partitions, writer::add);
+    }
+
+    @After
+    public void tearDown() {
+        partitions.delete(USER_ID);
+    }
+
+    private void drain() {
+        while (!writer.isEmpty()) {
+            writer.poll().run();
+        }
+    }
+
+    @Test
+    public void failingWrite_isReportedAndTheRestOfItsBatchStillCommits() {
+        List<String> committed = new ArrayList<>();
+        List<Exception> failed = new ArrayList<>();
+        List<Long> reported = new ArrayList<>();
+        IllegalStateException broken = new IllegalStateException("broken write");
+        queue.addFailureListener((userId, e) -> reported.add(userId));
+
+        queue.submit(USER_ID, db -> {
+            insert(db, 100);
+            return () -> committed.add("first");
+        });
+        queue.submit(USER_ID, new WriteQueue.Write() {
+            @Override
+            public Runnable apply(SQLiteDatabase db) {
+                insert(db, 200);
+                throw broken;
+            }
+
+            @Override
+            public void onFailed(Exception e) {
+                failed.add(e);
+            }
+        });
+        queue.submit(USER_ID, db -> {
+            insert(db, 300);
+            return () -> committed.add("third");
+        });
+        drain();
+
+        assertEquals(List.of("first", "third"), committed);
+        assertEquals(1, failed.size());
+        assertSame(broken, failed.get(0));
+        assertEquals(List.of(USER_ID), reported);
+        try (LedgerPartitions.Lease ledger = partitions.acquire(USER_ID)) {
+            assertEquals(400, DatabaseUtils.longForQuery(ledger.getReadableDatabase(),
+                    "SELECT SUM(" + DatabaseHelper.COLUMN_AMOUNT + ") FROM " + DatabaseHelper.TABLE_TRANSACTIONS, null));
+        }
+    }
+
+    private static void insert(SQLiteDatabase db, long amount) {
+        ContentValues values = new ContentValues();
+        values.put(DatabaseHelper.COLUMN_USER_ID, USER_ID);
+        values.put(DatabaseHelper.COLUMN_AMOUNT, amount);
+        values.put(DatabaseHelper.COLUMN_CATEGORY_ID, 1);
+        values.put(DatabaseHelper.COLUMN_DATE, 20_000);
+        values.put(DatabaseHelper.COLUMN_TYPE, AggregateStore.TYPE_EXPENSE);
+        db.insertOrThrow(DatabaseHelper.TABLE_TRANSACTIONS, null, values);
+    }
+}
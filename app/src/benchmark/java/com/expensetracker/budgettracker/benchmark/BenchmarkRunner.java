@@ -0,0 +1,251 @@
+package com.expensetracker.budgettracker.benchmark;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A small JMH-style harness shared by the JVM benchmarks under {@code src/test} and the
+ * device benchmarks under {@code src/androidTest}. Each benchmark runs once per parameter
+ * value (usually the ledger size): it is set up outside the timed region, warmed up, then
+ * timed until it has both {@link #MIN_ITERATIONS} samples and {@link #TARGET_NANOS} of
+ * measurements, capped at {@link #MAX_ITERATIONS}. Results are written as one JSON
+ * document per suite, so runs can be collected and compared over time.
+ * <p>
+ * Ledger sizes come from the {@code benchmark.sizes} system property (comma separated),
+ * defaulting to 1k, 10k, 100k and 1M rows.
+ */
+public final class BenchmarkRunner {
+    public static final int[] DEFAULT_SIZES = {1_000, 10_000, 100_000, 1_000_000};
+
+    static final int WARMUP_ITERATIONS = 2;
+    static final int MIN_ITERATIONS = 5;
+    static final int MAX_ITERATIONS = 50;
+    static final long TARGET_NANOS = 2_000_000_000L;
+
+    // Written by every iteration so the JIT cannot drop a benchmark body as dead code
+    private static volatile int sink;
+
+    public interface Setup<S> {
+        S create(int value) throws Exception;
+    }
+
+    public interface Body<S> {
+        /**
+         * Run one timed iteration.
+         *
+         * @return anything the iteration computed; it is consumed so the work cannot be elided
+         */
+        Object run(S state) throws Exception;
+    }
+
+    public static final class Result {
+        public final String benchmark;
+        public final String param;
+        public final int value;
+        public final int iterations;
+        public final long minNs;
+        public final long medianNs;
+        public final long p90Ns;
+        public final long maxNs;
+        public final long meanNs;
+
+        Result(String benchmark, String param, int value, long[] samples) {
+            long[] sorted = samples.clone();
+            Arrays.sort(sorted);
+            long sum = 0;
+            for (long sample : sorted) {
+                sum += sample;
+            }
+            this.benchmark = benchmark;
+            this.param = param;
+            this.value = value;
+            this.iterations = sorted.length;
+            this.minNs = sorted[0];
+            this.medianNs = sorted[sorted.length / 2];
+            this.p90Ns = sorted[Math.min(sorted.length - 1, (int) Math.ceil(sorted.length * 0.9) - 1)];
+            this.maxNs = sorted[sorted.length - 1];
+            this.meanNs = sum / sorted.length;
+        }
+    }
+
+    public static final class Metric {
+        public final String benchmark;
+        public final String param;
+        public final int value;
+        public final String name;
+        public final double measurement;
+
+        Metric(String benchmark, String param, int value, String name, double measurement) {
+            this.benchmark = benchmark;
+            this.param = param;
+            this.value = value;
+            this.name = name;
+            this.measurement = measurement;
+        }
+    }
+
+    private final String suite;
+    private final List<Result> results = new ArrayList<>();
+    private final List<Metric> metrics = new ArrayList<>();
+
+    public BenchmarkRunner(String suite) {
+        this.suite = suite;
+    }
+
+    /**
+     * Ledger sizes to run, from {@code -Dbenchmark.sizes=1000,10000} or {@link #DEFAULT_SIZES}.
+     */
+    public static int[] sizes() {
+        return sizes(System.getProperty("benchmark.sizes"));
+    }
+
+    /**
+     * Parse a comma separated list of sizes, or {@link #DEFAULT_SIZES} if it is null or empty.
+     */
+    public static int[] sizes(String list) {
+        if (list == null || list.trim().isEmpty()) {
+            return DEFAULT_SIZES.clone();
+        }
+        String[] parts = list.split(",");
+        int[] sizes = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            sizes[i] = Integer.parseInt(parts[i].trim());
+        }
+        return sizes;
+    }
+
+    /**
+     * Where JVM runs write their JSON: {@code -Dbenchmark.outputDir}, or {@code build/benchmarks}.
+     */
+    public static File defaultOutputDir() {
+        return new File(System.getProperty("benchmark.outputDir", "build/benchmarks"));
+    }
+
+    public <S> void run(String benchmark, String param, int[] values, Setup<S> setup, Body<S> body) throws Exception {
+        for (int value : values) {
+            S state = setup.create(value);
+            for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+                consume(body.run(state));
+            }
+
+            long[] samples = new long[MAX_ITERATIONS];
+            int count = 0;
+            long elapsed = 0;
+            while (count < MAX_ITERATIONS && (count < MIN_ITERATIONS || elapsed < TARGET_NANOS)) {
+                long start = System.nanoTime();
+                Object result = body.run(state);
+                long time = System.nanoTime() - start;
+                consume(result);
+                samples[count++] = time;
+                elapsed += time;
+            }
+            Result result = new Result(benchmark, param, value, Arrays.copyOf(samples, count));
+            results.add(result);
+            System.out.println(String.format("%s.%s %s=%d: median %.3f ms, p90 %.3f ms (%d iterations)",
+                    suite, benchmark, param, value, result.medianNs / 1e6, result.p90Ns / 1e6, result.iterations));
+        }
+    }
+
+    /**
+     * Record a measurement other than time, such as bytes allocated per row, alongside the timings.
+     */
+    public void record(String benchmark, String param, int value, String name, double measurement) {
+        metrics.add(new Metric(benchmark, param, value, name, measurement));
+        System.out.println(String.format("%s.%s %s=%d: %s %.2f", suite, benchmark, param, value, name, measurement));
+    }
+
+    /**
+     * The median time of a benchmark already run, or -1 if there is none.
+     */
+    public long medianNs(String benchmark, int value) {
+        for (Result result : results) {
+            if (result.benchmark.equals(benchmark) && result.value == value) {
+                return result.medianNs;
+            }
+        }
+        return -1;
+    }
+
+    public List<Result> getResults() {
+        return Collections.unmodifiableList(results);
+    }
+
+    /**
+     * Write {@code <suite>.json} into {@code dir}, creating it if needed.
+     */
+    public File writeJson(File dir) throws IOException {
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Cannot create " + dir);
+        }
+        File file = new File(dir, suite + ".json");
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+            writer.write(toJson());
+        }
+        return file;
+    }
+
+    String toJson() {
+        StringBuilder json = new StringBuilder(256 + results.size() * 200);
+        json.append("{\n  \"suite\": ").append(quote(suite))
+                .append(",\n  \"timestampMillis\": ").append(System.currentTimeMillis())
+                .append(",\n  \"environment\": {\"vm\": ").append(quote(System.getProperty("java.vm.name", "")))
+                .append(", \"vmVersion\": ").append(quote(System.getProperty("java.vm.version", "")))
+                .append(", \"arch\": ").append(quote(System.getProperty("os.arch", "")))
+                .append(", \"processors\": ").append(Runtime.getRuntime().availableProcessors())
+                .append("},\n  \"results\": [");
+        for (int i = 0; i < results.size(); i++) {
+            Result r = results.get(i);
+            json.append(i == 0 ? "\n" : ",\n")
+                    .append("    {\"benchmark\": ").append(quote(r.benchmark))
+                    .append(", \"param\": ").append(quote(r.param))
+                    .append(", \"value\": ").append(r.value)
+                    .append(", \"iterations\": ").append(r.iterations)
+                    .append(", \"minNs\": ").append(r.minNs)
+                    .append(", \"medianNs\": ").append(r.medianNs)
+                    .append(", \"p90Ns\": ").append(r.p90Ns)
+                    .append(", \"maxNs\": ").append(r.maxNs)
+                    .append(", \"meanNs\": ").append(r.meanNs)
+                    .append('}');
+        }
+        json.append("\n  ],\n  \"metrics\": [");
+        for (int i = 0; i < metrics.size(); i++) {
+            Metric m = metrics.get(i);
+            json.append(i == 0 ? "\n" : ",\n")
+                    .append("    {\"benchmark\": ").append(quote(m.benchmark))
+                    .append(", \"param\": ").append(quote(m.param))
+                    .append(", \"value\": ").append(m.value)
+                    .append(", \"name\": ").append(quote(m.name))
+                    .append(", \"measurement\": ").append(Double.isNaN(m.measurement)
+                            || Double.isInfinite(m.measurement) ? "null" : String.valueOf(m.measurement))
+                    .append('}');
+        }
+        return json.append("\n  ]\n}\n").toString();
+    }
+
+    private static String quote(String value) {
+        StringBuilder quoted = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                quoted.append('\\').append(c);
+            } else if (c < 0x20) {
+                quoted.append(String.format("\\u%04x", (int) c));
+            } else {
+                quoted.append(c);
+            }
+        }
+        return quoted.append('"').toString();
+    }
+
+    private static void consume(Object result) {
+        sink ^= System.identityHashCode(result);
+    }
+}
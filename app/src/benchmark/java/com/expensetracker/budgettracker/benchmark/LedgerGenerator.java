@@ -0,0 +1,67 @@
+package com.expensetracker.budgettracker.benchmark;
+
+import com.expensetracker.budgettracker.models.Transaction;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+/**
+ * Deterministic synthetic ledgers for benchmarks: five years of rows across the app's
+ * built-in categories, about one in six of them income, newest first with row and category
+ * IDs assigned. Iterate it
+ * directly to stream a ledger too big to hold in memory, as the device benchmarks do.
+ */
+public final class LedgerGenerator implements Iterator<Transaction> {
+    // In CategoryDictionary ID order, starting at 1
+    public static final String[] CATEGORIES = {
+            "Food & Drink", "Transportation", "Housing & Utilities", "Personal Care", "Shopping", "Salary"
+    };
+    private static final String[] NOTES = {"", "", "coffee", "grab home", "groceries", "rent", "movie night"};
+    // 2020-01-01
+    public static final int FIRST_DAY = 18_262;
+    public static final int DAYS = 1_826;
+
+    private final Random random;
+    private final int rows;
+    private int next;
+
+    public LedgerGenerator(int rows, long seed) {
+        this.rows = rows;
+        this.random = new Random(seed);
+    }
+
+    public static List<Transaction> generate(int rows, long seed) {
+        List<Transaction> ledger = new ArrayList<>(rows);
+        LedgerGenerator generator = new LedgerGenerator(rows, seed);
+        while (generator.hasNext()) {
+            ledger.add(generator.next());
+        }
+        return ledger;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return next < rows;
+    }
+
+    @Override
+    public Transaction next() {
+        if (next >= rows) {
+            throw new NoSuchElementException();
+        }
+        int i = next++;
+        int categoryIndex = random.nextInt(CATEGORIES.length);
+        String category = CATEGORIES[categoryIndex];
+        boolean income = "Salary".equals(category);
+        // Spread evenly over the range, newest first
+        int day = FIRST_DAY + DAYS - 1 - (int) ((long) i * DAYS / rows);
+        long amount = income ? 1_500_000 + random.nextInt(500_000) : 100 + random.nextInt(500_000);
+        Transaction transaction = new Transaction(categoryIndex + 1, category, amount, day,
+                income ? "income" : "expense", NOTES[random.nextInt(NOTES.length)]);
+        transaction.setId(rows - i);
+        return transaction;
+    }
+}
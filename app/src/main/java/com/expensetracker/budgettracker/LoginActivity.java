@@ -1,8 +1,6 @@
 package com.expensetracker.budgettracker;
 
 import android.content.Intent;
-import android.database.Cursor;
-import android.database.sqlite.SQLiteDatabase;
 import android.os.Bundle;
 import android.text.TextUtils;
 import android.widget.Button;
@@ -10,15 +8,12 @@ import android.widget.EditText;
 import android.widget.TextView;
 import android.widget.Toast;
 import androidx.appcompat.app.AppCompatActivity;
-import com.expensetracker.budgettracker.data.DatabaseHelper;
-import com.expensetracker.budgettracker.utils.SecurityUtils;
+import com.expensetracker.budgettracker.data.AuthRepository;
+import com.expensetracker.budgettracker.utils.AppExecutors;
 import com.expensetracker.budgettracker.utils.SessionManager;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import android.util.Pair;
 
 public class LoginActivity extends AppCompatActivity {
-    private ExecutorService executor = Executors.newSingleThreadExecutor();
     private EditText etUsername, etPassword;
     private Button btnLogin;
 
@@ -61,7 +56,7 @@ public class LoginActivity extends AppCompatActivity {
         }
 
         btnLogin.setEnabled(false);
-        executor.execute(() -> {
+        AppExecutors.getInstance().diskRead().execute(() -> {
             Pair<Long, String> result = validateCredentials(username, password);
             runOnUiThread(() -> {
                 btnLogin.setEnabled(true);
@@ -77,37 +72,14 @@ public class LoginActivity extends AppCompatActivity {
     }
 
     private Pair<Long, String> validateCredentials(String username, String password) {
-        DatabaseHelper dbHelper = new DatabaseHelper(getApplicationContext());
-        SQLiteDatabase db = dbHelper.getReadableDatabase();
-        Pair<Long, String> result = null;
-
-        try (Cursor cursor = db.query(
-                DatabaseHelper.TABLE_USERS,
-                new String[]{
-                        DatabaseHelper.COLUMN_USER_ID,
-                        DatabaseHelper.COLUMN_USERNAME,
-                        DatabaseHelper.COLUMN_PASSWORD
-                },
-                DatabaseHelper.COLUMN_USERNAME + " = ? COLLATE NOCASE",
-                new String[]{username},
-                null, null, null
-        )) {
-            if (cursor.moveToFirst()) {
-                String storedHash = cursor.getString(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_PASSWORD));
-                if (SecurityUtils.checkPassword(password, storedHash)) {
-                    long userId = cursor.getLong(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_USER_ID));
-                    String storedUsername = cursor.getString(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_USERNAME));
-                    result = new Pair<>(userId, storedUsername);
-                }
-            }
+        try {
+            AuthRepository.Account account = AuthRepository.getInstance(this).login(username, password);
+            return account != null ? new Pair<>(account.userId, account.username) : null;
         } catch (Exception e) {
             e.printStackTrace();
             runOnUiThread(() -> Toast.makeText(LoginActivity.this, "Authentication error", Toast.LENGTH_SHORT).show());
-        } finally {
-            db.close();
-            dbHelper.close();
+            return null;
         }
-        return result;
     }
 
     private void startMainActivity() {
@@ -125,10 +97,4 @@ public class LoginActivity extends AppCompatActivity {
     private void navigateToSignUp() {
         startActivity(new Intent(this, SignUpActivity.class));
     }
-
-    @Override
-    protected void onDestroy() {
-        executor.shutdown();
-        super.onDestroy();
-    }
 }
\ No newline at end of file
@@ -14,28 +14,28 @@ import androidx.navigation.NavController;
 import androidx.navigation.fragment.NavHostFragment;
 import androidx.navigation.ui.AppBarConfiguration;
 import androidx.navigation.ui.NavigationUI;
-import com.expensetracker.budgettracker.data.DatabaseHelper;
+import com.expensetracker.budgettracker.data.LedgerCipher;
+import com.expensetracker.budgettracker.data.StartupLoader;
+import com.expensetracker.budgettracker.data.TransactionRepository;
 import com.expensetracker.budgettracker.databinding.ActivityMainBinding;
 import com.expensetracker.budgettracker.ui.dashboard.TransactionViewModel;
 import com.expensetracker.budgettracker.ui.home.HomeViewModel;
 import com.expensetracker.budgettracker.ui.home.HomeViewModelFactory;
+import com.expensetracker.budgettracker.utils.AppExecutors;
+import com.expensetracker.budgettracker.utils.Metrics;
 import com.expensetracker.budgettracker.utils.SessionManager;
 import com.google.android.material.bottomnavigation.BottomNavigationView;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
 public class MainActivity extends AppCompatActivity {
     private static final String TAG = "MainActivity";
-    private ExecutorService executor = Executors.newSingleThreadExecutor();
+    private ActivityMainBinding binding;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         Log.d(TAG, "onCreate started");
-
-        // Initialize binding first to avoid memory leaks
-        ActivityMainBinding binding = ActivityMainBinding.inflate(getLayoutInflater());
-        setContentView(binding.getRoot());
+        // adb shell setprop log.tag.Metrics DEBUG
+        Metrics.setEnabled(Log.isLoggable(Metrics.TAG, Log.DEBUG));
 
         // Check session and user validity
         SessionManager sessionManager = new SessionManager(this);
@@ -44,25 +44,22 @@ public class MainActivity extends AppCompatActivity {
             return;
         }
 
-        // Validate user data in background
-        executor.execute(() -> {
-            DatabaseHelper dbHelper = new DatabaseHelper(MainActivity.this);
-            try {
-                long userId = sessionManager.getUserId();
-                boolean isValidUser = userId != -1 && dbHelper.getUsername(userId) != null;
-
-                runOnUiThread(() -> {
-                    if (!isValidUser) {
-                        sessionManager.logoutUser();
-                        navigateToLogin();
-                    } else {
-                        initializeUI(binding, sessionManager);
-                    }
-                });
-            } finally {
-                dbHelper.close();
+        // Validate the user and warm the first screen's data on the read pool while the layout inflates
+        StartupLoader.getInstance(this).start(sessionManager.getUserId(), TransactionViewModel.PAGE_SIZE, username -> {
+            if (isDestroyed()) return;
+            if (username == null) {
+                sessionManager.logoutUser();
+                navigateToLogin();
+            } else {
+                initializeUI(binding, sessionManager);
+                // Rent, salary and other repeating entries that fell due while the app was closed
+                TransactionRepository.getInstance(this).catchUpRecurring(sessionManager.getUserId(), null);
             }
         });
+
+        // Initialize binding first to avoid memory leaks
+        binding = ActivityMainBinding.inflate(getLayoutInflater());
+        setContentView(binding.getRoot());
     }
 
     private void navigateToLogin() {
@@ -111,7 +108,8 @@ public class MainActivity extends AppCompatActivity {
         if (navController != null) {
             AppBarConfiguration appBarConfig = new AppBarConfiguration.Builder(
                     R.id.navigation_home,
-                    R.id.navigation_transaction)
+                    R.id.navigation_transaction,
+                    R.id.navigation_charts)
                     .build();
 
             NavigationUI.setupActionBarWithNavController(this, navController, appBarConfig);
@@ -132,7 +130,22 @@ public class MainActivity extends AppCompatActivity {
         TransactionViewModel transactionVM = new ViewModelProvider(this).get(TransactionViewModel.class);
         HomeViewModelFactory factory = new HomeViewModelFactory(transactionVM);
         HomeViewModel homeVM = new ViewModelProvider(this, factory).get(HomeViewModel.class);
-        // Add ViewModel observers if needed
+        // Writes are queued from several screens, so failures are shown here whichever one is up
+        transactionVM.getWriteFailure().observe(this, failure -> {
+            if (failure == null) return;
+            // Refused rather than stored in the clear; worth telling apart, since retrying later helps
+            Toast.makeText(this, LedgerCipher.isKeyUnavailable(failure)
+                    ? R.string.write_refused_key_message : R.string.write_failed_message, Toast.LENGTH_LONG).show();
+            transactionVM.onWriteFailureShown();
+        });
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+        if (Metrics.isEnabled()) {
+            AppExecutors.getInstance().diskRead().execute(() -> Metrics.export(getFilesDir()));
+        }
     }
 
     @Override
@@ -143,10 +156,4 @@ public class MainActivity extends AppCompatActivity {
                 ? navHostFragment.getNavController().navigateUp()
                 : super.onSupportNavigateUp();
     }
-
-    @Override
-    protected void onDestroy() {
-        executor.shutdown();
-        super.onDestroy();
-    }
 }
\ No newline at end of file
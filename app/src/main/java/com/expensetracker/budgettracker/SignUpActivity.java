@@ -1,7 +1,6 @@
 package com.expensetracker.budgettracker;
 
 import android.content.Intent;
-import android.database.sqlite.SQLiteDatabase;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.Looper;
@@ -12,24 +11,20 @@ import android.widget.EditText;
 import android.widget.TextView;
 import android.widget.Toast;
 import androidx.appcompat.app.AppCompatActivity;
-import com.expensetracker.budgettracker.data.DatabaseHelper;
-import com.expensetracker.budgettracker.utils.SecurityUtils;
+import com.expensetracker.budgettracker.data.AuthRepository;
+import com.expensetracker.budgettracker.utils.AppExecutors;
 import com.expensetracker.budgettracker.utils.SessionManager;
 
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-
 public class SignUpActivity extends AppCompatActivity {
-    private DatabaseHelper databaseHelper;
+    private AuthRepository authRepository;
     private EditText etUsername, etEmail, etPassword, etConfirmPassword;
-    private final ExecutorService executor = Executors.newSingleThreadExecutor(); // For background tasks
     private final Handler handler = new Handler(Looper.getMainLooper()); // For UI updates
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_signup);
-        databaseHelper = new DatabaseHelper(this);
+        authRepository = AuthRepository.getInstance(this);
         initializeUI();
     }
 
@@ -69,22 +64,29 @@ public class SignUpActivity extends AppCompatActivity {
             return;
         }
 
-        // Perform registration in the background
-        executor.execute(() -> registerUser(username, email, password));
+        // Hash on a read thread so BCrypt never stalls the single writer, then insert on the writer
+        AppExecutors executors = AppExecutors.getInstance();
+        executors.diskRead().execute(() -> {
+            String hashedPassword;
+            try {
+                hashedPassword = authRepository.hashPassword(password);
+            } catch (Exception e) {
+                Log.e("Signup", "Error: " + e.getMessage());
+                showToast("Registration failed: " + e.getMessage());
+                return;
+            }
+            executors.diskWrite().execute(() -> registerUser(username, email, hashedPassword));
+        });
     }
 
-    private void registerUser(String username, String email, String password) {
-        SQLiteDatabase db = null;
+    private void registerUser(String username, String email, String hashedPassword) {
         try {
-            db = databaseHelper.getWritableDatabase();
-            String hashedPassword = SecurityUtils.hashPassword(password);
-
-            if (databaseHelper.isUserExists(db, username, email)) {
+            if (authRepository.isUserTaken(username, email)) {
                 showToast("Username or email already exists");
                 return;
             }
 
-            long result = databaseHelper.createUser(db, username, email, hashedPassword);
+            long result = authRepository.register(username, email, hashedPassword);
             if (result != -1) {
                 new SessionManager(SignUpActivity.this).loginUser(result, username);
                 showToast("Registration successful!");
@@ -95,10 +97,6 @@ public class SignUpActivity extends AppCompatActivity {
         } catch (Exception e) {
             Log.e("Signup", "Error: " + e.getMessage());
             showToast("Registration failed: " + e.getMessage());
-        } finally {
-            if (db != null) {
-                db.close(); // Ensure the database is closed
-            }
         }
     }
 
@@ -110,11 +108,4 @@ public class SignUpActivity extends AppCompatActivity {
     private void showToast(String message) {
         handler.post(() -> Toast.makeText(SignUpActivity.this, message, Toast.LENGTH_SHORT).show());
     }
-
-    @Override
-    protected void onDestroy() {
-        executor.shutdown(); // Shutdown the executor service
-        databaseHelper.close();
-        super.onDestroy();
-    }
 }
\ No newline at end of file
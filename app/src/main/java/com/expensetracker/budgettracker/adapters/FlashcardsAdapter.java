@@ -12,10 +12,14 @@ import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 import com.expensetracker.budgettracker.R;
 import com.expensetracker.budgettracker.models.Flashcard;
+import com.expensetracker.budgettracker.utils.LatencyHistogram;
+import com.expensetracker.budgettracker.utils.Metrics;
 import java.util.ArrayList;
 import java.util.List;
 
 public class FlashcardsAdapter extends RecyclerView.Adapter<FlashcardsAdapter.FlashcardViewHolder> {
+    private static final LatencyHistogram DIFF = Metrics.histogram("ui.diff.flashcards");
+    private static final LatencyHistogram BIND = Metrics.histogram("ui.bind.flashcard");
 
     private final List<Flashcard> flashcards;
     private final OnItemClickListener listener;
@@ -41,11 +45,14 @@ public class FlashcardsAdapter extends RecyclerView.Adapter<FlashcardsAdapter.Fl
     public void onBindViewHolder(@NonNull FlashcardViewHolder holder, int position) {
         Flashcard flashcard = flashcards.get(position);
 
+        long start = BIND.start();
         try {
             holder.bind(flashcard);
         } catch (Exception e) {
             Log.e("FlashcardsAdapter", "Error binding flashcard: " + e.getMessage());
             holder.bindFallback();
+        } finally {
+            BIND.stop(start);
         }
 
         holder.itemView.setOnClickListener(v -> {
@@ -63,7 +70,9 @@ public class FlashcardsAdapter extends RecyclerView.Adapter<FlashcardsAdapter.Fl
 
     public void updateFlashcards(List<Flashcard> newFlashcards) {
         List<Flashcard> safeList = new ArrayList<>(newFlashcards != null ? newFlashcards : new ArrayList<>());
+        long start = DIFF.start();
         DiffUtil.DiffResult diffResult = DiffUtil.calculateDiff(new FlashcardsDiffCallback(this.flashcards, safeList));
+        DIFF.stop(start);
         this.flashcards.clear();
         this.flashcards.addAll(safeList);
         diffResult.dispatchUpdatesTo(this);
@@ -1,176 +1,153 @@
 package com.expensetracker.budgettracker.adapters;
 
-import android.content.Context;
-import android.os.Handler;
-import android.os.Looper;
-import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.ImageView;
 import android.widget.TextView;
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.core.content.ContextCompat;
 import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
 import com.expensetracker.budgettracker.R;
+import com.expensetracker.budgettracker.data.CategoryDictionary;
 import com.expensetracker.budgettracker.models.Transaction;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
-import java.util.ArrayList;
-import java.util.Date;
-import java.util.HashMap;
+import com.expensetracker.budgettracker.utils.DateDisplayCache;
+import com.expensetracker.budgettracker.utils.LatencyHistogram;
+import com.expensetracker.budgettracker.utils.Metrics;
 import java.util.List;
-import java.util.Locale;
-import java.util.Map;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
-public class TransactionsAdapter extends RecyclerView.Adapter<TransactionsAdapter.TransactionViewHolder> {
-    private final List<Transaction> transactions;
+/**
+ * Ledger rows. Lists are diffed off the main thread by {@link ListAdapter}, and binding
+ * only reads values the {@link Transaction} precomputed, so it does no string work.
+ */
+public class TransactionsAdapter extends ListAdapter<Transaction, TransactionsAdapter.TransactionViewHolder> {
+    private static final LatencyHistogram DIFF = Metrics.histogram("ui.diff.transactions");
+    private static final LatencyHistogram BIND = Metrics.histogram("ui.bind.transaction");
     private final OnItemClickListener listener;
-    private final Map<String, Integer> categoryIcons = new HashMap<>();
-    private final ExecutorService executor = Executors.newSingleThreadExecutor();
-    private final Handler mainHandler = new Handler(Looper.getMainLooper());
-    private final SimpleDateFormat inputFormat = new SimpleDateFormat("yyyy-MM-dd", Locale.US);
-    private final SimpleDateFormat outputFormat = new SimpleDateFormat("MMM dd, yyyy", Locale.US);
+    private final DateDisplayCache dateLabels = new DateDisplayCache();
+    private boolean colorsResolved;
+    private int incomeColor;
+    private int expenseColor;
 
     public interface OnItemClickListener {
         void onItemClick(Transaction transaction, int position);
         void onItemDelete(Transaction transaction, int position);
     }
 
-    public TransactionsAdapter(List<Transaction> transactions, OnItemClickListener listener) {
-        this.transactions = new ArrayList<>(transactions);
+    public TransactionsAdapter(OnItemClickListener listener) {
+        super(DIFF_CALLBACK);
         this.listener = listener;
-        initializeCategoryIcons();
+        setHasStableIds(true);
     }
 
-    private void initializeCategoryIcons() {
-        categoryIcons.put("food & drink", R.drawable.ic_food);
-        categoryIcons.put("transportation", R.drawable.ic_transport);
-        categoryIcons.put("salary", R.drawable.ic_salary);
-        categoryIcons.put("housing", R.drawable.ic_housing);
-        categoryIcons.put("shopping", R.drawable.ic_shopping);
+    private static int iconFor(int categoryId) {
+        switch (categoryId) {
+            case CategoryDictionary.FOOD_AND_DRINK:
+                return R.drawable.ic_food;
+            case CategoryDictionary.TRANSPORTATION:
+                return R.drawable.ic_transport;
+            case CategoryDictionary.HOUSING:
+                return R.drawable.ic_housing;
+            case CategoryDictionary.PERSONAL_CARE:
+                return R.drawable.ic_personal_care;
+            case CategoryDictionary.SHOPPING:
+                return R.drawable.ic_shopping;
+            case CategoryDictionary.SALARY:
+                return R.drawable.ic_salary;
+            default:
+                return R.drawable.ic_category_default;
+        }
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return getItem(position).getId();
     }
 
     @NonNull
     @Override
     public TransactionViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        if (!colorsResolved) {
+            colorsResolved = true;
+            incomeColor = ContextCompat.getColor(parent.getContext(), R.color.green_500);
+            expenseColor = ContextCompat.getColor(parent.getContext(), R.color.red_500);
+        }
         View view = LayoutInflater.from(parent.getContext())
                 .inflate(R.layout.item_transaction, parent, false);
-        return new TransactionViewHolder(view);
-    }
-
-    @Override
-    public void onBindViewHolder(@NonNull TransactionViewHolder holder, int position) {
-        Transaction transaction = transactions.get(position);
-        Context context = holder.itemView.getContext();
+        TransactionViewHolder holder = new TransactionViewHolder(view);
 
-        // Set category icon
-        String category = transaction.getCategory() != null
-                ? transaction.getCategory().toLowerCase() : "other";
-        Integer iconRes = categoryIcons.getOrDefault(category, R.drawable.ic_category_default);
-        holder.categoryIcon.setImageResource(iconRes);
-
-        // Set category name
-        holder.category.setText(transaction.getCategory());
-
-        // Set amount color and format
-        String type = transaction.getType() != null
-                ? transaction.getType().toLowerCase() : "expense";
-        int colorRes = "income".equals(type) ? R.color.green_500 : R.color.red_500;
-        holder.amount.setTextColor(ContextCompat.getColor(context, colorRes));
-
-        String amountPrefix = "income".equals(type) ? "+" : "-";
-        holder.amount.setText(String.format(Locale.getDefault(),
-                "%s₱%.2f", amountPrefix, transaction.getAmount()));
-
-        // Format date in background thread
-        executor.execute(() -> {
-            String formattedDate = formatDate(transaction.getDate());
-            mainHandler.post(() -> holder.date.setText(formattedDate));
-        });
-
-        // Click listeners
-        holder.itemView.setOnClickListener(v -> {
+        // Bound once per holder; the row is looked up when the click happens
+        view.setOnClickListener(v -> {
+            int position = holder.getBindingAdapterPosition();
             if (listener != null && position != RecyclerView.NO_POSITION) {
-                listener.onItemClick(transactions.get(position), position);
+                listener.onItemClick(getItem(position), position);
             }
         });
-
-        holder.itemView.setOnLongClickListener(v -> {
+        view.setOnLongClickListener(v -> {
+            int position = holder.getBindingAdapterPosition();
             if (listener != null && position != RecyclerView.NO_POSITION) {
-                listener.onItemDelete(transactions.get(position), position);
+                listener.onItemDelete(getItem(position), position);
             }
             return true;
         });
-    }
-
-    private String formatDate(String rawDate) {
-        if (rawDate == null || rawDate.isEmpty()) {
-            return "N/A";
-        }
-        try {
-            Date date = inputFormat.parse(rawDate);
-            return outputFormat.format(date);
-        } catch (ParseException e) {
-            Log.e("DateFormat", "Error formatting date: " + rawDate, e);
-            return "Invalid Date";
-        }
+        return holder;
     }
 
     @Override
-    public int getItemCount() {
-        return transactions.size();
+    public void submitList(@Nullable List<Transaction> list) {
+        submitList(list, null);
     }
 
-    public void updateTransactions(List<Transaction> newTransactions) {
-        DiffUtil.DiffResult diffResult = DiffUtil.calculateDiff(
-                new TransactionDiffCallback(transactions, newTransactions)
-        );
-        transactions.clear();
-        transactions.addAll(newTransactions);
-        diffResult.dispatchUpdatesTo(this);
+    /**
+     * The diff runs on a background thread, so this times submission to commit, which
+     * includes waiting for that thread and for the main thread to apply the result.
+     */
+    @Override
+    public void submitList(@Nullable List<Transaction> list, @Nullable Runnable commitCallback) {
+        long start = DIFF.startAsync();
+        super.submitList(list, () -> {
+            DIFF.stopAsync(start);
+            if (commitCallback != null) commitCallback.run();
+        });
     }
 
-    static class TransactionDiffCallback extends DiffUtil.Callback {
-        private final List<Transaction> oldList;
-        private final List<Transaction> newList;
-
-        TransactionDiffCallback(List<Transaction> oldList, List<Transaction> newList) {
-            this.oldList = oldList;
-            this.newList = newList;
-        }
-
-        @Override
-        public int getOldListSize() {
-            return oldList.size();
-        }
+    @Override
+    public void onBindViewHolder(@NonNull TransactionViewHolder holder, int position) {
+        long start = BIND.start();
+        Transaction transaction = getItem(position);
 
-        @Override
-        public int getNewListSize() {
-            return newList.size();
-        }
+        holder.categoryIcon.setImageResource(iconFor(transaction.getCategoryId()));
+        holder.category.setText(transaction.getCategory());
+        holder.amount.setTextColor(transaction.isIncome() ? incomeColor : expenseColor);
+        holder.amount.setText(transaction.getDisplayAmount());
+        holder.date.setText(dateLabels.get(transaction.getEpochDay()));
+        String notes = transaction.getNotes();
+        holder.notes.setText(notes);
+        holder.notes.setVisibility(notes.isEmpty() ? View.GONE : View.VISIBLE);
+        BIND.stop(start);
+    }
 
+    static final DiffUtil.ItemCallback<Transaction> DIFF_CALLBACK = new DiffUtil.ItemCallback<Transaction>() {
         @Override
-        public boolean areItemsTheSame(int oldPos, int newPos) {
-            // Compare the IDs of the transactions to check if they represent the same item
-            return oldList.get(oldPos).getId() == newList.get(newPos).getId();
+        public boolean areItemsTheSame(@NonNull Transaction oldItem, @NonNull Transaction newItem) {
+            return oldItem.getId() == newItem.getId();
         }
 
         @Override
-        public boolean areContentsTheSame(int oldPos, int newPos) {
-            // Compare the entire transaction objects to check if their contents are the same
-            return oldList.get(oldPos).equals(newList.get(newPos));
+        public boolean areContentsTheSame(@NonNull Transaction oldItem, @NonNull Transaction newItem) {
+            return oldItem.equals(newItem);
         }
-    }
+    };
 
     static class TransactionViewHolder extends RecyclerView.ViewHolder {
         final ImageView categoryIcon;
         final TextView category;
         final TextView amount;
         final TextView date;
+        final TextView notes;
 
         TransactionViewHolder(@NonNull View itemView) {
             super(itemView);
@@ -178,6 +155,7 @@ public class TransactionsAdapter extends RecyclerView.Adapter<TransactionsAdapte
             category = itemView.findViewById(R.id.transaction_category);
             amount = itemView.findViewById(R.id.transaction_amount);
             date = itemView.findViewById(R.id.transaction_date);
+            notes = itemView.findViewById(R.id.transaction_notes);
         }
     }
-}
\ No newline at end of file
+}
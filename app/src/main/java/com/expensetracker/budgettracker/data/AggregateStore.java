@@ -0,0 +1,198 @@
+package com.expensetracker.budgettracker.data;
+
+import com.expensetracker.budgettracker.utils.EpochDays;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Process-wide running totals keyed by user, month, category ID and type. Category IDs
+ * come from {@link CategoryDictionary}, which also maps them back to names for display.
+ * Amounts are in minor units (see {@link com.expensetracker.budgettracker.utils.Money}).
+ * <p>
+ * A user's totals are rebuilt from SQLite once per process (cold start); after that
+ * every insert or delete applies an O(1) delta, so totals never require rescanning
+ * the ledger. Rebuilds are read and installed on the writer thread, in order with the
+ * writes whose deltas land here, so no commit is missed or counted twice.
+ */
+public class AggregateStore {
+    public static final String TYPE_INCOME = "income";
+    public static final String TYPE_EXPENSE = "expense";
+
+    private static AggregateStore instance;
+
+    private final Map<Long, UserAggregates> users = new HashMap<>();
+
+    public static synchronized AggregateStore getInstance() {
+        if (instance == null) {
+            instance = new AggregateStore();
+        }
+        return instance;
+    }
+
+    /**
+     * One grouped row as read back from SQLite during a rebuild.
+     */
+    public static final class Aggregate {
+        final int month;
+        final int categoryId;
+        final String type;
+        final long total;
+        final int count;
+
+        /**
+         * @param month the {@code yyyyMM} key, see {@link EpochDays#monthKey(int)}
+         */
+        public Aggregate(int month, int categoryId, String type, long total, int count) {
+            this.month = month;
+            this.categoryId = categoryId;
+            this.type = type;
+            this.total = total;
+            this.count = count;
+        }
+    }
+
+    private static final class Bucket {
+        long total;
+        int count;
+    }
+
+    private static final class UserAggregates {
+        final Map<Long, Bucket> buckets = new HashMap<>();
+        final Map<Integer, Bucket> categories = new HashMap<>();
+        final Map<Integer, Bucket> expenseCategories = new HashMap<>();
+        long income;
+        long expense;
+    }
+
+    public synchronized boolean isLoaded(long userId) {
+        return users.containsKey(userId);
+    }
+
+    /**
+     * Replace a user's totals with grouped rows read from SQLite.
+     */
+    public synchronized void rebuild(long userId, List<Aggregate> rows) {
+        UserAggregates aggregates = new UserAggregates();
+        for (Aggregate row : rows) {
+            apply(aggregates, row.month, row.categoryId, row.type, row.total, row.count);
+        }
+        users.put(userId, aggregates);
+    }
+
+    /**
+     * Apply a single inserted transaction. Ignored until the user has been loaded,
+     * since the next rebuild will pick the row up from SQLite.
+     */
+    public synchronized void add(long userId, int categoryId, String type, int epochDay, long amount) {
+        UserAggregates aggregates = users.get(userId);
+        if (aggregates != null) {
+            apply(aggregates, EpochDays.monthKey(epochDay), categoryId, type, amount, 1);
+        }
+    }
+
+    /**
+     * Apply a single deleted transaction.
+     */
+    public synchronized void remove(long userId, int categoryId, String type, int epochDay, long amount) {
+        UserAggregates aggregates = users.get(userId);
+        if (aggregates != null) {
+            apply(aggregates, EpochDays.monthKey(epochDay), categoryId, type, -amount, -1);
+        }
+    }
+
+    public synchronized void invalidate(long userId) {
+        users.remove(userId);
+    }
+
+    public synchronized long getTotalIncome(long userId) {
+        UserAggregates aggregates = users.get(userId);
+        return aggregates != null ? aggregates.income : 0L;
+    }
+
+    public synchronized long getTotalExpense(long userId) {
+        UserAggregates aggregates = users.get(userId);
+        return aggregates != null ? aggregates.expense : 0L;
+    }
+
+    /**
+     * Totals per category across all months, keyed by category ID.
+     */
+    public synchronized Map<Integer, Long> getCategoryTotals(long userId) {
+        UserAggregates aggregates = users.get(userId);
+        return aggregates != null ? totalsOf(aggregates.categories) : Collections.emptyMap();
+    }
+
+    /**
+     * Expense totals per category across all months, keyed by category ID.
+     */
+    public synchronized Map<Integer, Long> getExpenseCategoryTotals(long userId) {
+        UserAggregates aggregates = users.get(userId);
+        return aggregates != null ? totalsOf(aggregates.expenseCategories) : Collections.emptyMap();
+    }
+
+    /**
+     * Total for one category across all months.
+     */
+    public synchronized long getCategoryTotal(long userId, int categoryId) {
+        UserAggregates aggregates = users.get(userId);
+        if (aggregates == null) return 0L;
+        Bucket bucket = aggregates.categories.get(categoryId);
+        return bucket != null ? bucket.total : 0L;
+    }
+
+    /**
+     * Total for one category and type in a month, given as a {@code yyyyMM} key.
+     */
+    public synchronized long getMonthTotal(long userId, int month, int categoryId, String type) {
+        UserAggregates aggregates = users.get(userId);
+        if (aggregates == null) return 0L;
+        Bucket bucket = aggregates.buckets.get(bucketKey(month, categoryId, isIncome(type)));
+        return bucket != null ? bucket.total : 0L;
+    }
+
+    private static Map<Integer, Long> totalsOf(Map<Integer, Bucket> buckets) {
+        Map<Integer, Long> totals = new HashMap<>();
+        for (Map.Entry<Integer, Bucket> entry : buckets.entrySet()) {
+            totals.put(entry.getKey(), entry.getValue().total);
+        }
+        return Collections.unmodifiableMap(totals);
+    }
+
+    private static void apply(UserAggregates aggregates, int month, int categoryId,
+                              String type, long amount, int count) {
+        boolean income = isIncome(type);
+        addTo(aggregates.buckets, bucketKey(month, categoryId, income), amount, count);
+        addTo(aggregates.categories, categoryId, amount, count);
+        if (income) {
+            aggregates.income += amount;
+        } else {
+            aggregates.expense += amount;
+            addTo(aggregates.expenseCategories, categoryId, amount, count);
+        }
+    }
+
+    private static <K> void addTo(Map<K, Bucket> buckets, K key, long amount, int count) {
+        Bucket bucket = buckets.get(key);
+        if (bucket == null) {
+            bucket = new Bucket();
+            buckets.put(key, bucket);
+        }
+        bucket.total += amount;
+        bucket.count += count;
+        if (bucket.count <= 0) {
+            buckets.remove(key);
+        }
+    }
+
+    private static boolean isIncome(String type) {
+        return TYPE_INCOME.equalsIgnoreCase(type);
+    }
+
+    // A category ID takes 32 bits above the type bit, and yyyyMM fits in the 20 above that
+    private static long bucketKey(int month, int categoryId, boolean income) {
+        return ((long) month << 33) | ((long) categoryId << 1) | (income ? 1 : 0);
+    }
+}
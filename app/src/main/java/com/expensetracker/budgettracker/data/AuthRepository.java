@@ -0,0 +1,250 @@
+package com.expensetracker.budgettracker.data;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.database.Cursor;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+
+import com.expensetracker.budgettracker.utils.AppExecutors;
+import com.expensetracker.budgettracker.utils.PasswordHasher;
+
+import net.zetetic.database.sqlcipher.SQLiteDatabase;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Login and sign-up. Usernames are looked up through the case-insensitive index added in
+ * schema version 8, and recently used credentials stay in a small LRU so a repeat login
+ * only pays for the BCrypt check. The BCrypt cost is calibrated once per install to
+ * {@link #TARGET_HASH_MILLIS}; a hash made at any other cost is replaced after the next
+ * successful login.
+ */
+public class AuthRepository {
+    private static final String TAG = "AuthRepository";
+    private static final String PREF_NAME = "BudgetTrackerAuth";
+    private static final String KEY_BCRYPT_COST = "bcrypt_cost";
+    private static final long TARGET_HASH_MILLIS = 250;
+    private static final int CACHE_SIZE = 8;
+
+    private static volatile AuthRepository instance;
+
+    public static final class Account {
+        public final long userId;
+        public final String username;
+
+        Account(long userId, String username) {
+            this.userId = userId;
+            this.username = username;
+        }
+    }
+
+    private static final class Credentials {
+        final long userId;
+        final String username;
+        final String hash;
+
+        Credentials(long userId, String username, String hash) {
+            this.userId = userId;
+            this.username = username;
+            this.hash = hash;
+        }
+    }
+
+    private final DatabaseHelper databaseHelper;
+    private final LedgerPartitions partitions;
+    private final SharedPreferences prefs;
+    private final AppExecutors executors;
+    private volatile PasswordHasher hasher;
+
+    // Keyed by normalized username, least recently used first
+    private final Map<String, Credentials> cache = new LinkedHashMap<String, Credentials>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Credentials> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    private AuthRepository(DatabaseHelper databaseHelper, LedgerPartitions partitions,
+                           SharedPreferences prefs, AppExecutors executors) {
+        this.databaseHelper = databaseHelper;
+        this.partitions = partitions;
+        this.prefs = prefs;
+        this.executors = executors;
+    }
+
+    public static AuthRepository getInstance(Context context) {
+        if (instance == null) {
+            synchronized (AuthRepository.class) {
+                if (instance == null) {
+                    Context app = context.getApplicationContext();
+                    instance = new AuthRepository(DatabaseHelper.getInstance(app), LedgerPartitions.getInstance(app),
+                            app.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE),
+                            AppExecutors.getInstance());
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Check a username and password. On success, a hash stored at an outdated cost is
+     * re-hashed in the background without holding up the login.
+     *
+     * @return the account, or null if the credentials do not match
+     */
+    @WorkerThread
+    @Nullable
+    public Account login(String username, String password) {
+        String key = normalize(username);
+        Credentials credentials;
+        synchronized (cache) {
+            credentials = cache.get(key);
+        }
+        if (credentials == null) {
+            credentials = queryCredentials(username);
+            if (credentials == null) return null;
+            synchronized (cache) {
+                cache.put(key, credentials);
+            }
+        }
+
+        PasswordHasher hasher = getHasher();
+        if (!hasher.verify(password, credentials.hash)) {
+            return null;
+        }
+        if (hasher.needsRehash(credentials.hash)) {
+            scheduleRehash(key, credentials, password);
+        }
+        return new Account(credentials.userId, credentials.username);
+    }
+
+    /**
+     * Hash a new password at the calibrated cost. This is the slow part of sign-up, so run
+     * it on a read thread rather than the single writer.
+     */
+    @WorkerThread
+    public String hashPassword(String password) {
+        return getHasher().hash(password);
+    }
+
+    @WorkerThread
+    public boolean isUserTaken(String username, String email) {
+        return databaseHelper.isUserExists(databaseHelper.getReadableDatabase(), username, email);
+    }
+
+    /**
+     * Create an account from an already hashed password. Call on the writer thread.
+     *
+     * @return the new user ID, or -1 if the insert failed
+     */
+    @WorkerThread
+    public long register(String username, String email, String hashedPassword) {
+        return databaseHelper.createUser(databaseHelper.getWritableDatabase(), username, email, hashedPassword);
+    }
+
+    /**
+     * Delete an account and its ledger file. Call on the writer thread, after the user's
+     * queued writes.
+     *
+     * @return true if the account existed
+     */
+    @WorkerThread
+    public boolean deleteAccount(long userId) {
+        partitions.delete(userId);
+        int deleted = databaseHelper.getWritableDatabase().delete(DatabaseHelper.TABLE_USERS,
+                DatabaseHelper.COLUMN_USER_ID + " = ?", new String[]{String.valueOf(userId)});
+        synchronized (cache) {
+            cache.values().removeIf(credentials -> credentials.userId == userId);
+        }
+        AggregateStore.getInstance().invalidate(userId);
+        DailyTotals.getInstance().invalidate(userId);
+        return deleted > 0;
+    }
+
+    @Nullable
+    private Credentials queryCredentials(String username) {
+        SQLiteDatabase db = databaseHelper.getReadableDatabase();
+        // Matches idx_users_username_nocase, so this is an index seek rather than a table scan
+        try (Cursor cursor = db.query(
+                DatabaseHelper.TABLE_USERS,
+                new String[]{
+                        DatabaseHelper.COLUMN_USER_ID,
+                        DatabaseHelper.COLUMN_USERNAME,
+                        DatabaseHelper.COLUMN_PASSWORD
+                },
+                DatabaseHelper.COLUMN_USERNAME + " = ? COLLATE NOCASE",
+                new String[]{username},
+                null, null, null, "1")) {
+            if (cursor.moveToFirst()) {
+                return new Credentials(cursor.getLong(0), cursor.getString(1), cursor.getString(2));
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to look up user", e);
+        }
+        return null;
+    }
+
+    private void scheduleRehash(String key, Credentials old, String password) {
+        executors.diskRead().execute(() -> {
+            String hash = getHasher().hash(password);
+            executors.diskWrite().execute(() -> {
+                ContentValues values = new ContentValues();
+                values.put(DatabaseHelper.COLUMN_PASSWORD, hash);
+                try {
+                    // Only replace the hash that was verified, never a newer one
+                    int updated = databaseHelper.getWritableDatabase().update(
+                            DatabaseHelper.TABLE_USERS, values,
+                            DatabaseHelper.COLUMN_USER_ID + " = ? AND " + DatabaseHelper.COLUMN_PASSWORD + " = ?",
+                            new String[]{String.valueOf(old.userId), old.hash});
+                    if (updated > 0) {
+                        synchronized (cache) {
+                            cache.put(key, new Credentials(old.userId, old.username, hash));
+                        }
+                    }
+                } catch (Exception e) {
+                    Log.e(TAG, "Failed to rehash password", e);
+                }
+            });
+        });
+    }
+
+    private PasswordHasher getHasher() {
+        PasswordHasher current = hasher;
+        if (current == null) {
+            synchronized (this) {
+                current = hasher;
+                if (current == null) {
+                    int cost = prefs.getInt(KEY_BCRYPT_COST, 0);
+                    if (cost < PasswordHasher.MIN_COST || cost > PasswordHasher.MAX_COST) {
+                        cost = PasswordHasher.calibrate(TARGET_HASH_MILLIS);
+                        prefs.edit().putInt(KEY_BCRYPT_COST, cost).apply();
+                    }
+                    current = new PasswordHasher(cost);
+                    hasher = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Fold ASCII letters only, the same way SQLite's NOCASE collation does, so the cache
+     * and the index agree on which usernames are equal.
+     */
+    static String normalize(String username) {
+        StringBuilder sb = null;
+        for (int i = 0; i < username.length(); i++) {
+            char c = username.charAt(i);
+            if (c >= 'A' && c <= 'Z') {
+                if (sb == null) sb = new StringBuilder(username);
+                sb.setCharAt(i, (char) (c + ('a' - 'A')));
+            }
+        }
+        return sb == null ? username : sb.toString();
+    }
+}
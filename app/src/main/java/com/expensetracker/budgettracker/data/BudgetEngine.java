@@ -0,0 +1,181 @@
+package com.expensetracker.budgettracker.data;
+
+import android.util.Log;
+
+import com.expensetracker.budgettracker.utils.EpochDays;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.IntSupplier;
+
+/**
+ * Per-user monthly budgets checked against the current month's spend. Spend comes from
+ * the month buckets in {@link AggregateStore}, which are already maintained incrementally,
+ * so checking a write is two hash lookups and never rescans the ledger.
+ * <p>
+ * A {@link Alert} is raised when a committed expense moves a category's spend across
+ * {@link #WARNING_PERCENT} or 100% of its budget. Listeners run on the writer thread.
+ */
+public class BudgetEngine {
+    private static final String TAG = "BudgetEngine";
+    public static final int WARNING_PERCENT = 80;
+
+    public enum Level {
+        OK, WARNING, EXCEEDED
+    }
+
+    public static final class Alert {
+        public final long userId;
+        public final String category;
+        public final int month;
+        public final long spent;
+        public final long limit;
+        public final Level level;
+
+        Alert(long userId, String category, int month, long spent, long limit, Level level) {
+            this.userId = userId;
+            this.category = category;
+            this.month = month;
+            this.spent = spent;
+            this.limit = limit;
+            this.level = level;
+        }
+    }
+
+    public interface Listener {
+        void onBudgetAlert(Alert alert);
+    }
+
+    /**
+     * One row of the budgets table as read back from SQLite.
+     */
+    public static final class Budget {
+        public final int categoryId;
+        public final String category;
+        public final long limit;
+
+        public Budget(int categoryId, String category, long limit) {
+            this.categoryId = categoryId;
+            this.category = category;
+            this.limit = limit;
+        }
+    }
+
+    private final AggregateStore aggregates;
+    private final IntSupplier today;
+    private final Map<Long, Map<Integer, Budget>> users = new HashMap<>();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    public BudgetEngine(AggregateStore aggregates) {
+        this(aggregates, EpochDays::today);
+    }
+
+    BudgetEngine(AggregateStore aggregates, IntSupplier today) {
+        this.aggregates = aggregates;
+        this.today = today;
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    public synchronized boolean isLoaded(long userId) {
+        return users.containsKey(userId);
+    }
+
+    /**
+     * Replace a user's budgets with rows read from SQLite.
+     */
+    public synchronized void load(long userId, List<Budget> rows) {
+        Map<Integer, Budget> budgets = new HashMap<>();
+        for (Budget row : rows) {
+            budgets.put(row.categoryId, row);
+        }
+        users.put(userId, budgets);
+    }
+
+    /**
+     * Apply a committed budget change. Ignored until the user has been loaded.
+     */
+    public synchronized void setBudget(long userId, int categoryId, String category, long limit) {
+        Map<Integer, Budget> budgets = users.get(userId);
+        if (budgets != null) {
+            budgets.put(categoryId, new Budget(categoryId, category, limit));
+        }
+    }
+
+    public synchronized void removeBudget(long userId, int categoryId) {
+        Map<Integer, Budget> budgets = users.get(userId);
+        if (budgets != null) {
+            budgets.remove(categoryId);
+        }
+    }
+
+    public synchronized Map<Integer, Budget> getBudgets(long userId) {
+        Map<Integer, Budget> budgets = users.get(userId);
+        return budgets != null ? Collections.unmodifiableMap(new HashMap<>(budgets)) : Collections.emptyMap();
+    }
+
+    /**
+     * This month's spend in a category.
+     */
+    public long getSpent(long userId, int categoryId) {
+        return aggregates.getMonthTotal(userId, EpochDays.monthKey(today.getAsInt()), categoryId, AggregateStore.TYPE_EXPENSE);
+    }
+
+    public Level getLevel(long userId, int categoryId) {
+        Budget budget;
+        synchronized (this) {
+            Map<Integer, Budget> budgets = users.get(userId);
+            budget = budgets != null ? budgets.get(categoryId) : null;
+        }
+        return budget != null ? levelOf(getSpent(userId, categoryId), budget.limit) : Level.OK;
+    }
+
+    /**
+     * Check a transaction that has just been committed and applied to the aggregate store.
+     * Only expenses dated in the current month can move a budget.
+     *
+     * @param amount the signed change in spend: positive for an insert, negative for a delete
+     */
+    public void onTransactionApplied(long userId, int categoryId, String type, int epochDay, long amount) {
+        if (amount <= 0 || !AggregateStore.TYPE_EXPENSE.equalsIgnoreCase(type)) return;
+        int month = EpochDays.monthKey(epochDay);
+        if (month != EpochDays.monthKey(today.getAsInt())) return;
+
+        Budget budget;
+        synchronized (this) {
+            Map<Integer, Budget> budgets = users.get(userId);
+            budget = budgets != null ? budgets.get(categoryId) : null;
+        }
+        if (budget == null) return;
+
+        long spent = aggregates.getMonthTotal(userId, month, categoryId, AggregateStore.TYPE_EXPENSE);
+        Level before = levelOf(spent - amount, budget.limit);
+        Level after = levelOf(spent, budget.limit);
+        if (after.compareTo(before) > 0) {
+            Alert alert = new Alert(userId, budget.category, month, spent, budget.limit, after);
+            for (Listener listener : listeners) {
+                try {
+                    listener.onBudgetAlert(alert);
+                } catch (Exception e) {
+                    Log.e(TAG, "Budget listener failed", e);
+                }
+            }
+        }
+    }
+
+    static Level levelOf(long spent, long limit) {
+        if (spent >= limit) return Level.EXCEEDED;
+        // Compare spent/limit >= 80% without dividing; amounts stay far below overflow
+        if (spent * 100 >= limit * WARNING_PERCENT) return Level.WARNING;
+        return Level.OK;
+    }
+}
@@ -0,0 +1,66 @@
+package com.expensetracker.budgettracker.data;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Spending per category for a pie chart, largest first, as parallel arrays. Categories
+ * beyond the slice limit are folded into a single {@link #OTHER} slice, so the chart
+ * never gets more than {@code maxSlices} entries.
+ */
+public final class CategoryBreakdown {
+    public static final String OTHER = "Other";
+    public static final CategoryBreakdown EMPTY = new CategoryBreakdown(new String[0], new float[0]);
+
+    public final String[] labels;
+    // Major currency units
+    public final float[] values;
+
+    private CategoryBreakdown(String[] labels, float[] values) {
+        this.labels = labels;
+        this.values = values;
+    }
+
+    /**
+     * Build from totals in minor units keyed by category label. Categories with no
+     * spending are left out.
+     */
+    public static CategoryBreakdown of(Map<String, Long> totals, int maxSlices) {
+        List<Map.Entry<String, Long>> entries = new ArrayList<>(totals.size());
+        for (Map.Entry<String, Long> entry : totals.entrySet()) {
+            if (entry.getValue() > 0) {
+                entries.add(entry);
+            }
+        }
+        if (entries.isEmpty() || maxSlices < 1) return EMPTY;
+        Collections.sort(entries, (a, b) -> {
+            int byTotal = Long.compare(b.getValue(), a.getValue());
+            return byTotal != 0 ? byTotal : a.getKey().compareTo(b.getKey());
+        });
+
+        boolean folds = entries.size() > maxSlices;
+        int named = folds ? maxSlices - 1 : entries.size();
+        int slices = folds ? maxSlices : entries.size();
+        String[] labels = new String[slices];
+        float[] values = new float[slices];
+        for (int i = 0; i < named; i++) {
+            labels[i] = entries.get(i).getKey();
+            values[i] = entries.get(i).getValue() / 100f;
+        }
+        if (folds) {
+            long rest = 0;
+            for (int i = named; i < entries.size(); i++) {
+                rest += entries.get(i).getValue();
+            }
+            labels[named] = OTHER;
+            values[named] = rest / 100f;
+        }
+        return new CategoryBreakdown(labels, values);
+    }
+
+    public int size() {
+        return labels.length;
+    }
+}
@@ -0,0 +1,208 @@
+package com.expensetracker.budgettracker.data;
+
+import android.database.Cursor;
+
+import androidx.annotation.Nullable;
+
+import net.zetetic.database.sqlcipher.SQLiteDatabase;
+import net.zetetic.database.sqlcipher.SQLiteOpenHelper;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The process-wide, two-way mapping between category names and the small integer IDs
+ * that {@code transactions}, {@code budgets} and the rollups store instead of text.
+ * Names match ignoring case. The built-in categories have fixed IDs, so icons and
+ * flashcards can refer to them as constants.
+ * <p>
+ * Lookups read immutable snapshots and never lock, so they are cheap enough for every
+ * mapped row. A new category is written by {@link #intern} inside the caller's write
+ * transaction, but only becomes visible here through {@link #put} once that commits, so a
+ * rolled-back batch cannot leave an ID behind that the database does not have.
+ * <p>
+ * With a {@link #setRegistry registry} set, IDs are allocated there, and each ledger only
+ * keeps a copy of the names its own rows use, so IDs mean the same thing in every ledger.
+ */
+public final class CategoryDictionary {
+    public static final int NONE = 0;
+    public static final int FOOD_AND_DRINK = 1;
+    public static final int TRANSPORTATION = 2;
+    public static final int HOUSING = 3;
+    public static final int PERSONAL_CARE = 4;
+    public static final int SHOPPING = 5;
+    public static final int SALARY = 6;
+
+    // Indexed by ID; written to the categories table with these IDs by the migration
+    static final String[] BUILT_IN = {
+            null, "Food & Drink", "Transportation", "Housing & Utilities", "Personal Care", "Shopping", "Salary"
+    };
+
+    private static volatile CategoryDictionary instance;
+
+    // Replaced whole on every change, never mutated
+    private volatile String[] names;
+    private volatile Map<String, Integer> ids;
+    @Nullable
+    private volatile SQLiteOpenHelper registry;
+
+    CategoryDictionary() {
+        Map<String, Integer> builtInIds = new HashMap<>();
+        for (int id = 1; id < BUILT_IN.length; id++) {
+            builtInIds.put(key(BUILT_IN[id]), id);
+        }
+        names = BUILT_IN.clone();
+        ids = Collections.unmodifiableMap(builtInIds);
+    }
+
+    public static CategoryDictionary getInstance() {
+        if (instance == null) {
+            synchronized (CategoryDictionary.class) {
+                if (instance == null) {
+                    instance = new CategoryDictionary();
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Allocate IDs in {@code registry}'s {@code categories} table rather than the ledger
+     * being written to.
+     */
+    public void setRegistry(@Nullable SQLiteOpenHelper registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * The ID of {@code name} ignoring case, or {@link #NONE} if it is not known yet.
+     */
+    public int idOf(String name) {
+        Integer id = ids.get(key(name));
+        return id != null ? id : NONE;
+    }
+
+    /**
+     * The name stored for {@code id}, or null if it is not known yet.
+     */
+    public String nameOf(int id) {
+        String[] snapshot = names;
+        return id > 0 && id < snapshot.length ? snapshot[id] : null;
+    }
+
+    /**
+     * Like {@link #nameOf(int)}, but reloads from {@code db} on a miss, which happens when a
+     * reader sees a committed row before the writer has called {@link #put}.
+     */
+    public String nameOf(SQLiteDatabase db, int id) {
+        String name = nameOf(id);
+        if (name == null && id != NONE) {
+            SQLiteOpenHelper registry = this.registry;
+            load(registry != null ? registry.getReadableDatabase() : db);
+            name = nameOf(id);
+        }
+        return name;
+    }
+
+    /**
+     * Add the contents of the {@code categories} table to the dictionary.
+     */
+    public synchronized void load(SQLiteDatabase db) {
+        String[] loaded = names.clone();
+        Map<String, Integer> loadedIds = new HashMap<>(ids);
+        try (Cursor cursor = db.query(DatabaseHelper.TABLE_CATEGORIES,
+                new String[]{DatabaseHelper.COLUMN_CATEGORY_ID, DatabaseHelper.COLUMN_CATEGORY_NAME},
+                null, null, null, null, DatabaseHelper.COLUMN_CATEGORY_ID)) {
+            while (cursor.moveToNext()) {
+                int id = cursor.getInt(0);
+                String name = cursor.getString(1);
+                if (id >= loaded.length) {
+                    loaded = Arrays.copyOf(loaded, Math.max(id + 1, loaded.length * 2));
+                }
+                loaded[id] = name;
+                loadedIds.putIfAbsent(key(name), id);
+            }
+        }
+        names = loaded;
+        ids = Collections.unmodifiableMap(loadedIds);
+    }
+
+    /**
+     * The ID of {@code name}, adding it to the {@code categories} table if needed. Runs
+     * inside the caller's write transaction; call {@link #put} once it commits.
+     */
+    public int intern(SQLiteDatabase db, String name) {
+        if (name == null) {
+            throw new IllegalArgumentException("Category is required");
+        }
+        int id = idOf(name);
+        SQLiteOpenHelper registry = this.registry;
+        if (registry == null) {
+            return id != NONE ? id : insert(db, name);
+        }
+        if (id == NONE) {
+            // Committed in the registry on its own; an unused ID there is harmless
+            id = insert(registry.getWritableDatabase(), name);
+        }
+        if (id >= BUILT_IN.length) {
+            // The ledger's copy, which search joins on
+            db.execSQL("INSERT OR IGNORE INTO " + DatabaseHelper.TABLE_CATEGORIES + " (" +
+                    DatabaseHelper.COLUMN_CATEGORY_ID + ", " + DatabaseHelper.COLUMN_CATEGORY_NAME +
+                    ") VALUES (?, ?)", new Object[]{id, name});
+        }
+        return id;
+    }
+
+    private static int insert(SQLiteDatabase db, String name) {
+        db.execSQL("INSERT OR IGNORE INTO " + DatabaseHelper.TABLE_CATEGORIES + " (" +
+                DatabaseHelper.COLUMN_CATEGORY_NAME + ") VALUES (?)", new Object[]{name});
+        try (Cursor cursor = db.query(DatabaseHelper.TABLE_CATEGORIES,
+                new String[]{DatabaseHelper.COLUMN_CATEGORY_ID},
+                DatabaseHelper.COLUMN_CATEGORY_NAME + " = ?", new String[]{name},
+                null, null, null)) {
+            if (!cursor.moveToFirst()) {
+                throw new IllegalStateException("Category was not stored: " + name);
+            }
+            return cursor.getInt(0);
+        }
+    }
+
+    /**
+     * Publish a committed category. Known IDs return without locking.
+     */
+    public void put(int id, String name) {
+        if (id <= NONE || name == null || nameOf(id) != null) return;
+        publish(id, name);
+    }
+
+    private synchronized void publish(int id, String name) {
+        if (nameOf(id) != null) return;
+        String[] updated = Arrays.copyOf(names, Math.max(names.length, id + 1));
+        updated[id] = name;
+        Map<String, Integer> updatedIds = new HashMap<>(ids);
+        updatedIds.putIfAbsent(key(name), id);
+        names = updated;
+        ids = Collections.unmodifiableMap(updatedIds);
+    }
+
+    /**
+     * Re-key totals by ID into totals by category name, for display. Unknown IDs are dropped.
+     */
+    public Map<String, Long> withNames(Map<Integer, Long> totals) {
+        Map<String, Long> named = new HashMap<>();
+        for (Map.Entry<Integer, Long> entry : totals.entrySet()) {
+            String name = nameOf(entry.getKey());
+            if (name != null) {
+                named.put(name, entry.getValue());
+            }
+        }
+        return named;
+    }
+
+    private static String key(String name) {
+        return name != null ? name.toLowerCase(Locale.ROOT) : "";
+    }
+}
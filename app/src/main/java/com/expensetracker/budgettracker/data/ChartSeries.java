@@ -0,0 +1,24 @@
+package com.expensetracker.budgettracker.data;
+
+/**
+ * A chart-ready series as parallel primitive arrays: {@code x} holds epoch days, ascending,
+ * and {@code y} the value for each in major currency units.
+ */
+public final class ChartSeries {
+    public static final ChartSeries EMPTY = new ChartSeries(new float[0], new float[0]);
+
+    public final float[] x;
+    public final float[] y;
+
+    public ChartSeries(float[] x, float[] y) {
+        if (x.length != y.length) {
+            throw new IllegalArgumentException("x and y differ in length: " + x.length + " vs " + y.length);
+        }
+        this.x = x;
+        this.y = y;
+    }
+
+    public int size() {
+        return x.length;
+    }
+}
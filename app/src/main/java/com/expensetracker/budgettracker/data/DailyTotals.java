@@ -0,0 +1,201 @@
+package com.expensetracker.budgettracker.data;
+
+import com.expensetracker.budgettracker.utils.Lttb;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Process-wide spending per user per day, and per day and category, held in sorted
+ * primitive arrays. Loaded from SQLite once per process, on the writer thread, and patched
+ * with every insert or delete after that, like {@link AggregateStore}. Income is not
+ * tracked here.
+ * <p>
+ * {@link #series} turns a date range into a chart series of at most {@code maxPoints}
+ * points, however many transactions the range holds, and {@link #categoryTotals} sums a
+ * range per category without touching the ledger.
+ */
+public class DailyTotals {
+    private static final int INITIAL_CAPACITY = 64;
+
+    private static DailyTotals instance;
+
+    private final Map<Long, Days> users = new HashMap<>();
+
+    public static synchronized DailyTotals getInstance() {
+        if (instance == null) {
+            instance = new DailyTotals();
+        }
+        return instance;
+    }
+
+    /**
+     * Totals under ascending keys; a key whose total drops to zero is removed.
+     */
+    private static final class SortedTotals {
+        long[] keys;
+        long[] totals;
+        int size;
+
+        SortedTotals(int capacity) {
+            keys = new long[Math.max(capacity, INITIAL_CAPACITY)];
+            totals = new long[keys.length];
+        }
+
+        // The index of the first key at or after key
+        int ceiling(long key) {
+            int index = Arrays.binarySearch(keys, 0, size, key);
+            return index < 0 ? -index - 1 : index;
+        }
+
+        void add(long key, long amount) {
+            int index = Arrays.binarySearch(keys, 0, size, key);
+            if (index >= 0) {
+                totals[index] += amount;
+                if (totals[index] == 0) {
+                    System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+                    System.arraycopy(totals, index + 1, totals, index, size - index - 1);
+                    size--;
+                }
+                return;
+            }
+            if (amount == 0) return;
+            int insertAt = -index - 1;
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+                totals = Arrays.copyOf(totals, size * 2);
+            }
+            // New rows are nearly always for recent days, so this rarely moves anything
+            System.arraycopy(keys, insertAt, keys, insertAt + 1, size - insertAt);
+            System.arraycopy(totals, insertAt, totals, insertAt + 1, size - insertAt);
+            keys[insertAt] = key;
+            totals[insertAt] = amount;
+            size++;
+        }
+    }
+
+    private static final class Days {
+        final SortedTotals byDay;
+        final SortedTotals byDayAndCategory;
+
+        Days(int capacity) {
+            byDay = new SortedTotals(capacity);
+            byDayAndCategory = new SortedTotals(capacity);
+        }
+    }
+
+    public synchronized boolean isLoaded(long userId) {
+        return users.containsKey(userId);
+    }
+
+    /**
+     * Replace a user's totals with the first {@code size} rows of spending in minor units
+     * per epoch day and category ID, in ascending order of day, then category.
+     */
+    public synchronized void rebuild(long userId, int[] days, int[] categoryIds, long[] totals, int size) {
+        Days loaded = new Days(size);
+        for (int i = 0; i < size; i++) {
+            SortedTotals byDay = loaded.byDay;
+            if (byDay.size > 0 && byDay.keys[byDay.size - 1] == days[i]) {
+                byDay.totals[byDay.size - 1] += totals[i];
+            } else {
+                byDay.keys[byDay.size] = days[i];
+                byDay.totals[byDay.size++] = totals[i];
+            }
+            SortedTotals byCategory = loaded.byDayAndCategory;
+            byCategory.keys[byCategory.size] = dayCategoryKey(days[i], categoryIds[i]);
+            byCategory.totals[byCategory.size++] = totals[i];
+        }
+        users.put(userId, loaded);
+    }
+
+    /**
+     * Apply a single inserted transaction. Ignored until the user has been loaded,
+     * since the next rebuild will pick the row up from SQLite.
+     */
+    public synchronized void add(long userId, int categoryId, String type, int epochDay, long amount) {
+        apply(userId, categoryId, type, epochDay, amount);
+    }
+
+    /**
+     * Apply a single deleted transaction.
+     */
+    public synchronized void remove(long userId, int categoryId, String type, int epochDay, long amount) {
+        apply(userId, categoryId, type, epochDay, -amount);
+    }
+
+    public synchronized void invalidate(long userId) {
+        users.remove(userId);
+    }
+
+    /**
+     * The earliest day with spending, or {@code fallback} if there is none.
+     */
+    public synchronized int getFirstDay(long userId, int fallback) {
+        Days loaded = users.get(userId);
+        return loaded != null && loaded.byDay.size > 0 ? (int) loaded.byDay.keys[0] : fallback;
+    }
+
+    /**
+     * Spending from {@code fromDay} to {@code toDay} inclusive per category ID, in minor
+     * units. Runs in time proportional to the days and categories in the range.
+     */
+    public synchronized Map<Integer, Long> categoryTotals(long userId, int fromDay, int toDay) {
+        Days loaded = users.get(userId);
+        if (loaded == null || fromDay > toDay) return Collections.emptyMap();
+        SortedTotals byCategory = loaded.byDayAndCategory;
+        long end = dayCategoryKey(toDay + 1, 0);
+        Map<Integer, Long> totals = new HashMap<>();
+        for (int i = byCategory.ceiling(dayCategoryKey(fromDay, 0)); i < byCategory.size && byCategory.keys[i] < end; i++) {
+            int categoryId = (int) byCategory.keys[i];
+            Long total = totals.get(categoryId);
+            totals.put(categoryId, (total != null ? total : 0L) + byCategory.totals[i]);
+        }
+        return Collections.unmodifiableMap(totals);
+    }
+
+    /**
+     * Daily spending from {@code fromDay} to {@code toDay} inclusive, in major units, with
+     * days without spending as zero. Longer ranges are downsampled with {@link Lttb} to
+     * {@code maxPoints}.
+     */
+    public ChartSeries series(long userId, int fromDay, int toDay, int maxPoints) {
+        int length = Math.max(toDay - fromDay + 1, 0);
+        float[] x = new float[length];
+        float[] y = new float[length];
+        for (int i = 0; i < length; i++) {
+            x[i] = fromDay + i;
+        }
+        synchronized (this) {
+            Days loaded = users.get(userId);
+            if (loaded != null) {
+                SortedTotals byDay = loaded.byDay;
+                for (int i = byDay.ceiling(fromDay); i < byDay.size && byDay.keys[i] <= toDay; i++) {
+                    y[(int) byDay.keys[i] - fromDay] = byDay.totals[i] / 100f;
+                }
+            }
+        }
+        if (length <= maxPoints) {
+            return new ChartSeries(x, y);
+        }
+        float[] outX = new float[maxPoints];
+        float[] outY = new float[maxPoints];
+        int count = Lttb.downsample(x, y, length, maxPoints, outX, outY);
+        return new ChartSeries(Arrays.copyOf(outX, count), Arrays.copyOf(outY, count));
+    }
+
+    private void apply(long userId, int categoryId, String type, int epochDay, long amount) {
+        Days loaded = users.get(userId);
+        if (loaded == null || AggregateStore.TYPE_INCOME.equalsIgnoreCase(type)) return;
+
+        loaded.byDay.add(epochDay, amount);
+        loaded.byDayAndCategory.add(dayCategoryKey(epochDay, categoryId), amount);
+    }
+
+    // The day in the high 32 bits keeps one day's categories together and days in order
+    private static long dayCategoryKey(int epochDay, int categoryId) {
+        return ((long) epochDay << 32) | (categoryId & 0xFFFFFFFFL);
+    }
+}
@@ -3,13 +3,21 @@ package com.expensetracker.budgettracker.data;
 import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
-import android.database.sqlite.SQLiteDatabase;
-import android.database.sqlite.SQLiteOpenHelper;
 import android.util.Log;
 
+import androidx.annotation.Nullable;
+
+import com.expensetracker.budgettracker.data.migrations.Migrations;
+
+import net.zetetic.database.sqlcipher.SQLiteDatabase;
+import net.zetetic.database.sqlcipher.SQLiteOpenHelper;
+
 public class DatabaseHelper extends SQLiteOpenHelper {
     private static final String DATABASE_NAME = "BudgetTracker.db";
-    private static final int DATABASE_VERSION = 2;
+    static final int DATABASE_VERSION = 12;
+
+    // Oldest schema version that can be migrated in place; anything older is rebuilt
+    static final int BASELINE_VERSION = 2;
 
     // User Table
     public static final String TABLE_USERS = "users";
@@ -19,25 +27,107 @@ public class DatabaseHelper extends SQLiteOpenHelper {
     public static final String COLUMN_EMAIL = "email";
     public static final String COLUMN_CREATED_AT = "created_at";
 
-    // Transactions Table
+    // Transactions Table (amounts are INTEGER minor units since version 4, see Money)
     public static final String TABLE_TRANSACTIONS = "transactions";
     public static final String COLUMN_TRANSACTION_ID = "transaction_id";
     public static final String COLUMN_AMOUNT = "amount";
+    // Category text, stored on transactions and budgets until version 10
     public static final String COLUMN_CATEGORY = "category";
     public static final String COLUMN_DATE = "date";
     public static final String COLUMN_TYPE = "type";
+    public static final String COLUMN_NOTES = "notes";
+    // Search tokens of sealed notes since version 12, see LedgerCipher#indexTokens
+    public static final String COLUMN_NOTE_TOKENS = "note_tokens";
+
+    // Categories Table (transactions and budgets reference it by ID since version 10)
+    public static final String TABLE_CATEGORIES = "categories";
+    public static final String COLUMN_CATEGORY_ID = "category_id";
+    public static final String COLUMN_CATEGORY_NAME = "name";
 
     // Budgets Table
     public static final String TABLE_BUDGETS = "budgets";
     public static final String COLUMN_BUDGET_ID = "budget_id";
     public static final String COLUMN_BUDGET_AMOUNT = "budget_amount";
 
-    public DatabaseHelper(Context context) {
-        super(context, DATABASE_NAME, null, DATABASE_VERSION);
+    // Monthly rollups table
+    public static final String TABLE_MONTHLY_ROLLUPS = "monthly_rollups";
+    public static final String COLUMN_MONTH = "month";
+    public static final String COLUMN_TOTAL = "total";
+    public static final String COLUMN_COUNT = "count";
+
+    // Recurring rules table
+    public static final String TABLE_RECURRING_RULES = "recurring_rules";
+    public static final String COLUMN_RULE_ID = "rule_id";
+    public static final String COLUMN_UNIT = "unit";
+    public static final String COLUMN_EVERY = "every";
+    public static final String COLUMN_START_DAY = "start_day";
+    public static final String COLUMN_OCCURRENCES = "occurrences";
+    public static final String COLUMN_NEXT_DAY = "next_day";
+
+    private static volatile DatabaseHelper instance;
+
+    private DatabaseHelper(Context context) {
+        this(context, DATABASE_NAME);
+    }
+
+    /**
+     * A helper for another unencrypted file with the same schema.
+     */
+    DatabaseHelper(Context context, String name) {
+        this(context, name, null);
+    }
+
+    /**
+     * A helper for another file with the same schema, such as a user's ledger partition,
+     * encrypted by SQLCipher under {@code key} (see {@link LedgerCipher#databaseKey}) or
+     * left plain if it is null.
+     */
+    DatabaseHelper(Context context, String name, @Nullable byte[] key) {
+        // Readers see the last committed snapshot and never wait on the writer
+        super(context, name, key, null, DATABASE_VERSION, 0, null, null, true);
+        loadLibrary();
+    }
+
+    /**
+     * Load SQLCipher, which every database in the app is opened through, encrypted or not.
+     * Helpers load it themselves; call this before opening a database without one.
+     */
+    static void loadLibrary() {
+        System.loadLibrary("sqlcipher");
+    }
+
+    /**
+     * The single process-wide helper. Share it instead of opening new helpers per screen,
+     * and never close it: SQLiteOpenHelper keeps one connection pool for the whole app.
+     */
+    public static DatabaseHelper getInstance(Context context) {
+        if (instance == null) {
+            synchronized (DatabaseHelper.class) {
+                if (instance == null) {
+                    instance = new DatabaseHelper(context.getApplicationContext());
+                }
+            }
+        }
+        return instance;
     }
 
     @Override
     public void onCreate(SQLiteDatabase db) {
+        createSchema(db);
+    }
+
+    /**
+     * Create the current schema on an empty database.
+     */
+    static void createSchema(SQLiteDatabase db) {
+        createBaselineSchema(db);
+        Migrations.migrate(db, BASELINE_VERSION, DATABASE_VERSION);
+    }
+
+    /**
+     * Create the version 2 schema that all migrations build on.
+     */
+    static void createBaselineSchema(SQLiteDatabase db) {
         // Create Users table
         db.execSQL("CREATE TABLE " + TABLE_USERS + " (" +
                 COLUMN_USER_ID + " INTEGER PRIMARY KEY AUTOINCREMENT, " +
@@ -66,13 +156,13 @@ public class DatabaseHelper extends SQLiteOpenHelper {
     }
 
     /**
-     * Check if a user exists by username or email.
+     * Check if a user exists by username (ignoring case, as login does) or email.
      */
     public boolean isUserExists(SQLiteDatabase db, String username, String email) {
         try (Cursor cursor = db.query(
                 TABLE_USERS,
                 new String[]{COLUMN_USER_ID},
-                COLUMN_USERNAME + " = ? OR " + COLUMN_EMAIL + " = ?",
+                COLUMN_USERNAME + " = ? COLLATE NOCASE OR " + COLUMN_EMAIL + " = ?",
                 new String[]{username, email},
                 null, null, null)) {
             return cursor.getCount() > 0;
@@ -121,15 +211,29 @@ public class DatabaseHelper extends SQLiteOpenHelper {
 
     @Override
     public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
-        // Drop tables and recreate them
-        db.execSQL("DROP TABLE IF EXISTS " + TABLE_TRANSACTIONS);
-        db.execSQL("DROP TABLE IF EXISTS " + TABLE_BUDGETS);
-        db.execSQL("DROP TABLE IF EXISTS " + TABLE_USERS);
-        onCreate(db);
+        if (oldVersion < BASELINE_VERSION) {
+            // No migration path from pre-release schemas
+            recreateTables(db);
+            return;
+        }
+        Migrations.migrate(db, oldVersion, newVersion);
     }
 
     @Override
     public void onDowngrade(SQLiteDatabase db, int oldVersion, int newVersion) {
-        onUpgrade(db, oldVersion, newVersion);
+        // Migrations only run forward, so a downgrade starts from a clean schema
+        recreateTables(db);
+    }
+
+    private void recreateTables(SQLiteDatabase db) {
+        db.execSQL("DROP TABLE IF EXISTS " + TransactionSearch.TABLE_FTS);
+        db.execSQL("DROP VIEW IF EXISTS " + TransactionSearch.VIEW_CONTENT);
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_MONTHLY_ROLLUPS);
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_RECURRING_RULES);
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_TRANSACTIONS);
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_BUDGETS);
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_CATEGORIES);
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_USERS);
+        onCreate(db);
     }
 }
\ No newline at end of file
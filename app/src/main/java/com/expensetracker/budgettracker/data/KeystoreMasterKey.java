@@ -0,0 +1,132 @@
+package com.expensetracker.budgettracker.data;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.security.keystore.KeyGenParameterSpec;
+import android.security.keystore.KeyPermanentlyInvalidatedException;
+import android.security.keystore.KeyProperties;
+import android.util.Base64;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.security.ProviderException;
+import java.security.SecureRandom;
+import java.security.UnrecoverableKeyException;
+import java.util.Arrays;
+import java.util.function.Supplier;
+
+import javax.crypto.AEADBadTagException;
+import javax.crypto.Cipher;
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+
+/**
+ * The {@link LedgerCipher} master key: 32 random bytes, generated on first use and stored
+ * in preferences wrapped by a non-exportable AES-GCM key in the Android Keystore. Only the
+ * unwrap goes through the Keystore, once per process; every field is sealed in software
+ * with keys derived from it, since a Keystore call per field would cost milliseconds.
+ * <p>
+ * The wrapped key is left out of backups (see {@code backup_rules.xml}), since the Keystore
+ * key that opens it never leaves the device. If it still cannot be unwrapped for good (the
+ * Keystore was reset, or the key invalidated), a new master key replaces it: what was
+ * sealed under the old one is lost either way, and keeping it would refuse every write.
+ * Anything else that fails is taken as passing, and asked again later.
+ */
+public final class KeystoreMasterKey implements Supplier<byte[]> {
+    private static final String TAG = "KeystoreMasterKey";
+    private static final String KEYSTORE = "AndroidKeyStore";
+    private static final String ALIAS = "budgettracker_ledger_wrap";
+    private static final String PREF_NAME = "BudgetTrackerKeys";
+    private static final String KEY_WRAPPED = "ledger_master";
+    private static final int MASTER_BYTES = 32;
+    private static final int NONCE_BYTES = 12;
+    private static final int TAG_BITS = 128;
+
+    private final SharedPreferences prefs;
+
+    public KeystoreMasterKey(Context context) {
+        this.prefs = context.getApplicationContext().getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
+    }
+
+    /**
+     * @return the master key, or null if the Keystore is unusable right now; {@link LedgerCipher}
+     * then refuses to write notes and asks again on the next write
+     */
+    @Nullable
+    @Override
+    public synchronized byte[] get() {
+        try {
+            String stored = prefs.getString(KEY_WRAPPED, null);
+            if (stored != null) {
+                try {
+                    return unwrap(wrapKey(), Base64.decode(stored, Base64.NO_WRAP));
+                } catch (AEADBadTagException | KeyPermanentlyInvalidatedException | UnrecoverableKeyException e) {
+                    Log.e(TAG, "Ledger key is lost for good, starting a new one; notes sealed under it stay unreadable", e);
+                    deleteWrapKey();
+                }
+            }
+            return newMasterKey();
+        } catch (GeneralSecurityException | IOException | ProviderException e) {
+            Log.e(TAG, "Ledger key unavailable, notes cannot be written until it is", e);
+            return null;
+        }
+    }
+
+    @Nullable
+    private byte[] newMasterKey() throws GeneralSecurityException, IOException {
+        byte[] master = new byte[MASTER_BYTES];
+        new SecureRandom().nextBytes(master);
+        // Committed before first use, so no field is ever sealed under a key that was not kept
+        if (!prefs.edit().putString(KEY_WRAPPED, Base64.encodeToString(wrap(wrapKey(), master), Base64.NO_WRAP))
+                .commit()) {
+            Log.e(TAG, "Could not store the ledger key");
+            return null;
+        }
+        return master;
+    }
+
+    private static void deleteWrapKey() throws GeneralSecurityException, IOException {
+        KeyStore keyStore = KeyStore.getInstance(KEYSTORE);
+        keyStore.load(null);
+        keyStore.deleteEntry(ALIAS);
+    }
+
+    private static SecretKey wrapKey() throws GeneralSecurityException, IOException {
+        KeyStore keyStore = KeyStore.getInstance(KEYSTORE);
+        keyStore.load(null);
+        KeyStore.Entry entry = keyStore.getEntry(ALIAS, null);
+        if (entry instanceof KeyStore.SecretKeyEntry) {
+            return ((KeyStore.SecretKeyEntry) entry).getSecretKey();
+        }
+        KeyGenerator generator = KeyGenerator.getInstance(KeyProperties.KEY_ALGORITHM_AES, KEYSTORE);
+        generator.init(new KeyGenParameterSpec.Builder(ALIAS,
+                KeyProperties.PURPOSE_ENCRYPT | KeyProperties.PURPOSE_DECRYPT)
+                .setBlockModes(KeyProperties.BLOCK_MODE_GCM)
+                .setEncryptionPaddings(KeyProperties.ENCRYPTION_PADDING_NONE)
+                .setKeySize(256)
+                .build());
+        return generator.generateKey();
+    }
+
+    private static byte[] wrap(SecretKey wrapKey, byte[] master) throws GeneralSecurityException {
+        // The Keystore picks the nonce
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(Cipher.ENCRYPT_MODE, wrapKey);
+        byte[] nonce = cipher.getIV();
+        byte[] sealed = cipher.doFinal(master);
+        byte[] wrapped = Arrays.copyOf(nonce, nonce.length + sealed.length);
+        System.arraycopy(sealed, 0, wrapped, nonce.length, sealed.length);
+        return wrapped;
+    }
+
+    private static byte[] unwrap(SecretKey wrapKey, byte[] wrapped) throws GeneralSecurityException {
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(Cipher.DECRYPT_MODE, wrapKey, new GCMParameterSpec(TAG_BITS, wrapped, 0, NONCE_BYTES));
+        return cipher.doFinal(wrapped, NONCE_BYTES, wrapped.length - NONCE_BYTES);
+    }
+}
@@ -0,0 +1,227 @@
+package com.expensetracker.budgettracker.data;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * A small LRU of open resources keyed by user, handed out as {@link Lease}s. Keeps at most
+ * {@code maxOpen} resources open; one evicted while leased stays usable by its holders and
+ * is closed when the last lease is released, and asking for it again before then takes it
+ * back instead of opening a second copy. Opening runs on the caller's thread, outside the
+ * pool's lock, so a slow open only holds up callers waiting for that same key. A key that
+ * has been {@link #remove removed} cannot be leased again.
+ */
+final class LeasePool<T> {
+
+    interface Factory<T> {
+        T open(long key);
+
+        void close(T value);
+    }
+
+    /**
+     * A resource held open until {@link #close()}. Use with try-with-resources.
+     */
+    static final class Lease<T> implements AutoCloseable {
+        private final LeasePool<T> pool;
+        private final Entry<T> entry;
+        private boolean released;
+
+        Lease(LeasePool<T> pool, Entry<T> entry) {
+            this.pool = pool;
+            this.entry = entry;
+        }
+
+        T get() {
+            return entry.value;
+        }
+
+        @Override
+        public void close() {
+            if (released) return;
+            released = true;
+            pool.release(entry);
+        }
+    }
+
+    private static final class Entry<T> {
+        final long key;
+        final CountDownLatch opened = new CountDownLatch(1);
+        // Written before opened counts down
+        T value;
+        RuntimeException failure;
+        int leases;
+        boolean evicted;
+        // Removal waits for the leases to drain and closes the value itself
+        boolean removing;
+
+        Entry(long key) {
+            this.key = key;
+        }
+    }
+
+    private final Factory<T> factory;
+    private final int maxOpen;
+    // Least recently used first; every entry here is counted against maxOpen
+    private final LinkedHashMap<Long, Entry<T>> open = new LinkedHashMap<>(8, 0.75f, true);
+    // Evicted but still leased
+    private final Map<Long, Entry<T>> draining = new HashMap<>();
+    private final Set<Long> removed = new HashSet<>();
+
+    LeasePool(Factory<T> factory, int maxOpen) {
+        this.factory = factory;
+        this.maxOpen = maxOpen;
+    }
+
+    /**
+     * Lease the resource for {@code key}, opening it if needed.
+     *
+     * @throws IllegalStateException if the key has been removed
+     * @throws RuntimeException      whatever opening it threw
+     */
+    Lease<T> acquire(long key) {
+        Entry<T> entry;
+        boolean opener = false;
+        Map<Long, Entry<T>> idle = new HashMap<>();
+        synchronized (open) {
+            if (removed.contains(key)) {
+                throw new IllegalStateException("Key " + key + " has been removed");
+            }
+            entry = open.get(key);
+            if (entry == null) {
+                entry = draining.remove(key);
+                if (entry != null) {
+                    entry.evicted = false;
+                } else {
+                    entry = new Entry<>(key);
+                    opener = true;
+                }
+                open.put(key, entry);
+                evict(idle);
+            }
+            entry.leases++;
+        }
+        closeAll(idle);
+
+        if (opener) {
+            try {
+                entry.value = factory.open(key);
+            } catch (RuntimeException e) {
+                entry.failure = e;
+                synchronized (open) {
+                    open.remove(key, entry);
+                }
+            } finally {
+                entry.opened.countDown();
+            }
+        } else {
+            awaitOpened(entry);
+        }
+        if (entry.failure != null) {
+            release(entry);
+            throw entry.failure;
+        }
+        return new Lease<>(this, entry);
+    }
+
+    /**
+     * Take the resource for {@code key} out of the pool for good, wait for its leases to be
+     * released and close it. Acquiring the key fails from the moment this is called, so
+     * nothing can open it again while or after the caller disposes of it.
+     */
+    void remove(long key) {
+        Entry<T> entry;
+        boolean interrupted = false;
+        synchronized (open) {
+            removed.add(key);
+            entry = open.remove(key);
+            if (entry == null) {
+                entry = draining.remove(key);
+            }
+            if (entry == null) return;
+            entry.evicted = true;
+            entry.removing = true;
+            while (entry.leases > 0) {
+                try {
+                    open.wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        awaitOpened(entry);
+        if (entry.value != null) {
+            factory.close(entry.value);
+        }
+    }
+
+    boolean isRemoved(long key) {
+        synchronized (open) {
+            return removed.contains(key);
+        }
+    }
+
+    int openCount() {
+        synchronized (open) {
+            return open.size() + draining.size();
+        }
+    }
+
+    private void release(Entry<T> entry) {
+        synchronized (open) {
+            entry.leases--;
+            if (entry.leases > 0 || !entry.evicted) return;
+            open.notifyAll();
+            if (entry.removing || draining.remove(entry.key) != entry) return;
+        }
+        if (entry.value != null) {
+            factory.close(entry.value);
+        }
+    }
+
+    // Called holding the lock; idle evictions are closed by the caller after releasing it
+    private void evict(Map<Long, Entry<T>> idle) {
+        Iterator<Map.Entry<Long, Entry<T>>> it = open.entrySet().iterator();
+        while (open.size() > maxOpen && it.hasNext()) {
+            Entry<T> eldest = it.next().getValue();
+            it.remove();
+            eldest.evicted = true;
+            if (eldest.leases == 0) {
+                idle.put(eldest.key, eldest);
+            } else {
+                draining.put(eldest.key, eldest);
+            }
+        }
+    }
+
+    private void closeAll(Map<Long, Entry<T>> idle) {
+        for (Entry<T> entry : idle.values()) {
+            if (entry.value != null) {
+                factory.close(entry.value);
+            }
+        }
+    }
+
+    private static void awaitOpened(Entry<?> entry) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                entry.opened.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,383 @@
+package com.expensetracker.budgettracker.data;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
+import net.zetetic.database.sqlcipher.SQLiteStatement;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import javax.crypto.AEADBadTagException;
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Encrypts the free-text fields of the ledger (transaction and recurring-rule notes) with
+ * AES-256-GCM under a key per user. A sealed field is stored as a BLOB of
+ * {@code version | 12-byte nonce | ciphertext and tag}, so plaintext left from before
+ * encryption (TEXT) and sealed values (BLOB) can sit side by side and be told apart.
+ * <p>
+ * Each user's key is one HKDF-Expand step (HMAC-SHA256) of the user ID under the master
+ * key, bound in as associated data too, so a sealed field copied into another user's
+ * ledger does not open. Derived keys and one {@link Cipher} per thread are cached, so a
+ * sealed field costs about one block cipher pass over its bytes. The master key itself
+ * lives outside this class (see {@link KeystoreMasterKey}). With no key source set, fields
+ * are written as plain TEXT, which is how the benchmarks measure the overhead; once one is
+ * set, a field that cannot be sealed or opened fails its write or read rather than fall
+ * back to plain text or an empty note. Only a field that can never open again, because
+ * its key is gone for good, reads back as a placeholder.
+ * <p>
+ * The rest of a ledger (amounts, dates, categories, types, and the indexes, rollups and
+ * search index built from them) is covered by encrypting the whole file with SQLCipher,
+ * under a third per-user key from {@link #databaseKey}, since SQL has to read those
+ * values. Notes are still sealed field by field on top, so they also stay sealed in the
+ * page cache and in anything copied out of an open database.
+ * <p>
+ * Sealed transaction notes stay searchable through {@link #indexTokens}: keyed HMAC tokens
+ * of their words and word prefixes, under a second per-user key, which the search index
+ * holds in place of the text. They reveal which of a user's rows share a word, not the word.
+ */
+public final class LedgerCipher {
+    private static final String TAG = "LedgerCipher";
+    private static final byte VERSION = 1;
+    private static final int NONCE_BYTES = 12;
+    private static final int TAG_BITS = 128;
+    private static final byte[] INFO = "budgettracker ledger notes v1".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] TOKEN_INFO = "budgettracker note tokens v1".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] DATABASE_INFO = "budgettracker ledger database v1".getBytes(StandardCharsets.UTF_8);
+    // Words this long or longer are indexed by every prefix from this length up
+    static final int MIN_PREFIX = 3;
+    private static final int TOKEN_BYTES = 8;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    /**
+     * Read back in place of notes that will never open again, such as ones sealed under a
+     * master key this device no longer has (see {@link KeystoreMasterKey}).
+     */
+    public static final String UNREADABLE = "[note unreadable]";
+
+    private static volatile LedgerCipher instance;
+
+    /**
+     * A write or read refused because the key is unavailable: nothing was stored or shown in
+     * the clear instead. Usually passes once the Keystore is usable again.
+     */
+    public static final class KeyUnavailableException extends IllegalStateException {
+        KeyUnavailableException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+
+    private final SecureRandom random = new SecureRandom();
+    private final Map<Long, SecretKey> keys = new ConcurrentHashMap<>();
+    private final Map<Long, SecretKey> tokenKeys = new ConcurrentHashMap<>();
+    private final ThreadLocal<Cipher> ciphers = ThreadLocal.withInitial(() -> {
+        try {
+            return Cipher.getInstance("AES/GCM/NoPadding");
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("AES-GCM is not available", e);
+        }
+    });
+    private final ThreadLocal<Mac> macs = ThreadLocal.withInitial(() -> {
+        try {
+            return Mac.getInstance("HmacSHA256");
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HMAC-SHA256 is not available", e);
+        }
+    });
+
+    @Nullable
+    private volatile Supplier<byte[]> masterKeySource;
+    @Nullable
+    private volatile SecretKey masterKey;
+
+    LedgerCipher() {
+    }
+
+    public static LedgerCipher getInstance() {
+        if (instance == null) {
+            synchronized (LedgerCipher.class) {
+                if (instance == null) {
+                    instance = new LedgerCipher();
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Where to get the 32-byte master key, asked on first use (on a worker thread) and again
+     * on later use for as long as it returns null. Null leaves new fields unencrypted.
+     */
+    public void setMasterKey(@Nullable Supplier<byte[]> source) {
+        synchronized (this) {
+            masterKeySource = source;
+            masterKey = null;
+            keys.clear();
+            tokenKeys.clear();
+        }
+    }
+
+    /**
+     * Whether fields are sealed: true once a key source is set, even while it cannot
+     * produce the key, since writes then fail rather than store notes in the clear.
+     */
+    public boolean isEnabled() {
+        return masterKey != null || masterKeySource != null;
+    }
+
+    /**
+     * Drop the user's cached key, e.g. once their ledger is deleted.
+     */
+    public void forget(long userId) {
+        keys.remove(userId);
+        tokenKeys.remove(userId);
+    }
+
+    /**
+     * Seal {@code text} for the user. Empty text stays empty, so notes-free rows cost nothing.
+     */
+    public byte[] seal(long userId, String text) throws GeneralSecurityException {
+        SecretKey key = keyFor(userId);
+        byte[] plain = text.getBytes(StandardCharsets.UTF_8);
+        byte[] sealed = new byte[1 + NONCE_BYTES + plain.length + TAG_BITS / 8];
+        sealed[0] = VERSION;
+        byte[] nonce = new byte[NONCE_BYTES];
+        random.nextBytes(nonce);
+        System.arraycopy(nonce, 0, sealed, 1, NONCE_BYTES);
+
+        Cipher cipher = ciphers.get();
+        cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(TAG_BITS, nonce));
+        cipher.updateAAD(associatedData(userId));
+        cipher.doFinal(plain, 0, plain.length, sealed, 1 + NONCE_BYTES);
+        return sealed;
+    }
+
+    /**
+     * Open a field sealed by {@link #seal}.
+     *
+     * @throws AEADBadTagException     if it was sealed for another user or key, or was altered,
+     *                                  so it will never open
+     * @throws GeneralSecurityException if the key is unavailable
+     */
+    public String open(long userId, byte[] sealed) throws GeneralSecurityException {
+        if (sealed.length < 1 + NONCE_BYTES + TAG_BITS / 8 || sealed[0] != VERSION) {
+            throw new AEADBadTagException("Not a sealed field");
+        }
+        SecretKey key = keyFor(userId);
+        Cipher cipher = ciphers.get();
+        cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(TAG_BITS, sealed, 1, NONCE_BYTES));
+        cipher.updateAAD(associatedData(userId));
+        byte[] plain = cipher.doFinal(sealed, 1 + NONCE_BYTES, sealed.length - 1 - NONCE_BYTES);
+        return new String(plain, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Put {@code text} into {@code values}, sealed if encryption is enabled.
+     *
+     * @throws KeyUnavailableException if it cannot be sealed; nothing is written in the clear
+     */
+    public void put(ContentValues values, String column, long userId, String text) {
+        if (text.isEmpty() || !isEnabled()) {
+            values.put(column, text);
+        } else {
+            values.put(column, sealOrThrow(userId, text));
+        }
+    }
+
+    /**
+     * Bind {@code text} to a compiled statement, sealed if encryption is enabled.
+     *
+     * @throws KeyUnavailableException if it cannot be sealed; nothing is bound in the clear
+     */
+    public void bind(SQLiteStatement statement, int index, long userId, String text) {
+        if (text.isEmpty() || !isEnabled()) {
+            statement.bindString(index, text);
+        } else {
+            statement.bindBlob(index, sealOrThrow(userId, text));
+        }
+    }
+
+    /**
+     * Read a column written by {@link #put} or {@link #bind}, sealed or not. A sealed field
+     * that will never open reads as {@link #UNREADABLE}, so the rest of its row still shows.
+     *
+     * @throws KeyUnavailableException if a sealed field cannot be opened for now
+     */
+    public String read(Cursor cursor, int column, long userId) {
+        if (cursor.getType(column) != Cursor.FIELD_TYPE_BLOB) {
+            String text = cursor.getString(column);
+            return text != null ? text : "";
+        }
+        try {
+            return open(userId, cursor.getBlob(column));
+        } catch (AEADBadTagException e) {
+            Log.w(TAG, "A sealed field for user " + userId + " no longer opens: " + e.getMessage());
+            return UNREADABLE;
+        } catch (GeneralSecurityException e) {
+            throw new KeyUnavailableException("Could not open a sealed field for user " + userId, e);
+        }
+    }
+
+    /**
+     * Search tokens for notes that are sealed, to store next to them: one per prefix of
+     * {@link #MIN_PREFIX} or more characters of each word, or one for the whole word if it
+     * is shorter, with words split as {@link SearchQuery} splits them. A search word then
+     * matches through the single token {@link #searchToken} gives it.
+     *
+     * @return the tokens separated by spaces, or null if the notes are empty or are stored
+     * in the clear, where the index reads the text itself
+     * @throws KeyUnavailableException if they cannot be made; nothing is indexed in the clear
+     */
+    @Nullable
+    public String indexTokens(long userId, String text) {
+        if (text.isEmpty() || !isEnabled()) return null;
+        Set<String> tokens = new LinkedHashSet<>();
+        try {
+            for (String word : SearchQuery.words(text)) {
+                for (int end = Math.min(MIN_PREFIX, word.length()); end <= word.length(); end++) {
+                    tokens.add(searchToken(userId, word.substring(0, end)));
+                }
+            }
+        } catch (GeneralSecurityException e) {
+            throw new KeyUnavailableException("Could not index a field for user " + userId, e);
+        }
+        return tokens.isEmpty() ? null : String.join(" ", tokens);
+    }
+
+    /**
+     * The token a search word, lower-cased as {@link SearchQuery} leaves it, matches in notes
+     * indexed by {@link #indexTokens}: notes words it is a prefix of, or equal to if it is
+     * shorter than {@link #MIN_PREFIX}.
+     */
+    public String searchToken(long userId, String word) throws GeneralSecurityException {
+        Mac mac = macs.get();
+        mac.init(tokenKeyFor(userId));
+        byte[] digest = mac.doFinal(word.getBytes(StandardCharsets.UTF_8));
+        char[] token = new char[TOKEN_BYTES * 2];
+        hex(digest, TOKEN_BYTES, token, 0);
+        return new String(token);
+    }
+
+    private static void hex(byte[] bytes, int count, char[] out, int offset) {
+        for (int i = 0; i < count; i++) {
+            out[offset + i * 2] = HEX[(bytes[i] >> 4) & 0xf];
+            out[offset + i * 2 + 1] = HEX[bytes[i] & 0xf];
+        }
+    }
+
+    /**
+     * The SQLCipher key for the user's ledger file: a raw key literal, {@code x'<64 hex
+     * digits>'}, so opening the file skips SQLCipher's passphrase stretching. Null with no
+     * key source set, where the file is left plain.
+     *
+     * @throws KeyUnavailableException if the key is unavailable; the ledger must not be opened
+     */
+    @Nullable
+    public byte[] databaseKey(long userId) {
+        if (!isEnabled()) return null;
+        byte[] key;
+        try {
+            key = derive(DATABASE_INFO, userId);
+        } catch (GeneralSecurityException e) {
+            throw new KeyUnavailableException("Could not key the ledger for user " + userId, e);
+        }
+        char[] literal = new char[3 + key.length * 2];
+        literal[0] = 'x';
+        literal[1] = '\'';
+        hex(key, key.length, literal, 2);
+        literal[literal.length - 1] = '\'';
+        Arrays.fill(key, (byte) 0);
+        byte[] encoded = new String(literal).getBytes(StandardCharsets.US_ASCII);
+        Arrays.fill(literal, '0');
+        return encoded;
+    }
+
+    /**
+     * Whether {@code e}, or what caused it, is a {@link KeyUnavailableException}.
+     */
+    public static boolean isKeyUnavailable(@Nullable Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof KeyUnavailableException) return true;
+        }
+        return false;
+    }
+
+    private byte[] sealOrThrow(long userId, String text) {
+        try {
+            return seal(userId, text);
+        } catch (GeneralSecurityException e) {
+            Log.e(TAG, "Could not seal a field for user " + userId + ", refusing the write", e);
+            throw new KeyUnavailableException("Could not seal a field for user " + userId, e);
+        }
+    }
+
+    private SecretKey keyFor(long userId) throws GeneralSecurityException {
+        SecretKey key = keys.get(userId);
+        if (key == null) {
+            key = new SecretKeySpec(derive(INFO, userId), "AES");
+            keys.put(userId, key);
+        }
+        return key;
+    }
+
+    private SecretKey tokenKeyFor(long userId) throws GeneralSecurityException {
+        SecretKey key = tokenKeys.get(userId);
+        if (key == null) {
+            key = new SecretKeySpec(derive(TOKEN_INFO, userId), "HmacSHA256");
+            tokenKeys.put(userId, key);
+        }
+        return key;
+    }
+
+    private byte[] derive(byte[] info, long userId) throws GeneralSecurityException {
+        SecretKey master = masterKey();
+        if (master == null) {
+            throw new GeneralSecurityException(masterKeySource != null ? "Ledger key unavailable" : "No master key");
+        }
+        // HKDF-Expand with a single block: T(1) = HMAC(master, info | userId | 0x01)
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(master);
+        mac.update(info);
+        mac.update(associatedData(userId));
+        mac.update((byte) 1);
+        return mac.doFinal();
+    }
+
+    @Nullable
+    private SecretKey masterKey() {
+        SecretKey key = masterKey;
+        if (key != null || masterKeySource == null) return key;
+        synchronized (this) {
+            Supplier<byte[]> source = masterKeySource;
+            if (masterKey == null && source != null) {
+                byte[] bytes = source.get();
+                if (bytes != null) {
+                    masterKey = new SecretKeySpec(bytes, "HmacSHA256");
+                    masterKeySource = null;
+                }
+                // Otherwise kept, and asked again by the next write
+            }
+            return masterKey;
+        }
+    }
+
+    private static byte[] associatedData(long userId) {
+        return ByteBuffer.allocate(Long.BYTES).putLong(userId).array();
+    }
+}
@@ -0,0 +1,424 @@
+package com.expensetracker.budgettracker.data;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+
+import com.expensetracker.budgettracker.utils.LatencyHistogram;
+import com.expensetracker.budgettracker.utils.Metrics;
+
+import net.zetetic.database.DatabaseUtils;
+import net.zetetic.database.sqlcipher.SQLiteDatabase;
+import net.zetetic.database.sqlcipher.SQLiteNotADatabaseException;
+import net.zetetic.database.sqlcipher.SQLiteStatement;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+
+import javax.crypto.AEADBadTagException;
+
+/**
+ * Each user's ledger (transactions, budgets, recurring rules, rollups and the search index)
+ * lives in its own database file, {@code ledger-<userId>.db}, so one user's queries never
+ * read another user's pages, and deleting a user deletes a file. {@code BudgetTracker.db}
+ * keeps the accounts and the category registry that every ledger takes its IDs from.
+ * <p>
+ * Callers take a {@link Lease} on a ledger for the length of each query or write batch.
+ * Ledgers open on first use and up to {@link #MAX_OPEN} stay open, least recently used
+ * first out; one evicted while still leased is closed when its last lease is released, and
+ * is taken back rather than opened a second time if asked for before then. Opening runs
+ * outside the pool's lock, so one user's first open never holds up another user's queries.
+ * Rows a user still has in the shared file from before partitioning are moved into their
+ * ledger the first time it opens, and notes still in the clear are sealed by
+ * {@link LedgerCipher}, and sealed notes given search tokens, then too.
+ * <p>
+ * With a key source set, ledger files are encrypted page by page with SQLCipher under
+ * {@link LedgerCipher#databaseKey}; the shared file, which holds no ledger rows once they
+ * have moved, stays plain. A ledger still in the clear is rewritten encrypted on open. One
+ * that does not open under the user's key, because the key it was written under is gone for
+ * good, is renamed to {@code ledger-<userId>.db.unreadable} and the user starts a new one.
+ */
+public final class LedgerPartitions {
+    private static final String TAG = "LedgerPartitions";
+    private static final byte[] PLAIN_HEADER = "SQLite format 3\0".getBytes(StandardCharsets.US_ASCII);
+    private static final String UNREADABLE_SUFFIX = ".unreadable";
+    private static final LatencyHistogram OPEN = Metrics.histogram("db.partition.open");
+    static final int MAX_OPEN = 3;
+    // Every per-user table that used to live in the shared file, keyed by user_id
+    private static final String[] USER_TABLES = {
+            DatabaseHelper.TABLE_TRANSACTIONS,
+            DatabaseHelper.TABLE_BUDGETS,
+            DatabaseHelper.TABLE_RECURRING_RULES
+    };
+
+    // Tables with a notes column, their primary keys, and where their search tokens go
+    private static final String[][] NOTE_TABLES = {
+            {DatabaseHelper.TABLE_TRANSACTIONS, DatabaseHelper.COLUMN_TRANSACTION_ID, DatabaseHelper.COLUMN_NOTE_TOKENS},
+            {DatabaseHelper.TABLE_RECURRING_RULES, DatabaseHelper.COLUMN_RULE_ID, null}
+    };
+
+    private static volatile LedgerPartitions instance;
+
+    private final Context context;
+    private final DatabaseHelper shared;
+    private final LeasePool<DatabaseHelper> open;
+
+    LedgerPartitions(Context context, DatabaseHelper shared) {
+        this.context = context;
+        this.shared = shared;
+        this.open = new LeasePool<>(new LeasePool.Factory<DatabaseHelper>() {
+            @Override
+            public DatabaseHelper open(long userId) {
+                return openLedger(userId);
+            }
+
+            @Override
+            public void close(DatabaseHelper ledger) {
+                ledger.close();
+            }
+        }, MAX_OPEN);
+    }
+
+    /**
+     * A user's ledger, held open until {@link #close()}. Use with try-with-resources, and do
+     * not keep the databases it hands out past the close.
+     */
+    public static final class Lease implements AutoCloseable {
+        private final LeasePool.Lease<DatabaseHelper> lease;
+
+        Lease(LeasePool.Lease<DatabaseHelper> lease) {
+            this.lease = lease;
+        }
+
+        public SQLiteDatabase getReadableDatabase() {
+            return lease.get().getReadableDatabase();
+        }
+
+        public SQLiteDatabase getWritableDatabase() {
+            return lease.get().getWritableDatabase();
+        }
+
+        @Override
+        public void close() {
+            lease.close();
+        }
+    }
+
+    public static LedgerPartitions getInstance(Context context) {
+        if (instance == null) {
+            synchronized (LedgerPartitions.class) {
+                if (instance == null) {
+                    Context app = context.getApplicationContext();
+                    instance = new LedgerPartitions(app, DatabaseHelper.getInstance(app));
+                }
+            }
+        }
+        return instance;
+    }
+
+    static String fileName(long userId) {
+        return "ledger-" + userId + ".db";
+    }
+
+    /**
+     * Lease the user's ledger, opening it (and moving any rows left in the shared file into
+     * it) if it is not open yet. Opening runs on the caller's thread; callers asking for the
+     * same ledger meanwhile wait for it, others do not.
+     *
+     * @throws IllegalStateException if the user's ledger has been deleted
+     */
+    @WorkerThread
+    public Lease acquire(long userId) {
+        return new Lease(open.acquire(userId));
+    }
+
+    /**
+     * Delete the user's ledger file, and any rows they still had in the shared file. Waits
+     * for queries still holding the ledger to finish first; from the moment this is called
+     * the ledger cannot be leased again, so nothing recreates the file behind it.
+     *
+     * @return true if a ledger file was deleted
+     */
+    @WorkerThread
+    public boolean delete(long userId) {
+        open.remove(userId);
+        LedgerCipher.getInstance().forget(userId);
+        deleteUserRows(shared.getWritableDatabase(), userId);
+        File file = context.getDatabasePath(fileName(userId));
+        new File(file.getPath() + UNREADABLE_SUFFIX).delete();
+        return SQLiteDatabase.deleteDatabase(file);
+    }
+
+    /**
+     * Whether {@link #delete} has been called for the user in this process.
+     */
+    public boolean isDeleted(long userId) {
+        return open.isRemoved(userId);
+    }
+
+    private DatabaseHelper openLedger(long userId) {
+        long start = OPEN.start();
+        try {
+            File file = context.getDatabasePath(fileName(userId));
+            byte[] key = LedgerCipher.getInstance().databaseKey(userId);
+            if (key != null && isPlain(file)) {
+                encrypt(file, key);
+                Log.i(TAG, "Encrypted user " + userId + "'s ledger");
+            }
+            DatabaseHelper ledger = new DatabaseHelper(context, fileName(userId), key);
+            try {
+                ledger.getWritableDatabase();
+            } catch (SQLiteNotADatabaseException e) {
+                ledger.close();
+                Log.e(TAG, "User " + userId + "'s ledger does not open under their key; moving it aside", e);
+                moveAside(file);
+                ledger = new DatabaseHelper(context, fileName(userId), key);
+            }
+            moveUserRows(shared.getWritableDatabase(), ledger.getWritableDatabase(), userId);
+            sealNotes(ledger.getWritableDatabase(), LedgerCipher.getInstance(), userId);
+            return ledger;
+        } finally {
+            OPEN.stop(start);
+        }
+    }
+
+    /**
+     * Whether {@code file} is an SQLite database stored in the clear. An encrypted file
+     * starts with its salt instead of the plain header.
+     */
+    static boolean isPlain(File file) {
+        if (!file.exists()) return false;
+        byte[] header = new byte[PLAIN_HEADER.length];
+        try (FileInputStream in = new FileInputStream(file)) {
+            int read = 0;
+            while (read < header.length) {
+                int n = in.read(header, read, header.length - read);
+                if (n < 0) return false;
+                read += n;
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Could not read " + file.getName(), e);
+            return false;
+        }
+        return Arrays.equals(header, PLAIN_HEADER);
+    }
+
+    /**
+     * Rewrite the plain database {@code file} encrypted under {@code key}, through a copy
+     * beside it that replaces the original only once complete, so an interrupted rewrite
+     * leaves the plain file to be encrypted again on the next open.
+     *
+     * @throws IllegalStateException if the copy could not replace the original
+     */
+    static void encrypt(File file, byte[] key) {
+        File copy = new File(file.getPath() + ".encrypting");
+        SQLiteDatabase.deleteDatabase(copy);
+        SQLiteDatabase plain = SQLiteDatabase.openOrCreateDatabase(file, (byte[]) null, null, null, null);
+        try {
+            long version = DatabaseUtils.longForQuery(plain, "PRAGMA user_version", null);
+            plain.execSQL("ATTACH DATABASE ? AS encrypted KEY ?",
+                    new Object[]{copy.getPath(), new String(key, StandardCharsets.US_ASCII)});
+            plain.rawExecSQL("SELECT sqlcipher_export('encrypted')");
+            plain.execSQL("PRAGMA encrypted.user_version = " + version);
+            plain.execSQL("DETACH DATABASE encrypted");
+        } finally {
+            plain.close();
+        }
+        new File(file.getPath() + "-wal").delete();
+        new File(file.getPath() + "-shm").delete();
+        if (!copy.renameTo(file)) {
+            SQLiteDatabase.deleteDatabase(copy);
+            throw new IllegalStateException("Could not replace " + file.getName() + " with its encrypted copy");
+        }
+    }
+
+    private static void moveAside(File file) {
+        File aside = new File(file.getPath() + UNREADABLE_SUFFIX);
+        aside.delete();
+        if (!file.renameTo(aside)) {
+            Log.e(TAG, "Could not move " + file.getName() + " aside; deleting it");
+        }
+        SQLiteDatabase.deleteDatabase(file);
+    }
+
+    /**
+     * Copy the user's rows from the shared file into their ledger, then delete them from the
+     * shared file. Rows keep their IDs and are inserted with OR IGNORE, so a move interrupted
+     * between the two steps simply runs again on the next open.
+     */
+    static void moveUserRows(SQLiteDatabase from, SQLiteDatabase to, long userId) {
+        String[] args = {String.valueOf(userId)};
+        if (!hasUserRows(from, args)) return;
+
+        to.beginTransaction();
+        try {
+            // The category registry lives in the shared file, so IDs carry over unchanged.
+            // Only the names this user refers to are copied.
+            StringBuilder used = new StringBuilder(DatabaseHelper.COLUMN_CATEGORY_ID + " IN (");
+            String[] usedArgs = new String[USER_TABLES.length];
+            for (int i = 0; i < USER_TABLES.length; i++) {
+                used.append(i == 0 ? "" : " UNION ").append("SELECT ").append(DatabaseHelper.COLUMN_CATEGORY_ID)
+                        .append(" FROM ").append(USER_TABLES[i])
+                        .append(" WHERE ").append(DatabaseHelper.COLUMN_USER_ID).append(" = ?");
+                usedArgs[i] = args[0];
+            }
+            copyRows(from, to, DatabaseHelper.TABLE_CATEGORIES, used.append(')').toString(), usedArgs);
+            for (String table : USER_TABLES) {
+                copyRows(from, to, table, DatabaseHelper.COLUMN_USER_ID + " = ?", args);
+            }
+            to.setTransactionSuccessful();
+        } finally {
+            to.endTransaction();
+        }
+        deleteUserRows(from, userId);
+        Log.i(TAG, "Moved user " + userId + "'s rows into their ledger");
+    }
+
+    /**
+     * Seal every non-empty note the user's ledger still stores in the clear, and index the
+     * sealed transaction notes that have no search tokens yet (sealed before there were
+     * any). Does nothing without a key source; if the key is unavailable, the notes are left
+     * as they were and done on a later open.
+     */
+    static void sealNotes(SQLiteDatabase db, LedgerCipher cipher, long userId) {
+        if (!cipher.isEnabled()) return;
+        int sealed = 0;
+        db.beginTransaction();
+        try {
+            for (String[] table : NOTE_TABLES) {
+                sealed += sealNotes(db, cipher, userId, table[0], table[1], table[2]);
+            }
+            db.setTransactionSuccessful();
+        } catch (GeneralSecurityException | IllegalStateException e) {
+            Log.e(TAG, "Could not seal notes for user " + userId, e);
+            return;
+        } finally {
+            db.endTransaction();
+        }
+        if (sealed > 0) {
+            Log.i(TAG, "Sealed or indexed " + sealed + " notes for user " + userId);
+        }
+    }
+
+    private static int sealNotes(SQLiteDatabase db, LedgerCipher cipher, long userId, String table,
+                                 String idColumn, @Nullable String tokenColumn) throws GeneralSecurityException {
+        String notes = DatabaseHelper.COLUMN_NOTES;
+        String pending = "typeof(" + notes + ") = 'text' AND " + notes + " <> ''";
+        if (tokenColumn != null) {
+            pending = "(" + pending + ") OR (typeof(" + notes + ") = 'blob' AND " + tokenColumn + " IS NULL)";
+        }
+        int sealed = 0;
+        try (Cursor cursor = db.query(table, new String[]{idColumn, notes}, pending, null, null, null, null)) {
+            if (cursor.getCount() == 0) return 0;
+            SQLiteStatement update = db.compileStatement("UPDATE " + table + " SET " + notes + " = ?" +
+                    (tokenColumn != null ? ", " + tokenColumn + " = ?" : "") + " WHERE " + idColumn + " = ?");
+            try {
+                while (cursor.moveToNext()) {
+                    byte[] sealedNotes;
+                    String text;
+                    if (cursor.getType(1) == Cursor.FIELD_TYPE_BLOB) {
+                        sealedNotes = cursor.getBlob(1);
+                        try {
+                            text = cipher.open(userId, sealedNotes);
+                        } catch (AEADBadTagException e) {
+                            // Sealed under a key that is gone for good: left as it is, with no tokens
+                            text = "";
+                        }
+                    } else {
+                        text = cursor.getString(1);
+                        sealedNotes = cipher.seal(userId, text);
+                    }
+                    int index = 1;
+                    update.clearBindings();
+                    update.bindBlob(index++, sealedNotes);
+                    if (tokenColumn != null) {
+                        String tokens = cipher.indexTokens(userId, text);
+                        // Empty rather than null for notes without words, so they are not picked up again
+                        update.bindString(index++, tokens != null ? tokens : "");
+                    }
+                    update.bindLong(index, cursor.getLong(0));
+                    update.executeUpdateDelete();
+                    sealed++;
+                }
+            } finally {
+                update.close();
+            }
+        }
+        return sealed;
+    }
+
+    private static boolean hasUserRows(SQLiteDatabase db, String[] args) {
+        for (String table : USER_TABLES) {
+            if (DatabaseUtils.longForQuery(db, "SELECT EXISTS (SELECT 1 FROM " + table + " WHERE " +
+                    DatabaseHelper.COLUMN_USER_ID + " = ?)", args) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void deleteUserRows(SQLiteDatabase db, long userId) {
+        String[] args = {String.valueOf(userId)};
+        db.beginTransaction();
+        try {
+            for (String table : USER_TABLES) {
+                db.delete(table, DatabaseHelper.COLUMN_USER_ID + " = ?", args);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    private static void copyRows(SQLiteDatabase from, SQLiteDatabase to, String table,
+                                 @Nullable String selection, @Nullable String[] args) {
+        try (Cursor cursor = from.query(table, null, selection, args, null, null, null)) {
+            String[] columns = cursor.getColumnNames();
+            StringBuilder sql = new StringBuilder("INSERT OR IGNORE INTO ").append(table).append(" (");
+            StringBuilder values = new StringBuilder(") VALUES (");
+            for (int i = 0; i < columns.length; i++) {
+                sql.append(i == 0 ? "" : ", ").append(columns[i]);
+                values.append(i == 0 ? "?" : ", ?");
+            }
+            SQLiteStatement insert = to.compileStatement(sql.append(values).append(')').toString());
+            try {
+                while (cursor.moveToNext()) {
+                    insert.clearBindings();
+                    for (int i = 0; i < columns.length; i++) {
+                        bind(insert, i + 1, cursor, i);
+                    }
+                    insert.executeInsert();
+                }
+            } finally {
+                insert.close();
+            }
+        }
+    }
+
+    private static void bind(SQLiteStatement statement, int index, Cursor cursor, int column) {
+        switch (cursor.getType(column)) {
+            case Cursor.FIELD_TYPE_INTEGER:
+                statement.bindLong(index, cursor.getLong(column));
+                break;
+            case Cursor.FIELD_TYPE_FLOAT:
+                statement.bindDouble(index, cursor.getDouble(column));
+                break;
+            case Cursor.FIELD_TYPE_STRING:
+                statement.bindString(index, cursor.getString(column));
+                break;
+            case Cursor.FIELD_TYPE_BLOB:
+                statement.bindBlob(index, cursor.getBlob(column));
+                break;
+            default:
+                statement.bindNull(index);
+                break;
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package com.expensetracker.budgettracker.data;
+
+import android.database.Cursor;
+
+import net.zetetic.database.sqlcipher.SQLiteDatabase;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The {@code monthly_rollups} table holds one row per user, month, category ID and type
+ * with the running total and row count. Triggers on {@code transactions} keep it current
+ * inside the same transaction as every insert, update or delete, so summaries read a few
+ * dozen rows instead of scanning the ledger.
+ */
+public final class MonthlyRollups {
+    static final String TRIGGER_INSERT = "trg_transactions_rollup_insert";
+    static final String TRIGGER_DELETE = "trg_transactions_rollup_delete";
+    static final String TRIGGER_UPDATE = "trg_transactions_rollup_update";
+
+    private MonthlyRollups() {
+    }
+
+    /**
+     * SQL for the {@code yyyyMM} month key of an epoch-day column, matching
+     * {@link com.expensetracker.budgettracker.utils.EpochDays#monthKey(int)}.
+     */
+    public static String monthKeySql(String epochDayColumn) {
+        return "CAST(strftime('%Y%m', " + epochDayColumn + " * 86400, 'unixepoch') AS INTEGER)";
+    }
+
+    /**
+     * Create the table and its triggers, then backfill it from the current ledger.
+     */
+    public static void create(SQLiteDatabase db) {
+        create(db, DatabaseHelper.COLUMN_CATEGORY_ID, "INTEGER");
+    }
+
+    /**
+     * Create the version 7 table, keyed by the category text that transactions stored until
+     * version 10. Only {@code MIGRATION_6_7} uses it.
+     */
+    public static void createV7(SQLiteDatabase db) {
+        create(db, DatabaseHelper.COLUMN_CATEGORY, "TEXT");
+    }
+
+    private static void create(SQLiteDatabase db, String category, String categoryType) {
+        db.execSQL("CREATE TABLE " + DatabaseHelper.TABLE_MONTHLY_ROLLUPS + " (" +
+                DatabaseHelper.COLUMN_USER_ID + " INTEGER NOT NULL, " +
+                DatabaseHelper.COLUMN_MONTH + " INTEGER NOT NULL, " +
+                category + " " + categoryType + " NOT NULL, " +
+                DatabaseHelper.COLUMN_TYPE + " TEXT NOT NULL, " +
+                DatabaseHelper.COLUMN_TOTAL + " INTEGER NOT NULL, " +
+                DatabaseHelper.COLUMN_COUNT + " INTEGER NOT NULL, " +
+                "PRIMARY KEY (" + DatabaseHelper.COLUMN_USER_ID + ", " + DatabaseHelper.COLUMN_MONTH + ", " +
+                category + ", " + DatabaseHelper.COLUMN_TYPE + ")) WITHOUT ROWID;");
+
+        db.execSQL("CREATE TRIGGER " + TRIGGER_INSERT + " AFTER INSERT ON " + DatabaseHelper.TABLE_TRANSACTIONS +
+                " BEGIN " + addRow("NEW", category) + " END;");
+        db.execSQL("CREATE TRIGGER " + TRIGGER_DELETE + " AFTER DELETE ON " + DatabaseHelper.TABLE_TRANSACTIONS +
+                " BEGIN " + subtractRow("OLD", category) + " END;");
+        db.execSQL("CREATE TRIGGER " + TRIGGER_UPDATE + " AFTER UPDATE OF " +
+                DatabaseHelper.COLUMN_USER_ID + ", " + DatabaseHelper.COLUMN_AMOUNT + ", " +
+                category + ", " + DatabaseHelper.COLUMN_DATE + ", " +
+                DatabaseHelper.COLUMN_TYPE + " ON " + DatabaseHelper.TABLE_TRANSACTIONS +
+                " BEGIN " + subtractRow("OLD", category) + " " + addRow("NEW", category) + " END;");
+
+        db.execSQL("INSERT INTO " + DatabaseHelper.TABLE_MONTHLY_ROLLUPS + " " + groupedLedgerSql(category, null) + ";");
+    }
+
+    // Avoids INSERT OR IGNORE, whose conflict policy would be overridden by the outer statement's
+    private static String addRow(String row, String category) {
+        String match = matchRow(row, category);
+        return "INSERT INTO " + DatabaseHelper.TABLE_MONTHLY_ROLLUPS + " SELECT " +
+                row + "." + DatabaseHelper.COLUMN_USER_ID + ", " + monthKeySql(row + "." + DatabaseHelper.COLUMN_DATE) + ", " +
+                row + "." + category + ", " + row + "." + DatabaseHelper.COLUMN_TYPE + ", 0, 0" +
+                " WHERE NOT EXISTS (SELECT 1 FROM " + DatabaseHelper.TABLE_MONTHLY_ROLLUPS + " WHERE " + match + "); " +
+                "UPDATE " + DatabaseHelper.TABLE_MONTHLY_ROLLUPS + " SET " +
+                DatabaseHelper.COLUMN_TOTAL + " = " + DatabaseHelper.COLUMN_TOTAL + " + " + row + "." + DatabaseHelper.COLUMN_AMOUNT + ", " +
+                DatabaseHelper.COLUMN_COUNT + " = " + DatabaseHelper.COLUMN_COUNT + " + 1 WHERE " + match + ";";
+    }
+
+    private static String subtractRow(String row, String category) {
+        String match = matchRow(row, category);
+        return "UPDATE " + DatabaseHelper.TABLE_MONTHLY_ROLLUPS + " SET " +
+                DatabaseHelper.COLUMN_TOTAL + " = " + DatabaseHelper.COLUMN_TOTAL + " - " + row + "." + DatabaseHelper.COLUMN_AMOUNT + ", " +
+                DatabaseHelper.COLUMN_COUNT + " = " + DatabaseHelper.COLUMN_COUNT + " - 1 WHERE " + match + "; " +
+                "DELETE FROM " + DatabaseHelper.TABLE_MONTHLY_ROLLUPS + " WHERE " + match +
+                " AND " + DatabaseHelper.COLUMN_COUNT + " <= 0;";
+    }
+
+    private static String matchRow(String row, String category) {
+        return DatabaseHelper.COLUMN_USER_ID + " = " + row + "." + DatabaseHelper.COLUMN_USER_ID +
+                " AND " + DatabaseHelper.COLUMN_MONTH + " = " + monthKeySql(row + "." + DatabaseHelper.COLUMN_DATE) +
+                " AND " + category + " = " + row + "." + category +
+                " AND " + DatabaseHelper.COLUMN_TYPE + " = " + row + "." + DatabaseHelper.COLUMN_TYPE;
+    }
+
+    /**
+     * Recompute every rollup row from the ledger.
+     */
+    public static void rebuild(SQLiteDatabase db) {
+        db.execSQL("DELETE FROM " + DatabaseHelper.TABLE_MONTHLY_ROLLUPS + ";");
+        db.execSQL("INSERT INTO " + DatabaseHelper.TABLE_MONTHLY_ROLLUPS + " " +
+                groupedLedgerSql(DatabaseHelper.COLUMN_CATEGORY_ID, null) + ";");
+    }
+
+    private static String groupedLedgerSql(String category, String userFilter) {
+        return "SELECT " + DatabaseHelper.COLUMN_USER_ID + ", " +
+                monthKeySql(DatabaseHelper.COLUMN_DATE) + ", " +
+                category + ", " +
+                DatabaseHelper.COLUMN_TYPE + ", " +
+                "SUM(" + DatabaseHelper.COLUMN_AMOUNT + "), COUNT(*)" +
+                " FROM " + DatabaseHelper.TABLE_TRANSACTIONS +
+                (userFilter != null ? " WHERE " + userFilter : "") +
+                " GROUP BY 1, 2, 3, 4";
+    }
+
+    /**
+     * A user's rollup rows, for {@link AggregateStore#rebuild}.
+     */
+    public static List<AggregateStore.Aggregate> read(SQLiteDatabase db, long userId) {
+        List<AggregateStore.Aggregate> rows = new ArrayList<>();
+        try (Cursor cursor = db.query(DatabaseHelper.TABLE_MONTHLY_ROLLUPS,
+                new String[]{DatabaseHelper.COLUMN_MONTH, DatabaseHelper.COLUMN_CATEGORY_ID,
+                        DatabaseHelper.COLUMN_TYPE, DatabaseHelper.COLUMN_TOTAL, DatabaseHelper.COLUMN_COUNT},
+                DatabaseHelper.COLUMN_USER_ID + " = ?", new String[]{String.valueOf(userId)},
+                null, null, null)) {
+            while (cursor.moveToNext()) {
+                rows.add(new AggregateStore.Aggregate(
+                        cursor.getInt(0),
+                        cursor.getInt(1),
+                        cursor.getString(2),
+                        cursor.getLong(3),
+                        cursor.getInt(4)));
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Compare a user's rollups against a full scan of their ledger.
+     *
+     * @return one description per mismatching row; empty when consistent
+     */
+    public static List<String> check(SQLiteDatabase db, long userId) {
+        List<String> mismatches = new ArrayList<>();
+        String user = String.valueOf(userId);
+        String ledger = groupedLedgerSql(DatabaseHelper.COLUMN_CATEGORY_ID, DatabaseHelper.COLUMN_USER_ID + " = ?");
+        String rollups = "SELECT " + DatabaseHelper.COLUMN_USER_ID + ", " + DatabaseHelper.COLUMN_MONTH + ", " +
+                DatabaseHelper.COLUMN_CATEGORY_ID + ", " + DatabaseHelper.COLUMN_TYPE + ", " +
+                DatabaseHelper.COLUMN_TOTAL + ", " + DatabaseHelper.COLUMN_COUNT +
+                " FROM " + DatabaseHelper.TABLE_MONTHLY_ROLLUPS +
+                " WHERE " + DatabaseHelper.COLUMN_USER_ID + " = ?";
+
+        // Rows present on one side only, or with different totals, survive the EXCEPT in one direction
+        try (Cursor cursor = db.rawQuery(
+                "SELECT 'ledger', * FROM (" + ledger + " EXCEPT " + rollups + ")" +
+                        " UNION ALL SELECT 'rollup', * FROM (" + rollups + " EXCEPT " + ledger + ")",
+                new String[]{user, user, user, user})) {
+            while (cursor.moveToNext()) {
+                mismatches.add(cursor.getString(0) + " has month=" + cursor.getInt(2) +
+                        " category_id=" + cursor.getInt(3) + " type=" + cursor.getString(4) +
+                        " total=" + cursor.getLong(5) + " count=" + cursor.getInt(6));
+            }
+        }
+        return mismatches;
+    }
+}
@@ -0,0 +1,167 @@
+package com.expensetracker.budgettracker.data;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+
+import androidx.annotation.Nullable;
+
+import com.expensetracker.budgettracker.models.RecurringRule;
+import com.expensetracker.budgettracker.models.Transaction;
+
+import net.zetetic.database.sqlcipher.SQLiteDatabase;
+import net.zetetic.database.sqlcipher.SQLiteStatement;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The {@code recurring_rules} table and the catch-up that writes their missed occurrences
+ * to the ledger. Each rule stores the day of its next unwritten occurrence, indexed per
+ * user, so a catch-up reads only the rules that are due. From there each rule's missed
+ * occurrences are computed directly from its schedule, however long the app was closed,
+ * and everything is written with one compiled statement in the caller's transaction.
+ */
+public final class RecurringScheduler {
+    static final String INDEX_USER_NEXT_DAY = "idx_recurring_rules_user_next_day";
+
+    private RecurringScheduler() {
+    }
+
+    public static void create(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + DatabaseHelper.TABLE_RECURRING_RULES + " (" +
+                DatabaseHelper.COLUMN_RULE_ID + " INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                DatabaseHelper.COLUMN_USER_ID + " INTEGER NOT NULL, " +
+                DatabaseHelper.COLUMN_CATEGORY_ID + " INTEGER NOT NULL, " +
+                DatabaseHelper.COLUMN_AMOUNT + " INTEGER NOT NULL, " +
+                DatabaseHelper.COLUMN_TYPE + " TEXT NOT NULL, " +
+                DatabaseHelper.COLUMN_NOTES + " TEXT NOT NULL DEFAULT '', " +
+                DatabaseHelper.COLUMN_UNIT + " TEXT NOT NULL, " +
+                DatabaseHelper.COLUMN_EVERY + " INTEGER NOT NULL, " +
+                DatabaseHelper.COLUMN_START_DAY + " INTEGER NOT NULL, " +
+                DatabaseHelper.COLUMN_OCCURRENCES + " INTEGER NOT NULL DEFAULT 0, " +
+                DatabaseHelper.COLUMN_NEXT_DAY + " INTEGER NOT NULL, " +
+                "FOREIGN KEY(" + DatabaseHelper.COLUMN_USER_ID + ") REFERENCES " +
+                DatabaseHelper.TABLE_USERS + "(" + DatabaseHelper.COLUMN_USER_ID + ") ON DELETE CASCADE);");
+        db.execSQL("CREATE INDEX " + INDEX_USER_NEXT_DAY + " ON " + DatabaseHelper.TABLE_RECURRING_RULES + " (" +
+                DatabaseHelper.COLUMN_USER_ID + ", " + DatabaseHelper.COLUMN_NEXT_DAY + ");");
+    }
+
+    /**
+     * Store a new rule, interning its category, and set its ID. The caller owns the
+     * transaction and publishes a new category once it commits.
+     */
+    static void insertRule(SQLiteDatabase db, long userId, RecurringRule rule) {
+        rule.setCategoryId(CategoryDictionary.getInstance().intern(db, rule.getCategory()));
+        ContentValues values = new ContentValues();
+        values.put(DatabaseHelper.COLUMN_USER_ID, userId);
+        values.put(DatabaseHelper.COLUMN_CATEGORY_ID, rule.getCategoryId());
+        values.put(DatabaseHelper.COLUMN_AMOUNT, rule.getAmountCents());
+        values.put(DatabaseHelper.COLUMN_TYPE, rule.getType());
+        LedgerCipher.getInstance().put(values, DatabaseHelper.COLUMN_NOTES, userId, rule.getNotes());
+        values.put(DatabaseHelper.COLUMN_UNIT, rule.getUnit());
+        values.put(DatabaseHelper.COLUMN_EVERY, rule.getEvery());
+        values.put(DatabaseHelper.COLUMN_START_DAY, rule.getStartDay());
+        values.put(DatabaseHelper.COLUMN_OCCURRENCES, rule.getOccurrences());
+        values.put(DatabaseHelper.COLUMN_NEXT_DAY, rule.getNextDay());
+        rule.setId(db.insertOrThrow(DatabaseHelper.TABLE_RECURRING_RULES, null, values));
+    }
+
+    /**
+     * Delete one of the user's rules. Occurrences it already wrote stay in the ledger.
+     *
+     * @return true if the rule existed
+     */
+    static boolean deleteRule(SQLiteDatabase db, long userId, long ruleId) {
+        return db.delete(DatabaseHelper.TABLE_RECURRING_RULES,
+                DatabaseHelper.COLUMN_USER_ID + " = ? AND " + DatabaseHelper.COLUMN_RULE_ID + " = ?",
+                new String[]{String.valueOf(userId), String.valueOf(ruleId)}) > 0;
+    }
+
+    /**
+     * All of the user's rules, by start day.
+     */
+    static List<RecurringRule> readAll(SQLiteDatabase db, long userId) {
+        return read(db, userId, DatabaseHelper.COLUMN_USER_ID + " = ?",
+                new String[]{String.valueOf(userId)}, DatabaseHelper.COLUMN_START_DAY);
+    }
+
+    /**
+     * Write every occurrence of the user's rules that falls on or before {@code today} and
+     * is not in the ledger yet, and move each rule past it. Runs in the caller's transaction.
+     *
+     * @return the inserted rows with their IDs set, in no particular order
+     */
+    static List<Transaction> catchUp(SQLiteDatabase db, long userId, int today) {
+        List<RecurringRule> due = readDue(db, userId, today);
+        if (due.isEmpty()) return new ArrayList<>();
+
+        List<Transaction> rows = materialize(due, today);
+        TransactionRepository.insertBatch(db, userId, rows);
+
+        SQLiteStatement advance = db.compileStatement("UPDATE " + DatabaseHelper.TABLE_RECURRING_RULES +
+                " SET " + DatabaseHelper.COLUMN_OCCURRENCES + " = ?, " + DatabaseHelper.COLUMN_NEXT_DAY + " = ?" +
+                " WHERE " + DatabaseHelper.COLUMN_RULE_ID + " = ?");
+        try {
+            for (RecurringRule rule : due) {
+                advance.bindLong(1, rule.getOccurrences());
+                advance.bindLong(2, rule.getNextDay());
+                advance.bindLong(3, rule.getId());
+                advance.executeUpdateDelete();
+            }
+        } finally {
+            advance.close();
+        }
+        return rows;
+    }
+
+    /**
+     * The rows for every occurrence of {@code rules} from their next unwritten one through
+     * {@code today}, advancing each rule's occurrence count past them.
+     */
+    static List<Transaction> materialize(List<RecurringRule> rules, int today) {
+        int total = 0;
+        for (RecurringRule rule : rules) {
+            total += Math.max(0, rule.countThrough(today) - rule.getOccurrences());
+        }
+        List<Transaction> rows = new ArrayList<>(total);
+        for (RecurringRule rule : rules) {
+            int through = rule.countThrough(today);
+            for (int index = rule.getOccurrences(); index < through; index++) {
+                rows.add(new Transaction(rule.getCategoryId(), rule.getCategory(), rule.getAmountCents(),
+                        rule.dayOf(index), rule.getType(), rule.getNotes()));
+            }
+            rule.setOccurrences(Math.max(through, rule.getOccurrences()));
+        }
+        return rows;
+    }
+
+    private static List<RecurringRule> readDue(SQLiteDatabase db, long userId, int today) {
+        return read(db, userId, DatabaseHelper.COLUMN_USER_ID + " = ? AND " + DatabaseHelper.COLUMN_NEXT_DAY + " <= ?",
+                new String[]{String.valueOf(userId), String.valueOf(today)}, null);
+    }
+
+    private static List<RecurringRule> read(SQLiteDatabase db, long userId, String selection, String[] args,
+                                            @Nullable String orderBy) {
+        List<RecurringRule> rules = new ArrayList<>();
+        try (Cursor cursor = db.query(DatabaseHelper.TABLE_RECURRING_RULES,
+                new String[]{DatabaseHelper.COLUMN_RULE_ID, DatabaseHelper.COLUMN_CATEGORY_ID,
+                        DatabaseHelper.COLUMN_AMOUNT, DatabaseHelper.COLUMN_TYPE, DatabaseHelper.COLUMN_NOTES,
+                        DatabaseHelper.COLUMN_UNIT, DatabaseHelper.COLUMN_EVERY, DatabaseHelper.COLUMN_START_DAY,
+                        DatabaseHelper.COLUMN_OCCURRENCES},
+                selection, args, null, null, orderBy)) {
+            CategoryDictionary categories = CategoryDictionary.getInstance();
+            LedgerCipher cipher = LedgerCipher.getInstance();
+            while (cursor.moveToNext()) {
+                int categoryId = cursor.getInt(1);
+                RecurringRule rule = new RecurringRule(categories.nameOf(db, categoryId), cursor.getLong(2),
+                        cursor.getString(3), cipher.read(cursor, 4, userId), cursor.getString(5), cursor.getInt(6),
+                        cursor.getInt(7));
+                rule.setId(cursor.getLong(0));
+                rule.setCategoryId(categoryId);
+                rule.setOccurrences(cursor.getInt(8));
+                rules.add(rule);
+            }
+        }
+        return rules;
+    }
+}
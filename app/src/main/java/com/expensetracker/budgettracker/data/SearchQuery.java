@@ -0,0 +1,166 @@
+package com.expensetracker.budgettracker.data;
+
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * What to search the ledger for: free text matched as word prefixes against category,
+ * type and notes (see {@link TransactionSearch}), plus optional inclusive amount and date
+ * ranges. Notes sealed by {@link LedgerCipher} match through search tokens instead, so a
+ * word shorter than {@link LedgerCipher#MIN_PREFIX} matches them only as a whole word. Build one with {@link Builder}; run it through
+ * {@link TransactionRepository#search}.
+ */
+public final class SearchQuery {
+    private final List<String> words;
+    @Nullable
+    private final String matchExpression;
+    @Nullable
+    private final Long minAmountCents;
+    @Nullable
+    private final Long maxAmountCents;
+    @Nullable
+    private final Integer fromEpochDay;
+    @Nullable
+    private final Integer toEpochDay;
+
+    private SearchQuery(Builder builder) {
+        this.words = builder.text != null ? words(builder.text) : Collections.emptyList();
+        this.matchExpression = toMatchExpression(words);
+        this.minAmountCents = builder.minAmountCents;
+        this.maxAmountCents = builder.maxAmountCents;
+        this.fromEpochDay = builder.fromEpochDay;
+        this.toEpochDay = builder.toEpochDay;
+    }
+
+    public static final class Builder {
+        @Nullable
+        private String text;
+        @Nullable
+        private Long minAmountCents;
+        @Nullable
+        private Long maxAmountCents;
+        @Nullable
+        private Integer fromEpochDay;
+        @Nullable
+        private Integer toEpochDay;
+
+        /**
+         * Words to look for. Every word must prefix-match a word in the category, type or
+         * notes; see the class comment for sealed notes.
+         */
+        public Builder text(@Nullable String text) {
+            this.text = text;
+            return this;
+        }
+
+        /**
+         * Amounts in minor units, inclusive; null leaves that end open.
+         */
+        public Builder amountBetween(@Nullable Long minCents, @Nullable Long maxCents) {
+            this.minAmountCents = minCents;
+            this.maxAmountCents = maxCents;
+            return this;
+        }
+
+        /**
+         * Epoch days, inclusive; null leaves that end open.
+         */
+        public Builder dateBetween(@Nullable Integer fromEpochDay, @Nullable Integer toEpochDay) {
+            this.fromEpochDay = fromEpochDay;
+            this.toEpochDay = toEpochDay;
+            return this;
+        }
+
+        public SearchQuery build() {
+            return new SearchQuery(this);
+        }
+    }
+
+    /**
+     * The FTS4 MATCH expression for the text, or null if the text has no words to match.
+     */
+    @Nullable
+    public String getMatchExpression() {
+        return matchExpression;
+    }
+
+    public boolean hasText() {
+        return matchExpression != null;
+    }
+
+    /**
+     * The words of the text, lower-cased as in {@link #getMatchExpression()}.
+     */
+    List<String> getWords() {
+        return words;
+    }
+
+    /**
+     * Append the amount and date filters as {@code AND ...} terms on the transactions table.
+     */
+    void appendFilters(StringBuilder selection, List<String> args) {
+        if (minAmountCents != null) {
+            selection.append(" AND ").append(DatabaseHelper.COLUMN_AMOUNT).append(" >= ?");
+            args.add(String.valueOf(minAmountCents));
+        }
+        if (maxAmountCents != null) {
+            selection.append(" AND ").append(DatabaseHelper.COLUMN_AMOUNT).append(" <= ?");
+            args.add(String.valueOf(maxAmountCents));
+        }
+        if (fromEpochDay != null) {
+            selection.append(" AND ").append(DatabaseHelper.COLUMN_DATE).append(" >= ?");
+            args.add(String.valueOf(fromEpochDay));
+        }
+        if (toEpochDay != null) {
+            selection.append(" AND ").append(DatabaseHelper.COLUMN_DATE).append(" <= ?");
+            args.add(String.valueOf(toEpochDay));
+        }
+    }
+
+    /**
+     * Turn user input into a MATCH expression of prefix terms, e.g. {@code "Grab  taxi!"}
+     * becomes {@code "grab* taxi*"}. Only letters and digits survive, so quotes, parentheses
+     * and the like can never produce a syntax error. ASCII letters are lower-cased, matching
+     * the simple tokenizer, which also keeps upper-case {@code AND}/{@code OR}/{@code NOT}
+     * from being read as operators.
+     */
+    @Nullable
+    static String toMatchExpression(@Nullable String text) {
+        return text == null ? null : toMatchExpression(words(text));
+    }
+
+    @Nullable
+    private static String toMatchExpression(List<String> words) {
+        if (words.isEmpty()) return null;
+        StringBuilder expression = new StringBuilder();
+        for (String word : words) {
+            expression.append(expression.length() == 0 ? "" : " ").append(word).append('*');
+        }
+        return expression.toString();
+    }
+
+    /**
+     * Split text into runs of letters and digits, ASCII letters lower-cased. Notes are split
+     * the same way for {@link LedgerCipher#indexTokens}.
+     */
+    static List<String> words(String text) {
+        List<String> words = new ArrayList<>();
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                word.append(c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c);
+            } else if (word.length() > 0) {
+                words.add(word.toString());
+                word.setLength(0);
+            }
+        }
+        if (word.length() > 0) {
+            words.add(word.toString());
+        }
+        return words;
+    }
+}
@@ -0,0 +1,251 @@
+package com.expensetracker.budgettracker.data;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
+import com.expensetracker.budgettracker.models.Transaction;
+import com.expensetracker.budgettracker.utils.AppExecutors;
+import com.expensetracker.budgettracker.utils.LatencyHistogram;
+import com.expensetracker.budgettracker.utils.Metrics;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Cold start for the main screen. Checks that the saved user still exists and, at the same
+ * time, loads the first page of transactions and the summary totals on the read pool, so the
+ * first frame is drawn from memory instead of waiting on three queries in a row.
+ * <p>
+ * Each start runs every step once: the username found by the check is handed to the screens
+ * that show it, and the first page is handed to the one list that asks for it. Callers that
+ * come after a start (or without one) fall back to querying themselves.
+ */
+public final class StartupLoader {
+    private static final String TAG = "StartupLoader";
+    private static final LatencyHistogram PRELOAD = Metrics.histogram("startup.preload");
+
+    /**
+     * The queries a start runs, one per read thread.
+     */
+    interface Steps {
+        /**
+         * The user's name, or null if there is no such user.
+         */
+        @Nullable
+        String username(long userId);
+
+        List<Transaction> firstPage(long userId, int limit);
+
+        /**
+         * Load the user's in-memory totals, if they are not loaded yet.
+         */
+        void loadTotals(long userId);
+    }
+
+    public interface Callback {
+        /**
+         * Called on the callback executor once the session is checked, while the rest of
+         * the start may still be running. {@code username} is null for a stale session.
+         */
+        void onValidated(@Nullable String username);
+    }
+
+    private static volatile StartupLoader instance;
+
+    private final Steps steps;
+    private final Executor executor;
+    private final Executor callbackExecutor;
+    @Nullable
+    private final TransactionChanges changes;
+    private volatile Run current;
+
+    StartupLoader(Steps steps, Executor executor, Executor callbackExecutor, @Nullable TransactionChanges changes) {
+        this.steps = steps;
+        this.executor = executor;
+        this.callbackExecutor = callbackExecutor;
+        this.changes = changes;
+    }
+
+    public static StartupLoader getInstance(Context context) {
+        if (instance == null) {
+            synchronized (StartupLoader.class) {
+                if (instance == null) {
+                    DatabaseHelper databaseHelper = DatabaseHelper.getInstance(context);
+                    TransactionRepository repository = TransactionRepository.getInstance(context);
+                    AppExecutors executors = AppExecutors.getInstance();
+                    instance = new StartupLoader(new RepositorySteps(databaseHelper, repository),
+                            executors.diskRead(), executors.mainThread(), repository.getChanges());
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * One start for one user. The first page is only handed out while nothing has been
+     * written for the user since it was read, so it can never miss a row.
+     */
+    private final class Run implements TransactionChanges.Listener {
+        final long userId;
+        final int pageSize;
+        final FutureTask<String> username;
+        final FutureTask<List<Transaction>> firstPage;
+        final FutureTask<Void> totals;
+        final AtomicBoolean pageTaken = new AtomicBoolean(false);
+        final AtomicInteger pending = new AtomicInteger(3);
+        final long start = PRELOAD.start();
+        volatile boolean stale;
+
+        Run(long userId, int pageSize, Callback callback) {
+            this.userId = userId;
+            this.pageSize = pageSize;
+            username = new FutureTask<String>(() -> steps.username(userId)) {
+                @Override
+                protected void done() {
+                    finished();
+                    String name = getQuietly(this);
+                    callbackExecutor.execute(() -> callback.onValidated(name));
+                }
+            };
+            firstPage = task(() -> steps.firstPage(userId, pageSize));
+            totals = task(() -> {
+                steps.loadTotals(userId);
+                return null;
+            });
+        }
+
+        private <T> FutureTask<T> task(Callable<T> step) {
+            return new FutureTask<T>(step) {
+                @Override
+                protected void done() {
+                    finished();
+                }
+            };
+        }
+
+        private void finished() {
+            if (pending.decrementAndGet() == 0) {
+                PRELOAD.stop(start);
+            }
+        }
+
+        @Override
+        public void onChange(TransactionChanges.Change change) {
+            if (change.userId == userId) {
+                stale = true;
+            }
+        }
+    }
+
+    /**
+     * Check the session for {@code userId} and preload its first page of {@code pageSize}
+     * rows and its totals, all in parallel. Replaces any earlier start.
+     */
+    public void start(long userId, int pageSize, Callback callback) {
+        Run previous = current;
+        if (previous != null) {
+            release(previous);
+        }
+        Run run = new Run(userId, pageSize, callback);
+        if (changes != null) {
+            changes.addListener(run);
+        }
+        current = run;
+        executor.execute(run.username);
+        executor.execute(run.firstPage);
+        executor.execute(run.totals);
+    }
+
+    /**
+     * The username checked by the current start, or a fresh lookup if there is none for
+     * this user. Blocks until the check is done, so call it off the main thread.
+     */
+    @Nullable
+    public String getUsername(long userId) {
+        Run run = current;
+        if (run != null && run.userId == userId) {
+            return getQuietly(run.username);
+        }
+        return steps.username(userId);
+    }
+
+    /**
+     * The first page preloaded for this user, waiting for it if it is still loading, or null
+     * if there is none to take: no matching start, already taken, failed, or out of date.
+     * Call it off the main thread.
+     */
+    @Nullable
+    public List<Transaction> takeFirstPage(long userId, int pageSize) {
+        Run run = current;
+        if (run == null || run.userId != userId || run.pageSize != pageSize
+                || !run.pageTaken.compareAndSet(false, true)) {
+            return null;
+        }
+        List<Transaction> page = getQuietly(run.firstPage);
+        release(run);
+        return run.stale ? null : page;
+    }
+
+    /**
+     * Wait for the current start to finish loading this user's totals, so a caller that
+     * needs them does not rebuild them a second time alongside it.
+     */
+    public void awaitTotals(long userId) {
+        Run run = current;
+        if (run != null && run.userId == userId) {
+            getQuietly(run.totals);
+        }
+    }
+
+    private void release(Run run) {
+        if (changes != null) {
+            changes.removeListener(run);
+        }
+    }
+
+    @Nullable
+    private static <T> T getQuietly(FutureTask<T> task) {
+        try {
+            return task.get();
+        } catch (ExecutionException e) {
+            Log.e(TAG, "Startup step failed", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return null;
+    }
+
+    private static final class RepositorySteps implements Steps {
+        private final DatabaseHelper databaseHelper;
+        private final TransactionRepository repository;
+
+        RepositorySteps(DatabaseHelper databaseHelper, TransactionRepository repository) {
+            this.databaseHelper = databaseHelper;
+            this.repository = repository;
+        }
+
+        @Nullable
+        @Override
+        public String username(long userId) {
+            return databaseHelper.getUsername(userId);
+        }
+
+        @Override
+        public List<Transaction> firstPage(long userId, int limit) {
+            return repository.loadOlder(userId, null, limit);
+        }
+
+        @Override
+        public void loadTotals(long userId) {
+            repository.ensureAggregatesLoaded(userId);
+            repository.ensureBudgetsLoaded(userId);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.expensetracker.budgettracker.data;
+
+import android.util.Log;
+
+import com.expensetracker.budgettracker.models.Transaction;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Row-level change stream for the transactions table. The repository publishes one
+ * {@link Change} per committed write, after the aggregate store has been updated, so
+ * listeners can patch their state in place instead of reloading the ledger.
+ * <p>
+ * Listeners run on the writer thread and must hand any UI work to the main thread.
+ */
+public class TransactionChanges {
+    private static final String TAG = "TransactionChanges";
+
+    public enum Kind {
+        INSERTED,
+        UPDATED,
+        DELETED,
+        /**
+         * Too much changed to describe row by row (e.g. an import); reload from the source.
+         */
+        INVALIDATED
+    }
+
+    public static final class Change {
+        public final Kind kind;
+        public final long userId;
+        /**
+         * The affected rows with their IDs set; empty for {@link Kind#INVALIDATED}.
+         */
+        public final List<Transaction> rows;
+
+        Change(Kind kind, long userId, List<Transaction> rows) {
+            this.kind = kind;
+            this.userId = userId;
+            this.rows = Collections.unmodifiableList(rows);
+        }
+    }
+
+    public interface Listener {
+        void onChange(Change change);
+    }
+
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    void publish(Kind kind, long userId, List<Transaction> rows) {
+        Change change = new Change(kind, userId, rows);
+        for (Listener listener : listeners) {
+            try {
+                listener.onChange(change);
+            } catch (Exception e) {
+                Log.e(TAG, "Change listener failed", e);
+            }
+        }
+    }
+}
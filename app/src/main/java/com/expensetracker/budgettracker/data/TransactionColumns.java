@@ -0,0 +1,123 @@
+package com.expensetracker.budgettracker.data;
+
+import android.database.Cursor;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+/**
+ * A columnar projection of a user's transactions for aggregation and charting: parallel
+ * primitive arrays, with categories as their {@link CategoryDictionary} IDs. Reading one
+ * costs no objects per row, unlike mapping rows to {@link com.expensetracker.budgettracker.models.Transaction}s,
+ * so it suits consumers that only sum or plot amounts.
+ */
+public final class TransactionColumns {
+    public static final TransactionColumns EMPTY = new TransactionColumns(0, new long[0], new long[0],
+            new int[0], new int[0], new boolean[0], new String[0]);
+
+    private static final int INITIAL_CAPACITY = 256;
+
+    // Column order expected by read(Cursor)
+    static final int COLUMN_ID = 0;
+    static final int COLUMN_AMOUNT = 1;
+    static final int COLUMN_DATE = 2;
+    static final int COLUMN_CATEGORY_ID = 3;
+    static final int COLUMN_IS_INCOME = 4;
+
+    public final int size;
+    public final long[] ids;
+    // Minor units
+    public final long[] amounts;
+    public final int[] epochDays;
+    public final int[] categoryIds;
+    public final boolean[] income;
+    // Names indexed by category ID, null for IDs that no row uses
+    public final String[] categories;
+
+    TransactionColumns(int size, long[] ids, long[] amounts, int[] epochDays, int[] categoryIds,
+                       boolean[] income, String[] categories) {
+        this.size = size;
+        this.ids = ids;
+        this.amounts = amounts;
+        this.epochDays = epochDays;
+        this.categoryIds = categoryIds;
+        this.income = income;
+        this.categories = categories;
+    }
+
+    /**
+     * Read every row of a cursor whose columns are transaction ID, amount, date, category ID
+     * and an income flag (0 or 1), in that order. {@code names} is asked once per distinct
+     * category for its name.
+     */
+    static TransactionColumns read(Cursor cursor, IntFunction<String> names) {
+        int capacity = Math.max(cursor.getCount(), INITIAL_CAPACITY);
+        long[] ids = new long[capacity];
+        long[] amounts = new long[capacity];
+        int[] epochDays = new int[capacity];
+        int[] categoryIds = new int[capacity];
+        boolean[] income = new boolean[capacity];
+
+        int size = 0;
+        while (cursor.moveToNext()) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                amounts = Arrays.copyOf(amounts, size * 2);
+                epochDays = Arrays.copyOf(epochDays, size * 2);
+                categoryIds = Arrays.copyOf(categoryIds, size * 2);
+                income = Arrays.copyOf(income, size * 2);
+            }
+            ids[size] = cursor.getLong(COLUMN_ID);
+            amounts[size] = cursor.getLong(COLUMN_AMOUNT);
+            epochDays[size] = cursor.getInt(COLUMN_DATE);
+            categoryIds[size] = cursor.getInt(COLUMN_CATEGORY_ID);
+            income[size] = cursor.getInt(COLUMN_IS_INCOME) != 0;
+            size++;
+        }
+
+        return new TransactionColumns(size, ids, amounts, epochDays, categoryIds, income,
+                categoryNames(categoryIds, size, names));
+    }
+
+    /**
+     * Names indexed by category ID for the first {@code size} IDs, asking {@code names}
+     * once per distinct ID.
+     */
+    static String[] categoryNames(int[] categoryIds, int size, IntFunction<String> names) {
+        int maxCategoryId = 0;
+        for (int i = 0; i < size; i++) {
+            maxCategoryId = Math.max(maxCategoryId, categoryIds[i]);
+        }
+        String[] categories = new String[size > 0 ? maxCategoryId + 1 : 0];
+        for (int i = 0; i < size; i++) {
+            int id = categoryIds[i];
+            if (categories[id] == null) {
+                categories[id] = names.apply(id);
+            }
+        }
+        return categories;
+    }
+
+    /**
+     * Expense totals in minor units per category ID, in the same shape as
+     * {@link AggregateStore#getExpenseCategoryTotals(long)}.
+     */
+    public Map<Integer, Long> expenseTotalsByCategory() {
+        long[] totals = new long[categories.length];
+        for (int i = 0; i < size; i++) {
+            if (!income[i]) {
+                totals[categoryIds[i]] += amounts[i];
+            }
+        }
+        Map<Integer, Long> byId = new HashMap<>();
+        for (int id = 0; id < totals.length; id++) {
+            if (totals[id] != 0) {
+                byId.put(id, totals[id]);
+            }
+        }
+        return Collections.unmodifiableMap(byId);
+    }
+}
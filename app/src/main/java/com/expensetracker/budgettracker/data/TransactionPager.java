@@ -0,0 +1,279 @@
+package com.expensetracker.budgettracker.data;
+
+import androidx.annotation.Nullable;
+
+import com.expensetracker.budgettracker.models.Transaction;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Keeps a bounded window of transaction pages, loaded with keyset pagination on
+ * (date, transaction_id). Pages that fall out of the window are dropped and fetched
+ * again from the source when the user scrolls back, so memory stays flat no matter
+ * how large the ledger is.
+ * <p>
+ * Pages are read outside the pager's lock, so patches from the writer thread never wait
+ * on a query; a page read while a patch landed is thrown away and read again.
+ */
+public class TransactionPager {
+
+    public interface PageSource {
+        /**
+         * Load up to {@code limit} rows that sort after {@code anchor} (older rows),
+         * newest first. A null anchor loads the first page.
+         */
+        List<Transaction> loadOlder(@Nullable Transaction anchor, int limit);
+
+        /**
+         * Load up to {@code limit} rows that sort right before {@code anchor} (newer rows),
+         * newest first.
+         */
+        List<Transaction> loadNewer(Transaction anchor, int limit);
+    }
+
+    private static final Comparator<Transaction> NEWEST_FIRST = (a, b) -> {
+        int byDate = Integer.compare(b.getEpochDay(), a.getEpochDay());
+        return byDate != 0 ? byDate : Integer.compare(b.getId(), a.getId());
+    };
+
+    private final PageSource source;
+    private final int pageSize;
+    private final int maxPages;
+    // Newest page first
+    private final List<List<Transaction>> pages = new ArrayList<>();
+    private boolean hasOlder = true;
+    private boolean hasNewer = false;
+    // Bumped by every change to the window, and by every patch even when it leaves the
+    // window alone, since a page read while it landed may not include it
+    private long generation;
+
+    public TransactionPager(PageSource source, int pageSize, int maxPages) {
+        this.source = source;
+        this.pageSize = pageSize;
+        this.maxPages = maxPages;
+    }
+
+    /**
+     * Drop the current window and load the first page again.
+     */
+    public void refresh() {
+        while (true) {
+            long seen;
+            synchronized (this) {
+                seen = generation;
+            }
+            List<Transaction> page = source.loadOlder(null, pageSize);
+            synchronized (this) {
+                // Patched meanwhile: the page may predate the change, so read it again
+                if (generation != seen) continue;
+                pages.clear();
+                hasOlder = page.size() >= pageSize;
+                hasNewer = false;
+                if (!page.isEmpty()) {
+                    pages.add(new ArrayList<>(page));
+                }
+                generation++;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Drop the current window and start again from a first page that was already loaded
+     * from the same source, e.g. while the app was starting.
+     */
+    public synchronized void refresh(List<Transaction> firstPage) {
+        pages.clear();
+        hasOlder = firstPage.size() >= pageSize;
+        hasNewer = false;
+        if (!firstPage.isEmpty()) {
+            pages.add(new ArrayList<>(firstPage));
+        }
+        generation++;
+    }
+
+    /**
+     * Append the next page of older rows, evicting the newest page if the window is full.
+     *
+     * @return true if the window changed
+     */
+    public boolean loadOlder() {
+        while (true) {
+            Transaction anchor;
+            long seen;
+            synchronized (this) {
+                if (!hasOlder) return false;
+                anchor = pages.isEmpty() ? null : last(pages.get(pages.size() - 1));
+                seen = generation;
+            }
+            List<Transaction> page = source.loadOlder(anchor, pageSize);
+            synchronized (this) {
+                if (generation != seen) continue;
+                generation++;
+                if (page.size() < pageSize) {
+                    hasOlder = false;
+                }
+                if (page.isEmpty()) return false;
+
+                pages.add(new ArrayList<>(page));
+                if (pages.size() > maxPages) {
+                    pages.remove(0);
+                    hasNewer = true;
+                }
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Prepend the previous page of newer rows, evicting the oldest page if the window is full.
+     *
+     * @return true if the window changed
+     */
+    public boolean loadNewer() {
+        while (true) {
+            Transaction anchor;
+            long seen;
+            synchronized (this) {
+                if (!hasNewer || pages.isEmpty()) return false;
+                anchor = pages.get(0).get(0);
+                seen = generation;
+            }
+            List<Transaction> page = source.loadNewer(anchor, pageSize);
+            synchronized (this) {
+                if (generation != seen) continue;
+                generation++;
+                if (page.size() < pageSize) {
+                    hasNewer = false;
+                }
+                if (page.isEmpty()) return false;
+
+                pages.add(0, new ArrayList<>(page));
+                if (pages.size() > maxPages) {
+                    pages.remove(pages.size() - 1);
+                    hasOlder = true;
+                }
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Patch a newly inserted row into the window without reloading. Rows that sort outside
+     * the loaded range are left for paging to pick up, and a row the window already holds
+     * (a reload that ran between the commit and this call) is left alone. The window keeps
+     * its page size and page count, shedding a row from the end furthest from the new one
+     * when full. Meant for a few rows at a time; reload for larger changes.
+     *
+     * @return true if the window changed
+     */
+    public synchronized boolean applyInserted(Transaction row) {
+        generation++;
+        if (pages.isEmpty()) {
+            if (hasOlder) return false;
+            // The ledger was empty and fully loaded, so this row is the whole window
+            List<Transaction> page = new ArrayList<>(pageSize);
+            page.add(row);
+            pages.add(page);
+            return true;
+        }
+        if (hasNewer && NEWEST_FIRST.compare(row, pages.get(0).get(0)) < 0) return false;
+
+        for (int i = 0; i < pages.size(); i++) {
+            List<Transaction> page = pages.get(i);
+            if (NEWEST_FIRST.compare(row, last(page)) <= 0) {
+                int index = Collections.binarySearch(page, row, NEWEST_FIRST);
+                // Same date and ID: already loaded
+                if (index >= 0) return false;
+                page.add(-index - 1, row);
+                rebalance(i);
+                return true;
+            }
+        }
+        // Older than everything loaded: only part of the window if there is nothing further to page in
+        if (hasOlder) return false;
+        pages.get(pages.size() - 1).add(row);
+        rebalance(pages.size() - 1);
+        return true;
+    }
+
+    // Keeps every page within pageSize rows and the window within maxPages: a page that
+    // grew by a row is split while there is room for another page, and otherwise passes a
+    // row on page by page towards the end furthest from it, where one falls out
+    private void rebalance(int index) {
+        if (pages.get(index).size() <= pageSize) return;
+        if (pages.size() < maxPages) {
+            List<Transaction> overflow = pages.get(index).subList(pageSize, pages.get(index).size());
+            pages.add(index + 1, new ArrayList<>(overflow));
+            overflow.clear();
+            return;
+        }
+        if (index < pages.size() / 2) {
+            for (int i = index; i < pages.size() - 1 && pages.get(i).size() > pageSize; i++) {
+                List<Transaction> page = pages.get(i);
+                pages.get(i + 1).add(0, page.remove(page.size() - 1));
+            }
+            List<Transaction> oldest = pages.get(pages.size() - 1);
+            if (oldest.size() > pageSize) {
+                oldest.remove(oldest.size() - 1);
+                hasOlder = true;
+            }
+        } else {
+            for (int i = index; i > 0 && pages.get(i).size() > pageSize; i--) {
+                pages.get(i - 1).add(pages.get(i).remove(0));
+            }
+            List<Transaction> newest = pages.get(0);
+            if (newest.size() > pageSize) {
+                newest.remove(0);
+                hasNewer = true;
+            }
+        }
+    }
+
+    /**
+     * Remove a deleted row from the window if it is loaded.
+     *
+     * @return true if the window changed
+     */
+    public synchronized boolean applyDeleted(Transaction row) {
+        generation++;
+        for (Iterator<List<Transaction>> it = pages.iterator(); it.hasNext(); ) {
+            List<Transaction> page = it.next();
+            for (int i = 0; i < page.size(); i++) {
+                if (page.get(i).getId() == row.getId()) {
+                    page.remove(i);
+                    if (page.isEmpty()) it.remove();
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    public synchronized boolean hasOlder() {
+        return hasOlder;
+    }
+
+    public synchronized boolean hasNewer() {
+        return hasNewer;
+    }
+
+    /**
+     * Flatten the current window into a single immutable list for the adapter.
+     */
+    public synchronized List<Transaction> snapshot() {
+        List<Transaction> window = new ArrayList<>(pages.size() * pageSize);
+        for (List<Transaction> page : pages) {
+            window.addAll(page);
+        }
+        return Collections.unmodifiableList(window);
+    }
+
+    private static Transaction last(List<Transaction> page) {
+        return page.get(page.size() - 1);
+    }
+}
@@ -0,0 +1,659 @@
+package com.expensetracker.budgettracker.data;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.SQLException;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
+import com.expensetracker.budgettracker.data.csv.TransactionCsv;
+import com.expensetracker.budgettracker.models.RecurringRule;
+import com.expensetracker.budgettracker.models.Transaction;
+import com.expensetracker.budgettracker.utils.AppExecutors;
+import com.expensetracker.budgettracker.utils.EpochDays;
+import com.expensetracker.budgettracker.utils.LatencyHistogram;
+import com.expensetracker.budgettracker.utils.Metrics;
+
+import net.zetetic.database.sqlcipher.SQLiteDatabase;
+import net.zetetic.database.sqlcipher.SQLiteStatement;
+
+import java.io.IOException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Process-wide access to the transactions table. Every screen shares the same
+ * {@link LedgerPartitions}, so each user's reads and writes go to their own ledger file,
+ * and the same {@link AggregateStore}.
+ * <p>
+ * Reads run on the caller's thread, so dispatch them to {@code AppExecutors.diskRead()}.
+ * Writes are queued on the {@link WriteQueue} and return immediately. Loading the
+ * in-memory totals is the exception: it runs on the writer and the caller waits for it.
+ */
+public class TransactionRepository {
+    private static final String TAG = "TransactionRepository";
+    private static final LatencyHistogram QUERY_PAGE = Metrics.histogram("db.query.page");
+    private static final LatencyHistogram QUERY_DAILY_TOTALS = Metrics.histogram("db.query.dailyTotals");
+    private static final LatencyHistogram QUERY_BUDGETS = Metrics.histogram("db.query.budgets");
+    private static final LatencyHistogram QUERY_COLUMNS = Metrics.histogram("db.query.columns");
+    private static final LatencyHistogram RECURRING_CATCH_UP = Metrics.histogram("db.recurring.catchUp");
+    private static final LatencyHistogram AGGREGATE_REBUILD = Metrics.histogram("aggregate.rebuild");
+    private static final Metrics.Counter ROWS_MAPPED = Metrics.counter("db.rows.mapped");
+    private static final String ORDER_NEWEST_FIRST =
+            DatabaseHelper.COLUMN_DATE + " DESC, " + DatabaseHelper.COLUMN_TRANSACTION_ID + " DESC";
+    private static final String ORDER_OLDEST_FIRST =
+            DatabaseHelper.COLUMN_DATE + " ASC, " + DatabaseHelper.COLUMN_TRANSACTION_ID + " ASC";
+    private static final String[] TRANSACTION_COLUMNS = {
+            DatabaseHelper.COLUMN_TRANSACTION_ID,
+            DatabaseHelper.COLUMN_AMOUNT,
+            DatabaseHelper.COLUMN_CATEGORY_ID,
+            DatabaseHelper.COLUMN_DATE,
+            DatabaseHelper.COLUMN_TYPE,
+            DatabaseHelper.COLUMN_NOTES
+    };
+
+    private static volatile TransactionRepository instance;
+
+    private final LedgerPartitions partitions;
+    private final AggregateStore aggregateStore;
+    private final DailyTotals dailyTotals;
+    private final BudgetEngine budgetEngine;
+    private final CategoryDictionary categories = CategoryDictionary.getInstance();
+    private final TransactionChanges changes = new TransactionChanges();
+    private final WriteQueue writeQueue;
+
+    TransactionRepository(LedgerPartitions partitions, AggregateStore aggregateStore,
+                          DailyTotals dailyTotals, WriteQueue writeQueue) {
+        this.partitions = partitions;
+        this.aggregateStore = aggregateStore;
+        this.dailyTotals = dailyTotals;
+        this.budgetEngine = new BudgetEngine(aggregateStore);
+        this.writeQueue = writeQueue;
+    }
+
+    public static TransactionRepository getInstance(Context context) {
+        if (instance == null) {
+            synchronized (TransactionRepository.class) {
+                if (instance == null) {
+                    // Category IDs are shared by every ledger, so they are allocated in the shared file
+                    CategoryDictionary.getInstance().setRegistry(DatabaseHelper.getInstance(context));
+                    LedgerCipher.getInstance().setMasterKey(new KeystoreMasterKey(context));
+                    LedgerPartitions partitions = LedgerPartitions.getInstance(context);
+                    instance = new TransactionRepository(partitions, AggregateStore.getInstance(),
+                            DailyTotals.getInstance(), new WriteQueue(partitions, AppExecutors.getInstance().diskWrite()));
+                }
+            }
+        }
+        return instance;
+    }
+
+    public AggregateStore getAggregates() {
+        return aggregateStore;
+    }
+
+    public DailyTotals getDailyTotals() {
+        return dailyTotals;
+    }
+
+    public BudgetEngine getBudgets() {
+        return budgetEngine;
+    }
+
+    public CategoryDictionary getCategories() {
+        return categories;
+    }
+
+    public TransactionChanges getChanges() {
+        return changes;
+    }
+
+    /**
+     * Be told about queued writes that could not be saved, on the writer thread.
+     */
+    public void addWriteFailureListener(WriteQueue.FailureListener listener) {
+        writeQueue.addFailureListener(listener);
+    }
+
+    public void removeWriteFailureListener(WriteQueue.FailureListener listener) {
+        writeQueue.removeFailureListener(listener);
+    }
+
+    /**
+     * Up to {@code limit} rows older than {@code anchor}, newest first.
+     * A null anchor returns the newest page.
+     */
+    public List<Transaction> loadOlder(long userId, @Nullable Transaction anchor, int limit) {
+        try (LedgerPartitions.Lease ledger = partitions.acquire(userId)) {
+            return loadOlder(ledger.getReadableDatabase(), userId, anchor, limit);
+        }
+    }
+
+    static List<Transaction> loadOlder(SQLiteDatabase db, long userId, @Nullable Transaction anchor, int limit) {
+        if (anchor == null) {
+            return queryPage(db, userId, DatabaseHelper.COLUMN_USER_ID + " = ?",
+                    new String[]{String.valueOf(userId)}, ORDER_NEWEST_FIRST, limit);
+        }
+        String date = String.valueOf(anchor.getEpochDay());
+        String id = String.valueOf(anchor.getId());
+        return queryPage(db, userId, DatabaseHelper.COLUMN_USER_ID + " = ? AND (" +
+                        DatabaseHelper.COLUMN_DATE + " < ? OR (" +
+                        DatabaseHelper.COLUMN_DATE + " = ? AND " +
+                        DatabaseHelper.COLUMN_TRANSACTION_ID + " < ?))",
+                new String[]{String.valueOf(userId), date, date, id}, ORDER_NEWEST_FIRST, limit);
+    }
+
+    /**
+     * Up to {@code limit} rows immediately newer than {@code anchor}, newest first.
+     */
+    public List<Transaction> loadNewer(long userId, Transaction anchor, int limit) {
+        String date = String.valueOf(anchor.getEpochDay());
+        String id = String.valueOf(anchor.getId());
+        List<Transaction> page;
+        try (LedgerPartitions.Lease ledger = partitions.acquire(userId)) {
+            page = queryPage(ledger.getReadableDatabase(), userId, DatabaseHelper.COLUMN_USER_ID + " = ? AND (" +
+                            DatabaseHelper.COLUMN_DATE + " > ? OR (" +
+                            DatabaseHelper.COLUMN_DATE + " = ? AND " +
+                            DatabaseHelper.COLUMN_TRANSACTION_ID + " > ?))",
+                    new String[]{String.valueOf(userId), date, date, id}, ORDER_OLDEST_FIRST, limit);
+        }
+        Collections.reverse(page);
+        return page;
+    }
+
+    /**
+     * A page source over the user's transactions that match {@code query}, newest first.
+     * Hand it to a {@link TransactionPager} to page through the results. Its reads run on
+     * the caller's thread.
+     */
+    public TransactionPager.PageSource search(long userId, SearchQuery query) {
+        return new LeasedSearch(userId, query);
+    }
+
+    /**
+     * Holds the user's ledger open for the length of each page query only, so an idle
+     * search never keeps it from being evicted. The pager asks for one page at a time.
+     */
+    private final class LeasedSearch implements TransactionPager.PageSource {
+        private final long userId;
+        private final TransactionSearch search;
+        @Nullable
+        private SQLiteDatabase db;
+
+        LeasedSearch(long userId, SearchQuery query) {
+            this.userId = userId;
+            this.search = new TransactionSearch(() -> db, userId, query);
+        }
+
+        @Override
+        public synchronized List<Transaction> loadOlder(@Nullable Transaction anchor, int limit) {
+            try (LedgerPartitions.Lease ledger = partitions.acquire(userId)) {
+                db = ledger.getReadableDatabase();
+                return search.loadOlder(anchor, limit);
+            } finally {
+                db = null;
+            }
+        }
+
+        @Override
+        public synchronized List<Transaction> loadNewer(Transaction anchor, int limit) {
+            try (LedgerPartitions.Lease ledger = partitions.acquire(userId)) {
+                db = ledger.getReadableDatabase();
+                return search.loadNewer(anchor, limit);
+            } finally {
+                db = null;
+            }
+        }
+    }
+
+    static List<Transaction> queryPage(SQLiteDatabase db, long userId, String selection, String[] selectionArgs,
+                                       String orderBy, int limit) {
+        List<Transaction> page = new ArrayList<>(limit);
+        CategoryDictionary categories = CategoryDictionary.getInstance();
+        LedgerCipher cipher = LedgerCipher.getInstance();
+        long start = QUERY_PAGE.start();
+        try (Cursor cursor = db.query(
+                DatabaseHelper.TABLE_TRANSACTIONS,
+                TRANSACTION_COLUMNS,
+                selection, selectionArgs,
+                null, null, orderBy, String.valueOf(limit)
+        )) {
+            int idIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_TRANSACTION_ID);
+            int amountIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_AMOUNT);
+            int categoryIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_CATEGORY_ID);
+            int dateIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_DATE);
+            int typeIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_TYPE);
+            int notesIndex = cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_NOTES);
+
+            while (cursor.moveToNext()) {
+                // Every row of a category shares the dictionary's String
+                int categoryId = cursor.getInt(categoryIndex);
+                Transaction transaction = new Transaction(
+                        categoryId,
+                        categories.nameOf(db, categoryId),
+                        cursor.getLong(amountIndex),
+                        cursor.getInt(dateIndex),
+                        cursor.getString(typeIndex),
+                        cipher.read(cursor, notesIndex, userId)
+                );
+                transaction.setId(cursor.getInt(idIndex));
+                page.add(transaction);
+            }
+        } finally {
+            QUERY_PAGE.stop(start);
+        }
+        ROWS_MAPPED.add(page.size());
+        return page;
+    }
+
+    /**
+     * Queue an insert. Once its batch commits the row gets its ID, is applied to the
+     * aggregate store and published on {@link #getChanges()}, and then {@code onCommitted}
+     * runs on the writer thread.
+     */
+    public void insert(long userId, Transaction transaction, @Nullable Runnable onCommitted) {
+        writeQueue.submit(userId, db -> {
+            transaction.setCategoryId(categories.intern(db, transaction.getCategory()));
+            ContentValues values = new ContentValues();
+            values.put(DatabaseHelper.COLUMN_AMOUNT, transaction.getAmountCents());
+            values.put(DatabaseHelper.COLUMN_CATEGORY_ID, transaction.getCategoryId());
+            values.put(DatabaseHelper.COLUMN_DATE, transaction.getEpochDay());
+            values.put(DatabaseHelper.COLUMN_TYPE, transaction.getType());
+            LedgerCipher cipher = LedgerCipher.getInstance();
+            cipher.put(values, DatabaseHelper.COLUMN_NOTES, userId, transaction.getNotes());
+            values.put(DatabaseHelper.COLUMN_NOTE_TOKENS, cipher.indexTokens(userId, transaction.getNotes()));
+            values.put(DatabaseHelper.COLUMN_USER_ID, userId);
+            transaction.setId((int) db.insertOrThrow(DatabaseHelper.TABLE_TRANSACTIONS, null, values));
+
+            return () -> {
+                applyInserted(userId, transaction);
+                changes.publish(TransactionChanges.Kind.INSERTED, userId, Collections.singletonList(transaction));
+                if (onCommitted != null) onCommitted.run();
+            };
+        });
+    }
+
+    /**
+     * Queue many inserts as a single write, so they share one transaction and one compiled
+     * statement. Once it commits the rows are applied to the aggregate store, published as
+     * one change, and {@code onCommitted} runs once for the whole batch.
+     */
+    public void insertAll(long userId, List<Transaction> transactions, @Nullable Runnable onCommitted) {
+        if (transactions.isEmpty()) {
+            if (onCommitted != null) onCommitted.run();
+            return;
+        }
+        List<Transaction> batch = new ArrayList<>(transactions);
+        writeQueue.submit(userId, db -> {
+            insertBatch(db, userId, batch);
+            return () -> applyInsertedBatch(userId, batch, onCommitted);
+        });
+    }
+
+    /**
+     * Queue a new recurring rule. Occurrences already due, from its start through today,
+     * are written in the same transaction.
+     */
+    public void addRecurringRule(long userId, RecurringRule rule, @Nullable Runnable onCommitted) {
+        writeQueue.submit(userId, db -> {
+            RecurringScheduler.insertRule(db, userId, rule);
+            List<Transaction> rows = RecurringScheduler.catchUp(db, userId, EpochDays.today());
+
+            return () -> {
+                categories.put(rule.getCategoryId(), rule.getCategory());
+                applyInsertedBatch(userId, rows, onCommitted);
+            };
+        });
+    }
+
+    /**
+     * The user's recurring rules, by start day. Runs on the caller's thread.
+     */
+    public List<RecurringRule> loadRecurringRules(long userId) {
+        try (LedgerPartitions.Lease ledger = partitions.acquire(userId)) {
+            return RecurringScheduler.readAll(ledger.getReadableDatabase(), userId);
+        }
+    }
+
+    /**
+     * Queue the removal of a recurring rule, so no further occurrences are written. The
+     * ones already in the ledger stay, to be deleted one by one like any other row.
+     */
+    public void removeRecurringRule(long userId, RecurringRule rule, @Nullable Runnable onCommitted) {
+        writeQueue.submit(userId, db -> {
+            RecurringScheduler.deleteRule(db, userId, rule.getId());
+            return onCommitted;
+        });
+    }
+
+    /**
+     * Queue a catch-up of the user's recurring rules: every occurrence due through today
+     * that is not in the ledger yet is written as one batch and published as one change.
+     */
+    public void catchUpRecurring(long userId, @Nullable Runnable onCommitted) {
+        writeQueue.submit(userId, db -> {
+            long start = RECURRING_CATCH_UP.start();
+            try {
+                List<Transaction> rows = RecurringScheduler.catchUp(db, userId, EpochDays.today());
+                return () -> applyInsertedBatch(userId, rows, onCommitted);
+            } finally {
+                RECURRING_CATCH_UP.stop(start);
+            }
+        });
+    }
+
+    private void applyInsertedBatch(long userId, List<Transaction> batch, @Nullable Runnable onCommitted) {
+        if (!batch.isEmpty()) {
+            for (Transaction transaction : batch) {
+                applyInserted(userId, transaction);
+            }
+            changes.publish(TransactionChanges.Kind.INSERTED, userId, batch);
+        }
+        if (onCommitted != null) onCommitted.run();
+    }
+
+    private void applyInserted(long userId, Transaction transaction) {
+        categories.put(transaction.getCategoryId(), transaction.getCategory());
+        aggregateStore.add(userId, transaction.getCategoryId(), transaction.getType(),
+                transaction.getEpochDay(), transaction.getAmountCents());
+        dailyTotals.add(userId, transaction.getCategoryId(), transaction.getType(), transaction.getEpochDay(),
+                transaction.getAmountCents());
+        budgetEngine.onTransactionApplied(userId, transaction.getCategoryId(), transaction.getType(),
+                transaction.getEpochDay(), transaction.getAmountCents());
+    }
+
+    /**
+     * Insert every row through one compiled statement, interning each category on the way.
+     * The caller owns the transaction and publishes new categories once it commits.
+     */
+    static void insertBatch(SQLiteDatabase db, long userId, List<Transaction> transactions) {
+        CategoryDictionary categories = CategoryDictionary.getInstance();
+        LedgerCipher cipher = LedgerCipher.getInstance();
+        // Categories new in this batch are not in the dictionary until it commits
+        Map<String, Integer> interned = new HashMap<>();
+        SQLiteStatement statement = db.compileStatement("INSERT INTO " + DatabaseHelper.TABLE_TRANSACTIONS + " (" +
+                DatabaseHelper.COLUMN_USER_ID + ", " +
+                DatabaseHelper.COLUMN_AMOUNT + ", " +
+                DatabaseHelper.COLUMN_CATEGORY_ID + ", " +
+                DatabaseHelper.COLUMN_DATE + ", " +
+                DatabaseHelper.COLUMN_TYPE + ", " +
+                DatabaseHelper.COLUMN_NOTES + ", " +
+                DatabaseHelper.COLUMN_NOTE_TOKENS + ") VALUES (?, ?, ?, ?, ?, ?, ?)");
+        try {
+            for (Transaction transaction : transactions) {
+                Integer categoryId = interned.get(transaction.getCategory());
+                if (categoryId == null) {
+                    categoryId = categories.intern(db, transaction.getCategory());
+                    interned.put(transaction.getCategory(), categoryId);
+                }
+                transaction.setCategoryId(categoryId);
+                statement.clearBindings();
+                statement.bindLong(1, userId);
+                statement.bindLong(2, transaction.getAmountCents());
+                statement.bindLong(3, categoryId);
+                statement.bindLong(4, transaction.getEpochDay());
+                bindNullableString(statement, 5, transaction.getType());
+                cipher.bind(statement, 6, userId, transaction.getNotes());
+                bindNullableString(statement, 7, cipher.indexTokens(userId, transaction.getNotes()));
+                long id = statement.executeInsert();
+                if (id == -1) {
+                    throw new SQLException("Failed to insert transaction");
+                }
+                transaction.setId((int) id);
+            }
+        } finally {
+            statement.close();
+        }
+    }
+
+    private static void bindNullableString(SQLiteStatement statement, int index, @Nullable String value) {
+        if (value == null) {
+            statement.bindNull(index);
+        } else {
+            statement.bindString(index, value);
+        }
+    }
+
+    /**
+     * Queue a delete. Once its batch commits the row is removed from the aggregate store
+     * and published on {@link #getChanges()}, and then {@code onCommitted} runs on the
+     * writer thread.
+     */
+    public void delete(long userId, Transaction transaction, @Nullable Runnable onCommitted) {
+        writeQueue.submit(userId, db -> {
+            int deleted = db.delete(DatabaseHelper.TABLE_TRANSACTIONS,
+                    DatabaseHelper.COLUMN_USER_ID + " = ? AND " + DatabaseHelper.COLUMN_TRANSACTION_ID + " = ?",
+                    new String[]{String.valueOf(userId), String.valueOf(transaction.getId())});
+
+            return () -> {
+                if (deleted > 0) {
+                    aggregateStore.remove(userId, transaction.getCategoryId(), transaction.getType(),
+                            transaction.getEpochDay(), transaction.getAmountCents());
+                    dailyTotals.remove(userId, transaction.getCategoryId(), transaction.getType(), transaction.getEpochDay(),
+                            transaction.getAmountCents());
+                    changes.publish(TransactionChanges.Kind.DELETED, userId, Collections.singletonList(transaction));
+                }
+                if (onCommitted != null) onCommitted.run();
+            };
+        });
+    }
+
+    /**
+     * Stream a CSV ledger into the user's transactions. Call it from
+     * {@code AppExecutors.diskWrite()} so it runs between write-queue batches; the user's
+     * totals are rebuilt on the next load.
+     */
+    public TransactionCsv.ImportResult importCsv(long userId, ReadableByteChannel in,
+                                                 @Nullable TransactionCsv.ProgressListener listener) throws IOException {
+        // New categories are not loaded here: the ledger's copy only holds this import's names,
+        // and readers fetch any name they miss from the registry
+        try (LedgerPartitions.Lease ledger = partitions.acquire(userId)) {
+            return TransactionCsv.importFrom(ledger.getWritableDatabase(), userId, in, listener);
+        } finally {
+            aggregateStore.invalidate(userId);
+            dailyTotals.invalidate(userId);
+            changes.publish(TransactionChanges.Kind.INVALIDATED, userId, Collections.emptyList());
+        }
+    }
+
+    /**
+     * Stream the user's transactions out as CSV. Runs on the caller's thread.
+     */
+    public long exportCsv(long userId, WritableByteChannel out,
+                          @Nullable TransactionCsv.ProgressListener listener) throws IOException {
+        try (LedgerPartitions.Lease ledger = partitions.acquire(userId)) {
+            return TransactionCsv.exportTo(ledger.getReadableDatabase(), userId, out, listener);
+        }
+    }
+
+    /**
+     * Rebuild the user's aggregates from the monthly rollups if this process has not loaded
+     * them yet. The rollups are read and installed on the writer, between the writes queued
+     * before and after, so a write committing meanwhile is counted exactly once; the caller
+     * waits for it.
+     */
+    public void ensureAggregatesLoaded(long userId) {
+        if (aggregateStore.isLoaded(userId)) return;
+
+        writeQueue.submitAndWait(userId, db -> {
+            if (aggregateStore.isLoaded(userId)) return null;
+            long start = AGGREGATE_REBUILD.start();
+            try {
+                List<AggregateStore.Aggregate> rows = MonthlyRollups.read(db, userId);
+                return () -> aggregateStore.rebuild(userId, rows);
+            } finally {
+                AGGREGATE_REBUILD.stop(start);
+            }
+        });
+    }
+
+    /**
+     * Load the user's spending per day and category if this process has not loaded it yet.
+     * Walks the user's rows once in date order through the (user_id, date) index, on the writer like
+     * {@link #ensureAggregatesLoaded}; the caller waits for it.
+     */
+    public void ensureDailyTotalsLoaded(long userId) {
+        if (dailyTotals.isLoaded(userId)) return;
+
+        writeQueue.submitAndWait(userId, db -> {
+            if (dailyTotals.isLoaded(userId)) return null;
+            int[] days = new int[256];
+            int[] categoryIds = new int[256];
+            long[] totals = new long[256];
+            int size = 0;
+            long start = QUERY_DAILY_TOTALS.start();
+            try (Cursor cursor = db.rawQuery("SELECT " + DatabaseHelper.COLUMN_DATE + ", " +
+                            DatabaseHelper.COLUMN_CATEGORY_ID + ", SUM(" +
+                            DatabaseHelper.COLUMN_AMOUNT + ") FROM " + DatabaseHelper.TABLE_TRANSACTIONS +
+                            " WHERE " + DatabaseHelper.COLUMN_USER_ID + " = ? AND " +
+                            DatabaseHelper.COLUMN_TYPE + " <> '" + AggregateStore.TYPE_INCOME + "' COLLATE NOCASE" +
+                            " GROUP BY " + DatabaseHelper.COLUMN_DATE + ", " + DatabaseHelper.COLUMN_CATEGORY_ID +
+                            " ORDER BY " + DatabaseHelper.COLUMN_DATE + ", " + DatabaseHelper.COLUMN_CATEGORY_ID,
+                    new String[]{String.valueOf(userId)})) {
+                while (cursor.moveToNext()) {
+                    if (size == days.length) {
+                        days = Arrays.copyOf(days, size * 2);
+                        categoryIds = Arrays.copyOf(categoryIds, size * 2);
+                        totals = Arrays.copyOf(totals, size * 2);
+                    }
+                    days[size] = cursor.getInt(0);
+                    categoryIds[size] = cursor.getInt(1);
+                    totals[size] = cursor.getLong(2);
+                    size++;
+                }
+            } finally {
+                QUERY_DAILY_TOTALS.stop(start);
+            }
+            int[] loadedDays = days;
+            int[] loadedCategories = categoryIds;
+            long[] loadedTotals = totals;
+            int loaded = size;
+            return () -> dailyTotals.rebuild(userId, loadedDays, loadedCategories, loadedTotals, loaded);
+        });
+    }
+
+    /**
+     * The user's transactions from {@code fromDay} to {@code toDay} inclusive, oldest first,
+     * as a {@link TransactionColumns} projection. Runs on the caller's thread.
+     */
+    public TransactionColumns loadColumns(long userId, int fromDay, int toDay) {
+        try (LedgerPartitions.Lease ledger = partitions.acquire(userId)) {
+            return loadColumns(ledger.getReadableDatabase(), userId, fromDay, toDay);
+        }
+    }
+
+    static TransactionColumns loadColumns(SQLiteDatabase db, long userId, int fromDay, int toDay) {
+        long start = QUERY_COLUMNS.start();
+        // Same column order as TransactionColumns.COLUMN_*
+        try (Cursor cursor = db.rawQuery("SELECT " + DatabaseHelper.COLUMN_TRANSACTION_ID + ", " +
+                        DatabaseHelper.COLUMN_AMOUNT + ", " + DatabaseHelper.COLUMN_DATE + ", " +
+                        DatabaseHelper.COLUMN_CATEGORY_ID + ", " +
+                        DatabaseHelper.COLUMN_TYPE + " = '" + AggregateStore.TYPE_INCOME + "' COLLATE NOCASE" +
+                        " FROM " + DatabaseHelper.TABLE_TRANSACTIONS +
+                        " WHERE " + DatabaseHelper.COLUMN_USER_ID + " = ? AND " +
+                        DatabaseHelper.COLUMN_DATE + " BETWEEN ? AND ?" +
+                        " ORDER BY " + DatabaseHelper.COLUMN_DATE,
+                new String[]{String.valueOf(userId), String.valueOf(fromDay), String.valueOf(toDay)})) {
+            return TransactionColumns.read(cursor, id -> CategoryDictionary.getInstance().nameOf(db, id));
+        } finally {
+            QUERY_COLUMNS.stop(start);
+        }
+    }
+
+    /**
+     * Queue a monthly budget for a category, replacing any existing budget for it
+     * regardless of case.
+     */
+    public void setBudget(long userId, String category, long amountCents, @Nullable Runnable onCommitted) {
+        writeQueue.submit(userId, db -> {
+            int categoryId = categories.intern(db, category);
+            ContentValues values = new ContentValues();
+            values.put(DatabaseHelper.COLUMN_USER_ID, userId);
+            values.put(DatabaseHelper.COLUMN_CATEGORY_ID, categoryId);
+            values.put(DatabaseHelper.COLUMN_BUDGET_AMOUNT, amountCents);
+            db.insertWithOnConflict(DatabaseHelper.TABLE_BUDGETS, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+
+            return () -> {
+                categories.put(categoryId, category);
+                budgetEngine.setBudget(userId, categoryId, categories.nameOf(categoryId), amountCents);
+                if (onCommitted != null) onCommitted.run();
+            };
+        });
+    }
+
+    public void removeBudget(long userId, String category, @Nullable Runnable onCommitted) {
+        int categoryId = categories.idOf(category);
+        if (categoryId == CategoryDictionary.NONE) {
+            // Never interned, so there is no budget to remove
+            if (onCommitted != null) onCommitted.run();
+            return;
+        }
+        writeQueue.submit(userId, db -> {
+            db.delete(DatabaseHelper.TABLE_BUDGETS,
+                    DatabaseHelper.COLUMN_USER_ID + " = ? AND " + DatabaseHelper.COLUMN_CATEGORY_ID + " = ?",
+                    new String[]{String.valueOf(userId), String.valueOf(categoryId)});
+
+            return () -> {
+                budgetEngine.removeBudget(userId, categoryId);
+                if (onCommitted != null) onCommitted.run();
+            };
+        });
+    }
+
+    /**
+     * Load the user's budgets from SQLite if this process has not loaded them yet.
+     */
+    public void ensureBudgetsLoaded(long userId) {
+        if (budgetEngine.isLoaded(userId)) return;
+
+        List<BudgetEngine.Budget> rows = new ArrayList<>();
+        long start = QUERY_BUDGETS.start();
+        try (LedgerPartitions.Lease ledger = partitions.acquire(userId);
+             Cursor cursor = ledger.getReadableDatabase().query(DatabaseHelper.TABLE_BUDGETS,
+                new String[]{DatabaseHelper.COLUMN_CATEGORY_ID, DatabaseHelper.COLUMN_BUDGET_AMOUNT},
+                DatabaseHelper.COLUMN_USER_ID + " = ?", new String[]{String.valueOf(userId)},
+                null, null, null)) {
+            while (cursor.moveToNext()) {
+                int categoryId = cursor.getInt(0);
+                rows.add(new BudgetEngine.Budget(categoryId, categories.nameOf(ledger.getReadableDatabase(), categoryId),
+                        cursor.getLong(1)));
+            }
+        } finally {
+            QUERY_BUDGETS.stop(start);
+        }
+        budgetEngine.load(userId, rows);
+    }
+
+    /**
+     * Compare the user's rollups with a full ledger scan. On a mismatch the rollups are
+     * rebuilt on the writer and the in-memory totals reloaded on next use. Runs the scan on
+     * the caller's thread.
+     *
+     * @return the mismatching rows that were found
+     */
+    public List<String> verifyRollups(long userId) {
+        List<String> mismatches;
+        try (LedgerPartitions.Lease ledger = partitions.acquire(userId)) {
+            mismatches = MonthlyRollups.check(ledger.getReadableDatabase(), userId);
+        }
+        if (!mismatches.isEmpty()) {
+            Log.w(TAG, mismatches.size() + " rollup rows out of date for user " + userId + ", rebuilding");
+            writeQueue.submit(userId, db -> {
+                MonthlyRollups.rebuild(db);
+                return () -> {
+                    aggregateStore.invalidate(userId);
+                    dailyTotals.invalidate(userId);
+                    changes.publish(TransactionChanges.Kind.INVALIDATED, userId, Collections.emptyList());
+                };
+            });
+        }
+        return mismatches;
+    }
+}
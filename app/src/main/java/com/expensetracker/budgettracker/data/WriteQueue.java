@@ -0,0 +1,276 @@
+package com.expensetracker.budgettracker.data;
+
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
+import com.expensetracker.budgettracker.utils.LatencyHistogram;
+import com.expensetracker.budgettracker.utils.Metrics;
+
+import net.zetetic.database.sqlcipher.SQLiteDatabase;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Serializes every database write onto the single writer thread and groups whatever
+ * is queued at the time into one transaction, so a burst of writes pays for a single
+ * commit. With write-ahead logging enabled, readers on other threads keep reading the
+ * last committed snapshot while a batch is in progress.
+ * <p>
+ * Each write belongs to one user and is applied to that user's ledger; a batch that
+ * spans several users commits once per ledger, each user's writes in submission order.
+ * A write that fails takes the rest of its batch down with it, so the batch is retried one
+ * write at a time; whatever still fails is reported to {@link Write#onFailed} and the
+ * {@link FailureListener}s rather than dropped silently.
+ */
+public class WriteQueue {
+    private static final String TAG = "WriteQueue";
+    private static final int MAX_BATCH_SIZE = 64;
+    private static final LatencyHistogram WRITE_BATCH = Metrics.histogram("db.write.batch");
+    private static final Metrics.Counter WRITES = Metrics.counter("db.write.count");
+    private static final Metrics.Counter FAILED_WRITES = Metrics.counter("db.write.failed");
+
+    public interface Write {
+        /**
+         * Apply the write inside the batch transaction.
+         *
+         * @return work to run once the batch has committed (e.g. in-memory updates), or null
+         */
+        @Nullable
+        Runnable apply(SQLiteDatabase db);
+
+        /**
+         * Called on the writer thread if the write is given up on: it failed when retried on
+         * its own, or its user's ledger would not open or has been deleted. Nothing it wrote
+         * was committed.
+         */
+        default void onFailed(Exception e) {
+        }
+    }
+
+    /**
+     * Told about every write given up on, after its own {@link Write#onFailed}, except those
+     * for users deleted while they were queued. Runs on the writer thread.
+     */
+    public interface FailureListener {
+        void onWriteFailed(long userId, Exception e);
+    }
+
+    private static final class Pending {
+        final long userId;
+        final Write write;
+
+        Pending(long userId, Write write) {
+            this.userId = userId;
+            this.write = write;
+        }
+    }
+
+    private final LedgerPartitions partitions;
+    private final Executor writer;
+    private final ConcurrentLinkedQueue<Pending> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean drainScheduled = new AtomicBoolean(false);
+    private final List<FailureListener> failureListeners = new CopyOnWriteArrayList<>();
+    @Nullable
+    private volatile Thread writerThread;
+
+    public WriteQueue(LedgerPartitions partitions, Executor writer) {
+        this.partitions = partitions;
+        this.writer = writer;
+    }
+
+    public void addFailureListener(FailureListener listener) {
+        failureListeners.add(listener);
+    }
+
+    public void removeFailureListener(FailureListener listener) {
+        failureListeners.remove(listener);
+    }
+
+    public void submit(long userId, Write write) {
+        pending.add(new Pending(userId, write));
+        if (drainScheduled.compareAndSet(false, true)) {
+            writer.execute(this::drain);
+        }
+    }
+
+    /**
+     * Queue a write and wait until it has committed and its post-commit work has run. It is
+     * ordered with every other write, so what it reads includes exactly the writes queued
+     * before it, and what its post-commit work installs is patched by exactly the writes
+     * queued after it. Never call it on the writer thread, which would wait on itself.
+     *
+     * @throws IllegalStateException if the write failed, or if called on the writer thread
+     */
+    public void submitAndWait(long userId, Write write) {
+        if (Thread.currentThread() == writerThread) {
+            throw new IllegalStateException("submitAndWait called on the writer thread");
+        }
+        AwaitedWrite awaited = new AwaitedWrite(write);
+        submit(userId, awaited);
+        awaited.await();
+    }
+
+    private static final class AwaitedWrite implements Write {
+        private final Write write;
+        private final CountDownLatch done = new CountDownLatch(1);
+        // Written before done counts down
+        @Nullable
+        private Exception failure;
+
+        AwaitedWrite(Write write) {
+            this.write = write;
+        }
+
+        @Override
+        public Runnable apply(SQLiteDatabase db) {
+            Runnable callback = write.apply(db);
+            return () -> {
+                try {
+                    if (callback != null) callback.run();
+                } finally {
+                    done.countDown();
+                }
+            };
+        }
+
+        @Override
+        public void onFailed(Exception e) {
+            try {
+                write.onFailed(e);
+            } finally {
+                failure = e;
+                done.countDown();
+            }
+        }
+
+        void await() {
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    done.await();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            if (failure != null) {
+                throw new IllegalStateException("Write failed", failure);
+            }
+        }
+    }
+
+    private void drain() {
+        drainScheduled.set(false);
+        writerThread = Thread.currentThread();
+
+        Map<Long, List<Write>> batches = new LinkedHashMap<>();
+        Pending next;
+        for (int size = 0; size < MAX_BATCH_SIZE && (next = pending.poll()) != null; size++) {
+            List<Write> batch = batches.get(next.userId);
+            if (batch == null) {
+                batch = new ArrayList<>();
+                batches.put(next.userId, batch);
+            }
+            batch.add(next.write);
+        }
+        for (Map.Entry<Long, List<Write>> entry : batches.entrySet()) {
+            applyBatch(entry.getKey(), entry.getValue());
+        }
+
+        if (!pending.isEmpty() && drainScheduled.compareAndSet(false, true)) {
+            writer.execute(this::drain);
+        }
+    }
+
+    private void applyBatch(long userId, List<Write> batch) {
+        List<Runnable> onCommitted = new ArrayList<>(batch.size());
+        long start = WRITE_BATCH.start();
+        WRITES.add(batch.size());
+        try (LedgerPartitions.Lease ledger = partitions.acquire(userId)) {
+            SQLiteDatabase db = ledger.getWritableDatabase();
+            try {
+                applyInTransaction(db, batch, onCommitted);
+            } catch (Exception e) {
+                // One bad write rolled the batch back; retry each on its own so the rest still land
+                Log.e(TAG, "Batch of " + batch.size() + " writes failed, retrying individually", e);
+                onCommitted.clear();
+                for (Write write : batch) {
+                    try {
+                        applyInTransaction(db, Collections.singletonList(write), onCommitted);
+                    } catch (Exception writeError) {
+                        Log.e(TAG, "Write failed", writeError);
+                        fail(userId, write, writeError, true);
+                    }
+                }
+            }
+        } catch (Exception e) {
+            // A user deleted while their writes were queued has nowhere for them to go, and no
+            // screen to tell; the writes' own onFailed still runs, for anyone waiting on them
+            boolean deleted = partitions.isDeleted(userId);
+            if (deleted) {
+                Log.w(TAG, "Dropped " + batch.size() + " writes for deleted user " + userId);
+            } else {
+                Log.e(TAG, "Could not open the ledger for user " + userId, e);
+            }
+            for (Write write : batch) {
+                fail(userId, write, e, !deleted);
+            }
+        } finally {
+            WRITE_BATCH.stop(start);
+        }
+        for (Runnable runnable : onCommitted) {
+            try {
+                runnable.run();
+            } catch (Exception e) {
+                Log.e(TAG, "Post-commit callback failed", e);
+            }
+        }
+    }
+
+    private void fail(long userId, Write write, Exception e, boolean report) {
+        FAILED_WRITES.increment();
+        try {
+            write.onFailed(e);
+        } catch (Exception callbackError) {
+            Log.e(TAG, "Failure callback failed", callbackError);
+        }
+        if (!report) return;
+        for (FailureListener listener : failureListeners) {
+            try {
+                listener.onWriteFailed(userId, e);
+            } catch (Exception listenerError) {
+                Log.e(TAG, "Failure listener failed", listenerError);
+            }
+        }
+    }
+
+    private static void applyInTransaction(SQLiteDatabase db, List<Write> writes, List<Runnable> onCommitted) {
+        List<Runnable> callbacks = new ArrayList<>(writes.size());
+        db.beginTransactionNonExclusive();
+        try {
+            for (Write write : writes) {
+                Runnable callback = write.apply(db);
+                if (callback != null) {
+                    callbacks.add(callback);
+                }
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        onCommitted.addAll(callbacks);
+    }
+}
@@ -0,0 +1,305 @@
+package com.expensetracker.budgettracker.data.csv;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Streaming RFC 4180 reader over a byte channel. The input is pulled through one
+ * fixed-size buffer and each record is unescaped into a reusable byte array, so memory
+ * stays constant however large the file is. Fields are exposed as offsets into that
+ * array: callers parse numbers in place with {@link #field(int)} and only allocate
+ * when they actually need a {@link String}.
+ * <p>
+ * Not thread-safe.
+ */
+public final class CsvReader implements Closeable {
+    public static final int DEFAULT_CHUNK_SIZE = 64 * 1024;
+    public static final int MAX_RECORD_LENGTH = 64 * 1024;
+    private static final int MAX_FIELDS = 32;
+
+    private static final int FIELD_START = 0;
+    private static final int UNQUOTED = 1;
+    private static final int QUOTED = 2;
+    private static final int QUOTE_IN_QUOTED = 3;
+
+    private final ReadableByteChannel channel;
+    private final ByteBuffer chunk;
+    private final int[] fieldStart = new int[MAX_FIELDS];
+    private final int[] fieldEnd = new int[MAX_FIELDS];
+    private final FieldView view = new FieldView();
+    private final StringCache stringCache = new StringCache();
+
+    private byte[] record = new byte[256];
+    private int recordLength;
+    private int fieldCount;
+    private long recordNumber;
+    private long bytesRead;
+    private boolean endOfInput;
+
+    public CsvReader(ReadableByteChannel channel) {
+        this(channel, DEFAULT_CHUNK_SIZE);
+    }
+
+    public CsvReader(ReadableByteChannel channel, int chunkSize) {
+        this.channel = channel;
+        this.chunk = ByteBuffer.allocate(chunkSize);
+        this.chunk.flip();
+    }
+
+    /**
+     * Advance to the next non-blank record.
+     *
+     * @return false once the input is exhausted
+     * @throws IOException if the channel fails or a record exceeds {@link #MAX_RECORD_LENGTH}
+     */
+    public boolean next() throws IOException {
+        while (true) {
+            recordLength = 0;
+            fieldCount = 0;
+            int state = FIELD_START;
+            boolean sawData = false;
+
+            while (true) {
+                if (!chunk.hasRemaining() && !fill()) {
+                    if (!sawData) return false;
+                    endField();
+                    recordNumber++;
+                    return true;
+                }
+                byte b = chunk.get();
+                bytesRead++;
+
+                if (state == QUOTED) {
+                    if (b == '"') {
+                        state = QUOTE_IN_QUOTED;
+                    } else {
+                        append(b);
+                    }
+                    continue;
+                }
+                if (state == QUOTE_IN_QUOTED && b == '"') {
+                    // Escaped quote
+                    append(b);
+                    state = QUOTED;
+                    continue;
+                }
+
+                if (b == ',') {
+                    sawData = true;
+                    endField();
+                    state = FIELD_START;
+                } else if (b == '\n') {
+                    if (!sawData) break;
+                    endField();
+                    recordNumber++;
+                    return true;
+                } else if (b == '\r') {
+                    // Dropped; the following \n ends the record
+                } else if (b == '"' && state == FIELD_START) {
+                    sawData = true;
+                    state = QUOTED;
+                } else {
+                    sawData = true;
+                    append(b);
+                    state = UNQUOTED;
+                }
+            }
+        }
+    }
+
+    private boolean fill() throws IOException {
+        if (endOfInput) return false;
+        chunk.clear();
+        int read;
+        do {
+            read = channel.read(chunk);
+        } while (read == 0);
+        chunk.flip();
+        if (read < 0) {
+            endOfInput = true;
+            return false;
+        }
+        return true;
+    }
+
+    private void append(byte b) throws IOException {
+        if (recordLength == record.length) {
+            if (record.length >= MAX_RECORD_LENGTH) {
+                throw new IOException("Record " + (recordNumber + 1) + " exceeds " + MAX_RECORD_LENGTH + " bytes");
+            }
+            byte[] grown = new byte[Math.min(record.length * 2, MAX_RECORD_LENGTH)];
+            System.arraycopy(record, 0, grown, 0, recordLength);
+            record = grown;
+        }
+        record[recordLength++] = b;
+    }
+
+    private void endField() {
+        if (fieldCount < MAX_FIELDS) {
+            int start = fieldCount == 0 ? 0 : fieldEnd[fieldCount - 1];
+            fieldStart[fieldCount] = start;
+            fieldEnd[fieldCount] = recordLength;
+        }
+        fieldCount++;
+    }
+
+    /**
+     * Number of fields in the current record. May exceed the number of fields that can
+     * be read, which callers should treat as a malformed record.
+     */
+    public int fieldCount() {
+        return fieldCount;
+    }
+
+    /**
+     * 1-based index of the current record, counting non-blank records only.
+     */
+    public long recordNumber() {
+        return recordNumber;
+    }
+
+    public long bytesRead() {
+        return bytesRead;
+    }
+
+    /**
+     * A view of field {@code index} that is valid until the next call to this method or
+     * {@link #next()}. Fields are decoded as Latin-1, which is exact for ASCII content such
+     * as numbers and dates.
+     */
+    public CharSequence field(int index) {
+        checkIndex(index);
+        view.set(record, fieldStart[index], fieldEnd[index]);
+        return view;
+    }
+
+    public boolean isEmpty(int index) {
+        checkIndex(index);
+        return fieldStart[index] == fieldEnd[index];
+    }
+
+    /**
+     * Whether field {@code index} equals {@code ascii}, ignoring ASCII case.
+     */
+    public boolean fieldEqualsIgnoreCase(int index, String ascii) {
+        checkIndex(index);
+        int start = fieldStart[index];
+        int length = fieldEnd[index] - start;
+        if (length != ascii.length()) return false;
+        for (int i = 0; i < length; i++) {
+            int a = record[start + i] & 0xff;
+            int b = ascii.charAt(i);
+            if (a != b && toLowerAscii(a) != toLowerAscii(b)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Decode field {@code index} as UTF-8 into a new string.
+     */
+    public String getString(int index) {
+        checkIndex(index);
+        return new String(record, fieldStart[index], fieldEnd[index] - fieldStart[index], StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Like {@link #getString(int)}, but repeated values are served from a small bounded
+     * cache. Use it for low-cardinality columns such as categories and dates.
+     */
+    public String getCachedString(int index) {
+        checkIndex(index);
+        return stringCache.get(record, fieldStart[index], fieldEnd[index]);
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= Math.min(fieldCount, MAX_FIELDS)) {
+            throw new IndexOutOfBoundsException("Field " + index + " of " + fieldCount);
+        }
+    }
+
+    private static int toLowerAscii(int c) {
+        return c >= 'A' && c <= 'Z' ? c + ('a' - 'A') : c;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private static final class FieldView implements CharSequence {
+        private byte[] bytes;
+        private int start;
+        private int end;
+
+        void set(byte[] bytes, int start, int end) {
+            this.bytes = bytes;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        public int length() {
+            return end - start;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return (char) (bytes[start + index] & 0xff);
+        }
+
+        @Override
+        public CharSequence subSequence(int from, int to) {
+            return toString().substring(from, to);
+        }
+
+        @Override
+        public String toString() {
+            return new String(bytes, start, end - start, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Direct-mapped cache from field bytes to decoded strings. A collision simply
+     * replaces the slot, so the cache never grows.
+     */
+    private static final class StringCache {
+        private static final int SLOTS = 1024;
+        private static final int MAX_CACHED_LENGTH = 64;
+
+        private final byte[][] keys = new byte[SLOTS][];
+        private final String[] values = new String[SLOTS];
+
+        String get(byte[] bytes, int start, int end) {
+            int length = end - start;
+            if (length > MAX_CACHED_LENGTH) {
+                return new String(bytes, start, length, StandardCharsets.UTF_8);
+            }
+            int hash = 1;
+            for (int i = start; i < end; i++) {
+                hash = 31 * hash + bytes[i];
+            }
+            int slot = (hash ^ (hash >>> 16)) & (SLOTS - 1);
+
+            byte[] key = keys[slot];
+            if (key != null && key.length == length && regionEquals(key, bytes, start)) {
+                return values[slot];
+            }
+            byte[] copy = new byte[length];
+            System.arraycopy(bytes, start, copy, 0, length);
+            String value = new String(copy, StandardCharsets.UTF_8);
+            keys[slot] = copy;
+            values[slot] = value;
+            return value;
+        }
+
+        private static boolean regionEquals(byte[] key, byte[] bytes, int start) {
+            for (int i = 0; i < key.length; i++) {
+                if (key[i] != bytes[start + i]) return false;
+            }
+            return true;
+        }
+    }
+}
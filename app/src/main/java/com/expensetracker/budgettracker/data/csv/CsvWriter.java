@@ -0,0 +1,145 @@
+package com.expensetracker.budgettracker.data.csv;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Streaming RFC 4180 writer over a byte channel. Fields are UTF-8 encoded straight into
+ * one fixed-size buffer that is written out whenever it fills, so memory stays constant
+ * however many records are written. Fields containing a comma, quote or line break are
+ * quoted.
+ * <p>
+ * Not thread-safe.
+ */
+public final class CsvWriter implements Closeable, Flushable {
+    private static final byte[] LINE_END = {'\r', '\n'};
+
+    private final WritableByteChannel channel;
+    private final ByteBuffer chunk;
+    private final byte[] digits = new byte[20];
+    private boolean atRecordStart = true;
+    private long bytesWritten;
+
+    public CsvWriter(WritableByteChannel channel) {
+        this(channel, CsvReader.DEFAULT_CHUNK_SIZE);
+    }
+
+    public CsvWriter(WritableByteChannel channel, int chunkSize) {
+        this.channel = channel;
+        this.chunk = ByteBuffer.allocate(chunkSize);
+    }
+
+    public void writeField(CharSequence value) throws IOException {
+        separate();
+        if (value == null) return;
+        boolean quote = needsQuotes(value);
+        if (quote) put((byte) '"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                if (c == '"') put((byte) '"');
+                put((byte) c);
+            } else if (c < 0x800) {
+                put((byte) (0xc0 | (c >> 6)));
+                put((byte) (0x80 | (c & 0x3f)));
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                put((byte) (0xf0 | (codePoint >> 18)));
+                put((byte) (0x80 | ((codePoint >> 12) & 0x3f)));
+                put((byte) (0x80 | ((codePoint >> 6) & 0x3f)));
+                put((byte) (0x80 | (codePoint & 0x3f)));
+            } else if (Character.isSurrogate(c)) {
+                // Unpaired surrogate, as String.getBytes would do
+                put((byte) '?');
+            } else {
+                put((byte) (0xe0 | (c >> 12)));
+                put((byte) (0x80 | ((c >> 6) & 0x3f)));
+                put((byte) (0x80 | (c & 0x3f)));
+            }
+        }
+        if (quote) put((byte) '"');
+    }
+
+    /**
+     * Write an amount in minor units as a plain decimal such as {@code -1234.05},
+     * without allocating.
+     */
+    public void writeMinorUnits(long cents) throws IOException {
+        separate();
+        // Work with the negative magnitude so Long.MIN_VALUE does not overflow
+        long negative = cents > 0 ? -cents : cents;
+        if (cents < 0) put((byte) '-');
+        long major = -(negative / 100);
+        int minor = (int) -(negative % 100);
+
+        int length = 0;
+        do {
+            digits[length++] = (byte) ('0' + major % 10);
+            major /= 10;
+        } while (major > 0);
+        while (length > 0) {
+            put(digits[--length]);
+        }
+        put((byte) '.');
+        put((byte) ('0' + minor / 10));
+        put((byte) ('0' + minor % 10));
+    }
+
+    public void endRecord() throws IOException {
+        for (byte b : LINE_END) {
+            put(b);
+        }
+        atRecordStart = true;
+    }
+
+    public long bytesWritten() {
+        return bytesWritten;
+    }
+
+    private void separate() throws IOException {
+        if (!atRecordStart) put((byte) ',');
+        atRecordStart = false;
+    }
+
+    private static boolean needsQuotes(CharSequence value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') return true;
+        }
+        return false;
+    }
+
+    private void put(byte b) throws IOException {
+        if (!chunk.hasRemaining()) {
+            drainChunk();
+        }
+        chunk.put(b);
+        bytesWritten++;
+    }
+
+    private void drainChunk() throws IOException {
+        chunk.flip();
+        while (chunk.hasRemaining()) {
+            channel.write(chunk);
+        }
+        chunk.clear();
+    }
+
+    @Override
+    public void flush() throws IOException {
+        drainChunk();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package com.expensetracker.budgettracker.data.csv;
+
+import android.database.Cursor;
+
+import androidx.annotation.Nullable;
+
+import com.expensetracker.budgettracker.data.CategoryDictionary;
+import com.expensetracker.budgettracker.data.DatabaseHelper;
+import com.expensetracker.budgettracker.data.LedgerCipher;
+import com.expensetracker.budgettracker.utils.EpochDays;
+import com.expensetracker.budgettracker.utils.Money;
+
+import net.zetetic.database.sqlcipher.SQLiteDatabase;
+import net.zetetic.database.sqlcipher.SQLiteStatement;
+
+import java.io.IOException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Streams a user's ledger to and from CSV with the columns {@code date,type,category,amount,notes}.
+ * Amounts are plain decimals in major units ({@code 1234.56}) and dates are {@code yyyy-MM-dd}.
+ * Notes are written out opened and sealed again by {@link LedgerCipher} on the way in; files
+ * from before the notes column import with empty notes.
+ * <p>
+ * Both directions hold at most one buffer chunk and one batch of rows in memory.
+ */
+public final class TransactionCsv {
+    static final String[] HEADER = {"date", "type", "category", "amount", "notes"};
+    private static final int FIELD_DATE = 0;
+    private static final int FIELD_TYPE = 1;
+    private static final int FIELD_CATEGORY = 2;
+    private static final int FIELD_AMOUNT = 3;
+    private static final int FIELD_NOTES = 4;
+
+    public static final int COMMIT_BATCH_SIZE = 1000;
+
+    public interface ProgressListener {
+        /**
+         * Called after every committed or written batch.
+         */
+        void onProgress(long rows, long bytes);
+    }
+
+    public static final class ImportResult {
+        public final long imported;
+        public final long skipped;
+
+        ImportResult(long imported, long skipped) {
+            this.imported = imported;
+            this.skipped = skipped;
+        }
+    }
+
+    private TransactionCsv() {
+    }
+
+    /**
+     * Import rows for {@code userId}, committing every {@link #COMMIT_BATCH_SIZE} rows.
+     * Malformed rows are counted and skipped. A header row is optional. New categories are
+     * added to the {@code categories} table as they appear, and readers pick up their names
+     * through {@link CategoryDictionary#nameOf(SQLiteDatabase, int)}. Must run on the writer thread, since it opens its
+     * own transactions.
+     *
+     * @throws IllegalStateException if notes cannot be sealed; batches committed before then stay
+     */
+    public static ImportResult importFrom(SQLiteDatabase db, long userId, ReadableByteChannel in,
+                                          @Nullable ProgressListener listener) throws IOException {
+        long imported = 0;
+        long skipped = 0;
+        int inBatch = 0;
+        CategoryDictionary categories = CategoryDictionary.getInstance();
+        LedgerCipher cipher = LedgerCipher.getInstance();
+        // Keyed by the reader's cached strings, so a repeated category is one lookup
+        Map<String, Integer> categoryIds = new HashMap<>();
+
+        SQLiteStatement insert = db.compileStatement("INSERT INTO " + DatabaseHelper.TABLE_TRANSACTIONS + " (" +
+                DatabaseHelper.COLUMN_USER_ID + ", " +
+                DatabaseHelper.COLUMN_DATE + ", " +
+                DatabaseHelper.COLUMN_TYPE + ", " +
+                DatabaseHelper.COLUMN_CATEGORY_ID + ", " +
+                DatabaseHelper.COLUMN_AMOUNT + ", " +
+                DatabaseHelper.COLUMN_NOTES + ", " +
+                DatabaseHelper.COLUMN_NOTE_TOKENS + ") VALUES (?, ?, ?, ?, ?, ?, ?)");
+        CsvReader reader = new CsvReader(in);
+        try {
+            db.beginTransactionNonExclusive();
+            try {
+                while (reader.next()) {
+                    if (reader.recordNumber() == 1 && isHeader(reader)) continue;
+                    if (!bindRow(reader, insert, userId)) {
+                        skipped++;
+                        continue;
+                    }
+                    String category = reader.getCachedString(FIELD_CATEGORY);
+                    Integer categoryId = categoryIds.get(category);
+                    if (categoryId == null) {
+                        categoryId = categories.intern(db, category);
+                        categoryIds.put(category, categoryId);
+                    }
+                    insert.bindLong(4, categoryId);
+                    String notes = reader.fieldCount() > FIELD_NOTES && !reader.isEmpty(FIELD_NOTES)
+                            ? reader.getString(FIELD_NOTES) : "";
+                    cipher.bind(insert, 6, userId, notes);
+                    String tokens = cipher.indexTokens(userId, notes);
+                    if (tokens != null) {
+                        insert.bindString(7, tokens);
+                    } else {
+                        insert.bindNull(7);
+                    }
+                    insert.executeInsert();
+                    imported++;
+
+                    if (++inBatch == COMMIT_BATCH_SIZE) {
+                        db.setTransactionSuccessful();
+                        db.endTransaction();
+                        inBatch = 0;
+                        if (listener != null) listener.onProgress(imported, reader.bytesRead());
+                        db.beginTransactionNonExclusive();
+                    }
+                }
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+            if (listener != null) listener.onProgress(imported, reader.bytesRead());
+        } finally {
+            insert.close();
+            reader.close();
+        }
+        return new ImportResult(imported, skipped);
+    }
+
+    private static boolean isHeader(CsvReader reader) {
+        return reader.fieldCount() >= FIELD_NOTES && reader.fieldEqualsIgnoreCase(FIELD_DATE, HEADER[FIELD_DATE]);
+    }
+
+    private static boolean bindRow(CsvReader reader, SQLiteStatement insert, long userId) {
+        // The notes column is optional
+        if (reader.fieldCount() != HEADER.length && reader.fieldCount() != FIELD_NOTES) return false;
+
+        int epochDay;
+        try {
+            epochDay = EpochDays.parse(reader.field(FIELD_DATE));
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        String type;
+        if (reader.fieldEqualsIgnoreCase(FIELD_TYPE, "income")) {
+            type = "income";
+        } else if (reader.fieldEqualsIgnoreCase(FIELD_TYPE, "expense")) {
+            type = "expense";
+        } else {
+            return false;
+        }
+        if (reader.isEmpty(FIELD_CATEGORY)) return false;
+        long amount;
+        try {
+            amount = Money.parse(reader.field(FIELD_AMOUNT));
+        } catch (NumberFormatException e) {
+            return false;
+        }
+
+        insert.bindLong(1, userId);
+        insert.bindLong(2, epochDay);
+        insert.bindString(3, type);
+        insert.bindLong(5, amount);
+        return true;
+    }
+
+    /**
+     * Write every row for {@code userId}, oldest first, and return the number of rows written.
+     *
+     * @throws IllegalStateException if sealed notes cannot be opened
+     */
+    public static long exportTo(SQLiteDatabase db, long userId, WritableByteChannel out,
+                                @Nullable ProgressListener listener) throws IOException {
+        long rows = 0;
+        CategoryDictionary categories = CategoryDictionary.getInstance();
+        LedgerCipher cipher = LedgerCipher.getInstance();
+        CsvWriter writer = new CsvWriter(out);
+        try (Cursor cursor = db.query(DatabaseHelper.TABLE_TRANSACTIONS,
+                new String[]{DatabaseHelper.COLUMN_DATE, DatabaseHelper.COLUMN_TYPE,
+                        DatabaseHelper.COLUMN_CATEGORY_ID, DatabaseHelper.COLUMN_AMOUNT, DatabaseHelper.COLUMN_NOTES},
+                DatabaseHelper.COLUMN_USER_ID + " = ?", new String[]{String.valueOf(userId)},
+                null, null,
+                DatabaseHelper.COLUMN_DATE + " ASC, " + DatabaseHelper.COLUMN_TRANSACTION_ID + " ASC")) {
+            for (String column : HEADER) {
+                writer.writeField(column);
+            }
+            writer.endRecord();
+
+            while (cursor.moveToNext()) {
+                writer.writeField(EpochDays.format(cursor.getInt(FIELD_DATE)));
+                writer.writeField(cursor.getString(FIELD_TYPE));
+                writer.writeField(categories.nameOf(db, cursor.getInt(FIELD_CATEGORY)));
+                writer.writeMinorUnits(cursor.getLong(FIELD_AMOUNT));
+                writer.writeField(cipher.read(cursor, FIELD_NOTES, userId));
+                writer.endRecord();
+
+                if (++rows % COMMIT_BATCH_SIZE == 0 && listener != null) {
+                    listener.onProgress(rows, writer.bytesWritten());
+                }
+            }
+        } finally {
+            writer.close();
+        }
+        if (listener != null) listener.onProgress(rows, writer.bytesWritten());
+        return rows;
+    }
+}
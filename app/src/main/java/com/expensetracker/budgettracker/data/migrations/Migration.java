@@ -0,0 +1,20 @@
+package com.expensetracker.budgettracker.data.migrations;
+
+import net.zetetic.database.sqlcipher.SQLiteDatabase;
+
+/**
+ * A single schema step from {@code startVersion} to {@code endVersion}.
+ * Migrations run inside the upgrade transaction opened by SQLiteOpenHelper,
+ * so a failing step rolls the whole upgrade back.
+ */
+public abstract class Migration {
+    public final int startVersion;
+    public final int endVersion;
+
+    protected Migration(int startVersion, int endVersion) {
+        this.startVersion = startVersion;
+        this.endVersion = endVersion;
+    }
+
+    public abstract void migrate(SQLiteDatabase db);
+}
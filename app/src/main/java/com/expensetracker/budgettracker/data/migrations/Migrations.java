@@ -0,0 +1,343 @@
+package com.expensetracker.budgettracker.data.migrations;
+
+import com.expensetracker.budgettracker.data.CategoryDictionary;
+import com.expensetracker.budgettracker.data.DatabaseHelper;
+import com.expensetracker.budgettracker.data.LedgerCipher;
+import com.expensetracker.budgettracker.data.MonthlyRollups;
+import com.expensetracker.budgettracker.data.RecurringScheduler;
+import com.expensetracker.budgettracker.data.TransactionSearch;
+
+import net.zetetic.database.sqlcipher.SQLiteDatabase;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Every schema migration, in version order. Add new steps to the end of {@link #ALL}
+ * and bump {@code DatabaseHelper.DATABASE_VERSION} to match.
+ */
+public final class Migrations {
+
+    public static final String INDEX_TRANSACTIONS_USER_DATE = "idx_transactions_user_date";
+    public static final String INDEX_TRANSACTIONS_USER_CATEGORY_DATE = "idx_transactions_user_category_date";
+    public static final String INDEX_BUDGETS_USER = "idx_budgets_user";
+    public static final String INDEX_USERS_USERNAME_NOCASE = "idx_users_username_nocase";
+
+    /**
+     * Adds the composite indexes behind the paged ledger query
+     * ({@code user_id = ? ORDER BY date DESC, transaction_id DESC}) and per-category filters.
+     */
+    public static final Migration MIGRATION_2_3 = new Migration(2, 3) {
+        @Override
+        public void migrate(SQLiteDatabase db) {
+            createTransactionIndexes(db, DatabaseHelper.COLUMN_CATEGORY);
+            db.execSQL("CREATE INDEX IF NOT EXISTS " + INDEX_BUDGETS_USER +
+                    " ON " + DatabaseHelper.TABLE_BUDGETS + " (" +
+                    DatabaseHelper.COLUMN_USER_ID + ");");
+        }
+    };
+
+    /**
+     * Converts {@code transactions.amount} and {@code budgets.budget_amount} from REAL to
+     * INTEGER minor units. SQLite cannot change a column type in place, so both tables are
+     * rebuilt and their rows copied across with the amount rounded to the nearest centavo.
+     */
+    public static final Migration MIGRATION_3_4 = new Migration(3, 4) {
+        @Override
+        public void migrate(SQLiteDatabase db) {
+            db.execSQL("CREATE TABLE transactions_new (" +
+                    DatabaseHelper.COLUMN_TRANSACTION_ID + " INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                    DatabaseHelper.COLUMN_USER_ID + " INTEGER NOT NULL, " +
+                    DatabaseHelper.COLUMN_AMOUNT + " INTEGER NOT NULL, " +
+                    DatabaseHelper.COLUMN_CATEGORY + " TEXT NOT NULL, " +
+                    DatabaseHelper.COLUMN_DATE + " TEXT NOT NULL, " +
+                    DatabaseHelper.COLUMN_TYPE + " TEXT NOT NULL, " +
+                    "FOREIGN KEY(" + DatabaseHelper.COLUMN_USER_ID + ") REFERENCES " +
+                    DatabaseHelper.TABLE_USERS + "(" + DatabaseHelper.COLUMN_USER_ID + ") ON DELETE CASCADE);");
+            db.execSQL("INSERT INTO transactions_new SELECT " +
+                    DatabaseHelper.COLUMN_TRANSACTION_ID + ", " +
+                    DatabaseHelper.COLUMN_USER_ID + ", " +
+                    "CAST(ROUND(" + DatabaseHelper.COLUMN_AMOUNT + " * 100) AS INTEGER), " +
+                    DatabaseHelper.COLUMN_CATEGORY + ", " +
+                    DatabaseHelper.COLUMN_DATE + ", " +
+                    DatabaseHelper.COLUMN_TYPE +
+                    " FROM " + DatabaseHelper.TABLE_TRANSACTIONS + ";");
+            db.execSQL("DROP TABLE " + DatabaseHelper.TABLE_TRANSACTIONS + ";");
+            db.execSQL("ALTER TABLE transactions_new RENAME TO " + DatabaseHelper.TABLE_TRANSACTIONS + ";");
+            createTransactionIndexes(db, DatabaseHelper.COLUMN_CATEGORY);
+
+            db.execSQL("CREATE TABLE budgets_new (" +
+                    DatabaseHelper.COLUMN_BUDGET_ID + " INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                    DatabaseHelper.COLUMN_USER_ID + " INTEGER NOT NULL, " +
+                    DatabaseHelper.COLUMN_CATEGORY + " TEXT UNIQUE NOT NULL, " +
+                    DatabaseHelper.COLUMN_BUDGET_AMOUNT + " INTEGER NOT NULL, " +
+                    "FOREIGN KEY(" + DatabaseHelper.COLUMN_USER_ID + ") REFERENCES " +
+                    DatabaseHelper.TABLE_USERS + "(" + DatabaseHelper.COLUMN_USER_ID + ") ON DELETE CASCADE);");
+            db.execSQL("INSERT INTO budgets_new SELECT " +
+                    DatabaseHelper.COLUMN_BUDGET_ID + ", " +
+                    DatabaseHelper.COLUMN_USER_ID + ", " +
+                    DatabaseHelper.COLUMN_CATEGORY + ", " +
+                    "CAST(ROUND(" + DatabaseHelper.COLUMN_BUDGET_AMOUNT + " * 100) AS INTEGER)" +
+                    " FROM " + DatabaseHelper.TABLE_BUDGETS + ";");
+            db.execSQL("DROP TABLE " + DatabaseHelper.TABLE_BUDGETS + ";");
+            db.execSQL("ALTER TABLE budgets_new RENAME TO " + DatabaseHelper.TABLE_BUDGETS + ";");
+            db.execSQL("CREATE INDEX IF NOT EXISTS " + INDEX_BUDGETS_USER +
+                    " ON " + DatabaseHelper.TABLE_BUDGETS + " (" +
+                    DatabaseHelper.COLUMN_USER_ID + ");");
+        }
+    };
+
+    /**
+     * Stores {@code transactions.date} as an INTEGER count of days since 1970-01-01 instead
+     * of {@code yyyy-MM-dd} text, so date ranges compare integers on the existing indexes.
+     * {@code julianday} of the Unix epoch is 2440587.5, and every stored date is at midnight.
+     */
+    public static final Migration MIGRATION_4_5 = new Migration(4, 5) {
+        @Override
+        public void migrate(SQLiteDatabase db) {
+            db.execSQL("CREATE TABLE transactions_new (" +
+                    DatabaseHelper.COLUMN_TRANSACTION_ID + " INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                    DatabaseHelper.COLUMN_USER_ID + " INTEGER NOT NULL, " +
+                    DatabaseHelper.COLUMN_AMOUNT + " INTEGER NOT NULL, " +
+                    DatabaseHelper.COLUMN_CATEGORY + " TEXT NOT NULL, " +
+                    DatabaseHelper.COLUMN_DATE + " INTEGER NOT NULL, " +
+                    DatabaseHelper.COLUMN_TYPE + " TEXT NOT NULL, " +
+                    "FOREIGN KEY(" + DatabaseHelper.COLUMN_USER_ID + ") REFERENCES " +
+                    DatabaseHelper.TABLE_USERS + "(" + DatabaseHelper.COLUMN_USER_ID + ") ON DELETE CASCADE);");
+            // Unparseable dates fall back to the epoch rather than losing the row
+            db.execSQL("INSERT INTO transactions_new SELECT " +
+                    DatabaseHelper.COLUMN_TRANSACTION_ID + ", " +
+                    DatabaseHelper.COLUMN_USER_ID + ", " +
+                    DatabaseHelper.COLUMN_AMOUNT + ", " +
+                    DatabaseHelper.COLUMN_CATEGORY + ", " +
+                    "COALESCE(CAST(julianday(" + DatabaseHelper.COLUMN_DATE + ") - 2440587.5 AS INTEGER), 0), " +
+                    DatabaseHelper.COLUMN_TYPE +
+                    " FROM " + DatabaseHelper.TABLE_TRANSACTIONS + ";");
+            db.execSQL("DROP TABLE " + DatabaseHelper.TABLE_TRANSACTIONS + ";");
+            db.execSQL("ALTER TABLE transactions_new RENAME TO " + DatabaseHelper.TABLE_TRANSACTIONS + ";");
+            createTransactionIndexes(db, DatabaseHelper.COLUMN_CATEGORY);
+        }
+    };
+
+    /**
+     * Replaces the table-wide {@code UNIQUE(category)} on budgets with {@code UNIQUE(user_id, category)},
+     * so each user can budget every category. The unique index leads with {@code user_id},
+     * which makes {@link #INDEX_BUDGETS_USER} redundant.
+     */
+    public static final Migration MIGRATION_5_6 = new Migration(5, 6) {
+        @Override
+        public void migrate(SQLiteDatabase db) {
+            db.execSQL("CREATE TABLE budgets_new (" +
+                    DatabaseHelper.COLUMN_BUDGET_ID + " INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                    DatabaseHelper.COLUMN_USER_ID + " INTEGER NOT NULL, " +
+                    DatabaseHelper.COLUMN_CATEGORY + " TEXT NOT NULL, " +
+                    DatabaseHelper.COLUMN_BUDGET_AMOUNT + " INTEGER NOT NULL, " +
+                    "UNIQUE(" + DatabaseHelper.COLUMN_USER_ID + ", " + DatabaseHelper.COLUMN_CATEGORY + "), " +
+                    "FOREIGN KEY(" + DatabaseHelper.COLUMN_USER_ID + ") REFERENCES " +
+                    DatabaseHelper.TABLE_USERS + "(" + DatabaseHelper.COLUMN_USER_ID + ") ON DELETE CASCADE);");
+            db.execSQL("INSERT OR IGNORE INTO budgets_new SELECT " +
+                    DatabaseHelper.COLUMN_BUDGET_ID + ", " +
+                    DatabaseHelper.COLUMN_USER_ID + ", " +
+                    DatabaseHelper.COLUMN_CATEGORY + ", " +
+                    DatabaseHelper.COLUMN_BUDGET_AMOUNT +
+                    " FROM " + DatabaseHelper.TABLE_BUDGETS + ";");
+            db.execSQL("DROP TABLE " + DatabaseHelper.TABLE_BUDGETS + ";");
+            db.execSQL("ALTER TABLE budgets_new RENAME TO " + DatabaseHelper.TABLE_BUDGETS + ";");
+        }
+    };
+
+    /**
+     * Adds {@code monthly_rollups} and the triggers that maintain it, backfilled from the ledger.
+     */
+    public static final Migration MIGRATION_6_7 = new Migration(6, 7) {
+        @Override
+        public void migrate(SQLiteDatabase db) {
+            MonthlyRollups.createV7(db);
+        }
+    };
+
+    /**
+     * Indexes {@code users.username} under NOCASE so the case-insensitive login lookup is a
+     * seek. The column's UNIQUE index uses the default BINARY collation and cannot serve it.
+     */
+    public static final Migration MIGRATION_7_8 = new Migration(7, 8) {
+        @Override
+        public void migrate(SQLiteDatabase db) {
+            db.execSQL("CREATE INDEX IF NOT EXISTS " + INDEX_USERS_USERNAME_NOCASE +
+                    " ON " + DatabaseHelper.TABLE_USERS + " (" +
+                    DatabaseHelper.COLUMN_USERNAME + " COLLATE NOCASE);");
+        }
+    };
+
+    /**
+     * Adds a free-text {@code notes} column to transactions and the FTS4 index that
+     * {@link TransactionSearch} queries, built from the existing ledger.
+     */
+    public static final Migration MIGRATION_8_9 = new Migration(8, 9) {
+        @Override
+        public void migrate(SQLiteDatabase db) {
+            db.execSQL("ALTER TABLE " + DatabaseHelper.TABLE_TRANSACTIONS + " ADD COLUMN " +
+                    DatabaseHelper.COLUMN_NOTES + " TEXT NOT NULL DEFAULT '';");
+            TransactionSearch.createV9(db);
+        }
+    };
+
+    /**
+     * Moves category names into a {@code categories} table and stores an INTEGER
+     * {@code category_id} on transactions and budgets instead of the text. Names that differ
+     * only in case share an ID, keeping the spelling seen first. The built-in categories get
+     * the fixed IDs in {@link CategoryDictionary}. The rollups and the search index are
+     * dropped before the rebuild and recreated on the new columns.
+     */
+    public static final Migration MIGRATION_9_10 = new Migration(9, 10) {
+        @Override
+        public void migrate(SQLiteDatabase db) {
+            db.execSQL("CREATE TABLE " + DatabaseHelper.TABLE_CATEGORIES + " (" +
+                    DatabaseHelper.COLUMN_CATEGORY_ID + " INTEGER PRIMARY KEY, " +
+                    DatabaseHelper.COLUMN_CATEGORY_NAME + " TEXT NOT NULL UNIQUE COLLATE NOCASE);");
+            for (int id = 1; id <= CategoryDictionary.SALARY; id++) {
+                db.execSQL("INSERT INTO " + DatabaseHelper.TABLE_CATEGORIES + " VALUES (?, ?);",
+                        new Object[]{id, CategoryDictionary.getInstance().nameOf(id)});
+            }
+            db.execSQL("INSERT OR IGNORE INTO " + DatabaseHelper.TABLE_CATEGORIES + " (" +
+                    DatabaseHelper.COLUMN_CATEGORY_NAME + ") SELECT " + DatabaseHelper.COLUMN_CATEGORY +
+                    " FROM " + DatabaseHelper.TABLE_TRANSACTIONS +
+                    " ORDER BY " + DatabaseHelper.COLUMN_TRANSACTION_ID + ";");
+            db.execSQL("INSERT OR IGNORE INTO " + DatabaseHelper.TABLE_CATEGORIES + " (" +
+                    DatabaseHelper.COLUMN_CATEGORY_NAME + ") SELECT " + DatabaseHelper.COLUMN_CATEGORY +
+                    " FROM " + DatabaseHelper.TABLE_BUDGETS +
+                    " ORDER BY " + DatabaseHelper.COLUMN_BUDGET_ID + ";");
+
+            // Their triggers read the old category column, so they go before the rebuild
+            db.execSQL("DROP TABLE IF EXISTS " + TransactionSearch.TABLE_FTS + ";");
+            db.execSQL("DROP TABLE IF EXISTS " + DatabaseHelper.TABLE_MONTHLY_ROLLUPS + ";");
+
+            String categoryId = "(SELECT " + DatabaseHelper.COLUMN_CATEGORY_ID + " FROM " +
+                    DatabaseHelper.TABLE_CATEGORIES + " WHERE " + DatabaseHelper.COLUMN_CATEGORY_NAME +
+                    " = " + DatabaseHelper.COLUMN_CATEGORY + ")";
+            db.execSQL("CREATE TABLE transactions_new (" +
+                    DatabaseHelper.COLUMN_TRANSACTION_ID + " INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                    DatabaseHelper.COLUMN_USER_ID + " INTEGER NOT NULL, " +
+                    DatabaseHelper.COLUMN_AMOUNT + " INTEGER NOT NULL, " +
+                    DatabaseHelper.COLUMN_CATEGORY_ID + " INTEGER NOT NULL, " +
+                    DatabaseHelper.COLUMN_DATE + " INTEGER NOT NULL, " +
+                    DatabaseHelper.COLUMN_TYPE + " TEXT NOT NULL, " +
+                    DatabaseHelper.COLUMN_NOTES + " TEXT NOT NULL DEFAULT '', " +
+                    "FOREIGN KEY(" + DatabaseHelper.COLUMN_USER_ID + ") REFERENCES " +
+                    DatabaseHelper.TABLE_USERS + "(" + DatabaseHelper.COLUMN_USER_ID + ") ON DELETE CASCADE);");
+            db.execSQL("INSERT INTO transactions_new SELECT " +
+                    DatabaseHelper.COLUMN_TRANSACTION_ID + ", " +
+                    DatabaseHelper.COLUMN_USER_ID + ", " +
+                    DatabaseHelper.COLUMN_AMOUNT + ", " +
+                    categoryId + ", " +
+                    DatabaseHelper.COLUMN_DATE + ", " +
+                    DatabaseHelper.COLUMN_TYPE + ", " +
+                    DatabaseHelper.COLUMN_NOTES +
+                    " FROM " + DatabaseHelper.TABLE_TRANSACTIONS + ";");
+            db.execSQL("DROP TABLE " + DatabaseHelper.TABLE_TRANSACTIONS + ";");
+            db.execSQL("ALTER TABLE transactions_new RENAME TO " + DatabaseHelper.TABLE_TRANSACTIONS + ";");
+            createTransactionIndexes(db, DatabaseHelper.COLUMN_CATEGORY_ID);
+
+            db.execSQL("CREATE TABLE budgets_new (" +
+                    DatabaseHelper.COLUMN_BUDGET_ID + " INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                    DatabaseHelper.COLUMN_USER_ID + " INTEGER NOT NULL, " +
+                    DatabaseHelper.COLUMN_CATEGORY_ID + " INTEGER NOT NULL, " +
+                    DatabaseHelper.COLUMN_BUDGET_AMOUNT + " INTEGER NOT NULL, " +
+                    "UNIQUE(" + DatabaseHelper.COLUMN_USER_ID + ", " + DatabaseHelper.COLUMN_CATEGORY_ID + "), " +
+                    "FOREIGN KEY(" + DatabaseHelper.COLUMN_USER_ID + ") REFERENCES " +
+                    DatabaseHelper.TABLE_USERS + "(" + DatabaseHelper.COLUMN_USER_ID + ") ON DELETE CASCADE);");
+            // Budgets that now collide on case keep the first one
+            db.execSQL("INSERT OR IGNORE INTO budgets_new SELECT " +
+                    DatabaseHelper.COLUMN_BUDGET_ID + ", " +
+                    DatabaseHelper.COLUMN_USER_ID + ", " +
+                    categoryId + ", " +
+                    DatabaseHelper.COLUMN_BUDGET_AMOUNT +
+                    " FROM " + DatabaseHelper.TABLE_BUDGETS +
+                    " ORDER BY " + DatabaseHelper.COLUMN_BUDGET_ID + ";");
+            db.execSQL("DROP TABLE " + DatabaseHelper.TABLE_BUDGETS + ";");
+            db.execSQL("ALTER TABLE budgets_new RENAME TO " + DatabaseHelper.TABLE_BUDGETS + ";");
+
+            MonthlyRollups.create(db);
+            TransactionSearch.createV10(db);
+        }
+    };
+
+    /**
+     * Adds {@code recurring_rules}, the repeating transactions that
+     * {@link RecurringScheduler} writes to the ledger as they fall due.
+     */
+    public static final Migration MIGRATION_10_11 = new Migration(10, 11) {
+        @Override
+        public void migrate(SQLiteDatabase db) {
+            RecurringScheduler.create(db);
+        }
+    };
+
+    /**
+     * Adds {@code note_tokens} and recreates the search index to read notes sealed by
+     * {@link LedgerCipher} through their tokens. Existing notes are sealed and tokenized
+     * as each user's ledger opens.
+     */
+    public static final Migration MIGRATION_11_12 = new Migration(11, 12) {
+        @Override
+        public void migrate(SQLiteDatabase db) {
+            db.execSQL("ALTER TABLE " + DatabaseHelper.TABLE_TRANSACTIONS + " ADD COLUMN " +
+                    DatabaseHelper.COLUMN_NOTE_TOKENS + " TEXT;");
+            TransactionSearch.drop(db);
+            TransactionSearch.create(db);
+        }
+    };
+
+    public static final List<Migration> ALL = Collections.unmodifiableList(Arrays.asList(
+            MIGRATION_2_3,
+            MIGRATION_3_4,
+            MIGRATION_4_5,
+            MIGRATION_5_6,
+            MIGRATION_6_7,
+            MIGRATION_7_8,
+            MIGRATION_8_9,
+            MIGRATION_9_10,
+            MIGRATION_10_11,
+            MIGRATION_11_12
+    ));
+
+    private Migrations() {
+    }
+
+    private static void createTransactionIndexes(SQLiteDatabase db, String category) {
+        db.execSQL("CREATE INDEX IF NOT EXISTS " + INDEX_TRANSACTIONS_USER_DATE +
+                " ON " + DatabaseHelper.TABLE_TRANSACTIONS + " (" +
+                DatabaseHelper.COLUMN_USER_ID + ", " +
+                DatabaseHelper.COLUMN_DATE + " DESC, " +
+                DatabaseHelper.COLUMN_TRANSACTION_ID + " DESC);");
+        db.execSQL("CREATE INDEX IF NOT EXISTS " + INDEX_TRANSACTIONS_USER_CATEGORY_DATE +
+                " ON " + DatabaseHelper.TABLE_TRANSACTIONS + " (" +
+                DatabaseHelper.COLUMN_USER_ID + ", " +
+                category + ", " +
+                DatabaseHelper.COLUMN_DATE + ");");
+    }
+
+    /**
+     * Run every migration needed to go from {@code fromVersion} to {@code toVersion}.
+     *
+     * @throws IllegalStateException if a step in the path is missing
+     */
+    public static void migrate(SQLiteDatabase db, int fromVersion, int toVersion) {
+        int version = fromVersion;
+        while (version < toVersion) {
+            Migration next = null;
+            for (Migration migration : ALL) {
+                if (migration.startVersion == version) {
+                    next = migration;
+                    break;
+                }
+            }
+            if (next == null) {
+                throw new IllegalStateException("No migration from version " + version + " to " + toVersion);
+            }
+            next.migrate(db);
+            version = next.endVersion;
+        }
+    }
+}
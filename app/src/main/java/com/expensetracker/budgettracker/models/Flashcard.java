@@ -2,11 +2,13 @@ package com.expensetracker.budgettracker.models;
 
 public class Flashcard {
     private final int iconResId;
+    private final int categoryId;
     private final String label;
     private String amount;
 
-    public Flashcard(int iconResId, String label, String amount) {
+    public Flashcard(int iconResId, int categoryId, String label, String amount) {
         this.iconResId = iconResId;
+        this.categoryId = categoryId;
         this.label = label;
         this.amount = amount;
     }
@@ -15,6 +17,14 @@ public class Flashcard {
         return iconResId;
     }
 
+    /**
+     * The built-in category this card totals, see
+     * {@link com.expensetracker.budgettracker.data.CategoryDictionary}.
+     */
+    public int getCategoryId() {
+        return categoryId;
+    }
+
     public String getLabel() {
         return label;
     }
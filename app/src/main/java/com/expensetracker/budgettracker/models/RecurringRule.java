@@ -0,0 +1,157 @@
+package com.expensetracker.budgettracker.models;
+
+import com.expensetracker.budgettracker.utils.EpochDays;
+
+/**
+ * A transaction that repeats every {@code every} days, weeks or months from its first
+ * occurrence. Occurrences are numbered from 0, and any one of them, or how many fall on or
+ * before a day, is computed directly, never by stepping through the days in between.
+ * <p>
+ * Monthly rules keep the first occurrence's day of month, falling back to the last day of
+ * shorter months: a rule starting on January 31 lands on February 28 (or 29), then March 31.
+ */
+public class RecurringRule {
+    public static final String UNIT_DAY = "day";
+    public static final String UNIT_WEEK = "week";
+    public static final String UNIT_MONTH = "month";
+
+    private final String category;
+    private final long amountCents;
+    private final String type;
+    private final String notes;
+    private final String unit;
+    private final int every;
+    private final int startDay;
+
+    private long id;
+    private int categoryId;
+    // Occurrences already written to the ledger
+    private int occurrences;
+
+    /**
+     * @param unit  {@link #UNIT_DAY}, {@link #UNIT_WEEK} or {@link #UNIT_MONTH}
+     * @param every how many units apart occurrences are, at least 1
+     * @throws IllegalArgumentException if the unit or interval is not valid
+     */
+    public RecurringRule(String category, long amountCents, String type, String notes,
+                         String unit, int every, int startDay) {
+        if (!UNIT_DAY.equals(unit) && !UNIT_WEEK.equals(unit) && !UNIT_MONTH.equals(unit)) {
+            throw new IllegalArgumentException("Unknown unit: " + unit);
+        }
+        if (every < 1) {
+            throw new IllegalArgumentException("Interval must be at least 1: " + every);
+        }
+        this.category = category;
+        this.amountCents = amountCents;
+        this.type = type;
+        this.notes = notes != null ? notes : "";
+        this.unit = unit;
+        this.every = every;
+        this.startDay = startDay;
+    }
+
+    public static RecurringRule monthly(String category, long amountCents, String type, String notes, int startDay) {
+        return new RecurringRule(category, amountCents, type, notes, UNIT_MONTH, 1, startDay);
+    }
+
+    /**
+     * The epoch day of occurrence {@code index}, counting the first as 0.
+     */
+    public int dayOf(int index) {
+        switch (unit) {
+            case UNIT_DAY:
+                return startDay + index * every;
+            case UNIT_WEEK:
+                return startDay + index * every * 7;
+            default:
+                int month = monthIndex(startDay) + index * every;
+                int year = Math.floorDiv(month, 12);
+                int monthOfYear = Math.floorMod(month, 12) + 1;
+                return EpochDays.of(year, monthOfYear,
+                        Math.min(EpochDays.dayOfMonth(startDay), EpochDays.lengthOfMonth(year, monthOfYear)));
+        }
+    }
+
+    /**
+     * How many occurrences fall on or before {@code epochDay}.
+     */
+    public int countThrough(int epochDay) {
+        if (epochDay < startDay) return 0;
+        switch (unit) {
+            case UNIT_DAY:
+                return (epochDay - startDay) / every + 1;
+            case UNIT_WEEK:
+                return (epochDay - startDay) / (every * 7) + 1;
+            default:
+                int last = (monthIndex(epochDay) - monthIndex(startDay)) / every;
+                // The last candidate can be later in the same month than epochDay
+                return dayOf(last) <= epochDay ? last + 1 : last;
+        }
+    }
+
+    /**
+     * The next occurrence not yet written to the ledger.
+     */
+    public int getNextDay() {
+        return dayOf(occurrences);
+    }
+
+    private static int monthIndex(int epochDay) {
+        return EpochDays.year(epochDay) * 12 + EpochDays.month(epochDay) - 1;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public void setId(long id) {
+        this.id = id;
+    }
+
+    public String getCategory() {
+        return category;
+    }
+
+    public int getCategoryId() {
+        return categoryId;
+    }
+
+    public void setCategoryId(int categoryId) {
+        this.categoryId = categoryId;
+    }
+
+    /**
+     * Amount in minor units, like {@link Transaction#getAmountCents()}.
+     */
+    public long getAmountCents() {
+        return amountCents;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public String getNotes() {
+        return notes;
+    }
+
+    public String getUnit() {
+        return unit;
+    }
+
+    public int getEvery() {
+        return every;
+    }
+
+    public int getStartDay() {
+        return startDay;
+    }
+
+    public int getOccurrences() {
+        return occurrences;
+    }
+
+    public void setOccurrences(int occurrences) {
+        this.occurrences = occurrences;
+    }
+}
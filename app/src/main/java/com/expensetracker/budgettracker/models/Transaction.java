@@ -1,20 +1,45 @@
 package com.expensetracker.budgettracker.models;
 
-import android.annotation.SuppressLint;
+import com.expensetracker.budgettracker.utils.EpochDays;
+import com.expensetracker.budgettracker.utils.Money;
+
+import java.util.Objects;
 
 public class Transaction {
     private final String category;
-    private final double amount;
-    private final String date;
+    private final long amountCents;
+    private final int epochDay;
     private final String type;
+    private final String notes;
+
+    private final boolean income;
+    // Formatted on first display only; bulk inserts and catch-up rows never pay for it.
+    // Racing threads at worst format it twice, and Strings are safe to publish.
+    private String displayAmount;
 
     private int id;
+    private int categoryId;
+
+    public Transaction(String category, long amountCents, int epochDay, String type) {
+        this(category, amountCents, epochDay, type, "");
+    }
+
+    public Transaction(String category, long amountCents, int epochDay, String type, String notes) {
+        this(0, category, amountCents, epochDay, type, notes);
+    }
 
-    public Transaction(String category, double amount, String date, String type) {
+    /**
+     * A row whose category is already interned, as read back from the database.
+     */
+    public Transaction(int categoryId, String category, long amountCents, int epochDay, String type, String notes) {
+        this.categoryId = categoryId;
         this.category = category;
-        this.amount = amount;
-        this.date = date;
+        this.amountCents = amountCents;
+        this.epochDay = epochDay;
         this.type = type;
+        this.notes = notes != null ? notes : "";
+
+        this.income = "income".equalsIgnoreCase(type);
     }
 
     public void setId(int id) {
@@ -29,29 +54,87 @@ public class Transaction {
         return category;
     }
 
-    public double getAmount() {
-        return amount;
+    /**
+     * The category's ID in the {@code categories} table, for icon and total lookups, or 0
+     * until the row has been written or read back.
+     */
+    public int getCategoryId() {
+        return categoryId;
+    }
+
+    public void setCategoryId(int categoryId) {
+        this.categoryId = categoryId;
     }
 
-    public String getDate() {
-        return date;
+    /**
+     * Amount in minor units (centavos); see {@link Money}.
+     */
+    public long getAmountCents() {
+        return amountCents;
+    }
+
+    /**
+     * Days since 1970-01-01; see {@link EpochDays}.
+     */
+    public int getEpochDay() {
+        return epochDay;
     }
 
     public String getType() {
         return type;
     }
 
-    @SuppressLint("DefaultLocale")
+    /**
+     * Free-text notes, empty when there are none. Searchable along with category and type.
+     */
+    public String getNotes() {
+        return notes;
+    }
+
+    public boolean isIncome() {
+        return income;
+    }
+
     public String getFormattedAmount() {
-        return String.format("₱%,.2f", amount);
+        return Money.format(amountCents);
+    }
+
+    /**
+     * The formatted amount signed for display: {@code +₱…} for income, {@code -₱…} otherwise.
+     */
+    public String getDisplayAmount() {
+        String formatted = displayAmount;
+        if (formatted == null) {
+            formatted = (income ? "+" : "-") + Money.format(amountCents);
+            displayAmount = formatted;
+        }
+        return formatted;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        Transaction that = (Transaction) o;
+        return id == that.id
+                && amountCents == that.amountCents
+                && epochDay == that.epochDay
+                && Objects.equals(category, that.category)
+                && Objects.equals(type, that.type)
+                && notes.equals(that.notes);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id, category, amountCents, epochDay, type, notes);
     }
 
     @Override
     public String toString() {
         return "Transaction{" +
                 "category='" + category + '\'' +
-                ", amount=" + amount +
-                ", date='" + date + '\'' +
+                ", amountCents=" + amountCents +
+                ", date=" + EpochDays.format(epochDay) +
                 ", type='" + type + '\'' +
                 '}';
     }
@@ -23,11 +23,10 @@ import com.expensetracker.budgettracker.models.Flashcard;
 import com.expensetracker.budgettracker.models.Transaction;
 import com.expensetracker.budgettracker.ui.dashboard.TransactionViewModel;
 import com.expensetracker.budgettracker.ui.home.HomeViewModel;
+import com.expensetracker.budgettracker.utils.EpochDays;
+import com.expensetracker.budgettracker.utils.Money;
 
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.Date;
-import java.util.Locale;
 
 public class FlashcardsFragment extends Fragment {
 
@@ -77,14 +76,14 @@ public class FlashcardsFragment extends Fragment {
                 .setPositiveButton(R.string.ok, (dialog, which) -> {
                     String amountStr = input.getText().toString().trim();
                     if (validateAmount(amountStr)) {
-                        double amount = Double.parseDouble(amountStr);
+                        long amount = Money.parse(amountStr);
                         String type = flashcard.getLabel().equalsIgnoreCase("salary") ? "income" : "expense";
 
                         // Create a new transaction
                         Transaction transaction = new Transaction(
                                 flashcard.getLabel(),
                                 amount,
-                                new SimpleDateFormat("yyyy-MM-dd", Locale.getDefault()).format(new Date()),
+                                EpochDays.today(),
                                 type
                         );
 
@@ -104,14 +103,14 @@ public class FlashcardsFragment extends Fragment {
 
     private boolean validateAmount(String amountStr) {
         try {
-            double amount = Double.parseDouble(amountStr);
+            long amount = Money.parse(amountStr);
             return amount >= 0;
         } catch (NumberFormatException e) {
             return false;
         }
     }
 
-    private void updateFlashcardAmount(Flashcard flashcard, int position, double amount) {
+    private void updateFlashcardAmount(Flashcard flashcard, int position, long amount) {
         // Use static method call for currency formatting
         String formattedAmount = HomeViewModel.formatCurrency(amount);
         flashcard.setAmount(formattedAmount);
@@ -0,0 +1,137 @@
+package com.expensetracker.budgettracker.ui.charts;
+
+import android.os.Bundle;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.RadioGroup;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.core.content.ContextCompat;
+import androidx.fragment.app.Fragment;
+import androidx.lifecycle.ViewModelProvider;
+
+import com.expensetracker.budgettracker.R;
+import com.expensetracker.budgettracker.data.CategoryBreakdown;
+import com.expensetracker.budgettracker.data.ChartSeries;
+import com.expensetracker.budgettracker.utils.DateDisplayCache;
+import com.github.mikephil.charting.charts.LineChart;
+import com.github.mikephil.charting.charts.PieChart;
+import com.github.mikephil.charting.components.XAxis;
+import com.github.mikephil.charting.data.Entry;
+import com.github.mikephil.charting.data.LineData;
+import com.github.mikephil.charting.data.LineDataSet;
+import com.github.mikephil.charting.data.PieData;
+import com.github.mikephil.charting.data.PieDataSet;
+import com.github.mikephil.charting.data.PieEntry;
+import com.github.mikephil.charting.formatter.ValueFormatter;
+import com.github.mikephil.charting.utils.ColorTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class ChartsFragment extends Fragment {
+    private LineChart spendingChart;
+    private PieChart categoryChart;
+    private ChartsViewModel viewModel;
+    private final DateDisplayCache dateLabels = new DateDisplayCache();
+
+    @Nullable
+    @Override
+    public View onCreateView(@NonNull LayoutInflater inflater, @Nullable ViewGroup container,
+                             @Nullable Bundle savedInstanceState) {
+        View view = inflater.inflate(R.layout.fragment_charts, container, false);
+        spendingChart = view.findViewById(R.id.spending_chart);
+        categoryChart = view.findViewById(R.id.category_chart);
+        viewModel = new ViewModelProvider(this).get(ChartsViewModel.class);
+
+        setupCharts();
+        setupRangeSelector(view.findViewById(R.id.range_selector));
+        observeViewModel();
+        return view;
+    }
+
+    private void setupCharts() {
+        spendingChart.getDescription().setEnabled(false);
+        spendingChart.getLegend().setEnabled(false);
+        spendingChart.getAxisRight().setEnabled(false);
+        spendingChart.getAxisLeft().setAxisMinimum(0f);
+        spendingChart.setNoDataText(getString(R.string.chart_no_data));
+        XAxis xAxis = spendingChart.getXAxis();
+        xAxis.setPosition(XAxis.XAxisPosition.BOTTOM);
+        xAxis.setGranularity(1f);
+        xAxis.setLabelCount(3);
+        xAxis.setDrawGridLines(false);
+        xAxis.setValueFormatter(new ValueFormatter() {
+            @Override
+            public String getFormattedValue(float value) {
+                return dateLabels.get(Math.round(value));
+            }
+        });
+
+        categoryChart.getDescription().setEnabled(false);
+        categoryChart.getLegend().setWordWrapEnabled(true);
+        categoryChart.setDrawEntryLabels(false);
+        categoryChart.setNoDataText(getString(R.string.chart_no_data));
+    }
+
+    private void setupRangeSelector(RadioGroup rangeSelector) {
+        int range = viewModel.getRange();
+        rangeSelector.check(range == ChartsViewModel.RANGE_ALL ? R.id.range_all
+                : range > 31 ? R.id.range_year : R.id.range_month);
+        rangeSelector.setOnCheckedChangeListener((group, checkedId) -> {
+            if (checkedId == R.id.range_month) {
+                viewModel.setRange(30);
+            } else if (checkedId == R.id.range_year) {
+                viewModel.setRange(365);
+            } else {
+                viewModel.setRange(ChartsViewModel.RANGE_ALL);
+            }
+        });
+    }
+
+    private void observeViewModel() {
+        viewModel.getSpending().observe(getViewLifecycleOwner(), this::showSpending);
+        viewModel.getCategories().observe(getViewLifecycleOwner(), this::showCategories);
+    }
+
+    private void showSpending(ChartSeries series) {
+        if (series.size() == 0) {
+            spendingChart.clear();
+            return;
+        }
+        // Bounded by ChartsViewModel.MAX_POINTS, so this is a few hundred small objects at most
+        List<Entry> entries = new ArrayList<>(series.size());
+        for (int i = 0; i < series.size(); i++) {
+            entries.add(new Entry(series.x[i], series.y[i]));
+        }
+        LineDataSet dataSet = new LineDataSet(entries, getString(R.string.chart_spending_title));
+        int color = ContextCompat.getColor(requireContext(), R.color.purple_200);
+        dataSet.setColor(color);
+        dataSet.setLineWidth(1.5f);
+        dataSet.setDrawCircles(false);
+        dataSet.setDrawValues(false);
+        dataSet.setDrawFilled(true);
+        dataSet.setFillColor(color);
+        spendingChart.setData(new LineData(dataSet));
+        spendingChart.invalidate();
+    }
+
+    private void showCategories(CategoryBreakdown breakdown) {
+        if (breakdown.size() == 0) {
+            categoryChart.clear();
+            return;
+        }
+        List<PieEntry> entries = new ArrayList<>(breakdown.size());
+        for (int i = 0; i < breakdown.size(); i++) {
+            entries.add(new PieEntry(breakdown.values[i], breakdown.labels[i]));
+        }
+        PieDataSet dataSet = new PieDataSet(entries, "");
+        dataSet.setColors(ColorTemplate.MATERIAL_COLORS);
+        dataSet.setSliceSpace(2f);
+        dataSet.setDrawValues(false);
+        categoryChart.setData(new PieData(dataSet));
+        categoryChart.invalidate();
+    }
+}
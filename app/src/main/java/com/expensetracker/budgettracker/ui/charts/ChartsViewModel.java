@@ -0,0 +1,128 @@
+package com.expensetracker.budgettracker.ui.charts;
+
+import android.app.Application;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.AndroidViewModel;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+
+import com.expensetracker.budgettracker.data.CategoryBreakdown;
+import com.expensetracker.budgettracker.data.ChartSeries;
+import com.expensetracker.budgettracker.data.DailyTotals;
+import com.expensetracker.budgettracker.data.TransactionChanges;
+import com.expensetracker.budgettracker.data.TransactionRepository;
+import com.expensetracker.budgettracker.utils.AppExecutors;
+import com.expensetracker.budgettracker.utils.EpochDays;
+import com.expensetracker.budgettracker.utils.LatencyHistogram;
+import com.expensetracker.budgettracker.utils.Metrics;
+import com.expensetracker.budgettracker.utils.SessionManager;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Builds the chart series on a read thread from the in-memory daily and category totals,
+ * so a rebuild never queries the ledger once they are loaded: a bounded range's category
+ * breakdown is summed from the per-day category totals in {@link DailyTotals}. Writes only
+ * mark the series stale; bursts of changes coalesce into a single rebuild.
+ */
+public class ChartsViewModel extends AndroidViewModel {
+    private static final String TAG = "ChartsViewModel";
+    private static final LatencyHistogram REBUILD = Metrics.histogram("aggregate.charts");
+    // Roughly one point per few pixels on a phone-width chart
+    static final int MAX_POINTS = 180;
+    static final int MAX_SLICES = 6;
+    public static final int RANGE_ALL = 0;
+
+    private final TransactionRepository repository;
+    private final AppExecutors executors = AppExecutors.getInstance();
+    private final SessionManager sessionManager;
+    private final AtomicBoolean rebuildScheduled = new AtomicBoolean(false);
+    private volatile int rangeDays = 30;
+
+    private final MutableLiveData<ChartSeries> spending = new MutableLiveData<>(ChartSeries.EMPTY);
+    private final MutableLiveData<CategoryBreakdown> categories = new MutableLiveData<>(CategoryBreakdown.EMPTY);
+    private final TransactionChanges.Listener changeListener = this::onTransactionsChanged;
+
+    public ChartsViewModel(@NonNull Application application) {
+        super(application);
+        repository = TransactionRepository.getInstance(application);
+        sessionManager = new SessionManager(application);
+        repository.getChanges().addListener(changeListener);
+        scheduleRebuild();
+    }
+
+    /**
+     * Show the last {@code days} days, or everything with {@link #RANGE_ALL}.
+     */
+    public void setRange(int days) {
+        if (rangeDays == days) return;
+        rangeDays = days;
+        scheduleRebuild();
+    }
+
+    public int getRange() {
+        return rangeDays;
+    }
+
+    private void onTransactionsChanged(TransactionChanges.Change change) {
+        if (change.userId == sessionManager.getUserId()) {
+            scheduleRebuild();
+        }
+    }
+
+    private void scheduleRebuild() {
+        if (!rebuildScheduled.compareAndSet(false, true)) return;
+        executors.diskRead().execute(() -> {
+            // Cleared first, so a change that lands mid-build schedules another pass
+            rebuildScheduled.set(false);
+            long start = REBUILD.start();
+            try {
+                rebuild();
+            } catch (Exception e) {
+                Log.e(TAG, "Error building chart data", e);
+            } finally {
+                REBUILD.stop(start);
+            }
+        });
+    }
+
+    private void rebuild() {
+        long userId = sessionManager.getUserId();
+        repository.ensureAggregatesLoaded(userId);
+        repository.ensureDailyTotalsLoaded(userId);
+
+        int today = EpochDays.today();
+        int days = rangeDays;
+        int from = days == RANGE_ALL
+                ? Math.min(repository.getDailyTotals().getFirstDay(userId, today), today)
+                : today - days + 1;
+        spending.postValue(repository.getDailyTotals().series(userId, from, today, MAX_POINTS));
+        Map<Integer, Long> categoryTotals = days == RANGE_ALL
+                ? repository.getAggregates().getExpenseCategoryTotals(userId)
+                : repository.getDailyTotals().categoryTotals(userId, from, today);
+        categories.postValue(CategoryBreakdown.of(repository.getCategories().withNames(categoryTotals), MAX_SLICES));
+    }
+
+    /**
+     * Daily spending over the selected range, at most {@link #MAX_POINTS} points.
+     */
+    public LiveData<ChartSeries> getSpending() {
+        return spending;
+    }
+
+    /**
+     * Spending per category over the selected range, at most {@link #MAX_SLICES} slices.
+     */
+    public LiveData<CategoryBreakdown> getCategories() {
+        return categories;
+    }
+
+    @Override
+    protected void onCleared() {
+        super.onCleared();
+        repository.getChanges().removeListener(changeListener);
+    }
+}
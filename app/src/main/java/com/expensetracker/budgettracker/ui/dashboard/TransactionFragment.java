@@ -1,29 +1,29 @@
 package com.expensetracker.budgettracker.ui.dashboard;
-import java.util.ArrayList;
 import android.os.Bundle;
 import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
+import android.widget.Toast;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.fragment.app.Fragment;
 import androidx.lifecycle.ViewModelProvider;
 import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
 import com.expensetracker.budgettracker.R;
 import com.expensetracker.budgettracker.adapters.TransactionsAdapter;
+import com.expensetracker.budgettracker.data.BudgetEngine;
 import com.expensetracker.budgettracker.databinding.FragmentTransactionBinding;
 import com.expensetracker.budgettracker.models.Transaction;
-import java.util.Locale;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import com.expensetracker.budgettracker.utils.Money;
 
 public class TransactionFragment extends Fragment {
     private static final String TAG = "TransactionFragment";
+    private static final int PREFETCH_DISTANCE = 15;
     private TransactionsAdapter transactionsAdapter;
     private TransactionViewModel transactionViewModel;
     private FragmentTransactionBinding binding;
-    private final ExecutorService executorService = Executors.newFixedThreadPool(2);
 
     @Nullable
     @Override
@@ -51,7 +51,7 @@ public class TransactionFragment extends Fragment {
 
     private void setupRecyclerView() {
         // Initialize adapter with click listeners
-        transactionsAdapter = new TransactionsAdapter(new ArrayList<>(), new TransactionsAdapter.OnItemClickListener() {
+        transactionsAdapter = new TransactionsAdapter(new TransactionsAdapter.OnItemClickListener() {
             @Override
             public void onItemClick(Transaction transaction, int position) {
                 Log.d(TAG, "Transaction clicked: " + transaction);
@@ -59,31 +59,50 @@ public class TransactionFragment extends Fragment {
 
             @Override
             public void onItemDelete(Transaction transaction, int position) {
-                executorService.execute(() -> {
-                    Log.d(TAG, "Transaction deleted: " + transaction);
-                    transactionViewModel.deleteTransaction(transaction);
-                });
+                Log.d(TAG, "Transaction deleted: " + transaction);
+                transactionViewModel.deleteTransaction(transaction);
             }
         });
 
         // Configure RecyclerView
-        binding.recyclerView.setLayoutManager(new LinearLayoutManager(requireContext()));
+        LinearLayoutManager layoutManager = new LinearLayoutManager(requireContext());
+        binding.recyclerView.setLayoutManager(layoutManager);
         binding.recyclerView.setAdapter(transactionsAdapter);
+
+        // Prefetch the neighbouring page before the user reaches either end of the window
+        binding.recyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                if (dy > 0 && layoutManager.findLastVisibleItemPosition()
+                        >= transactionsAdapter.getItemCount() - PREFETCH_DISTANCE) {
+                    transactionViewModel.loadNextPage();
+                } else if (dy < 0 && layoutManager.findFirstVisibleItemPosition() <= PREFETCH_DISTANCE) {
+                    transactionViewModel.loadPreviousPage();
+                }
+            }
+        });
     }
 
     private void setupObservers() {
-        // Observe transactions list and update adapter
-        transactionViewModel.getTransactions().observe(getViewLifecycleOwner(), transactionsAdapter::updateTransactions);
+        // Diffed against the current list on a background thread
+        transactionViewModel.getTransactions().observe(getViewLifecycleOwner(), transactionsAdapter::submitList);
+
+        transactionViewModel.getBudgetAlert().observe(getViewLifecycleOwner(), alert -> {
+            if (alert == null) return;
+            int message = alert.level == BudgetEngine.Level.EXCEEDED
+                    ? R.string.budget_exceeded_message : R.string.budget_warning_message;
+            Toast.makeText(requireContext(), getString(message, alert.category,
+                    Money.format(alert.spent), Money.format(alert.limit)), Toast.LENGTH_LONG).show();
+            transactionViewModel.onBudgetAlertShown();
+        });
 
         // Observe total income and update UI
         transactionViewModel.getTotalIncome().observe(getViewLifecycleOwner(), income ->
-                binding.totalIncome.setText(getString(R.string.total_income_label,
-                        String.format(Locale.getDefault(), "₱%.2f", income))));
+                binding.totalIncome.setText(getString(R.string.total_income_label, Money.format(income))));
 
         // Observe total expenses and update UI
         transactionViewModel.getTotalExpense().observe(getViewLifecycleOwner(), expense ->
-                binding.totalExpenses.setText(getString(R.string.total_expenses_label,
-                        String.format(Locale.getDefault(), "₱%.2f", expense))));
+                binding.totalExpenses.setText(getString(R.string.total_expenses_label, Money.format(expense))));
     }
 
     @Override
@@ -92,11 +111,4 @@ public class TransactionFragment extends Fragment {
         // Clear binding to avoid memory leaks
         binding = null;
     }
-
-    @Override
-    public void onDestroy() {
-        super.onDestroy();
-        // Shutdown the executor service to release resources
-        executorService.shutdown();
-    }
 }
\ No newline at end of file
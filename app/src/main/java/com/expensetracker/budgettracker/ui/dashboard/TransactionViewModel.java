@@ -1,157 +1,579 @@
 package com.expensetracker.budgettracker.ui.dashboard;
 
 import android.app.Application;
-import android.content.ContentValues;
-import android.database.sqlite.SQLiteDatabase;
+import android.content.ContentResolver;
+import android.net.Uri;
 import android.util.Log;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.lifecycle.AndroidViewModel;
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MediatorLiveData;
 import androidx.lifecycle.MutableLiveData;
 
-import com.expensetracker.budgettracker.data.DatabaseHelper;
+import com.expensetracker.budgettracker.data.AggregateStore;
+import com.expensetracker.budgettracker.data.BudgetEngine;
+import com.expensetracker.budgettracker.data.SearchQuery;
+import com.expensetracker.budgettracker.data.StartupLoader;
+import com.expensetracker.budgettracker.data.TransactionPager;
+import com.expensetracker.budgettracker.data.TransactionChanges;
+import com.expensetracker.budgettracker.data.TransactionRepository;
+import com.expensetracker.budgettracker.data.WriteQueue;
+import com.expensetracker.budgettracker.data.csv.TransactionCsv;
+import com.expensetracker.budgettracker.models.RecurringRule;
 import com.expensetracker.budgettracker.models.Transaction;
+import com.expensetracker.budgettracker.utils.AppExecutors;
+import com.expensetracker.budgettracker.utils.CoalescingLoader;
+import com.expensetracker.budgettracker.utils.LatencyHistogram;
+import com.expensetracker.budgettracker.utils.Metrics;
 import com.expensetracker.budgettracker.utils.SessionManager;
 
+import java.io.FileNotFoundException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class TransactionViewModel extends AndroidViewModel {
     private static final String TAG = "TransactionViewModel";
-    private final DatabaseHelper databaseHelper;
-    private final ExecutorService executorService;
+    private static final LatencyHistogram PUBLISH_TOTALS = Metrics.histogram("aggregate.publishTotals");
+    public static final int PAGE_SIZE = 50;
+    private static final int MAX_CACHED_PAGES = 5;
+    // Long enough to fold an import's or a burst of entries' notifications into one reload
+    private static final long WRITE_DEBOUNCE_MS = 300;
+
+    private final TransactionRepository repository;
+    private final AppExecutors executors = AppExecutors.getInstance();
+    private final SessionManager sessionManager;
+    private final StartupLoader startup;
+    private final TransactionPager pager = new TransactionPager(new RepositoryPageSource(), PAGE_SIZE, MAX_CACHED_PAGES);
+    private final AtomicBoolean olderPageRequested = new AtomicBoolean(false);
+    private final AtomicBoolean newerPageRequested = new AtomicBoolean(false);
+    // Replaced on every search; loads for an older search check it before posting
+    private volatile TransactionPager searchPager;
+    private final AtomicBoolean searchPageRequested = new AtomicBoolean(false);
 
     private final MutableLiveData<List<Transaction>> transactions = new MutableLiveData<>(new ArrayList<>());
-    private final MutableLiveData<Double> totalIncome = new MutableLiveData<>(0.0);
-    private final MutableLiveData<Double> totalExpense = new MutableLiveData<>(0.0);
-    private final MediatorLiveData<Double> balance = new MediatorLiveData<>();
+    private final MutableLiveData<List<Transaction>> searchResults = new MutableLiveData<>(Collections.emptyList());
+    // Amounts are in minor units, see Money
+    private final MutableLiveData<Long> totalIncome = new MutableLiveData<>(0L);
+    private final MutableLiveData<Long> totalExpense = new MutableLiveData<>(0L);
+    private final MediatorLiveData<Long> balance = new MediatorLiveData<>();
+    private final MutableLiveData<Map<Integer, Long>> categoryTotals = new MutableLiveData<>(Collections.emptyMap());
+    private final MutableLiveData<BudgetEngine.Alert> budgetAlert = new MutableLiveData<>();
+    private final BudgetEngine.Listener budgetListener = this::onBudgetAlert;
+    private final TransactionChanges.Listener changeListener = this::onTransactionsChanged;
+    private final MutableLiveData<Exception> writeFailure = new MutableLiveData<>();
+    private final MutableLiveData<List<RecurringRule>> recurringRules = new MutableLiveData<>();
+    private final MutableLiveData<CsvTransfer> csvTransfer = new MutableLiveData<>();
+    private final WriteQueue.FailureListener failureListener = this::onWriteFailed;
+    // Held while snapshotting and posting, so windows reach the list in the order they were taken
+    private final Object postLock = new Object();
+    private final CoalescingLoader<TransactionPager> reloads = new CoalescingLoader<>(executors.diskRead(),
+            executors::mainThreadDelayed, WRITE_DEBOUNCE_MS, this::reload, loaded -> postWindow());
+    private final CoalescingLoader<TransactionPager> searchReloads = new CoalescingLoader<>(executors.diskRead(),
+            executors::mainThreadDelayed, WRITE_DEBOUNCE_MS, this::reloadSearch, this::postSearchResults);
+
+    /**
+     * Progress of a CSV import or export; {@code finished} is set once, on success or failure.
+     */
+    public static final class CsvTransfer {
+        public final boolean importing;
+        public final long rows;
+        // Import only: rows that could not be read
+        public final long skipped;
+        public final boolean finished;
+        @Nullable
+        public final Exception failure;
+
+        CsvTransfer(boolean importing, long rows, long skipped, boolean finished, @Nullable Exception failure) {
+            this.importing = importing;
+            this.rows = rows;
+            this.skipped = skipped;
+            this.finished = finished;
+            this.failure = failure;
+        }
+    }
 
     public TransactionViewModel(@NonNull Application application) {
         super(application);
-        databaseHelper = new DatabaseHelper(application);
-        executorService = Executors.newSingleThreadExecutor();
+        repository = TransactionRepository.getInstance(application);
+        sessionManager = new SessionManager(application);
+        startup = StartupLoader.getInstance(application);
 
         balance.addSource(totalIncome, income -> balance.setValue(income - getNonNullValue(totalExpense.getValue())));
         balance.addSource(totalExpense, expense -> balance.setValue(getNonNullValue(totalIncome.getValue()) - expense));
+        repository.getBudgets().addListener(budgetListener);
+        repository.getChanges().addListener(changeListener);
+        repository.addWriteFailureListener(failureListener);
 
         loadTransactions();
     }
 
-    private double getNonNullValue(Double value) {
-        return value != null ? value : 0.0;
+    private long getNonNullValue(Long value) {
+        return value != null ? value : 0L;
     }
 
+    /**
+     * Reload the first page of transactions and the summary totals. Calls made while a reload
+     * is running fold into a single reload after it.
+     */
     public void loadTransactions() {
-        executorService.execute(() -> {
-            List<Transaction> transactionsList = new ArrayList<>();
-            SQLiteDatabase db = databaseHelper.getReadableDatabase();
-
-            try (var cursor = db.query(
-                    DatabaseHelper.TABLE_TRANSACTIONS,
-                    new String[]{
-                            DatabaseHelper.COLUMN_TRANSACTION_ID,
-                            DatabaseHelper.COLUMN_AMOUNT,
-                            DatabaseHelper.COLUMN_CATEGORY,
-                            DatabaseHelper.COLUMN_DATE,
-                            DatabaseHelper.COLUMN_TYPE
-                    },
-                    DatabaseHelper.COLUMN_USER_ID + " = ?",
-                    new String[]{String.valueOf(new SessionManager(getApplication()).getUserId())},
-                    null, null, DatabaseHelper.COLUMN_DATE + " DESC"
-            )) {
-
-                while (cursor.moveToNext()) {
-                    Transaction transaction = new Transaction(
-                            cursor.getString(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_CATEGORY)),
-                            cursor.getDouble(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_AMOUNT)),
-                            cursor.getString(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_DATE)),
-                            cursor.getString(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_TYPE))
-                    );
-                    transaction.setId(cursor.getInt(cursor.getColumnIndexOrThrow(DatabaseHelper.COLUMN_TRANSACTION_ID)));
-                    transactionsList.add(transaction);
+        reloads.request();
+    }
+
+    private TransactionPager reload() {
+        long userId = sessionManager.getUserId();
+        try {
+            // The first load takes the page MainActivity's startup preloaded, if it is still current
+            List<Transaction> preloaded = startup.takeFirstPage(userId, PAGE_SIZE);
+            if (preloaded != null) {
+                pager.refresh(preloaded);
+            } else {
+                pager.refresh();
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Error loading transactions", e);
+        }
+        startup.awaitTotals(userId);
+        publishTotals();
+        // Posted as a fresh snapshot, never one taken before a patch that landed meanwhile
+        return pager;
+    }
+
+    private void postWindow() {
+        synchronized (postLock) {
+            transactions.postValue(pager.snapshot());
+        }
+    }
+
+    /**
+     * Load the next page of older transactions; called as the list scrolls towards its end.
+     */
+    public void loadNextPage() {
+        if (!olderPageRequested.compareAndSet(false, true)) return;
+        executors.diskRead().execute(() -> {
+            try {
+                if (pager.loadOlder()) {
+                    postWindow();
                 }
             } catch (Exception e) {
-                Log.e(TAG, "Error loading transactions", e);
+                Log.e(TAG, "Error loading next page", e);
+            } finally {
+                olderPageRequested.set(false);
             }
+        });
+    }
 
-            transactions.postValue(Collections.unmodifiableList(transactionsList));
-            updateTotals(transactionsList);
+    /**
+     * Reload the page of newer transactions that was evicted from the window;
+     * called as the list scrolls back towards its start.
+     */
+    public void loadPreviousPage() {
+        if (!newerPageRequested.compareAndSet(false, true)) return;
+        executors.diskRead().execute(() -> {
+            try {
+                if (pager.loadNewer()) {
+                    postWindow();
+                }
+            } catch (Exception e) {
+                Log.e(TAG, "Error loading previous page", e);
+            } finally {
+                newerPageRequested.set(false);
+            }
         });
     }
 
-    public void addTransaction(Transaction transaction) {
-        executorService.execute(() -> {
-            SQLiteDatabase db = databaseHelper.getWritableDatabase();
+    /**
+     * Run a search and post its first page to {@link #getSearchResults()}. A null query
+     * clears the results.
+     */
+    public void search(@Nullable SearchQuery query) {
+        if (query == null) {
+            searchPager = null;
+            searchResults.setValue(Collections.emptyList());
+            return;
+        }
+        TransactionPager pager = new TransactionPager(repository.search(sessionManager.getUserId(), query),
+                PAGE_SIZE, MAX_CACHED_PAGES);
+        searchPager = pager;
+        executors.diskRead().execute(() -> {
             try {
-                ContentValues values = new ContentValues();
-                values.put(DatabaseHelper.COLUMN_AMOUNT, transaction.getAmount());
-                values.put(DatabaseHelper.COLUMN_CATEGORY, transaction.getCategory());
-                values.put(DatabaseHelper.COLUMN_DATE, transaction.getDate());
-                values.put(DatabaseHelper.COLUMN_TYPE, transaction.getType());
-                values.put(DatabaseHelper.COLUMN_USER_ID, new SessionManager(getApplication()).getUserId());
-
-                db.insert(DatabaseHelper.TABLE_TRANSACTIONS, null, values);
-                loadTransactions();
+                pager.refresh();
             } catch (Exception e) {
-                Log.e(TAG, "Error adding transaction", e);
+                Log.e(TAG, "Error searching transactions", e);
             }
+            postSearchResults(pager);
         });
     }
 
-    public void deleteTransaction(Transaction transaction) {
-        executorService.execute(() -> {
-            SQLiteDatabase db = databaseHelper.getWritableDatabase();
+    /**
+     * Load the next page of search results; called as the results scroll towards their end.
+     */
+    public void loadNextSearchPage() {
+        TransactionPager pager = searchPager;
+        if (pager == null || !searchPageRequested.compareAndSet(false, true)) return;
+        executors.diskRead().execute(() -> {
             try {
-                db.delete(DatabaseHelper.TABLE_TRANSACTIONS,
-                        DatabaseHelper.COLUMN_TRANSACTION_ID + " = ?",
-                        new String[]{String.valueOf(transaction.getId())});
-                loadTransactions();
+                if (pager.loadOlder()) {
+                    postSearchResults(pager);
+                }
             } catch (Exception e) {
-                Log.e(TAG, "Error deleting transaction", e);
+                Log.e(TAG, "Error loading search page", e);
+            } finally {
+                searchPageRequested.set(false);
             }
         });
     }
 
-    private void updateTotals(List<Transaction> transactionsList) {
-        double income = 0.0;
-        double expense = 0.0;
+    public void addTransaction(Transaction transaction) {
+        repository.insert(sessionManager.getUserId(), transaction, null);
+    }
 
-        for (Transaction t : transactionsList) {
-            if ("income".equalsIgnoreCase(t.getType())) {
-                income += t.getAmount();
-            } else {
-                expense += t.getAmount();
+    /**
+     * Add many transactions in one write; the list and totals update once, after the batch commits.
+     */
+    public void addTransactions(List<Transaction> transactions) {
+        repository.insertAll(sessionManager.getUserId(), transactions, null);
+    }
+
+    /**
+     * Save a repeating transaction; occurrences from its start through today are added at once.
+     */
+    public void addRecurringRule(RecurringRule rule) {
+        repository.addRecurringRule(sessionManager.getUserId(), rule, null);
+    }
+
+    /**
+     * This user's monthly budget for a category in minor units, or 0 if it has none.
+     */
+    public long getBudgetLimit(String category) {
+        int categoryId = repository.getCategories().idOf(category);
+        BudgetEngine.Budget budget = repository.getBudgets().getBudgets(sessionManager.getUserId()).get(categoryId);
+        return budget != null ? budget.limit : 0L;
+    }
+
+    /**
+     * Set a category's monthly budget; alerts follow on {@link #getBudgetAlert()}.
+     */
+    public void setBudget(String category, long limitCents) {
+        repository.setBudget(sessionManager.getUserId(), category, limitCents, null);
+    }
+
+    public void removeBudget(String category) {
+        repository.removeBudget(sessionManager.getUserId(), category, null);
+    }
+
+    /**
+     * Load this user's recurring rules and post them to {@link #getRecurringRules()}.
+     */
+    public void loadRecurringRules() {
+        long userId = sessionManager.getUserId();
+        executors.diskRead().execute(() -> {
+            try {
+                recurringRules.postValue(repository.loadRecurringRules(userId));
+            } catch (Exception e) {
+                Log.e(TAG, "Error loading recurring rules", e);
+            }
+        });
+    }
+
+    /**
+     * The rules asked for by {@link #loadRecurringRules()}, or null once shown.
+     */
+    public LiveData<List<RecurringRule>> getRecurringRules() {
+        return recurringRules;
+    }
+
+    public void onRecurringRulesShown() {
+        recurringRules.setValue(null);
+    }
+
+    /**
+     * Stop a recurring rule; the entries it already added stay.
+     */
+    public void removeRecurringRule(RecurringRule rule) {
+        repository.removeRecurringRule(sessionManager.getUserId(), rule, null);
+    }
+
+    /**
+     * Import a CSV document picked by the user. Runs on the writer's executor, between write
+     * batches; progress and the result are posted to {@link #getCsvTransfer()}, and the list
+     * and totals reload once it is done.
+     */
+    public void importCsv(Uri uri) {
+        long userId = sessionManager.getUserId();
+        ContentResolver resolver = getApplication().getContentResolver();
+        csvTransfer.setValue(new CsvTransfer(true, 0, 0, false, null));
+        executors.diskWrite().execute(() -> {
+            try (InputStream in = resolver.openInputStream(uri)) {
+                if (in == null) throw new FileNotFoundException(uri.toString());
+                TransactionCsv.ImportResult result = repository.importCsv(userId, Channels.newChannel(in),
+                        (rows, bytes) -> csvTransfer.postValue(new CsvTransfer(true, rows, 0, false, null)));
+                csvTransfer.postValue(new CsvTransfer(true, result.imported, result.skipped, true, null));
+            } catch (Exception e) {
+                Log.e(TAG, "Error importing CSV", e);
+                csvTransfer.postValue(new CsvTransfer(true, 0, 0, true, e));
+            }
+        });
+    }
+
+    /**
+     * Export this user's ledger to a CSV document created by the user, posting progress and
+     * the result to {@link #getCsvTransfer()}.
+     */
+    public void exportCsv(Uri uri) {
+        long userId = sessionManager.getUserId();
+        ContentResolver resolver = getApplication().getContentResolver();
+        csvTransfer.setValue(new CsvTransfer(false, 0, 0, false, null));
+        executors.diskRead().execute(() -> {
+            try (OutputStream out = resolver.openOutputStream(uri, "wt")) {
+                if (out == null) throw new FileNotFoundException(uri.toString());
+                long rows = repository.exportCsv(userId, Channels.newChannel(out),
+                        (written, bytes) -> csvTransfer.postValue(new CsvTransfer(false, written, 0, false, null)));
+                csvTransfer.postValue(new CsvTransfer(false, rows, 0, true, null));
+            } catch (Exception e) {
+                Log.e(TAG, "Error exporting CSV", e);
+                csvTransfer.postValue(new CsvTransfer(false, 0, 0, true, e));
+            }
+        });
+    }
+
+    /**
+     * The running or finished CSV transfer, or null once its result was shown.
+     */
+    public LiveData<CsvTransfer> getCsvTransfer() {
+        return csvTransfer;
+    }
+
+    public void onCsvTransferShown() {
+        csvTransfer.setValue(null);
+    }
+
+    public void deleteTransaction(Transaction transaction) {
+        repository.delete(sessionManager.getUserId(), transaction, null);
+    }
+
+    /**
+     * Patch the loaded window and totals from a committed change instead of re-querying.
+     * Runs on the writer thread; the work is bounded by the window size, not the ledger,
+     * and changes larger than a page reload instead.
+     */
+    private void onTransactionsChanged(TransactionChanges.Change change) {
+        if (change.userId != sessionManager.getUserId()) return;
+
+        if (change.kind != TransactionChanges.Kind.INVALIDATED && change.rows.size() > PAGE_SIZE) {
+            // More rows than a page (a recurring catch-up, a batch entry): reloading beats patching
+            reloads.requestAfterWrite();
+            patchSearchResults(change);
+            postRunningTotals(change.userId);
+            return;
+        }
+        boolean windowChanged = false;
+        switch (change.kind) {
+            case INSERTED:
+                for (Transaction row : change.rows) {
+                    windowChanged |= pager.applyInserted(row);
+                }
+                break;
+            case UPDATED:
+                for (Transaction row : change.rows) {
+                    windowChanged |= pager.applyDeleted(row);
+                    windowChanged |= pager.applyInserted(row);
+                }
+                break;
+            case DELETED:
+                for (Transaction row : change.rows) {
+                    windowChanged |= pager.applyDeleted(row);
+                }
+                break;
+            case INVALIDATED:
+                reloads.requestAfterWrite();
+                patchSearchResults(change);
+                return;
+        }
+        if (windowChanged) {
+            postWindow();
+        }
+        patchSearchResults(change);
+        postRunningTotals(change.userId);
+    }
+
+    /**
+     * Drop deleted rows from the search results and re-run the search after updates.
+     * Only SQLite can tell whether a row matches, so new rows show up the next time the
+     * search runs.
+     */
+    private void patchSearchResults(TransactionChanges.Change change) {
+        TransactionPager pager = searchPager;
+        if (pager == null) return;
+
+        switch (change.kind) {
+            case INSERTED:
+                break;
+            case DELETED:
+                boolean changed = false;
+                for (Transaction row : change.rows) {
+                    changed |= pager.applyDeleted(row);
+                }
+                if (changed) {
+                    postSearchResults(pager);
+                }
+                break;
+            case UPDATED:
+            case INVALIDATED:
+                searchReloads.requestAfterWrite();
+                break;
+        }
+    }
+
+    @Nullable
+    private TransactionPager reloadSearch() {
+        TransactionPager pager = searchPager;
+        if (pager != null) {
+            pager.refresh();
+        }
+        return pager;
+    }
+
+    private void postSearchResults(@Nullable TransactionPager pager) {
+        synchronized (postLock) {
+            if (pager != null && searchPager == pager) {
+                searchResults.postValue(pager.snapshot());
             }
         }
+    }
+
+    /**
+     * Post the totals from the aggregate store, rebuilding it from SQLite the first
+     * time this user is seen in the process.
+     */
+    private void publishTotals() {
+        long userId = sessionManager.getUserId();
+        long start = PUBLISH_TOTALS.start();
+        try {
+            repository.ensureAggregatesLoaded(userId);
+            repository.ensureBudgetsLoaded(userId);
+        } catch (Exception e) {
+            Log.e(TAG, "Error rebuilding totals", e);
+        }
 
-        totalIncome.postValue(income);
-        totalExpense.postValue(expense);
+        postRunningTotals(userId);
+        categoryTotals.postValue(repository.getAggregates().getCategoryTotals(userId));
+        PUBLISH_TOTALS.stop(start);
     }
 
-    public LiveData<List<Transaction>> getTransactions() {
-        return transactions;
+    private void postRunningTotals(long userId) {
+        AggregateStore aggregates = repository.getAggregates();
+        totalIncome.postValue(aggregates.getTotalIncome(userId));
+        totalExpense.postValue(aggregates.getTotalExpense(userId));
     }
 
-    public LiveData<Double> getTotalIncome() {
-        return totalIncome;
+    private class RepositoryPageSource implements TransactionPager.PageSource {
+        @Override
+        public List<Transaction> loadOlder(Transaction anchor, int limit) {
+            return repository.loadOlder(sessionManager.getUserId(), anchor, limit);
+        }
+
+        @Override
+        public List<Transaction> loadNewer(Transaction anchor, int limit) {
+            return repository.loadNewer(sessionManager.getUserId(), anchor, limit);
+        }
     }
 
-    public LiveData<Double> getTotalExpense() {
-        return totalExpense;
+    /**
+     * The latest budget threshold crossed by one of this user's writes, or null once shown.
+     */
+    public LiveData<BudgetEngine.Alert> getBudgetAlert() {
+        return budgetAlert;
     }
 
-    public LiveData<Double> getBalance() {
-        return balance;
+    private void onBudgetAlert(BudgetEngine.Alert alert) {
+        if (alert.userId == sessionManager.getUserId()) {
+            budgetAlert.postValue(alert);
+        }
+    }
+
+    public void onBudgetAlertShown() {
+        budgetAlert.setValue(null);
+    }
+
+    /**
+     * Why the latest of this user's writes could not be saved, or null once shown.
+     */
+    public LiveData<Exception> getWriteFailure() {
+        return writeFailure;
+    }
+
+    private void onWriteFailed(long userId, Exception e) {
+        if (userId == sessionManager.getUserId()) {
+            writeFailure.postValue(e);
+        }
+    }
+
+    public void onWriteFailureShown() {
+        writeFailure.setValue(null);
     }
 
     @Override
     protected void onCleared() {
         super.onCleared();
-        executorService.shutdown();
+        repository.getBudgets().removeListener(budgetListener);
+        repository.getChanges().removeListener(changeListener);
+        repository.removeWriteFailureListener(failureListener);
+    }
+
+    /**
+     * Row-level changes to the ledger, for screens that patch their own state.
+     */
+    public TransactionChanges getChanges() {
+        return repository.getChanges();
+    }
+
+    /**
+     * This user's running total for one category, keyed like {@link #getCategoryTotals()}.
+     */
+    public long getCategoryTotal(int categoryId) {
+        return repository.getAggregates().getCategoryTotal(sessionManager.getUserId(), categoryId);
+    }
+
+    public long getUserId() {
+        return sessionManager.getUserId();
+    }
+
+    public LiveData<List<Transaction>> getTransactions() {
+        return transactions;
+    }
+
+    /**
+     * The loaded window of results for the current {@link #search}, newest first.
+     */
+    public LiveData<List<Transaction>> getSearchResults() {
+        return searchResults;
+    }
+
+    /**
+     * Totals per category, keyed by category ID. Posted on full loads only; follow
+     * {@link #getChanges()} to keep per-category state current between them.
+     */
+    public LiveData<Map<Integer, Long>> getCategoryTotals() {
+        return categoryTotals;
+    }
+
+    public LiveData<Long> getTotalIncome() {
+        return totalIncome;
+    }
+
+    public LiveData<Long> getTotalExpense() {
+        return totalExpense;
+    }
+
+    public LiveData<Long> getBalance() {
+        return balance;
     }
-}
\ No newline at end of file
+}
@@ -6,13 +6,17 @@ import android.content.Intent;
 import android.os.Bundle;
 import android.util.Log;
 import android.view.LayoutInflater;
+import android.view.Menu;
 import android.view.View;
 import android.view.ViewGroup;
+import android.widget.CheckBox;
 import android.widget.ImageButton;
 import android.widget.PopupMenu;
 import android.widget.TextView;
 import android.widget.Toast;
 
+import androidx.activity.result.ActivityResultLauncher;
+import androidx.activity.result.contract.ActivityResultContracts;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.fragment.app.Fragment;
@@ -22,24 +26,45 @@ import androidx.recyclerview.widget.GridLayoutManager;
 import com.expensetracker.budgettracker.LoginActivity;
 import com.expensetracker.budgettracker.R;
 import com.expensetracker.budgettracker.adapters.FlashcardsAdapter;
-import com.expensetracker.budgettracker.data.DatabaseHelper;
+import com.expensetracker.budgettracker.data.StartupLoader;
 import com.expensetracker.budgettracker.databinding.FragmentHomeBinding;
 import com.expensetracker.budgettracker.models.Flashcard;
+import com.expensetracker.budgettracker.models.RecurringRule;
 import com.expensetracker.budgettracker.models.Transaction;
 import com.expensetracker.budgettracker.ui.dashboard.TransactionViewModel;
+import com.expensetracker.budgettracker.utils.AppExecutors;
 import com.expensetracker.budgettracker.utils.DatePickerHelper;
+import com.expensetracker.budgettracker.utils.EpochDays;
+import com.expensetracker.budgettracker.utils.Money;
 import com.expensetracker.budgettracker.utils.SessionManager;
 import com.google.android.material.textfield.TextInputEditText;
 
 import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
 
 public class HomeFragment extends Fragment {
+    private static final int MENU_RECURRING = 1;
+    private static final int MENU_LOG_OUT = 2;
+    private static final int MENU_IMPORT = 3;
+    private static final int MENU_EXPORT = 4;
+    // Some providers label CSV files as plain text
+    private static final String[] CSV_TYPES = {"text/csv", "text/comma-separated-values", "text/plain"};
 
     private FragmentHomeBinding binding;
     private HomeViewModel homeViewModel;
     private TransactionViewModel transactionViewModel;
     private FlashcardsAdapter adapter;
+    private AlertDialog csvProgress;
+
+    private final ActivityResultLauncher<String[]> openCsv = registerForActivityResult(
+            new ActivityResultContracts.OpenDocument(), uri -> {
+                if (uri != null) transactionViewModel.importCsv(uri);
+            });
+    private final ActivityResultLauncher<String> createCsv = registerForActivityResult(
+            new ActivityResultContracts.CreateDocument("text/csv"), uri -> {
+                if (uri != null) transactionViewModel.exportCsv(uri);
+            });
 
     @Nullable
     @Override
@@ -84,14 +109,63 @@ public class HomeFragment extends Fragment {
         transactionViewModel.getBalance().observe(getViewLifecycleOwner(), balance -> updateSummaryText());
         transactionViewModel.getTotalIncome().observe(getViewLifecycleOwner(), income -> updateSummaryText());
         transactionViewModel.getTotalExpense().observe(getViewLifecycleOwner(), expense -> updateSummaryText());
+
+        transactionViewModel.getRecurringRules().observe(getViewLifecycleOwner(), rules -> {
+            if (rules == null) return;
+            showRecurringRules(rules);
+            transactionViewModel.onRecurringRulesShown();
+        });
+
+        transactionViewModel.getCsvTransfer().observe(getViewLifecycleOwner(), transfer -> {
+            if (transfer == null) return;
+            if (!transfer.finished) {
+                showCsvProgress(transfer);
+                return;
+            }
+            dismissCsvProgress();
+            Toast.makeText(requireContext(), csvResultMessage(transfer), Toast.LENGTH_LONG).show();
+            transactionViewModel.onCsvTransferShown();
+        });
+    }
+
+    private void showCsvProgress(TransactionViewModel.CsvTransfer transfer) {
+        String message = getString(transfer.importing ? R.string.csv_import_progress : R.string.csv_export_progress,
+                transfer.rows);
+        if (csvProgress == null) {
+            csvProgress = new AlertDialog.Builder(requireContext())
+                    .setTitle(transfer.importing ? R.string.import_csv : R.string.export_csv)
+                    .setMessage(message)
+                    .setCancelable(false)
+                    .show();
+        } else {
+            csvProgress.setMessage(message);
+        }
+    }
+
+    private void dismissCsvProgress() {
+        if (csvProgress != null) {
+            csvProgress.dismiss();
+            csvProgress = null;
+        }
+    }
+
+    private String csvResultMessage(TransactionViewModel.CsvTransfer transfer) {
+        if (transfer.importing) {
+            return transfer.failure != null ? getString(R.string.csv_import_failed)
+                    : getString(R.string.csv_import_done, transfer.rows, transfer.skipped);
+        }
+        return transfer.failure != null ? getString(R.string.csv_export_failed)
+                : getString(R.string.csv_export_done, transfer.rows);
     }
 
     private void updateSummaryText() {
-        double income = transactionViewModel.getTotalIncome().getValue() != null ? transactionViewModel.getTotalIncome().getValue() : 0.0;
-        double expense = transactionViewModel.getTotalExpense().getValue() != null ? transactionViewModel.getTotalExpense().getValue() : 0.0;
-        double balance = transactionViewModel.getBalance().getValue() != null ? transactionViewModel.getBalance().getValue() : 0.0;
+        long income = transactionViewModel.getTotalIncome().getValue() != null ? transactionViewModel.getTotalIncome().getValue() : 0L;
+        long expense = transactionViewModel.getTotalExpense().getValue() != null ? transactionViewModel.getTotalExpense().getValue() : 0L;
+        long balance = transactionViewModel.getBalance().getValue() != null ? transactionViewModel.getBalance().getValue() : 0L;
 
-        binding.summaryText.setText(String.format("Income: ₱%.2f | Expense: ₱%.2f | Balance: ₱%.2f", income, expense, balance));
+        binding.summaryText.setText("Income: " + Money.format(income) +
+                " | Expense: " + Money.format(expense) +
+                " | Balance: " + Money.format(balance));
     }
 
     private void showInputDialog(Flashcard flashcard, int position) {
@@ -100,72 +174,170 @@ public class HomeFragment extends Fragment {
 
         TextInputEditText inputAmount = dialogView.findViewById(R.id.input_amount);
         TextInputEditText inputDate = dialogView.findViewById(R.id.input_date);
+        TextInputEditText inputNotes = dialogView.findViewById(R.id.input_notes);
+        CheckBox repeatMonthly = dialogView.findViewById(R.id.repeat_monthly);
 
         inputDate.setOnClickListener(v ->
                 DatePickerHelper.showDatePicker(requireContext(), inputDate)
         );
 
-        new AlertDialog.Builder(requireContext())
+        boolean income = flashcard.getLabel().equalsIgnoreCase("salary");
+        AlertDialog.Builder builder = new AlertDialog.Builder(requireContext())
                 .setTitle(R.string.add_transaction_title)
                 .setView(dialogView)
                 .setPositiveButton(R.string.add, (dialog, which) -> {
                     String amountStr = Objects.requireNonNull(inputAmount.getText()).toString().trim();
                     String date = Objects.requireNonNull(inputDate.getText()).toString().trim();
+                    String notes = Objects.requireNonNull(inputNotes.getText()).toString().trim();
 
                     if (validateInput(amountStr, date)) {
-                        double amount = Double.parseDouble(amountStr);
-                        String type = flashcard.getLabel().equalsIgnoreCase("salary")
-                                ? "income"
-                                : "expense";
-
-                        Transaction transaction = new Transaction(
-                                flashcard.getLabel(),
-                                amount,
-                                date,
-                                type
-                        );
-                        transactionViewModel.addTransaction(transaction);
-
-                        homeViewModel.updateFlashcardAmount(
-                                flashcard,
-                                amount
-                        );
+                        long amount = Money.parse(amountStr);
+                        String type = income ? "income" : "expense";
+
+                        // The card's total updates from the change stream once the write commits
+                        if (repeatMonthly.isChecked()) {
+                            transactionViewModel.addRecurringRule(RecurringRule.monthly(
+                                    flashcard.getLabel(),
+                                    amount,
+                                    type,
+                                    notes,
+                                    EpochDays.parse(date)
+                            ));
+                        } else {
+                            Transaction transaction = new Transaction(
+                                    flashcard.getLabel(),
+                                    amount,
+                                    EpochDays.parse(date),
+                                    type,
+                                    notes
+                            );
+                            transactionViewModel.addTransaction(transaction);
+                        }
                     }
                 })
-                .setNegativeButton(R.string.cancel, null)
-                .show();
+                .setNegativeButton(R.string.cancel, null);
+        if (!income) {
+            builder.setNeutralButton(R.string.set_budget, (dialog, which) -> showBudgetDialog(flashcard.getLabel()));
+        }
+        builder.show();
+    }
+
+    private void showBudgetDialog(String category) {
+        View dialogView = LayoutInflater.from(requireContext())
+                .inflate(R.layout.dialog_set_budget, null);
+        TextInputEditText inputBudget = dialogView.findViewById(R.id.input_budget);
+        long current = transactionViewModel.getBudgetLimit(category);
+        if (current > 0) {
+            inputBudget.setText(Money.toPlainString(current));
+        }
+
+        AlertDialog.Builder builder = new AlertDialog.Builder(requireContext())
+                .setTitle(getString(R.string.budget_title, category))
+                .setView(dialogView)
+                .setPositiveButton(R.string.save, (dialog, which) -> {
+                    String limitStr = Objects.requireNonNull(inputBudget.getText()).toString().trim();
+                    long limit;
+                    try {
+                        limit = Money.parse(limitStr);
+                    } catch (NumberFormatException e) {
+                        limit = 0;
+                    }
+                    if (limit <= 0) {
+                        Toast.makeText(requireContext(), R.string.invalid_amount_error, Toast.LENGTH_SHORT).show();
+                        return;
+                    }
+                    transactionViewModel.setBudget(category, limit);
+                })
+                .setNegativeButton(R.string.cancel, null);
+        if (current > 0) {
+            builder.setNeutralButton(R.string.remove_budget, (dialog, which) ->
+                    transactionViewModel.removeBudget(category));
+        }
+        builder.show();
     }
 
     private void setupUserMenu() {
         SessionManager session = new SessionManager(requireContext());
-        DatabaseHelper dbHelper = new DatabaseHelper(requireContext());
-        String username = dbHelper.getUsername(session.getUserId());
+        StartupLoader startup = StartupLoader.getInstance(requireContext());
+        AppExecutors executors = AppExecutors.getInstance();
 
         TextView tvUsername = binding.toolbar.findViewById(R.id.tv_username);
-        tvUsername.setText(username != null ? username : "User");
+        tvUsername.setText("User");
 
         ImageButton btnMenu = binding.toolbar.findViewById(R.id.btn_menu);
         btnMenu.setOnClickListener(v -> showUserMenu());
 
-        if (username != null) {
-            tvUsername.setText(username);
-        } else {
-            Log.e("HomeFragment", "Username TextView not found or username is null");
-        }
+        executors.diskRead().execute(() -> {
+            // Already resolved when MainActivity validated the session
+            String username = startup.getUsername(session.getUserId());
+            executors.mainThread().execute(() -> {
+                if (binding == null) return;
+                if (username != null) {
+                    tvUsername.setText(username);
+                } else {
+                    Log.e("HomeFragment", "Username TextView not found or username is null");
+                }
+            });
+        });
     }
 
     private void showUserMenu() {
         PopupMenu popup = new PopupMenu(requireContext(), binding.toolbar.findViewById(R.id.btn_menu));
-        popup.getMenu().add("Log Out");
+        popup.getMenu().add(Menu.NONE, MENU_RECURRING, Menu.NONE, R.string.recurring_rules_title);
+        popup.getMenu().add(Menu.NONE, MENU_IMPORT, Menu.NONE, R.string.import_csv);
+        popup.getMenu().add(Menu.NONE, MENU_EXPORT, Menu.NONE, R.string.export_csv);
+        popup.getMenu().add(Menu.NONE, MENU_LOG_OUT, Menu.NONE, "Log Out");
         popup.setOnMenuItemClickListener(item -> {
-            new SessionManager(requireContext()).logoutUser();
-            startActivity(new Intent(requireActivity(), LoginActivity.class));
-            requireActivity().finish();
-            return true;
+            switch (item.getItemId()) {
+                case MENU_RECURRING:
+                    // Shown by the observer once loaded
+                    transactionViewModel.loadRecurringRules();
+                    return true;
+                case MENU_IMPORT:
+                    openCsv.launch(CSV_TYPES);
+                    return true;
+                case MENU_EXPORT:
+                    createCsv.launch(getString(R.string.csv_file_name));
+                    return true;
+                case MENU_LOG_OUT:
+                    new SessionManager(requireContext()).logoutUser();
+                    startActivity(new Intent(requireActivity(), LoginActivity.class));
+                    requireActivity().finish();
+                    return true;
+                default:
+                    return false;
+            }
         });
         popup.show();
     }
 
+    private void showRecurringRules(List<RecurringRule> rules) {
+        AlertDialog.Builder builder = new AlertDialog.Builder(requireContext())
+                .setTitle(R.string.recurring_rules_title)
+                .setNegativeButton(R.string.cancel, null);
+        if (rules.isEmpty()) {
+            builder.setMessage(R.string.recurring_rules_empty).show();
+            return;
+        }
+        String[] labels = new String[rules.size()];
+        for (int i = 0; i < labels.length; i++) {
+            RecurringRule rule = rules.get(i);
+            labels[i] = getString(R.string.recurring_rule_label, rule.getCategory(),
+                    Money.format(rule.getAmountCents()), rule.getEvery(), rule.getUnit());
+        }
+        builder.setItems(labels, (dialog, which) -> confirmStopRecurring(rules.get(which))).show();
+    }
+
+    private void confirmStopRecurring(RecurringRule rule) {
+        new AlertDialog.Builder(requireContext())
+                .setTitle(getString(R.string.recurring_stop_title, rule.getCategory()))
+                .setMessage(R.string.recurring_stop_message)
+                .setPositiveButton(R.string.recurring_stop, (dialog, which) ->
+                        transactionViewModel.removeRecurringRule(rule))
+                .setNegativeButton(R.string.cancel, null)
+                .show();
+    }
+
     private boolean validateInput(String amountStr, String date) {
         if (amountStr.isEmpty() || date.isEmpty()) {
             Toast.makeText(requireContext(), "All fields are required!", Toast.LENGTH_SHORT).show();
@@ -173,17 +345,25 @@ public class HomeFragment extends Fragment {
         }
 
         try {
-            Double.parseDouble(amountStr);
-            return true;
+            Money.parse(amountStr);
         } catch (NumberFormatException e) {
             Toast.makeText(requireContext(), "Invalid amount format!", Toast.LENGTH_SHORT).show();
             return false;
         }
+
+        try {
+            EpochDays.parse(date);
+            return true;
+        } catch (IllegalArgumentException e) {
+            Toast.makeText(requireContext(), "Invalid date format!", Toast.LENGTH_SHORT).show();
+            return false;
+        }
     }
 
     @Override
     public void onDestroyView() {
         super.onDestroyView();
+        dismissCsvProgress();
         binding = null;
     }
 }
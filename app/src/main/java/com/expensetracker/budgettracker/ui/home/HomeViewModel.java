@@ -6,78 +6,120 @@ import androidx.lifecycle.MutableLiveData;
 import androidx.lifecycle.Observer;
 import androidx.lifecycle.ViewModel;
 import com.expensetracker.budgettracker.R;
+import com.expensetracker.budgettracker.data.CategoryDictionary;
+import com.expensetracker.budgettracker.data.TransactionChanges;
 import com.expensetracker.budgettracker.models.Flashcard;
 import com.expensetracker.budgettracker.models.Transaction;
 import com.expensetracker.budgettracker.ui.dashboard.TransactionViewModel;
+import com.expensetracker.budgettracker.utils.AppExecutors;
+import com.expensetracker.budgettracker.utils.Money;
 
 import java.text.NumberFormat;
 import java.util.ArrayList;
 import java.util.Currency;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Locale;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.Map;
 
 public class HomeViewModel extends ViewModel {
     private MutableLiveData<List<Flashcard>> flashcards = new MutableLiveData<>(new ArrayList<>());
     private final TransactionViewModel transactionViewModel;
-    private final Observer<List<Transaction>> transactionsObserver = this::updateFlashcardsFromTransactions;
+    private final Observer<Map<Integer, Long>> categoryTotalsObserver = this::updateFlashcardsFromTotals;
+    private final TransactionChanges.Listener changeListener = this::onTransactionsChanged;
 
     public HomeViewModel(TransactionViewModel transactionViewModel) {
         this.transactionViewModel = transactionViewModel;
         initializeDefaultFlashcards();
-        transactionViewModel.getTransactions().observeForever(transactionsObserver);
-        transactionViewModel.loadTransactions();
+        transactionViewModel.getCategoryTotals().observeForever(categoryTotalsObserver);
+        transactionViewModel.getChanges().addListener(changeListener);
     }
 
-    public static String formatCurrency(double amount) {
-        try {
-            return String.format(Locale.getDefault(), "₱%.2f", amount);
-        } catch (Exception e) {
-            return "₱0.00";
+    public static String formatCurrency(long amountCents) {
+        return Money.format(amountCents);
+    }
+
+    private void updateFlashcardsFromTotals(Map<Integer, Long> totals) {
+        List<Flashcard> currentFlashcards = flashcards.getValue();
+        if (currentFlashcards == null) return;
+
+        flashcards.postValue(withTotals(currentFlashcards, totals)); // Post the new list
+    }
+
+    /**
+     * New Flashcard instances for {@code cards}, with each amount taken from {@code totals}
+     * (keyed by category ID) or zero.
+     */
+    static List<Flashcard> withTotals(List<Flashcard> cards, Map<Integer, Long> totals) {
+        List<Flashcard> updatedFlashcards = new ArrayList<>(cards.size());
+        for (Flashcard original : cards) {
+            Long total = totals.get(original.getCategoryId());
+            updatedFlashcards.add(new Flashcard(
+                    original.getIconResId(),
+                    original.getCategoryId(),
+                    original.getLabel(),
+                    formatCurrency(total != null ? total : 0L)
+            ));
         }
+        return updatedFlashcards;
     }
 
-    private void updateFlashcardsFromTransactions(List<Transaction> transactions) {
-        ExecutorService executor = Executors.newSingleThreadExecutor();
-        executor.submit(() -> {
-            List<Flashcard> currentFlashcards = flashcards.getValue();
-            if (currentFlashcards == null) return;
-
-            // Create a new list of Flashcard instances
-            List<Flashcard> updatedFlashcards = new ArrayList<>();
-            for (Flashcard original : currentFlashcards) {
-                double total = transactions.stream()
-                        .filter(t -> t.getCategory().equalsIgnoreCase(original.getLabel())) // Case-insensitive match
-                        .mapToDouble(Transaction::getAmount)
-                        .sum();
-                // Create a NEW Flashcard instance
-                updatedFlashcards.add(new Flashcard(
-                        original.getIconResId(),
-                        original.getLabel(),
-                        formatCurrency(total)
-                ));
+    /**
+     * Re-read the totals of just the categories a write touched and patch those cards,
+     * instead of re-deriving every card.
+     */
+    private void onTransactionsChanged(TransactionChanges.Change change) {
+        if (change.kind == TransactionChanges.Kind.INVALIDATED
+                || change.userId != transactionViewModel.getUserId()) {
+            return;
+        }
+        Map<Integer, Long> touched = new HashMap<>();
+        for (Transaction row : change.rows) {
+            int categoryId = row.getCategoryId();
+            if (!touched.containsKey(categoryId)) {
+                touched.put(categoryId, transactionViewModel.getCategoryTotal(categoryId));
             }
+        }
+        AppExecutors.getInstance().mainThread().execute(() -> patchFlashcards(touched));
+    }
+
+    private void patchFlashcards(Map<Integer, Long> totals) {
+        List<Flashcard> current = flashcards.getValue();
+        if (current == null) return;
 
-            flashcards.postValue(updatedFlashcards); // Post the new list
-        });
+        List<Flashcard> patched = null;
+        for (int i = 0; i < current.size(); i++) {
+            Flashcard card = current.get(i);
+            Long total = totals.get(card.getCategoryId());
+            if (total != null) {
+                if (patched == null) patched = new ArrayList<>(current);
+                patched.set(i, new Flashcard(card.getIconResId(), card.getCategoryId(), card.getLabel(),
+                        formatCurrency(total)));
+            }
+        }
+        if (patched != null) {
+            flashcards.setValue(patched);
+        }
     }
 
     private void initializeDefaultFlashcards() {
-        ExecutorService executor = Executors.newSingleThreadExecutor();
-        executor.execute(() -> {
-            List<Flashcard> defaultFlashcards = new ArrayList<>();
-            defaultFlashcards.add(new Flashcard(R.drawable.ic_food, "Food & Drink", formatCurrency(0.0)));
-            defaultFlashcards.add(new Flashcard(R.drawable.ic_transport, "Transportation", formatCurrency(0.0)));
-            defaultFlashcards.add(new Flashcard(R.drawable.ic_housing, "Housing & Utilities", formatCurrency(0.0)));
-            defaultFlashcards.add(new Flashcard(R.drawable.ic_personal_care, "Personal Care", formatCurrency(0.0)));
-            defaultFlashcards.add(new Flashcard(R.drawable.ic_shopping, "Shopping", formatCurrency(0.0)));
-            defaultFlashcards.add(new Flashcard(R.drawable.ic_salary, "Salary", formatCurrency(0.0)));
-            flashcards.postValue(defaultFlashcards);
-        });
+        // Set synchronously so the first category totals always find the cards in place
+        List<Flashcard> defaultFlashcards = new ArrayList<>();
+        defaultFlashcards.add(new Flashcard(R.drawable.ic_food, CategoryDictionary.FOOD_AND_DRINK,
+                "Food & Drink", formatCurrency(0L)));
+        defaultFlashcards.add(new Flashcard(R.drawable.ic_transport, CategoryDictionary.TRANSPORTATION,
+                "Transportation", formatCurrency(0L)));
+        defaultFlashcards.add(new Flashcard(R.drawable.ic_housing, CategoryDictionary.HOUSING,
+                "Housing & Utilities", formatCurrency(0L)));
+        defaultFlashcards.add(new Flashcard(R.drawable.ic_personal_care, CategoryDictionary.PERSONAL_CARE,
+                "Personal Care", formatCurrency(0L)));
+        defaultFlashcards.add(new Flashcard(R.drawable.ic_shopping, CategoryDictionary.SHOPPING,
+                "Shopping", formatCurrency(0L)));
+        defaultFlashcards.add(new Flashcard(R.drawable.ic_salary, CategoryDictionary.SALARY,
+                "Salary", formatCurrency(0L)));
+        flashcards.setValue(defaultFlashcards);
     }
 
-    public void updateFlashcardAmount(Flashcard flashcard, double newAmount) {
+    public void updateFlashcardAmount(Flashcard flashcard, long newAmountCents) {
         List<Flashcard> current = flashcards.getValue();
         if (current == null) return;
 
@@ -87,8 +129,9 @@ public class HomeViewModel extends ViewModel {
             if (f.getLabel().equals(flashcard.getLabel())) {
                 newList.add(new Flashcard(
                         f.getIconResId(),
+                        f.getCategoryId(),
                         f.getLabel(),
-                        formatCurrency(newAmount) // New instance
+                        formatCurrency(newAmountCents) // New instance
                 ));
             } else {
                 newList.add(f);
@@ -104,6 +147,7 @@ public class HomeViewModel extends ViewModel {
     @Override
     protected void onCleared() {
         super.onCleared();
-        transactionViewModel.getTransactions().removeObserver(transactionsObserver);
+        transactionViewModel.getCategoryTotals().removeObserver(categoryTotalsObserver);
+        transactionViewModel.getChanges().removeListener(changeListener);
     }
 }
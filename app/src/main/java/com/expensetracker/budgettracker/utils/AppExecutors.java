@@ -0,0 +1,109 @@
+package com.expensetracker.budgettracker.utils;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Process-wide executors shared by every screen.
+ * <p>
+ * Reads go to a small bounded pool, and every database write goes through a single
+ * writer thread so writes are applied in submission order and never contend with
+ * each other. Threads are created lazily and time out when idle.
+ */
+public class AppExecutors {
+    private static final int READ_THREADS = Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()));
+    private static final long KEEP_ALIVE_SECONDS = 30;
+
+    private static volatile AppExecutors instance;
+
+    private final ExecutorService diskRead;
+    private final ExecutorService diskWrite;
+    private final MainThreadExecutor mainThread;
+
+    private AppExecutors() {
+        diskRead = newPool("db-read", READ_THREADS);
+        diskWrite = newPool("db-write", 1);
+        mainThread = new MainThreadExecutor();
+    }
+
+    public static AppExecutors getInstance() {
+        if (instance == null) {
+            synchronized (AppExecutors.class) {
+                if (instance == null) {
+                    instance = new AppExecutors();
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Bounded pool for queries and other background work that does not write.
+     */
+    public ExecutorService diskRead() {
+        return diskRead;
+    }
+
+    /**
+     * Single writer; tasks run one at a time in submission order.
+     */
+    public ExecutorService diskWrite() {
+        return diskWrite;
+    }
+
+    public Executor mainThread() {
+        return mainThread;
+    }
+
+    /**
+     * Run {@code command} on the main thread after {@code delayMillis}.
+     */
+    public void mainThreadDelayed(Runnable command, long delayMillis) {
+        mainThread.handler.postDelayed(command, delayMillis);
+    }
+
+    private static ExecutorService newPool(String name, int threads) {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                threads, threads,
+                KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                new NamedThreadFactory(name));
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    private static class NamedThreadFactory implements ThreadFactory {
+        private final String name;
+        private final AtomicInteger count = new AtomicInteger();
+
+        NamedThreadFactory(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public Thread newThread(@NonNull Runnable runnable) {
+            Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+    private static class MainThreadExecutor implements Executor {
+        private final Handler handler = new Handler(Looper.getMainLooper());
+
+        @Override
+        public void execute(@NonNull Runnable command) {
+            handler.post(command);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.expensetracker.budgettracker.utils;
+
+import android.util.Log;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Runs a reload with at most one run in flight and one queued behind it, however often it
+ * is requested. Every request bumps a generation; a run that finishes after a newer request
+ * drops its result and the queued run delivers instead, so the newest data always wins and
+ * a stale result is never shown.
+ * <p>
+ * {@link #requestAfterWrite()} is for write notifications: a burst of them within
+ * the debounce window adds up to one request.
+ */
+public final class CoalescingLoader<T> {
+    private static final String TAG = "CoalescingLoader";
+
+    public interface Scheduler {
+        void schedule(Runnable task, long delayMillis);
+    }
+
+    private final Executor executor;
+    private final Scheduler scheduler;
+    private final long debounceMillis;
+    private final Supplier<T> load;
+    private final Consumer<T> deliver;
+    private final AtomicBoolean debounceScheduled = new AtomicBoolean(false);
+    private final Runnable debounced = this::onDebounceElapsed;
+    private int generation;
+    private boolean running;
+    private boolean pending;
+
+    /**
+     * @param executor runs {@code load} and {@code deliver}
+     * @param scheduler runs the debounced request after {@code debounceMillis}
+     */
+    public CoalescingLoader(Executor executor, Scheduler scheduler, long debounceMillis,
+                            Supplier<T> load, Consumer<T> deliver) {
+        this.executor = executor;
+        this.scheduler = scheduler;
+        this.debounceMillis = debounceMillis;
+        this.load = load;
+        this.deliver = deliver;
+    }
+
+    /**
+     * Reload now, or right after the run in flight if there is one.
+     */
+    public void request() {
+        synchronized (this) {
+            generation++;
+            if (running) {
+                pending = true;
+                return;
+            }
+            running = true;
+        }
+        executor.execute(this::drain);
+    }
+
+    /**
+     * Reload once the debounce window that this call opens, or already falls in, has passed.
+     */
+    public void requestAfterWrite() {
+        if (debounceScheduled.compareAndSet(false, true)) {
+            scheduler.schedule(debounced, debounceMillis);
+        }
+    }
+
+    private void onDebounceElapsed() {
+        // Cleared first, so a write that lands during the reload opens a new window
+        debounceScheduled.set(false);
+        request();
+    }
+
+    private void drain() {
+        while (true) {
+            int loading;
+            synchronized (this) {
+                loading = generation;
+                pending = false;
+            }
+
+            T result = null;
+            boolean loaded = false;
+            try {
+                result = load.get();
+                loaded = true;
+            } catch (Exception e) {
+                Log.e(TAG, "Reload failed", e);
+            }
+
+            boolean current;
+            synchronized (this) {
+                current = loaded && loading == generation;
+            }
+            // Delivered before the run ends, so a newer run can never deliver ahead of it
+            if (current) {
+                try {
+                    deliver.accept(result);
+                } catch (Exception e) {
+                    Log.e(TAG, "Delivering reload failed", e);
+                }
+            }
+
+            synchronized (this) {
+                if (!pending) {
+                    running = false;
+                    return;
+                }
+            }
+        }
+    }
+}
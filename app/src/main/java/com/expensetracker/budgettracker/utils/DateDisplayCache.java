@@ -0,0 +1,39 @@
+package com.expensetracker.budgettracker.utils;
+
+/**
+ * Display strings such as {@code "Jun 01, 2024"} keyed by epoch day. Each day is formatted
+ * once and later lookups are an array read, so binding a list row neither allocates nor
+ * leaves the calling thread. The cache is direct-mapped: a colliding day replaces the slot,
+ * so memory is fixed at {@link #SLOTS} entries.
+ * <p>
+ * Not thread-safe; use one instance per thread (normally the main thread).
+ */
+public final class DateDisplayCache {
+    private static final int SLOTS = 512;
+    private static final String[] MONTHS = {
+            "Jan", "Feb", "Mar", "Apr", "May", "Jun", "Jul", "Aug", "Sep", "Oct", "Nov", "Dec"
+    };
+
+    private final int[] days = new int[SLOTS];
+    private final String[] labels = new String[SLOTS];
+
+    public String get(int epochDay) {
+        int slot = epochDay & (SLOTS - 1);
+        String label = labels[slot];
+        if (label == null || days[slot] != epochDay) {
+            label = format(epochDay);
+            days[slot] = epochDay;
+            labels[slot] = label;
+        }
+        return label;
+    }
+
+    static String format(int epochDay) {
+        int day = EpochDays.dayOfMonth(epochDay);
+        StringBuilder sb = new StringBuilder(12)
+                .append(MONTHS[EpochDays.month(epochDay) - 1])
+                .append(' ');
+        if (day < 10) sb.append('0');
+        return sb.append(day).append(", ").append(EpochDays.year(epochDay)).toString();
+    }
+}
@@ -43,7 +43,7 @@ public class DialogHelper {
 
     private static boolean validateAmount(String amountStr) {
         try {
-            double amount = Double.parseDouble(amountStr);
+            long amount = Money.parse(amountStr);
             return amount >= 0;
         } catch (NumberFormatException e) {
             return false;
@@ -62,7 +62,7 @@ public class DialogHelper {
                     adapter.updateFlashcard(position, newAmount);
                     homeViewModel.updateFlashcardAmount(
                             flashcard,
-                            Double.parseDouble(numericValue) // Fixed here
+                            Money.parse(numericValue) // Fixed here
                     );
                 }
         );
@@ -0,0 +1,138 @@
+package com.expensetracker.budgettracker.utils;
+
+import java.util.TimeZone;
+
+/**
+ * Calendar dates as a primitive {@code int} count of days since 1970-01-01, which is how
+ * the ledger stores them. Conversions use the proleptic Gregorian calendar and never
+ * allocate, so they are safe on hot paths. ({@code java.time} is not available below
+ * API 26.)
+ */
+public final class EpochDays {
+    private static final long MILLIS_PER_DAY = 24L * 60 * 60 * 1000;
+    private static final int DAYS_PER_ERA = 146_097;
+    private static final int DAYS_0000_TO_1970 = 719_468;
+
+    private EpochDays() {
+    }
+
+    /**
+     * @param month 1-12
+     * @throws IllegalArgumentException if the date does not exist
+     */
+    public static int of(int year, int month, int dayOfMonth) {
+        if (month < 1 || month > 12 || dayOfMonth < 1 || dayOfMonth > lengthOfMonth(year, month)) {
+            throw new IllegalArgumentException("Invalid date: " + year + "-" + month + "-" + dayOfMonth);
+        }
+        int y = month <= 2 ? year - 1 : year;
+        int era = Math.floorDiv(y, 400);
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + dayOfMonth - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * DAYS_PER_ERA + dayOfEra - DAYS_0000_TO_1970;
+    }
+
+    /**
+     * Parse a strict {@code yyyy-MM-dd} date.
+     *
+     * @throws IllegalArgumentException if the text is not a valid date in that form
+     */
+    public static int parse(CharSequence text) {
+        if (text == null || text.length() != 10 || text.charAt(4) != '-' || text.charAt(7) != '-') {
+            throw new IllegalArgumentException("Expected yyyy-MM-dd: " + text);
+        }
+        return of(digits(text, 0, 4), digits(text, 5, 7), digits(text, 8, 10));
+    }
+
+    private static int digits(CharSequence text, int start, int end) {
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') throw new IllegalArgumentException("Expected yyyy-MM-dd: " + text);
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    /**
+     * Format as {@code yyyy-MM-dd}.
+     */
+    public static String format(int epochDay) {
+        int civil = toCivil(epochDay);
+        int year = civil / 10_000;
+        int month = civil / 100 % 100;
+        int day = civil % 100;
+        StringBuilder sb = new StringBuilder(10);
+        if (year < 1000) sb.append(year < 10 ? "000" : year < 100 ? "00" : "0");
+        sb.append(year).append('-');
+        if (month < 10) sb.append('0');
+        sb.append(month).append('-');
+        if (day < 10) sb.append('0');
+        return sb.append(day).toString();
+    }
+
+    public static int year(int epochDay) {
+        return toCivil(epochDay) / 10_000;
+    }
+
+    /**
+     * @return 1-12
+     */
+    public static int month(int epochDay) {
+        return toCivil(epochDay) / 100 % 100;
+    }
+
+    public static int dayOfMonth(int epochDay) {
+        return toCivil(epochDay) % 100;
+    }
+
+    /**
+     * The month as a sortable {@code yyyyMM} integer, e.g. 202406.
+     */
+    public static int monthKey(int epochDay) {
+        return toCivil(epochDay) / 100;
+    }
+
+    public static int firstOfMonth(int epochDay) {
+        return epochDay - dayOfMonth(epochDay) + 1;
+    }
+
+    /**
+     * Today in the device's time zone.
+     */
+    public static int today() {
+        long now = System.currentTimeMillis();
+        return (int) Math.floorDiv(now + TimeZone.getDefault().getOffset(now), MILLIS_PER_DAY);
+    }
+
+    public static int lengthOfMonth(int year, int month) {
+        switch (month) {
+            case 2:
+                boolean leap = (year % 4 == 0 && year % 100 != 0) || year % 400 == 0;
+                return leap ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    /**
+     * The date packed as {@code yyyyMMdd} (years 0-9999), so one conversion serves every accessor.
+     */
+    private static int toCivil(int epochDay) {
+        int z = epochDay + DAYS_0000_TO_1970;
+        int era = Math.floorDiv(z, DAYS_PER_ERA);
+        int dayOfEra = z - era * DAYS_PER_ERA;
+        int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36_524 - dayOfEra / 146_096) / 365;
+        int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        int mp = (5 * dayOfYear + 2) / 153;
+        int day = dayOfYear - (153 * mp + 2) / 5 + 1;
+        int month = mp < 10 ? mp + 3 : mp - 9;
+        int year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+        return year * 10_000 + month * 100 + day;
+    }
+}
@@ -0,0 +1,164 @@
+package com.expensetracker.budgettracker.utils;
+
+import android.os.Trace;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A latency histogram in the style of HdrHistogram: nanosecond values fall into log-linear
+ * buckets (32 per power of two, so any reported value is within about 3% of the recorded
+ * one) held in a fixed atomic array. Recording never locks or allocates, so it is safe on
+ * the main thread and the writer thread alike. Values above about 18 minutes are clamped.
+ * <p>
+ * {@link #start()} and {@link #stop(long)} also open and close a systrace section named
+ * after the histogram, and do nothing at all while {@link Metrics} is disabled.
+ */
+public final class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 6;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int HALF_SUB_BUCKETS = SUB_BUCKETS / 2;
+    private static final int MAX_EXPONENT = 40;
+    private static final long MAX_VALUE = (1L << (MAX_EXPONENT + 1)) - 1;
+    static final int BUCKET_COUNT = SUB_BUCKETS + (MAX_EXPONENT - SUB_BUCKET_BITS + 1) * HALF_SUB_BUCKETS;
+
+    private final String name;
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    LatencyHistogram(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Begin timing a section.
+     *
+     * @return a token for {@link #stop(long)}, or 0 when metrics are disabled
+     */
+    public long start() {
+        if (!Metrics.isEnabled()) return 0;
+        Trace.beginSection(name);
+        return System.nanoTime();
+    }
+
+    /**
+     * Record the time since {@link #start()} returned {@code start}, and close its trace section.
+     */
+    public void stop(long start) {
+        if (start == 0) return;
+        record(System.nanoTime() - start);
+        Trace.endSection();
+    }
+
+    /**
+     * Like {@link #start()} but without a trace section, for spans that end in a callback
+     * rather than in the same stack frame.
+     *
+     * @return a token for {@link #stopAsync(long)}, or 0 when metrics are disabled
+     */
+    public long startAsync() {
+        return Metrics.isEnabled() ? System.nanoTime() : 0;
+    }
+
+    public void stopAsync(long start) {
+        if (start != 0) {
+            record(System.nanoTime() - start);
+        }
+    }
+
+    public void record(long nanos) {
+        long value = Math.min(Math.max(nanos, 0), MAX_VALUE);
+        counts.incrementAndGet(indexOf(value));
+        sum.add(value);
+        long current;
+        while (value > (current = max.get()) && !max.compareAndSet(current, value)) {
+            // Lost a race with another recorder; retry against the new max
+        }
+    }
+
+    /**
+     * A consistent-enough copy for reporting. Concurrent recording may land partly in it.
+     */
+    public Snapshot snapshot() {
+        long[] copy = new long[BUCKET_COUNT];
+        long count = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            copy[i] = counts.get(i);
+            count += copy[i];
+        }
+        return new Snapshot(name, copy, count, sum.sum(), max.get());
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts.set(i, 0);
+        }
+        sum.reset();
+        max.set(0);
+    }
+
+    static int indexOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        // The top SUB_BUCKET_BITS bits of the value, in [HALF_SUB_BUCKETS, SUB_BUCKETS)
+        int mantissa = (int) (value >>> (exponent - SUB_BUCKET_BITS + 1));
+        return SUB_BUCKETS + (exponent - SUB_BUCKET_BITS) * HALF_SUB_BUCKETS + mantissa - HALF_SUB_BUCKETS;
+    }
+
+    /**
+     * The largest value that lands in bucket {@code index}.
+     */
+    static long highestValueIn(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int offset = index - SUB_BUCKETS;
+        int shift = offset / HALF_SUB_BUCKETS + 1;
+        long mantissa = HALF_SUB_BUCKETS + offset % HALF_SUB_BUCKETS;
+        return ((mantissa + 1) << shift) - 1;
+    }
+
+    public static final class Snapshot {
+        public final String name;
+        public final long count;
+        public final long sumNanos;
+        public final long maxNanos;
+        private final long[] counts;
+
+        Snapshot(String name, long[] counts, long count, long sumNanos, long maxNanos) {
+            this.name = name;
+            this.counts = counts;
+            this.count = count;
+            this.sumNanos = sumNanos;
+            this.maxNanos = maxNanos;
+        }
+
+        public long meanNanos() {
+            return count == 0 ? 0 : sumNanos / count;
+        }
+
+        /**
+         * The value at {@code percentile} (0 to 100), never above the recorded maximum.
+         */
+        public long percentileNanos(double percentile) {
+            if (count == 0) return 0;
+            long rank = Math.max(1, (long) Math.ceil(count * percentile / 100.0));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.min(highestValueIn(i), maxNanos);
+                }
+            }
+            return maxNanos;
+        }
+    }
+}
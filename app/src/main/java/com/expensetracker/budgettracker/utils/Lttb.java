@@ -0,0 +1,85 @@
+package com.expensetracker.budgettracker.utils;
+
+/**
+ * Largest-Triangle-Three-Buckets downsampling: reduces a series to a fixed number of points
+ * while keeping its visual shape (peaks, dips, trends), so a chart never draws more points
+ * than it has pixels for. Works on primitive arrays and allocates nothing.
+ */
+public final class Lttb {
+
+    private Lttb() {
+    }
+
+    /**
+     * Downsample the first {@code size} points of ({@code x}, {@code y}), with {@code x}
+     * ascending, into {@code outX}/{@code outY}. The first and last points are always kept.
+     * If the series already fits, or {@code threshold} is below 3, the points are copied as is
+     * (up to the output capacity).
+     *
+     * @return the number of points written
+     */
+    public static int downsample(float[] x, float[] y, int size, int threshold, float[] outX, float[] outY) {
+        if (threshold >= size || threshold < 3) {
+            int count = Math.min(size, outX.length);
+            System.arraycopy(x, 0, outX, 0, count);
+            System.arraycopy(y, 0, outY, 0, count);
+            return count;
+        }
+
+        // Points between the fixed first and last ones are split into threshold - 2 buckets
+        int buckets = threshold - 2;
+        int selected = 0;
+        outX[0] = x[0];
+        outY[0] = y[0];
+        int written = 1;
+
+        for (int bucket = 0; bucket < buckets; bucket++) {
+            int start = bucketStart(bucket, size, buckets);
+            int end = bucketStart(bucket + 1, size, buckets);
+
+            // Average of the next bucket (or the last point) is the triangle's third corner
+            int nextStart = end;
+            int nextEnd;
+            if (bucket < buckets - 1) {
+                nextEnd = bucketStart(bucket + 2, size, buckets);
+            } else {
+                nextStart = size - 1;
+                nextEnd = size;
+            }
+            double avgX = 0;
+            double avgY = 0;
+            for (int i = nextStart; i < nextEnd; i++) {
+                avgX += x[i];
+                avgY += y[i];
+            }
+            int nextCount = nextEnd - nextStart;
+            avgX /= nextCount;
+            avgY /= nextCount;
+
+            double ax = x[selected];
+            double ay = y[selected];
+            double maxArea = -1;
+            int best = start;
+            for (int i = start; i < end; i++) {
+                double area = Math.abs((ax - avgX) * (y[i] - ay) - (ax - x[i]) * (avgY - ay));
+                if (area > maxArea) {
+                    maxArea = area;
+                    best = i;
+                }
+            }
+            outX[written] = x[best];
+            outY[written] = y[best];
+            written++;
+            selected = best;
+        }
+
+        outX[written] = x[size - 1];
+        outY[written] = y[size - 1];
+        return written + 1;
+    }
+
+    // Integer math, so the last bucket ends exactly at size - 1
+    private static int bucketStart(int bucket, int size, int buckets) {
+        return 1 + (int) ((long) bucket * (size - 2) / buckets);
+    }
+}
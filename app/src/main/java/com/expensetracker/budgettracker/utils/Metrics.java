@@ -0,0 +1,143 @@
+package com.expensetracker.budgettracker.utils;
+
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Process-wide counters and {@link LatencyHistogram}s for the app's hot paths: database
+ * queries and write batches, aggregation passes, list diffs and adapter binds. Off by
+ * default, in which case every hook is a single volatile read. Turn it on with
+ * {@code adb shell setprop log.tag.Metrics DEBUG} before launching the app; snapshots are
+ * then logged and written to {@code files/metrics.json} whenever the app goes to the
+ * background.
+ * <p>
+ * Instruments are looked up once, into static fields, and recorded into without locks.
+ */
+public final class Metrics {
+    public static final String TAG = "Metrics";
+    public static final String FILE_NAME = "metrics.json";
+
+    private static volatile boolean enabled;
+    private static final Map<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+    private static final Map<String, Counter> counters = new ConcurrentHashMap<>();
+
+    private Metrics() {
+    }
+
+    public static final class Counter {
+        private final String name;
+        private final LongAdder value = new LongAdder();
+
+        Counter(String name) {
+            this.name = name;
+        }
+
+        public void increment() {
+            if (enabled) value.increment();
+        }
+
+        public void add(long delta) {
+            if (enabled) value.add(delta);
+        }
+
+        public long get() {
+            return value.sum();
+        }
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static void setEnabled(boolean enabled) {
+        Metrics.enabled = enabled;
+    }
+
+    /**
+     * The histogram called {@code name}, created on first use.
+     */
+    public static LatencyHistogram histogram(String name) {
+        return histograms.computeIfAbsent(name, LatencyHistogram::new);
+    }
+
+    /**
+     * The counter called {@code name}, created on first use.
+     */
+    public static Counter counter(String name) {
+        return counters.computeIfAbsent(name, Counter::new);
+    }
+
+    public static void reset() {
+        for (LatencyHistogram histogram : histograms.values()) {
+            histogram.reset();
+        }
+        for (Counter counter : counters.values()) {
+            counter.value.reset();
+        }
+    }
+
+    /**
+     * Every instrument that has recorded something, as JSON: counters by name, and per
+     * histogram its count and mean, p50, p90, p99 and max in microseconds.
+     */
+    public static String snapshotJson() {
+        List<String> counterNames = new ArrayList<>(counters.keySet());
+        List<String> histogramNames = new ArrayList<>(histograms.keySet());
+        Collections.sort(counterNames);
+        Collections.sort(histogramNames);
+
+        StringBuilder json = new StringBuilder("{\n  \"timestampMillis\": ")
+                .append(System.currentTimeMillis()).append(",\n  \"counters\": {");
+        String separator = "\n";
+        for (String name : counterNames) {
+            long value = counters.get(name).get();
+            if (value == 0) continue;
+            json.append(separator).append("    \"").append(name).append("\": ").append(value);
+            separator = ",\n";
+        }
+        json.append("\n  },\n  \"histograms\": {");
+        separator = "\n";
+        for (String name : histogramNames) {
+            LatencyHistogram.Snapshot snapshot = histograms.get(name).snapshot();
+            if (snapshot.count == 0) continue;
+            json.append(separator).append("    \"").append(name).append("\": {")
+                    .append("\"count\": ").append(snapshot.count)
+                    .append(", \"meanUs\": ").append(snapshot.meanNanos() / 1_000)
+                    .append(", \"p50Us\": ").append(snapshot.percentileNanos(50) / 1_000)
+                    .append(", \"p90Us\": ").append(snapshot.percentileNanos(90) / 1_000)
+                    .append(", \"p99Us\": ").append(snapshot.percentileNanos(99) / 1_000)
+                    .append(", \"maxUs\": ").append(snapshot.maxNanos / 1_000)
+                    .append('}');
+            separator = ",\n";
+        }
+        return json.append("\n  }\n}\n").toString();
+    }
+
+    /**
+     * Log a snapshot and write it to {@link #FILE_NAME} in {@code dir}. Does nothing while
+     * disabled. Does file I/O, so call it off the main thread.
+     */
+    public static void export(File dir) {
+        if (!enabled) return;
+        String json = snapshotJson();
+        Log.d(TAG, json);
+        try (Writer writer = new OutputStreamWriter(
+                new FileOutputStream(new File(dir, FILE_NAME)), StandardCharsets.UTF_8)) {
+            writer.write(json);
+        } catch (IOException e) {
+            Log.e(TAG, "Error writing metrics", e);
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.expensetracker.budgettracker.utils;
+
+/**
+ * Money is stored as a primitive {@code long} count of minor units (centavos), so sums
+ * are exact and arithmetic never allocates. This class only parses and formats those
+ * values; adding and comparing amounts is plain {@code long} arithmetic.
+ */
+public final class Money {
+    public static final String CURRENCY_SYMBOL = "₱";
+    public static final long MINOR_UNITS_PER_MAJOR = 100;
+
+    private Money() {
+    }
+
+    /**
+     * Parse a decimal string such as {@code "1,234.56"} into minor units without going
+     * through {@code double}. Digits past the second decimal place are rounded half-up.
+     * Works directly on the characters, so a reusable {@link CharSequence} view can be
+     * parsed without allocating.
+     *
+     * @throws NumberFormatException if the string is not a plain decimal amount, or is too
+     *                               large to hold in minor units
+     */
+    public static long parse(CharSequence text) {
+        try {
+            return parseExact(text);
+        } catch (ArithmeticException e) {
+            throw new NumberFormatException("Amount too large: " + text);
+        }
+    }
+
+    private static long parseExact(CharSequence text) {
+        if (text == null) throw new NumberFormatException("null amount");
+        int start = 0;
+        int end = text.length();
+        while (start < end && Character.isWhitespace(text.charAt(start))) start++;
+        while (end > start && Character.isWhitespace(text.charAt(end - 1))) end--;
+
+        boolean negative = false;
+        if (start < end && (text.charAt(start) == '-' || text.charAt(start) == '+')) {
+            negative = text.charAt(start) == '-';
+            start++;
+        }
+        if (regionMatches(text, start, end, CURRENCY_SYMBOL)) {
+            start += CURRENCY_SYMBOL.length();
+            while (start < end && Character.isWhitespace(text.charAt(start))) start++;
+        }
+        if (start == end) throw new NumberFormatException("empty amount");
+
+        long major = 0;
+        long minor = 0;
+        int fractionDigits = 0;
+        boolean roundUp = false;
+        boolean seenDigit = false;
+        boolean inFraction = false;
+
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                seenDigit = true;
+                int digit = c - '0';
+                if (!inFraction) {
+                    major = Math.addExact(Math.multiplyExact(major, 10), digit);
+                } else if (fractionDigits < 2) {
+                    minor = minor * 10 + digit;
+                    fractionDigits++;
+                } else if (fractionDigits == 2) {
+                    roundUp = digit >= 5;
+                    fractionDigits++;
+                }
+            } else if (c == '.' && !inFraction) {
+                inFraction = true;
+            } else if (c == ',' && !inFraction) {
+                // Grouping separator
+            } else {
+                throw new NumberFormatException("Invalid amount: " + text);
+            }
+        }
+        if (!seenDigit) throw new NumberFormatException("Invalid amount: " + text);
+
+        while (fractionDigits < 2) {
+            minor *= 10;
+            fractionDigits++;
+        }
+        long cents = Math.addExact(Math.multiplyExact(major, MINOR_UNITS_PER_MAJOR), minor);
+        if (roundUp) cents = Math.addExact(cents, 1);
+        return negative ? -cents : cents;
+    }
+
+    private static boolean regionMatches(CharSequence text, int start, int end, String prefix) {
+        if (end - start < prefix.length()) return false;
+        for (int i = 0; i < prefix.length(); i++) {
+            if (text.charAt(start + i) != prefix.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Convert a legacy floating-point amount, rounding to the nearest minor unit.
+     */
+    public static long fromDouble(double amount) {
+        return Math.round(amount * MINOR_UNITS_PER_MAJOR);
+    }
+
+    /**
+     * Format as {@code ₱1,234.56}.
+     */
+    public static String format(long cents) {
+        StringBuilder sb = new StringBuilder(16);
+        if (cents < 0) sb.append('-');
+        sb.append(CURRENCY_SYMBOL);
+        appendDecimal(sb, cents, true);
+        return sb.toString();
+    }
+
+    /**
+     * Format as a plain decimal such as {@code 1234.56}, suitable for an input field.
+     */
+    public static String toPlainString(long cents) {
+        StringBuilder sb = new StringBuilder(16);
+        if (cents < 0) sb.append('-');
+        appendDecimal(sb, cents, false);
+        return sb.toString();
+    }
+
+    private static void appendDecimal(StringBuilder sb, long cents, boolean grouping) {
+        // Work with the negative magnitude so Long.MIN_VALUE does not overflow
+        long negative = cents > 0 ? -cents : cents;
+        long major = -(negative / MINOR_UNITS_PER_MAJOR);
+        int minor = (int) -(negative % MINOR_UNITS_PER_MAJOR);
+
+        String digits = Long.toString(major);
+        if (grouping) {
+            int lead = digits.length() % 3;
+            for (int i = 0; i < digits.length(); i++) {
+                if (i > 0 && (i - lead) % 3 == 0) sb.append(',');
+                sb.append(digits.charAt(i));
+            }
+        } else {
+            sb.append(digits);
+        }
+        sb.append('.');
+        if (minor < 10) sb.append('0');
+        sb.append(minor);
+    }
+}
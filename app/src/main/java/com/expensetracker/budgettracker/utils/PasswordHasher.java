@@ -0,0 +1,92 @@
+package com.expensetracker.budgettracker.utils;
+
+import org.mindrot.jbcrypt.BCrypt;
+
+/**
+ * BCrypt hashing at a work factor picked for this device. Every hash carries its own cost
+ * in its {@code $2a$NN$} prefix, so hashes made at an older cost still verify and can be
+ * upgraded with {@link #needsRehash} after a successful login.
+ */
+public final class PasswordHasher {
+    public static final int MIN_COST = 10;
+    public static final int MAX_COST = 14;
+
+    // Cheap enough to time in a few milliseconds; each extra cost step doubles the work
+    private static final int PROBE_COST = 6;
+    private static final int PROBE_RUNS = 3;
+
+    private final int cost;
+
+    public PasswordHasher(int cost) {
+        if (cost < MIN_COST || cost > MAX_COST) {
+            throw new IllegalArgumentException("BCrypt cost out of range: " + cost);
+        }
+        this.cost = cost;
+    }
+
+    /**
+     * Time a hash at a low cost and extrapolate to the highest cost whose hash should
+     * still finish within {@code targetMillis}, clamped to [{@link #MIN_COST}, {@link #MAX_COST}].
+     */
+    public static int calibrate(long targetMillis) {
+        String salt = BCrypt.gensalt(PROBE_COST);
+        // The first run pays for class loading and JIT, so it is not timed
+        BCrypt.hashpw("calibration", salt);
+        long best = Long.MAX_VALUE;
+        for (int run = 0; run < PROBE_RUNS; run++) {
+            long start = System.nanoTime();
+            BCrypt.hashpw("calibration", salt);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+
+        long targetNanos = targetMillis * 1_000_000L;
+        int cost = PROBE_COST;
+        long estimate = Math.max(best, 1);
+        while (cost < MAX_COST && estimate * 2 <= targetNanos) {
+            estimate *= 2;
+            cost++;
+        }
+        return Math.max(cost, MIN_COST);
+    }
+
+    /**
+     * The cost encoded in a BCrypt hash, or -1 if it is not a BCrypt hash.
+     */
+    public static int costOf(String hash) {
+        // $2a$10$... / $2b$10$... / $2y$10$...
+        if (hash == null || hash.length() < 7 || hash.charAt(0) != '$' || hash.charAt(3) != '$'
+                || hash.charAt(6) != '$') {
+            return -1;
+        }
+        char tens = hash.charAt(4);
+        char ones = hash.charAt(5);
+        if (tens < '0' || tens > '9' || ones < '0' || ones > '9') {
+            return -1;
+        }
+        return (tens - '0') * 10 + (ones - '0');
+    }
+
+    public int getCost() {
+        return cost;
+    }
+
+    public String hash(String password) {
+        return BCrypt.hashpw(password, BCrypt.gensalt(cost));
+    }
+
+    public boolean verify(String password, String hash) {
+        try {
+            return BCrypt.checkpw(password, hash);
+        } catch (IllegalArgumentException e) {
+            // Malformed stored hash
+            return false;
+        }
+    }
+
+    /**
+     * Whether a hash that just verified was made at a different cost than this hasher's.
+     */
+    public boolean needsRehash(String hash) {
+        return costOf(hash) != cost;
+    }
+}
@@ -1,22 +0,0 @@
-package com.expensetracker.budgettracker.utils;
-
-import android.util.Base64;
-
-import org.mindrot.jbcrypt.BCrypt;
-
-import java.security.SecureRandom;
-
-public class SecurityUtils {
-    public static String hashPassword(String password) {
-        return BCrypt.hashpw(password, BCrypt.gensalt());
-    }
-    public static String generateResetToken() {
-        SecureRandom random = new SecureRandom();
-        byte[] bytes = new byte[32];
-        random.nextBytes(bytes);
-        return Base64.encodeToString(bytes, Base64.URL_SAFE | Base64.NO_WRAP);
-    }
-    public static boolean checkPassword(String password, String hashed) {
-        return BCrypt.checkpw(password, hashed);
-    }
-}
@@ -0,0 +1,93 @@
+package com.expensetracker.budgettracker.adapters;
+
+import androidx.recyclerview.widget.DiffUtil;
+
+import com.expensetracker.budgettracker.benchmark.BenchmarkRunner;
+import com.expensetracker.budgettracker.benchmark.LedgerGenerator;
+import com.expensetracker.budgettracker.models.Transaction;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The diff {@link TransactionsAdapter} hands to {@link DiffUtil} when a list is submitted,
+ * using the adapter's own item callback: once for an unchanged list and once for a
+ * typical write (a new row on top, one edited and one deleted). Writes
+ * {@code transactions-diff.json}.
+ */
+public class TransactionsDiffBenchmark {
+
+    private static final class Lists {
+        final List<Transaction> before;
+        final List<Transaction> unchanged;
+        final List<Transaction> edited;
+
+        Lists(int size) {
+            before = LedgerGenerator.generate(size, size);
+            unchanged = new ArrayList<>(before);
+            edited = new ArrayList<>(before);
+
+            Transaction added = new Transaction("Food & Drink", 450, LedgerGenerator.FIRST_DAY + LedgerGenerator.DAYS,
+                    "expense", "");
+            added.setId(size + 1);
+            edited.add(0, added);
+            int middle = edited.size() / 2;
+            Transaction old = edited.get(middle);
+            Transaction changed = new Transaction(old.getCategory(), old.getAmountCents() + 1, old.getEpochDay(),
+                    old.getType(), old.getNotes());
+            changed.setId(old.getId());
+            edited.set(middle, changed);
+            edited.remove(edited.size() - 1);
+        }
+    }
+
+    @Test
+    public void diff() throws Exception {
+        BenchmarkRunner runner = new BenchmarkRunner("transactions-diff");
+        int[] sizes = BenchmarkRunner.sizes();
+
+        runner.run("unchanged", "rows", sizes, Lists::new,
+                lists -> DiffUtil.calculateDiff(new ListCallback(lists.before, lists.unchanged)));
+        runner.run("insertEditDelete", "rows", sizes, Lists::new,
+                lists -> DiffUtil.calculateDiff(new ListCallback(lists.before, lists.edited)));
+
+        runner.writeJson(BenchmarkRunner.defaultOutputDir());
+    }
+
+    /**
+     * What {@code AsyncListDiffer} builds around the adapter's item callback.
+     */
+    private static final class ListCallback extends DiffUtil.Callback {
+        private final List<Transaction> oldList;
+        private final List<Transaction> newList;
+
+        ListCallback(List<Transaction> oldList, List<Transaction> newList) {
+            this.oldList = oldList;
+            this.newList = newList;
+        }
+
+        @Override
+        public int getOldListSize() {
+            return oldList.size();
+        }
+
+        @Override
+        public int getNewListSize() {
+            return newList.size();
+        }
+
+        @Override
+        public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+            return TransactionsAdapter.DIFF_CALLBACK.areItemsTheSame(oldList.get(oldItemPosition),
+                    newList.get(newItemPosition));
+        }
+
+        @Override
+        public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+            return TransactionsAdapter.DIFF_CALLBACK.areContentsTheSame(oldList.get(oldItemPosition),
+                    newList.get(newItemPosition));
+        }
+    }
+}
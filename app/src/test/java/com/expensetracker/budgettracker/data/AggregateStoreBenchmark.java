@@ -0,0 +1,90 @@
+package com.expensetracker.budgettracker.data;
+
+import com.expensetracker.budgettracker.benchmark.BenchmarkRunner;
+import com.expensetracker.budgettracker.benchmark.LedgerGenerator;
+import com.expensetracker.budgettracker.models.Transaction;
+import com.expensetracker.budgettracker.utils.EpochDays;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * The work behind the running totals: applying every row of a ledger to an
+ * {@link AggregateStore}, rebuilding it from the monthly rollup rows SQLite would return,
+ * and reading the category totals the screens post. Writes {@code aggregate-store.json}.
+ */
+public class AggregateStoreBenchmark {
+    private static final long USER_ID = 1;
+
+    @Test
+    public void totals() throws Exception {
+        BenchmarkRunner runner = new BenchmarkRunner("aggregate-store");
+        int[] sizes = BenchmarkRunner.sizes();
+
+        runner.run("applyInserts", "rows", sizes, rows -> LedgerGenerator.generate(rows, rows), ledger -> {
+            AggregateStore store = new AggregateStore();
+            store.rebuild(USER_ID, new ArrayList<>());
+            for (Transaction row : ledger) {
+                store.add(USER_ID, row.getCategoryId(), row.getType(), row.getEpochDay(), row.getAmountCents());
+            }
+            return store;
+        });
+
+        runner.run("rebuildFromRollups", "rows", sizes, rows -> rollups(LedgerGenerator.generate(rows, rows)), rollups -> {
+            AggregateStore store = new AggregateStore();
+            store.rebuild(USER_ID, rollups);
+            return store;
+        });
+
+        runner.run("categoryTotals", "rows", sizes, rows -> {
+            AggregateStore store = new AggregateStore();
+            store.rebuild(USER_ID, rollups(LedgerGenerator.generate(rows, rows)));
+            return store;
+        }, store -> store.getCategoryTotals(USER_ID));
+
+        // The rollups and the row-by-row path must agree, or the numbers above mean nothing
+        List<Transaction> ledger = LedgerGenerator.generate(sizes[0], sizes[0]);
+        AggregateStore fromRows = new AggregateStore();
+        fromRows.rebuild(USER_ID, new ArrayList<>());
+        for (Transaction row : ledger) {
+            fromRows.add(USER_ID, row.getCategoryId(), row.getType(), row.getEpochDay(), row.getAmountCents());
+        }
+        AggregateStore fromRollups = new AggregateStore();
+        fromRollups.rebuild(USER_ID, rollups(ledger));
+        assertEquals(fromRows.getCategoryTotals(USER_ID), fromRollups.getCategoryTotals(USER_ID));
+
+        runner.writeJson(BenchmarkRunner.defaultOutputDir());
+    }
+
+    /**
+     * What the rollup table holds for a ledger: one row per month, category and type.
+     */
+    private static List<AggregateStore.Aggregate> rollups(List<Transaction> ledger) {
+        Map<String, long[]> grouped = new HashMap<>();
+        Map<String, Transaction> firstRow = new HashMap<>();
+        for (Transaction row : ledger) {
+            String key = EpochDays.monthKey(row.getEpochDay()) + "|" + row.getCategoryId() + "|" + row.getType();
+            long[] totals = grouped.get(key);
+            if (totals == null) {
+                totals = new long[2];
+                grouped.put(key, totals);
+                firstRow.put(key, row);
+            }
+            totals[0] += row.getAmountCents();
+            totals[1]++;
+        }
+        List<AggregateStore.Aggregate> rollups = new ArrayList<>(grouped.size());
+        for (Map.Entry<String, long[]> entry : grouped.entrySet()) {
+            Transaction row = firstRow.get(entry.getKey());
+            rollups.add(new AggregateStore.Aggregate(EpochDays.monthKey(row.getEpochDay()), row.getCategoryId(),
+                    row.getType(), entry.getValue()[0], (int) entry.getValue()[1]));
+        }
+        return rollups;
+    }
+}
@@ -0,0 +1,85 @@
+package com.expensetracker.budgettracker.data;
+
+import com.expensetracker.budgettracker.utils.EpochDays;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AggregateStoreTest {
+    private static final int FOOD = CategoryDictionary.FOOD_AND_DRINK;
+    private static final int SHOPPING = CategoryDictionary.SHOPPING;
+    private static final int SALARY = CategoryDictionary.SALARY;
+    private static final int[] CATEGORIES = {FOOD, CategoryDictionary.TRANSPORTATION, SHOPPING, SALARY};
+
+    @Test
+    public void deltasAreIgnoredUntilUserIsLoaded() {
+        AggregateStore store = new AggregateStore();
+        store.add(1, FOOD, "expense", EpochDays.of(2024, 3, 2), 500);
+        assertFalse(store.isLoaded(1));
+        assertEquals(0L, store.getTotalExpense(1));
+    }
+
+    @Test
+    public void rebuildThenDeltas_trackTotalsByCategoryTypeAndMonth() {
+        AggregateStore store = new AggregateStore();
+        store.rebuild(1, Arrays.asList(
+                new AggregateStore.Aggregate(202403, SALARY, "income", 5_000_000, 1),
+                new AggregateStore.Aggregate(202403, FOOD, "expense", 12_550, 3)));
+        assertTrue(store.isLoaded(1));
+
+        store.add(1, FOOD, "EXPENSE", EpochDays.of(2024, 3, 15), 450);
+        store.add(1, SHOPPING, "expense", EpochDays.of(2024, 4, 1), 99_999);
+        store.remove(1, FOOD, "expense", EpochDays.of(2024, 3, 2), 550);
+
+        assertEquals(5_000_000L, store.getTotalIncome(1));
+        assertEquals(12_550L + 450 + 99_999 - 550, store.getTotalExpense(1));
+        assertEquals(12_450L, store.getMonthTotal(1, 202403, FOOD, "expense"));
+        assertEquals(99_999L, store.getMonthTotal(1, 202404, SHOPPING, "expense"));
+
+        Map<Integer, Long> byCategory = store.getCategoryTotals(1);
+        assertEquals(Long.valueOf(12_450L), byCategory.get(FOOD));
+        assertEquals(Long.valueOf(5_000_000L), byCategory.get(SALARY));
+    }
+
+    @Test
+    public void usersAreIsolated() {
+        AggregateStore store = new AggregateStore();
+        store.rebuild(1, Collections.emptyList());
+        store.rebuild(2, Collections.emptyList());
+        store.add(1, SALARY, "income", EpochDays.of(2024, 1, 1), 100);
+        assertEquals(100L, store.getTotalIncome(1));
+        assertEquals(0L, store.getTotalIncome(2));
+    }
+
+    @Test
+    public void millionsOfDeltas_stayExact() {
+        AggregateStore store = new AggregateStore();
+        store.rebuild(1, Collections.emptyList());
+        Random random = new Random(3);
+        long expectedIncome = 0;
+        long expectedExpense = 0;
+
+        for (int i = 0; i < 2_000_000; i++) {
+            int category = CATEGORIES[random.nextInt(CATEGORIES.length)];
+            String type = category == SALARY ? "income" : "expense";
+            long amount = random.nextInt(10_000_000);
+            store.add(1, category, type, EpochDays.of(2024, 1 + random.nextInt(9), 1), amount);
+            if ("income".equals(type)) {
+                expectedIncome += amount;
+            } else {
+                expectedExpense += amount;
+            }
+        }
+
+        assertEquals(expectedIncome, store.getTotalIncome(1));
+        assertEquals(expectedExpense, store.getTotalExpense(1));
+    }
+}
@@ -0,0 +1,84 @@
+package com.expensetracker.budgettracker.data;
+
+import com.expensetracker.budgettracker.utils.EpochDays;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class BudgetEngineTest {
+    private static final int TODAY = EpochDays.of(2024, 6, 15);
+    private static final int FOOD = CategoryDictionary.FOOD_AND_DRINK;
+    private static final int SHOPPING = CategoryDictionary.SHOPPING;
+
+    private AggregateStore aggregates;
+    private BudgetEngine engine;
+    private final List<BudgetEngine.Alert> alerts = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        aggregates = new AggregateStore();
+        aggregates.rebuild(1, Collections.emptyList());
+        engine = new BudgetEngine(aggregates, () -> TODAY);
+        engine.load(1, Collections.singletonList(new BudgetEngine.Budget(FOOD, "Food & Drink", 10_000)));
+        engine.addListener(alerts::add);
+    }
+
+    private void spend(int category, int epochDay, long amount) {
+        aggregates.add(1, category, "expense", epochDay, amount);
+        engine.onTransactionApplied(1, category, "expense", epochDay, amount);
+    }
+
+    @Test
+    public void alertsOnceWhenCrossingWarningAndOnceWhenExceeded() {
+        spend(FOOD, TODAY, 5_000);
+        assertTrue(alerts.isEmpty());
+
+        spend(FOOD, TODAY, 3_000);
+        assertEquals(1, alerts.size());
+        assertEquals(BudgetEngine.Level.WARNING, alerts.get(0).level);
+        assertEquals("Food & Drink", alerts.get(0).category);
+        assertEquals(8_000, alerts.get(0).spent);
+
+        spend(FOOD, TODAY, 1_000);
+        assertEquals(1, alerts.size());
+
+        spend(FOOD, TODAY, 1_000);
+        assertEquals(2, alerts.size());
+        assertEquals(BudgetEngine.Level.EXCEEDED, alerts.get(1).level);
+        assertEquals(BudgetEngine.Level.EXCEEDED, engine.getLevel(1, FOOD));
+    }
+
+    @Test
+    public void ignoresOtherMonthsIncomeAndUnbudgetedCategories() {
+        spend(FOOD, EpochDays.of(2024, 5, 31), 50_000);
+        spend(SHOPPING, TODAY, 50_000);
+        aggregates.add(1, FOOD, "income", TODAY, 50_000);
+        engine.onTransactionApplied(1, FOOD, "income", TODAY, 50_000);
+
+        assertTrue(alerts.isEmpty());
+        assertEquals(0, engine.getSpent(1, FOOD));
+    }
+
+    @Test
+    public void budgetsArePerUser() {
+        aggregates.rebuild(2, Collections.emptyList());
+        engine.load(2, Collections.emptyList());
+        aggregates.add(2, FOOD, "expense", TODAY, 20_000);
+        engine.onTransactionApplied(2, FOOD, "expense", TODAY, 20_000);
+        assertTrue(alerts.isEmpty());
+
+        engine.setBudget(2, FOOD, "Food & Drink", 15_000);
+        spend(FOOD, TODAY, 1);
+        aggregates.add(2, FOOD, "expense", TODAY, 1);
+        engine.onTransactionApplied(2, FOOD, "expense", TODAY, 1);
+        assertEquals(0, alerts.size());
+        assertEquals(BudgetEngine.Level.EXCEEDED, engine.getLevel(2, FOOD));
+    }
+}
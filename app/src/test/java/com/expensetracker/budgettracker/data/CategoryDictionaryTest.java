@@ -0,0 +1,50 @@
+package com.expensetracker.budgettracker.data;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class CategoryDictionaryTest {
+
+    @Test
+    public void builtInsHaveFixedIdsIgnoringCase() {
+        CategoryDictionary dictionary = new CategoryDictionary();
+        assertEquals(CategoryDictionary.FOOD_AND_DRINK, dictionary.idOf("Food & Drink"));
+        assertEquals(CategoryDictionary.FOOD_AND_DRINK, dictionary.idOf("FOOD & DRINK"));
+        assertEquals(CategoryDictionary.HOUSING, dictionary.idOf("housing & utilities"));
+        assertEquals("Salary", dictionary.nameOf(CategoryDictionary.SALARY));
+        assertEquals(CategoryDictionary.NONE, dictionary.idOf("Gifts"));
+        assertNull(dictionary.nameOf(CategoryDictionary.NONE));
+        assertNull(dictionary.nameOf(7));
+    }
+
+    @Test
+    public void put_publishesNewCategoriesAndKeepsFirstSpelling() {
+        CategoryDictionary dictionary = new CategoryDictionary();
+        dictionary.put(7, "Gifts");
+        dictionary.put(7, "GIFTS");
+        dictionary.put(40, "Travel");
+
+        assertEquals(7, dictionary.idOf("gifts"));
+        assertEquals("Gifts", dictionary.nameOf(7));
+        assertEquals(40, dictionary.idOf("Travel"));
+        assertNull(dictionary.nameOf(39));
+    }
+
+    @Test
+    public void withNames_rekeysTotalsAndDropsUnknownIds() {
+        CategoryDictionary dictionary = new CategoryDictionary();
+        Map<Integer, Long> totals = new HashMap<>();
+        totals.put(CategoryDictionary.SHOPPING, 1_000L);
+        totals.put(99, 5L);
+
+        Map<String, Long> named = dictionary.withNames(totals);
+
+        assertEquals(1, named.size());
+        assertEquals(Long.valueOf(1_000L), named.get("Shopping"));
+    }
+}
@@ -0,0 +1,108 @@
+package com.expensetracker.budgettracker.data;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ChartDataTest {
+    private static final long USER = 1;
+
+    @Test
+    public void series_fillsEmptyDaysAndTracksInsertsAndDeletes() {
+        DailyTotals totals = new DailyTotals();
+        totals.rebuild(USER, new int[]{100, 100, 103}, new int[]{1, 2, 1}, new long[]{600, 400, 250}, 3);
+
+        totals.add(USER, 1, "expense", 101, 500);
+        totals.add(USER, 3, "income", 102, 99_999);
+        totals.remove(USER, 1, "expense", 103, 250);
+
+        ChartSeries series = totals.series(USER, 100, 104, 50);
+        assertArrayEquals(new float[]{100, 101, 102, 103, 104}, series.x, 0f);
+        assertArrayEquals(new float[]{10f, 5f, 0f, 0f, 0f}, series.y, 0f);
+        assertEquals(100, totals.getFirstDay(USER, -1));
+    }
+
+    @Test
+    public void series_staysWithinPointBudgetForLongRanges() {
+        DailyTotals totals = new DailyTotals();
+        int days = 20 * 365;
+        int[] keys = new int[days];
+        int[] categories = new int[days];
+        long[] amounts = new long[days];
+        for (int i = 0; i < days; i++) {
+            keys[i] = i;
+            categories[i] = 1;
+            amounts[i] = 100 + (i % 30) * 10;
+        }
+        totals.rebuild(USER, keys, categories, amounts, days);
+
+        ChartSeries series = totals.series(USER, 0, days - 1, 180);
+
+        assertEquals(180, series.size());
+        assertEquals(0f, series.x[0], 0f);
+        assertEquals(days - 1, series.x[series.size() - 1], 0f);
+    }
+
+    @Test
+    public void series_ignoresWritesBeforeLoad() {
+        DailyTotals totals = new DailyTotals();
+        totals.add(USER, 1, "expense", 5, 100);
+
+        assertTrue(!totals.isLoaded(USER));
+        assertEquals(0f, totals.series(USER, 5, 5, 10).y[0], 0f);
+    }
+
+    @Test
+    public void categoryTotals_sumTheRangeAndTrackInsertsAndDeletes() {
+        DailyTotals totals = new DailyTotals();
+        totals.rebuild(USER, new int[]{99, 100, 100, 102}, new int[]{1, 1, 2, 2},
+                new long[]{5_000, 1_000, 400, 300}, 4);
+
+        totals.add(USER, 2, "expense", 101, 200);
+        totals.add(USER, 1, "income", 101, 99_999);
+        totals.add(USER, 3, "expense", 103, 700);
+        totals.remove(USER, 1, "expense", 100, 1_000);
+
+        Map<Integer, Long> range = totals.categoryTotals(USER, 100, 102);
+        assertEquals(1, range.size());
+        assertEquals(Long.valueOf(900), range.get(2));
+        assertEquals(Long.valueOf(5_000), totals.categoryTotals(USER, 0, 200).get(1));
+        assertTrue(totals.categoryTotals(USER, 104, 200).isEmpty());
+    }
+
+    @Test
+    public void breakdown_foldsSmallCategoriesIntoOther() {
+        Map<String, Long> totals = new HashMap<>();
+        totals.put("Food", 5_000L);
+        totals.put("Rent", 20_000L);
+        totals.put("Taxi", 1_000L);
+        totals.put("Gifts", 500L);
+        totals.put("Refunds", 0L);
+
+        CategoryBreakdown breakdown = CategoryBreakdown.of(totals, 3);
+
+        assertEquals(Arrays.asList("Rent", "Food", CategoryBreakdown.OTHER), Arrays.asList(breakdown.labels));
+        assertArrayEquals(new float[]{200f, 50f, 15f}, breakdown.values, 0f);
+    }
+
+    @Test
+    public void expenseCategoryTotals_combineMonthsAndSkipIncome() {
+        AggregateStore store = new AggregateStore();
+        store.rebuild(USER, Arrays.asList(
+                new AggregateStore.Aggregate(202401, CategoryDictionary.FOOD_AND_DRINK, "expense", 1_000, 1),
+                new AggregateStore.Aggregate(202402, CategoryDictionary.FOOD_AND_DRINK, "EXPENSE", 500, 1),
+                new AggregateStore.Aggregate(202401, CategoryDictionary.SALARY, "income", 90_000, 1)));
+
+        Map<Integer, Long> totals = store.getExpenseCategoryTotals(USER);
+
+        assertEquals(1, totals.size());
+        assertEquals(Long.valueOf(1_500), totals.get(CategoryDictionary.FOOD_AND_DRINK));
+        assertEquals(Long.valueOf(1_500), CategoryDictionary.getInstance().withNames(totals).get("Food & Drink"));
+    }
+}
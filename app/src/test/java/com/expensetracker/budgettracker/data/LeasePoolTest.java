@@ -0,0 +1,217 @@
+package com.expensetracker.budgettracker.data;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class LeasePoolTest {
+
+    private static final class Resource {
+        final long key;
+        boolean closed;
+
+        Resource(long key) {
+            this.key = key;
+        }
+    }
+
+    private final List<Resource> opened = new ArrayList<>();
+    private LeasePool<Resource> pool;
+
+    @Before
+    public void setUp() {
+        pool = new LeasePool<>(new LeasePool.Factory<Resource>() {
+            @Override
+            public Resource open(long key) {
+                Resource resource = new Resource(key);
+                synchronized (opened) {
+                    opened.add(resource);
+                }
+                return resource;
+            }
+
+            @Override
+            public void close(Resource value) {
+                assertFalse("closed twice", value.closed);
+                value.closed = true;
+            }
+        }, 2);
+    }
+
+    @Test
+    public void sameKey_opensOnce() {
+        try (LeasePool.Lease<Resource> first = pool.acquire(1);
+             LeasePool.Lease<Resource> second = pool.acquire(1)) {
+            assertSame(first.get(), second.get());
+        }
+        assertEquals(1, opened.size());
+    }
+
+    @Test
+    public void idleEldest_isClosedOnEviction() {
+        pool.acquire(1).close();
+        pool.acquire(2).close();
+        pool.acquire(3).close();
+
+        assertTrue(opened.get(0).closed);
+        assertFalse(opened.get(1).closed);
+        assertEquals(2, pool.openCount());
+    }
+
+    @Test
+    public void leasedEldest_closesOnLastRelease() {
+        LeasePool.Lease<Resource> held = pool.acquire(1);
+        pool.acquire(2).close();
+        pool.acquire(3).close();
+
+        Resource first = held.get();
+        assertFalse(first.closed);
+        held.close();
+        assertTrue(first.closed);
+        assertEquals(2, pool.openCount());
+    }
+
+    @Test
+    public void evictedWhileLeased_isTakenBackRatherThanReopened() {
+        LeasePool.Lease<Resource> held = pool.acquire(1);
+        pool.acquire(2).close();
+        pool.acquire(3).close();
+
+        try (LeasePool.Lease<Resource> again = pool.acquire(1)) {
+            assertSame(held.get(), again.get());
+            held.close();
+            assertFalse(again.get().closed);
+        }
+        assertEquals(3, opened.size());
+    }
+
+    @Test
+    public void slowOpen_doesNotBlockOtherKeys() throws Exception {
+        CountDownLatch opening = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        LeasePool<Long> slow = new LeasePool<>(new LeasePool.Factory<Long>() {
+            @Override
+            public Long open(long key) {
+                if (key == 1) {
+                    opening.countDown();
+                    try {
+                        finish.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return key;
+            }
+
+            @Override
+            public void close(Long value) {
+            }
+        }, 2);
+        Thread opener = new Thread(() -> slow.acquire(1).close());
+        opener.start();
+        assertTrue(opening.await(5, TimeUnit.SECONDS));
+
+        try (LeasePool.Lease<Long> other = slow.acquire(2)) {
+            assertEquals(Long.valueOf(2), other.get());
+        }
+        finish.countDown();
+        opener.join(5_000);
+        assertFalse(opener.isAlive());
+    }
+
+    @Test
+    public void failedOpen_isNotCached() {
+        LeasePool<Resource> failing = new LeasePool<>(new LeasePool.Factory<Resource>() {
+            private boolean failed;
+
+            @Override
+            public Resource open(long key) {
+                if (!failed) {
+                    failed = true;
+                    throw new IllegalStateException("disk full");
+                }
+                return new Resource(key);
+            }
+
+            @Override
+            public void close(Resource value) {
+            }
+        }, 2);
+        try {
+            failing.acquire(1);
+            fail("expected the open to fail");
+        } catch (IllegalStateException expected) {
+            // ok
+        }
+        assertEquals(0, failing.openCount());
+        try (LeasePool.Lease<Resource> lease = failing.acquire(1)) {
+            assertEquals(1, lease.get().key);
+        }
+    }
+
+    @Test
+    public void remove_waitsForLeasesThenCloses() throws Exception {
+        LeasePool.Lease<Resource> held = pool.acquire(1);
+        Thread remover = new Thread(() -> pool.remove(1));
+        remover.start();
+        remover.join(200);
+        assertTrue(remover.isAlive());
+        assertFalse(held.get().closed);
+
+        held.close();
+        remover.join(5_000);
+        assertFalse(remover.isAlive());
+        assertTrue(opened.get(0).closed);
+
+        try (LeasePool.Lease<Resource> other = pool.acquire(2)) {
+            assertNotSame(opened.get(0), other.get());
+        }
+    }
+
+    @Test
+    public void acquireDuringAndAfterRemove_failsWithoutReopening() throws Exception {
+        LeasePool.Lease<Resource> held = pool.acquire(1);
+        Thread remover = new Thread(() -> pool.remove(1));
+        remover.start();
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!pool.isRemoved(1) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertTrue(remover.isAlive());
+
+        assertAcquireFails(1);
+        held.close();
+        remover.join(5_000);
+        assertFalse(remover.isAlive());
+        assertAcquireFails(1);
+        assertEquals(1, opened.size());
+        assertEquals(0, pool.openCount());
+    }
+
+    @Test
+    public void removeOfAKeyNeverOpened_stillStopsItOpening() {
+        pool.remove(5);
+        assertAcquireFails(5);
+        assertTrue(opened.isEmpty());
+    }
+
+    private void assertAcquireFails(long key) {
+        try {
+            pool.acquire(key).close();
+            fail("acquired a removed key");
+        } catch (IllegalStateException expected) {
+            // ok
+        }
+    }
+}
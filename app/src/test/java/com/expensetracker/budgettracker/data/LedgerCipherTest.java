@@ -0,0 +1,189 @@
+package com.expensetracker.budgettracker.data;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.crypto.AEADBadTagException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class LedgerCipherTest {
+    private static final byte[] MASTER = new byte[32];
+
+    static {
+        Arrays.fill(MASTER, (byte) 7);
+    }
+
+    private LedgerCipher cipher;
+
+    @Before
+    public void setUp() {
+        cipher = new LedgerCipher();
+        cipher.setMasterKey(() -> MASTER.clone());
+    }
+
+    @Test
+    public void seal_roundTripsAndHidesTheText() throws Exception {
+        String notes = "rent to landlord, ref 4417 – ₱15,000";
+        byte[] sealed = cipher.seal(1, notes);
+
+        assertEquals(notes, cipher.open(1, sealed));
+        assertFalse(new String(sealed, StandardCharsets.ISO_8859_1).contains("landlord"));
+        // A fresh nonce every time
+        assertFalse(Arrays.equals(sealed, cipher.seal(1, notes)));
+    }
+
+    @Test
+    public void sealedForOneUser_doesNotOpenForAnother() throws Exception {
+        byte[] sealed = cipher.seal(1, "groceries");
+        assertFails(() -> cipher.open(2, sealed));
+    }
+
+    @Test
+    public void alteredField_doesNotOpen() throws Exception {
+        byte[] sealed = cipher.seal(1, "groceries");
+        sealed[sealed.length - 1] ^= 1;
+        assertFails(() -> cipher.open(1, sealed));
+        assertFails(() -> cipher.open(1, new byte[]{1, 2, 3}));
+    }
+
+    @Test
+    public void otherMasterKey_doesNotOpen() throws Exception {
+        byte[] sealed = cipher.seal(1, "groceries");
+        LedgerCipher other = new LedgerCipher();
+        byte[] otherMaster = MASTER.clone();
+        otherMaster[0] ^= 1;
+        other.setMasterKey(() -> otherMaster);
+
+        assertFails(() -> other.open(1, sealed));
+    }
+
+    @Test
+    public void fieldSealedUnderALostKey_neverOpens_butAMissingKeyMayLater() throws Exception {
+        // read() shows the first as unreadable and fails the second, to be retried
+        byte[] sealed = cipher.seal(1, "groceries");
+        LedgerCipher replaced = new LedgerCipher();
+        byte[] otherMaster = MASTER.clone();
+        otherMaster[0] ^= 1;
+        replaced.setMasterKey(() -> otherMaster);
+        try {
+            replaced.open(1, sealed);
+            fail("opened under another master key");
+        } catch (AEADBadTagException expected) {
+            // ok
+        }
+
+        LedgerCipher locked = new LedgerCipher();
+        locked.setMasterKey(() -> null);
+        try {
+            locked.open(1, sealed);
+            fail("opened without a master key");
+        } catch (GeneralSecurityException e) {
+            assertFalse(e instanceof AEADBadTagException);
+        }
+    }
+
+    @Test
+    public void withoutAMasterKey_isDisabled() {
+        LedgerCipher plain = new LedgerCipher();
+        assertFalse(plain.isEnabled());
+        assertTrue(cipher.isEnabled());
+        assertFails(() -> plain.seal(1, "coffee"));
+    }
+
+    @Test
+    public void unavailableMasterKey_failsClosedAndIsAskedAgain() throws Exception {
+        LedgerCipher locked = new LedgerCipher();
+        int[] asked = {0};
+        locked.setMasterKey(() -> ++asked[0] < 3 ? null : MASTER.clone());
+
+        // Still enabled, so writes fail rather than store notes in the clear
+        assertTrue(locked.isEnabled());
+        assertFails(() -> locked.seal(1, "coffee"));
+        assertFails(() -> locked.seal(1, "coffee"));
+        assertEquals("coffee", locked.open(1, locked.seal(1, "coffee")));
+        assertEquals(3, asked[0]);
+    }
+
+    @Test
+    public void refusedWrite_isToldApartFromOtherFailures() {
+        LedgerCipher locked = new LedgerCipher();
+        locked.setMasterKey(() -> null);
+        try {
+            locked.indexTokens(1, "coffee beans");
+            fail("expected the write to be refused");
+        } catch (LedgerCipher.KeyUnavailableException e) {
+            assertTrue(LedgerCipher.isKeyUnavailable(new RuntimeException("batch failed", e)));
+        }
+        assertFalse(LedgerCipher.isKeyUnavailable(new IllegalStateException("disk full")));
+        assertFalse(LedgerCipher.isKeyUnavailable(null));
+    }
+
+    @Test
+    public void databaseKey_isARawKeyPerUser_orNoneWhenDisabled() {
+        String key = new String(cipher.databaseKey(1), StandardCharsets.US_ASCII);
+
+        assertTrue(key, key.matches("x'[0-9a-f]{64}'"));
+        assertEquals(key, new String(cipher.databaseKey(1), StandardCharsets.US_ASCII));
+        assertFalse(key.equals(new String(cipher.databaseKey(2), StandardCharsets.US_ASCII)));
+        assertNull(new LedgerCipher().databaseKey(1));
+
+        LedgerCipher locked = new LedgerCipher();
+        locked.setMasterKey(() -> null);
+        try {
+            locked.databaseKey(1);
+            fail("expected the ledger to stay shut");
+        } catch (LedgerCipher.KeyUnavailableException expected) {
+            // The ledger is not opened, so nothing is written to it unencrypted
+        }
+    }
+
+    @Test
+    public void indexTokens_coverWordsAndPrefixesOfThree() throws Exception {
+        String tokens = cipher.indexTokens(1, "Grab taxi to NAIA");
+        List<String> index = Arrays.asList(tokens.split(" "));
+
+        assertTrue(index.contains(cipher.searchToken(1, "gra")));
+        assertTrue(index.contains(cipher.searchToken(1, "grab")));
+        assertTrue(index.contains(cipher.searchToken(1, "naia")));
+        assertTrue(index.contains(cipher.searchToken(1, "to")));
+        // Shorter prefixes and longer words are not indexed
+        assertFalse(index.contains(cipher.searchToken(1, "gr")));
+        assertFalse(index.contains(cipher.searchToken(1, "taxis")));
+        // Keyed per user
+        assertFalse(index.contains(cipher.searchToken(2, "grab")));
+        assertFalse(tokens.contains("taxi"));
+    }
+
+    @Test
+    public void indexTokens_nullWhenThereIsNothingToIndex() {
+        assertNull(cipher.indexTokens(1, ""));
+        assertNull(cipher.indexTokens(1, "!!"));
+        // Notes stored in the clear are indexed as text
+        assertNull(new LedgerCipher().indexTokens(1, "coffee"));
+    }
+
+    private interface Action {
+        void run() throws Exception;
+    }
+
+    private static void assertFails(Action action) {
+        try {
+            action.run();
+            fail("expected a GeneralSecurityException");
+        } catch (GeneralSecurityException expected) {
+            // ok
+        } catch (Exception e) {
+            throw new AssertionError(e);
+        }
+    }
+}
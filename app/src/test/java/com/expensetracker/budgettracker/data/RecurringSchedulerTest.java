@@ -0,0 +1,112 @@
+package com.expensetracker.budgettracker.data;
+
+import com.expensetracker.budgettracker.models.RecurringRule;
+import com.expensetracker.budgettracker.models.Transaction;
+import com.expensetracker.budgettracker.utils.EpochDays;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class RecurringSchedulerTest {
+    private static final int START = EpochDays.of(2015, 1, 31);
+
+    private static RecurringRule rule(String unit, int every, int startDay) {
+        return new RecurringRule("Housing & Utilities", 1_500_000, "expense", "rent", unit, every, startDay);
+    }
+
+    @Test
+    public void monthly_clampsToShortMonthsAndKeepsTheDay() {
+        RecurringRule rent = rule(RecurringRule.UNIT_MONTH, 1, START);
+
+        assertEquals(EpochDays.of(2015, 2, 28), rent.dayOf(1));
+        assertEquals(EpochDays.of(2015, 3, 31), rent.dayOf(2));
+        assertEquals(EpochDays.of(2016, 2, 29), rent.dayOf(13));
+        assertEquals(2, rent.countThrough(EpochDays.of(2015, 3, 30)));
+        assertEquals(3, rent.countThrough(EpochDays.of(2015, 3, 31)));
+        assertEquals(0, rent.countThrough(START - 1));
+    }
+
+    @Test
+    public void countThrough_matchesSteppingDayByDay() {
+        Random random = new Random(11);
+        String[] units = {RecurringRule.UNIT_DAY, RecurringRule.UNIT_WEEK, RecurringRule.UNIT_MONTH};
+        for (int i = 0; i < 200; i++) {
+            RecurringRule rule = rule(units[i % units.length], 1 + random.nextInt(4), START + random.nextInt(400));
+            int count = 0;
+            for (int day = rule.getStartDay() - 3; day < rule.getStartDay() + 1_500; day++) {
+                if (day == rule.dayOf(count)) {
+                    count++;
+                }
+                assertEquals(rule.getUnit() + " every " + rule.getEvery() + " on " + EpochDays.format(day),
+                        count, rule.countThrough(day));
+            }
+        }
+    }
+
+    @Test
+    public void yearsOfBacklog_catchUpInOnePassQuickly() {
+        int today = EpochDays.of(2025, 6, 15);
+        List<RecurringRule> rules = new ArrayList<>();
+        int expected = 0;
+        for (int i = 0; i < 1_000; i++) {
+            RecurringRule rule = rule(RecurringRule.UNIT_MONTH, 1, START + i % 28);
+            expected += rule.countThrough(today);
+            rules.add(rule);
+        }
+
+        long start = System.nanoTime();
+        List<Transaction> rows = RecurringScheduler.materialize(rules, today);
+        double elapsedMs = (System.nanoTime() - start) / 1e6;
+
+        // Over ten years of monthly rows per rule
+        assertTrue(expected > 120 * 1_000);
+        assertEquals(expected, rows.size());
+        for (RecurringRule rule : rules) {
+            assertTrue(rule.getNextDay() > today);
+        }
+        assertTrue("caught up " + rows.size() + " rows in " + elapsedMs + " ms", elapsedMs < 2_000);
+    }
+
+    @Test
+    public void rulesAlreadyCaughtUp_writeNothing() {
+        int today = EpochDays.of(2025, 6, 15);
+        List<RecurringRule> rules = Collections.singletonList(rule(RecurringRule.UNIT_WEEK, 2, START));
+        RecurringScheduler.materialize(rules, today);
+
+        assertTrue(RecurringScheduler.materialize(rules, today).isEmpty());
+        assertEquals(1, RecurringScheduler.materialize(rules, rules.get(0).getNextDay()).size());
+    }
+
+    @Test
+    public void catchUpInSteps_writesTheSameRowsAsOnce() {
+        int today = EpochDays.of(2020, 12, 31);
+        RecurringRule once = rule(RecurringRule.UNIT_MONTH, 3, START);
+        RecurringRule steps = rule(RecurringRule.UNIT_MONTH, 3, START);
+
+        List<Integer> expected = days(RecurringScheduler.materialize(Collections.singletonList(once), today));
+        List<Integer> actual = new ArrayList<>();
+        for (int day = START; day <= today; day += 97) {
+            actual.addAll(days(RecurringScheduler.materialize(Collections.singletonList(steps), day)));
+        }
+        actual.addAll(days(RecurringScheduler.materialize(Collections.singletonList(steps), today)));
+
+        assertEquals(expected, actual);
+        assertEquals(Arrays.asList(START, EpochDays.of(2015, 4, 30), EpochDays.of(2015, 7, 31)), expected.subList(0, 3));
+    }
+
+    private static List<Integer> days(List<Transaction> rows) {
+        List<Integer> days = new ArrayList<>(rows.size());
+        for (Transaction row : rows) {
+            days.add(row.getEpochDay());
+        }
+        return days;
+    }
+}
@@ -0,0 +1,75 @@
+package com.expensetracker.budgettracker.data;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class SearchQueryTest {
+
+    @Test
+    public void toMatchExpression_makesLowerCasePrefixTerms() {
+        assertEquals("grab* taxi*", SearchQuery.toMatchExpression("Grab  taxi!"));
+        assertEquals("food* drink*", SearchQuery.toMatchExpression("Food & Drink"));
+        assertEquals("café*", SearchQuery.toMatchExpression("Café"));
+        assertEquals("2024*", SearchQuery.toMatchExpression("2024"));
+    }
+
+    @Test
+    public void toMatchExpression_neutralizesFtsSyntax() {
+        // Operators, quotes, parentheses and stars never reach MATCH as syntax
+        assertEquals("rent* or* bills*", SearchQuery.toMatchExpression("rent OR bills"));
+        assertEquals("a* not* b*", SearchQuery.toMatchExpression("\"a\" NOT (b*)"));
+        assertEquals("x* y*", SearchQuery.toMatchExpression("x-y"));
+    }
+
+    @Test
+    public void toMatchExpression_returnsNullWithoutWords() {
+        assertNull(SearchQuery.toMatchExpression(null));
+        assertNull(SearchQuery.toMatchExpression(""));
+        assertNull(SearchQuery.toMatchExpression("  *&() "));
+    }
+
+    @Test
+    public void words_splitLikeTheMatchExpression() {
+        assertEquals(Arrays.asList("grab", "taxi"), new SearchQuery.Builder().text("Grab  taxi!").build().getWords());
+        assertEquals(Arrays.asList("café", "2024"), SearchQuery.words("Café-2024"));
+        assertTrue(new SearchQuery.Builder().build().getWords().isEmpty());
+    }
+
+    @Test
+    public void appendFilters_addsOnlyBoundedEnds() {
+        SearchQuery query = new SearchQuery.Builder()
+                .text("coffee")
+                .amountBetween(1000L, null)
+                .dateBetween(19000, 19030)
+                .build();
+        StringBuilder selection = new StringBuilder("user_id = ?");
+        List<String> args = new ArrayList<>(Arrays.asList("1"));
+
+        query.appendFilters(selection, args);
+
+        assertTrue(query.hasText());
+        assertEquals("user_id = ? AND amount >= ? AND date >= ? AND date <= ?", selection.toString());
+        assertEquals(Arrays.asList("1", "1000", "19000", "19030"), args);
+    }
+
+    @Test
+    public void filtersOnlyQuery_hasNoText() {
+        SearchQuery query = new SearchQuery.Builder().text("   ").amountBetween(null, 500L).build();
+        StringBuilder selection = new StringBuilder();
+        List<String> args = new ArrayList<>();
+
+        query.appendFilters(selection, args);
+
+        assertFalse(query.hasText());
+        assertEquals(" AND amount <= ?", selection.toString());
+        assertEquals(Arrays.asList("500"), args);
+    }
+}
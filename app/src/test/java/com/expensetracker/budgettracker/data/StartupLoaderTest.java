@@ -0,0 +1,122 @@
+package com.expensetracker.budgettracker.data;
+
+import androidx.annotation.Nullable;
+
+import com.expensetracker.budgettracker.models.Transaction;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class StartupLoaderTest {
+    private static final int PAGE = 50;
+
+    /**
+     * One user, "alice" with ID 1, that counts how often each step runs.
+     */
+    private static final class FakeSteps implements StartupLoader.Steps {
+        final List<Transaction> page = Collections.singletonList(new Transaction("Shopping", 100, 20_000, "expense"));
+        int usernames;
+        int pages;
+        int totals;
+
+        @Nullable
+        @Override
+        public String username(long userId) {
+            usernames++;
+            return userId == 1 ? "alice" : null;
+        }
+
+        @Override
+        public List<Transaction> firstPage(long userId, int limit) {
+            pages++;
+            return page;
+        }
+
+        @Override
+        public void loadTotals(long userId) {
+            totals++;
+        }
+    }
+
+    private final Queue<Runnable> readPool = new ArrayDeque<>();
+    private final List<String> validated = new ArrayList<>();
+    private final TransactionChanges changes = new TransactionChanges();
+    private FakeSteps steps;
+    private StartupLoader loader;
+
+    @Before
+    public void setUp() {
+        steps = new FakeSteps();
+        loader = new StartupLoader(steps, readPool::add, Runnable::run, changes);
+    }
+
+    private void runReadPool() {
+        while (!readPool.isEmpty()) {
+            readPool.poll().run();
+        }
+    }
+
+    @Test
+    public void start_queuesAllStepsAtOnceAndRunsEachOnce() {
+        loader.start(1, PAGE, validated::add);
+        // Nothing waits on anything else, so all three are queued before any of them runs
+        assertEquals(3, readPool.size());
+        runReadPool();
+
+        assertEquals(Collections.singletonList("alice"), validated);
+        assertEquals("alice", loader.getUsername(1));
+        assertSame(steps.page, loader.takeFirstPage(1, PAGE));
+        loader.awaitTotals(1);
+        assertEquals(1, steps.usernames);
+        assertEquals(1, steps.pages);
+        assertEquals(1, steps.totals);
+    }
+
+    @Test
+    public void firstPage_isHandedOutOnce() {
+        loader.start(1, PAGE, validated::add);
+        runReadPool();
+
+        assertSame(steps.page, loader.takeFirstPage(1, PAGE));
+        assertNull(loader.takeFirstPage(1, PAGE));
+    }
+
+    @Test
+    public void staleSession_validatesWithoutUsername() {
+        loader.start(2, PAGE, validated::add);
+        runReadPool();
+
+        assertEquals(Collections.singletonList((String) null), validated);
+    }
+
+    @Test
+    public void writeDuringStartup_dropsPreloadedPage() {
+        loader.start(1, PAGE, validated::add);
+        runReadPool();
+        changes.publish(TransactionChanges.Kind.INSERTED, 2, Collections.emptyList());
+        changes.publish(TransactionChanges.Kind.INSERTED, 1, Collections.emptyList());
+
+        assertNull(loader.takeFirstPage(1, PAGE));
+    }
+
+    @Test
+    public void otherUserOrPageSize_fallsBackToQuerying() {
+        loader.start(1, PAGE, validated::add);
+        runReadPool();
+
+        assertNull(loader.takeFirstPage(1, PAGE * 2));
+        assertNull(loader.takeFirstPage(3, PAGE));
+        assertNull(loader.getUsername(3));
+        assertEquals(2, steps.usernames);
+    }
+}
@@ -0,0 +1,50 @@
+package com.expensetracker.budgettracker.data;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class TransactionColumnsTest {
+
+    @Test
+    public void categoryNames_looksUpEachCategoryOnce() {
+        // Spare capacity past size, as read() leaves it
+        int[] categoryIds = {1, 1, 6, 1, 9, 9};
+        List<Integer> lookedUp = new ArrayList<>();
+
+        String[] categories = TransactionColumns.categoryNames(categoryIds, 4, id -> {
+            lookedUp.add(id);
+            return "Category " + id;
+        });
+
+        assertEquals(Arrays.asList(1, 6), lookedUp);
+        assertEquals(7, categories.length);
+        assertEquals("Category 6", categories[6]);
+        assertNull(categories[2]);
+        assertArrayEquals(new String[0], TransactionColumns.categoryNames(categoryIds, 0, id -> "unused"));
+    }
+
+    @Test
+    public void expenseTotalsByCategory_skipsIncomeAndSumsById() {
+        TransactionColumns columns = new TransactionColumns(4,
+                new long[]{1, 2, 3, 4},
+                new long[]{500, 250, 5_000_000, 1_000},
+                new int[]{10, 11, 12, 13},
+                new int[]{1, 1, 6, 5},
+                new boolean[]{false, false, true, false},
+                new String[]{null, "Food & Drink", null, null, null, "Shopping", "Salary"});
+
+        Map<Integer, Long> expected = new HashMap<>();
+        expected.put(CategoryDictionary.FOOD_AND_DRINK, 750L);
+        expected.put(CategoryDictionary.SHOPPING, 1_000L);
+        assertEquals(expected, columns.expenseTotalsByCategory());
+    }
+}
@@ -0,0 +1,215 @@
+package com.expensetracker.budgettracker.data;
+
+import com.expensetracker.budgettracker.models.Transaction;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TransactionPagerTest {
+
+    /**
+     * A ledger held in memory, newest first, that counts how often it is queried.
+     */
+    private static final class FakeSource implements TransactionPager.PageSource {
+        final List<Transaction> rows = new ArrayList<>();
+        int queries;
+        // Runs once, after the next query has read its rows
+        Runnable afterRead;
+
+        @Override
+        public List<Transaction> loadOlder(Transaction anchor, int limit) {
+            queries++;
+            int start = anchor == null ? 0 : rows.indexOf(anchor) + 1;
+            List<Transaction> page = new ArrayList<>(rows.subList(start, Math.min(rows.size(), start + limit)));
+            if (afterRead != null) {
+                Runnable hook = afterRead;
+                afterRead = null;
+                hook.run();
+            }
+            return page;
+        }
+
+        @Override
+        public List<Transaction> loadNewer(Transaction anchor, int limit) {
+            queries++;
+            int end = rows.indexOf(anchor);
+            return new ArrayList<>(rows.subList(Math.max(0, end - limit), end));
+        }
+    }
+
+    private static Transaction row(int id, int epochDay) {
+        Transaction transaction = new Transaction("Shopping", 100, epochDay, "expense");
+        transaction.setId(id);
+        return transaction;
+    }
+
+    @Test
+    public void insertAndDelete_patchWindowWithoutQuerying() {
+        FakeSource source = new FakeSource();
+        for (int i = 0; i < 10; i++) {
+            source.rows.add(row(100 - i, 20_000 - i));
+        }
+        TransactionPager pager = new TransactionPager(source, 4, 3);
+        pager.refresh();
+        pager.loadOlder();
+        int queries = source.queries;
+
+        Transaction newest = row(200, 20_001);
+        assertTrue(pager.applyInserted(newest));
+        Transaction middle = row(201, 19_998);
+        assertTrue(pager.applyInserted(middle));
+        assertEquals(newest, pager.snapshot().get(0));
+        assertEquals(middle, pager.snapshot().get(3));
+
+        assertTrue(pager.applyDeleted(row(99, 19_999)));
+        assertFalse(pager.applyDeleted(row(12345, 19_999)));
+        assertEquals(9, pager.snapshot().size());
+        assertEquals(queries, source.queries);
+    }
+
+    @Test
+    public void insertAlreadyInTheWindow_isIgnored() {
+        FakeSource source = new FakeSource();
+        for (int i = 0; i < 10; i++) {
+            source.rows.add(row(100 - i, 20_000 - i));
+        }
+        TransactionPager pager = new TransactionPager(source, 4, 3);
+        // A reload between the commit and the change notification already sees the new row
+        Transaction inserted = row(200, 19_998);
+        source.rows.add(2, inserted);
+        pager.refresh();
+        pager.loadOlder();
+
+        assertFalse(pager.applyInserted(inserted));
+        assertFalse(pager.applyInserted(row(200, 19_998)));
+        List<Transaction> window = pager.snapshot();
+        assertEquals(8, window.size());
+        assertEquals(1, Collections.frequency(window, inserted));
+    }
+
+    @Test
+    public void rowsOutsideTheLoadedRange_areLeftForPaging() {
+        FakeSource source = new FakeSource();
+        for (int i = 0; i < 10; i++) {
+            source.rows.add(row(100 - i, 20_000 - i));
+        }
+        TransactionPager pager = new TransactionPager(source, 4, 3);
+        pager.refresh();
+
+        assertTrue(pager.hasOlder());
+        assertFalse(pager.applyInserted(row(300, 10_000)));
+        assertEquals(4, pager.snapshot().size());
+    }
+
+    @Test
+    public void emptyLedger_takesFirstInsert() {
+        TransactionPager pager = new TransactionPager(new FakeSource(), 4, 3);
+        pager.refresh();
+        assertTrue(pager.applyInserted(row(1, 20_000)));
+        assertEquals(1, pager.snapshot().size());
+    }
+
+    @Test
+    public void preloadedFirstPage_pagesOnFromItsEnd() {
+        FakeSource source = new FakeSource();
+        for (int i = 0; i < 10; i++) {
+            source.rows.add(row(100 - i, 20_000 - i));
+        }
+        TransactionPager pager = new TransactionPager(source, 4, 3);
+        pager.refresh(source.rows.subList(0, 4));
+        assertEquals(0, source.queries);
+        assertTrue(pager.hasOlder());
+
+        assertTrue(pager.loadOlder());
+        assertEquals(source.rows.subList(0, 8), pager.snapshot());
+    }
+
+    @Test
+    public void preloadedShortPage_isTheWholeLedger() {
+        TransactionPager pager = new TransactionPager(new FakeSource(), 4, 3);
+        pager.refresh(Collections.singletonList(row(1, 20_000)));
+
+        assertFalse(pager.hasOlder());
+        assertTrue(pager.applyInserted(row(2, 19_999)));
+        assertEquals(2, pager.snapshot().size());
+    }
+
+    @Test
+    public void insertsIntoAFullWindow_splitPagesAndKeepItBounded() {
+        FakeSource source = new FakeSource();
+        for (int i = 0; i < 20; i++) {
+            source.rows.add(row(100 - i, 20_000 - i));
+        }
+        TransactionPager pager = new TransactionPager(source, 4, 3);
+        pager.refresh();
+        pager.loadOlder();
+        pager.loadOlder();
+
+        for (int i = 0; i < 6; i++) {
+            Transaction newest = row(200 + i, 20_001 + i);
+            source.rows.add(0, newest);
+            assertTrue(pager.applyInserted(newest));
+            assertEquals(12, pager.snapshot().size());
+            assertEquals(newest, pager.snapshot().get(0));
+        }
+        // Trimmed from the far end, so paging on picks up where the window now stops
+        assertTrue(pager.hasOlder());
+        assertTrue(pager.loadOlder());
+        assertEquals(source.rows.subList(4, 16), pager.snapshot());
+    }
+
+    @Test
+    public void insertNearTheOldEndOfAFullWindow_shedsTheNewestRow() {
+        FakeSource source = new FakeSource();
+        for (int i = 0; i < 20; i++) {
+            source.rows.add(row(100 - i, 20_000 - i));
+        }
+        TransactionPager pager = new TransactionPager(source, 4, 3);
+        pager.refresh();
+        pager.loadOlder();
+        pager.loadOlder();
+
+        Transaction late = row(300, 19_990);
+        source.rows.add(10, late);
+        assertTrue(pager.applyInserted(late));
+        assertEquals(source.rows.subList(1, 13), pager.snapshot());
+        assertTrue(pager.hasNewer());
+        assertTrue(pager.loadNewer());
+        assertEquals(source.rows.get(0), pager.snapshot().get(0));
+    }
+
+    @Test
+    public void patchLandingDuringAPageRead_doesNotWaitAndIsNotLost() throws Exception {
+        FakeSource source = new FakeSource();
+        for (int i = 0; i < 10; i++) {
+            source.rows.add(row(100 - i, 20_000 - i));
+        }
+        TransactionPager pager = new TransactionPager(source, 4, 3);
+        pager.refresh();
+
+        // Commits after the next page was read, and is patched from the writer meanwhile
+        Transaction late = row(300, 19_995);
+        source.afterRead = () -> {
+            source.rows.add(5, late);
+            Thread writer = new Thread(() -> pager.applyInserted(late));
+            writer.start();
+            try {
+                writer.join(5_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            assertFalse("patch waited on the page read", writer.isAlive());
+        };
+        assertTrue(pager.loadOlder());
+
+        assertEquals(source.rows.subList(0, 8), pager.snapshot());
+        assertTrue(pager.snapshot().contains(late));
+    }
+}
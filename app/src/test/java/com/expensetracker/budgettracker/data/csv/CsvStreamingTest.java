@@ -0,0 +1,120 @@
+package com.expensetracker.budgettracker.data.csv;
+
+import com.expensetracker.budgettracker.utils.Money;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CsvStreamingTest {
+    private static final int ROWS = 1_000_000;
+    private static final long MAX_HEAP_GROWTH = 8L * 1024 * 1024;
+
+    @Test
+    public void writeThenRead_roundTripsQuotedAndUnicodeFields() throws IOException {
+        String[] fields = {"plain", "a,b", "say \"hi\"", "two\nlines", "₱ peso", "emoji 💸", ""};
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        CsvWriter writer = new CsvWriter(Channels.newChannel(bytes), 16);
+        for (String field : fields) {
+            writer.writeField(field);
+        }
+        writer.writeMinorUnits(-123405);
+        writer.endRecord();
+        writer.close();
+
+        CsvReader reader = new CsvReader(Channels.newChannel(new ByteArrayInputStream(bytes.toByteArray())), 16);
+        assertTrue(reader.next());
+        assertEquals(fields.length + 1, reader.fieldCount());
+        for (int i = 0; i < fields.length; i++) {
+            assertEquals(fields[i], reader.getString(i));
+        }
+        assertEquals("-1234.05", reader.getString(fields.length));
+        assertFalse(reader.next());
+    }
+
+    @Test
+    public void read_skipsBlankLinesAndAcceptsCrLf() throws IOException {
+        byte[] input = "date,amount\r\n\r\n2024-01-02,5\n\n2024-01-03,6.5".getBytes(StandardCharsets.UTF_8);
+        CsvReader reader = new CsvReader(Channels.newChannel(new ByteArrayInputStream(input)));
+
+        assertTrue(reader.next());
+        assertTrue(reader.fieldEqualsIgnoreCase(0, "DATE"));
+        assertTrue(reader.next());
+        assertEquals("2024-01-02", reader.getCachedString(0));
+        assertEquals(500L, Money.parse(reader.field(1)));
+        assertTrue(reader.next());
+        assertEquals(650L, Money.parse(reader.field(1)));
+        assertEquals(3, reader.recordNumber());
+        assertFalse(reader.next());
+    }
+
+    @Test
+    public void millionRowFile_streamsWithConstantHeap() throws IOException {
+        File file = File.createTempFile("transactions", ".csv");
+        try {
+            long expectedSum = 0;
+            try (CsvWriter writer = new CsvWriter(FileChannel.open(file.toPath(), StandardOpenOption.WRITE))) {
+                for (String column : TransactionCsv.HEADER) {
+                    writer.writeField(column);
+                }
+                writer.endRecord();
+                for (int i = 0; i < ROWS; i++) {
+                    long amount = 1 + (i * 7919L) % 10_000_000;
+                    expectedSum += amount;
+                    writer.writeField(String.format("%04d-%02d-%02d", 2000 + i % 25, 1 + i % 12, 1 + i % 28));
+                    writer.writeField(i % 10 == 0 ? "income" : "expense");
+                    writer.writeField(i % 3 == 0 ? "Food, Drink" : "Shopping");
+                    writer.writeMinorUnits(amount);
+                    writer.writeField(i % 5 == 0 ? "weekly shop" : "");
+                    writer.endRecord();
+                }
+            }
+
+            long rows = 0;
+            long sum = 0;
+            long baselineHeap = 0;
+            long peakHeap = 0;
+            try (CsvReader reader = new CsvReader(FileChannel.open(file.toPath(), StandardOpenOption.READ))) {
+                assertTrue(reader.next());
+                while (reader.next()) {
+                    assertEquals(5, reader.fieldCount());
+                    reader.getCachedString(0);
+                    reader.getCachedString(2);
+                    sum += Money.parse(reader.field(3));
+                    rows++;
+
+                    if (rows % (ROWS / 4) == 0) {
+                        long used = usedHeapAfterGc();
+                        if (baselineHeap == 0) baselineHeap = used;
+                        peakHeap = Math.max(peakHeap, used);
+                    }
+                }
+                assertEquals(file.length(), reader.bytesRead());
+            }
+
+            assertEquals(ROWS, rows);
+            assertEquals(expectedSum, sum);
+            assertTrue("Heap grew by " + (peakHeap - baselineHeap) + " bytes while streaming",
+                    peakHeap - baselineHeap < MAX_HEAP_GROWTH);
+        } finally {
+            file.delete();
+        }
+    }
+
+    private static long usedHeapAfterGc() {
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,75 @@
+package com.expensetracker.budgettracker.ui.home;
+
+import com.expensetracker.budgettracker.benchmark.BenchmarkRunner;
+import com.expensetracker.budgettracker.benchmark.LedgerGenerator;
+import com.expensetracker.budgettracker.data.AggregateStore;
+import com.expensetracker.budgettracker.models.Flashcard;
+import com.expensetracker.budgettracker.models.Transaction;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Home screen flashcards: building them from the aggregate store's category totals, as
+ * {@link HomeViewModel} does, against summing the ledger's rows per category first.
+ * Writes {@code flashcards.json}.
+ */
+public class FlashcardAggregationBenchmark {
+    private static final long USER_ID = 1;
+
+    private static final class Ledger {
+        final List<Transaction> rows;
+        final AggregateStore store = new AggregateStore();
+
+        Ledger(int size) {
+            rows = LedgerGenerator.generate(size, size);
+            store.rebuild(USER_ID, new ArrayList<>());
+            for (Transaction row : rows) {
+                store.add(USER_ID, row.getCategoryId(), row.getType(), row.getEpochDay(), row.getAmountCents());
+            }
+        }
+    }
+
+    @Test
+    public void flashcards() throws Exception {
+        BenchmarkRunner runner = new BenchmarkRunner("flashcards");
+        int[] sizes = BenchmarkRunner.sizes();
+        List<Flashcard> cards = defaultCards();
+
+        runner.run("fromAggregateStore", "rows", sizes, Ledger::new,
+                ledger -> HomeViewModel.withTotals(cards, ledger.store.getCategoryTotals(USER_ID)));
+        runner.run("fromRows", "rows", sizes, Ledger::new,
+                ledger -> HomeViewModel.withTotals(cards, sumByCategory(ledger.rows)));
+
+        Ledger ledger = new Ledger(sizes[0]);
+        List<Flashcard> fromStore = HomeViewModel.withTotals(cards, ledger.store.getCategoryTotals(USER_ID));
+        List<Flashcard> fromRows = HomeViewModel.withTotals(cards, sumByCategory(ledger.rows));
+        for (int i = 0; i < cards.size(); i++) {
+            assertEquals(fromRows.get(i).getAmount(), fromStore.get(i).getAmount());
+        }
+
+        runner.writeJson(BenchmarkRunner.defaultOutputDir());
+    }
+
+    private static Map<Integer, Long> sumByCategory(List<Transaction> rows) {
+        Map<Integer, Long> totals = new HashMap<>();
+        for (Transaction row : rows) {
+            totals.merge(row.getCategoryId(), row.getAmountCents(), Long::sum);
+        }
+        return totals;
+    }
+
+    private static List<Flashcard> defaultCards() {
+        List<Flashcard> cards = new ArrayList<>();
+        for (int i = 0; i < LedgerGenerator.CATEGORIES.length; i++) {
+            cards.add(new Flashcard(0, i + 1, LedgerGenerator.CATEGORIES[i], HomeViewModel.formatCurrency(0L)));
+        }
+        return cards;
+    }
+}
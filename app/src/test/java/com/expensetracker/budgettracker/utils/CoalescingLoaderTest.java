@@ -0,0 +1,138 @@
+package com.expensetracker.budgettracker.utils;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class CoalescingLoaderTest {
+    private final Queue<Runnable> readPool = new ArrayDeque<>();
+    private final Queue<Runnable> timers = new ArrayDeque<>();
+    private final List<Integer> delivered = new ArrayList<>();
+    private int queries;
+    private CoalescingLoader<Integer> loader;
+
+    @Before
+    public void setUp() {
+        loader = new CoalescingLoader<>(readPool::add, (task, delayMillis) -> timers.add(task), 300,
+                () -> ++queries, delivered::add);
+    }
+
+    private static void runAll(Queue<Runnable> queue) {
+        while (!queue.isEmpty()) {
+            queue.poll().run();
+        }
+    }
+
+    @Test
+    public void requestsWhileIdle_queueOneLoad() {
+        for (int i = 0; i < 10; i++) {
+            loader.request();
+        }
+        assertEquals(1, readPool.size());
+        runAll(readPool);
+
+        assertEquals(1, queries);
+        assertEquals(Arrays.asList(1), delivered);
+    }
+
+    @Test
+    public void burstOfWrites_isOneQuery() {
+        for (int i = 0; i < 50; i++) {
+            loader.requestAfterWrite();
+        }
+        assertEquals(1, timers.size());
+        assertEquals(0, queries);
+        runAll(timers);
+        runAll(readPool);
+        assertEquals(1, queries);
+
+        // A write after the window closed opens a new one
+        loader.requestAfterWrite();
+        runAll(timers);
+        runAll(readPool);
+        assertEquals(2, queries);
+        assertEquals(Arrays.asList(1, 2), delivered);
+    }
+
+    @Test
+    public void requestsDuringLoad_foldIntoOneMoreAndDropTheStaleResult() {
+        loader = new CoalescingLoader<>(readPool::add, (task, delayMillis) -> timers.add(task), 300, () -> {
+            int query = ++queries;
+            if (query == 1) {
+                // Writes land while the first query runs
+                for (int i = 0; i < 10; i++) {
+                    loader.request();
+                }
+            }
+            return query;
+        }, delivered::add);
+
+        loader.request();
+        runAll(readPool);
+
+        assertEquals(2, queries);
+        assertEquals(Arrays.asList(2), delivered);
+    }
+
+    @Test
+    public void concurrentBursts_neverRunMoreThanOneLoadAtATime() throws Exception {
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        AtomicInteger loads = new AtomicInteger();
+        List<Integer> results = new ArrayList<>();
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        CoalescingLoader<Integer> concurrent = new CoalescingLoader<>(pool, (task, delayMillis) -> task.run(), 0, () -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            inFlight.decrementAndGet();
+            return loads.incrementAndGet();
+        }, result -> {
+            synchronized (results) {
+                results.add(result);
+            }
+        });
+
+        int writers = 4;
+        int writesEach = 500;
+        CountDownLatch done = new CountDownLatch(writers);
+        for (int w = 0; w < writers; w++) {
+            new Thread(() -> {
+                for (int i = 0; i < writesEach; i++) {
+                    concurrent.request();
+                }
+                done.countDown();
+            }).start();
+        }
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(1, maxInFlight.get());
+        assertTrue(loads.get() + " loads for " + writers * writesEach + " requests",
+                loads.get() < writers * writesEach / 10);
+        // The last load saw every request, and results only ever move forward
+        synchronized (results) {
+            assertEquals(loads.get(), (int) results.get(results.size() - 1));
+            for (int i = 1; i < results.size(); i++) {
+                assertTrue(results.get(i) > results.get(i - 1));
+            }
+        }
+    }
+}
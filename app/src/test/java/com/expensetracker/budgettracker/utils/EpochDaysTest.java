@@ -0,0 +1,53 @@
+package com.expensetracker.budgettracker.utils;
+
+import org.junit.Test;
+
+import java.time.LocalDate;
+
+import static org.junit.Assert.assertEquals;
+
+public class EpochDaysTest {
+
+    @Test
+    public void conversions_matchJavaTime() {
+        // 0001-01-01 to 9999-12-31
+        for (int day = -719_162; day <= 2_932_896; day++) {
+            LocalDate expected = LocalDate.ofEpochDay(day);
+            assertEquals(day, EpochDays.of(expected.getYear(), expected.getMonthValue(), expected.getDayOfMonth()));
+            assertEquals(expected.getYear(), EpochDays.year(day));
+            assertEquals(expected.getMonthValue(), EpochDays.month(day));
+            assertEquals(expected.getDayOfMonth(), EpochDays.dayOfMonth(day));
+        }
+    }
+
+    @Test
+    public void parseAndFormat_roundTrip() {
+        assertEquals(0, EpochDays.parse("1970-01-01"));
+        assertEquals(19_875, EpochDays.parse("2024-06-01"));
+        assertEquals("2000-02-29", EpochDays.format(EpochDays.parse("2000-02-29")));
+        assertEquals("0099-12-31", EpochDays.format(EpochDays.of(99, 12, 31)));
+        assertEquals(202406, EpochDays.monthKey(19_875));
+        assertEquals(EpochDays.parse("2024-06-01"), EpochDays.firstOfMonth(EpochDays.parse("2024-06-30")));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void parse_rejectsNonexistentDate() {
+        EpochDays.parse("2023-02-29");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void parse_rejectsLooseFormat() {
+        EpochDays.parse("2024-6-1");
+    }
+
+    @Test
+    public void displayCache_formatsLikeTheOldPattern() {
+        DateDisplayCache cache = new DateDisplayCache();
+        assertEquals("Jun 01, 2024", cache.get(EpochDays.of(2024, 6, 1)));
+        assertEquals("Dec 31, 1999", cache.get(EpochDays.of(1999, 12, 31)));
+        // Same slot (512 days apart) evicts and reformats
+        assertEquals("Jun 01, 2024", cache.get(EpochDays.of(2024, 6, 1)));
+        assertEquals(DateDisplayCache.format(EpochDays.of(2024, 6, 1) + 512), cache.get(EpochDays.of(2024, 6, 1) + 512));
+        assertEquals("Jun 01, 2024", cache.get(EpochDays.of(2024, 6, 1)));
+    }
+}
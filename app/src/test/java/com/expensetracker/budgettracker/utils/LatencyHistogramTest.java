@@ -0,0 +1,108 @@
+package com.expensetracker.budgettracker.utils;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LatencyHistogramTest {
+
+    @After
+    public void disableMetrics() {
+        Metrics.setEnabled(false);
+    }
+
+    @Test
+    public void buckets_coverEveryValueWithinThreePercent() {
+        Random random = new Random(7);
+        for (int i = 0; i < 100_000; i++) {
+            long value = random.nextInt(64) < 32 ? random.nextInt(100_000) : (random.nextLong() >>> 24);
+            int index = LatencyHistogram.indexOf(value);
+            long highest = LatencyHistogram.highestValueIn(index);
+            assertTrue(value + " in bucket ending at " + highest, value <= highest);
+            assertTrue(value + " in bucket ending at " + highest, highest - value <= value * 0.032 + 1);
+            if (index > 0) {
+                assertTrue(value > LatencyHistogram.highestValueIn(index - 1));
+            }
+        }
+        assertEquals(LatencyHistogram.BUCKET_COUNT - 1, LatencyHistogram.indexOf((1L << 41) - 1));
+    }
+
+    @Test
+    public void percentiles_matchTheRecordedDistribution() {
+        LatencyHistogram histogram = new LatencyHistogram("test");
+        for (long micros = 1; micros <= 1_000; micros++) {
+            histogram.record(micros * 1_000);
+        }
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+
+        assertEquals(1_000, snapshot.count);
+        assertEquals(500_500, snapshot.meanNanos());
+        assertEquals(1_000_000, snapshot.maxNanos);
+        assertEquals(500_000, snapshot.percentileNanos(50), 500_000 * 0.032);
+        assertEquals(990_000, snapshot.percentileNanos(99), 990_000 * 0.032);
+        assertEquals(1_000_000, snapshot.percentileNanos(100));
+    }
+
+    @Test
+    public void negativeAndHugeValues_areClamped() {
+        LatencyHistogram histogram = new LatencyHistogram("test");
+        histogram.record(-5);
+        histogram.record(Long.MAX_VALUE);
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+
+        assertEquals(2, snapshot.count);
+        assertEquals(0, snapshot.percentileNanos(50));
+        assertEquals((1L << 41) - 1, snapshot.maxNanos);
+    }
+
+    @Test
+    public void disabled_recordsNothing() {
+        LatencyHistogram histogram = Metrics.histogram("test.disabled");
+        Metrics.Counter counter = Metrics.counter("test.disabled");
+
+        long start = histogram.startAsync();
+        histogram.stopAsync(start);
+        counter.increment();
+
+        assertEquals(0, start);
+        assertEquals(0, histogram.snapshot().count);
+        assertEquals(0, counter.get());
+        assertFalse(Metrics.snapshotJson().contains("test.disabled"));
+    }
+
+    @Test
+    public void concurrentRecording_losesNothing() throws InterruptedException {
+        Metrics.setEnabled(true);
+        LatencyHistogram histogram = Metrics.histogram("test.concurrent");
+        Metrics.Counter counter = Metrics.counter("test.concurrent");
+        histogram.reset();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            Thread thread = new Thread(() -> {
+                for (int i = 1; i <= 10_000; i++) {
+                    histogram.record(i);
+                    counter.increment();
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(40_000, histogram.snapshot().count);
+        assertEquals(10_000, histogram.snapshot().maxNanos);
+        assertEquals(40_000, counter.get());
+        String json = Metrics.snapshotJson();
+        assertTrue(json, json.contains("\"test.concurrent\": 40000"));
+        assertTrue(json, json.contains("\"test.concurrent\": {\"count\": 40000"));
+    }
+}
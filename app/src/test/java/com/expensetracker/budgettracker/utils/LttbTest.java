@@ -0,0 +1,63 @@
+package com.expensetracker.budgettracker.utils;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LttbTest {
+
+    @Test
+    public void downsample_copiesSeriesThatAlreadyFit() {
+        float[] x = {0, 1, 2};
+        float[] y = {5, 6, 7};
+        float[] outX = new float[10];
+        float[] outY = new float[10];
+
+        assertEquals(3, Lttb.downsample(x, y, 3, 10, outX, outY));
+        assertEquals(7f, outY[2], 0f);
+    }
+
+    @Test
+    public void downsample_keepsEndpointsAndPeaks() {
+        int size = 10_000;
+        float[] x = new float[size];
+        float[] y = new float[size];
+        for (int i = 0; i < size; i++) {
+            x[i] = i;
+        }
+        y[1234] = 500f;
+        y[7777] = -300f;
+        y[size - 1] = 42f;
+        float[] outX = new float[100];
+        float[] outY = new float[100];
+
+        int count = Lttb.downsample(x, y, size, 100, outX, outY);
+
+        assertEquals(100, count);
+        assertEquals(0f, outX[0], 0f);
+        assertEquals(size - 1, outX[count - 1], 0f);
+        assertEquals(42f, outY[count - 1], 0f);
+        boolean peak = false;
+        boolean dip = false;
+        for (int i = 1; i < count; i++) {
+            assertTrue("x must stay ascending", outX[i] > outX[i - 1]);
+            peak |= outX[i] == 1234f && outY[i] == 500f;
+            dip |= outX[i] == 7777f && outY[i] == -300f;
+        }
+        assertTrue(peak);
+        assertTrue(dip);
+    }
+
+    @Test
+    public void downsample_handlesThresholdOneBelowSize() {
+        float[] x = {0, 1, 2, 3, 4};
+        float[] y = {0, 9, 0, 1, 0};
+        float[] outX = new float[4];
+        float[] outY = new float[4];
+
+        assertEquals(4, Lttb.downsample(x, y, 5, 4, outX, outY));
+        assertEquals(4f, outX[3], 0f);
+        assertEquals(9f, outY[1], 0f);
+    }
+}
@@ -0,0 +1,99 @@
+package com.expensetracker.budgettracker.utils;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+public class MoneyTest {
+
+    @Test
+    public void parse_handlesPlainGroupedAndSignedAmounts() {
+        assertEquals(0L, Money.parse("0"));
+        assertEquals(10L, Money.parse("0.1"));
+        assertEquals(1L, Money.parse(".01"));
+        assertEquals(123456L, Money.parse("1,234.56"));
+        assertEquals(123456L, Money.parse("₱1,234.56"));
+        assertEquals(-500L, Money.parse("-5"));
+        assertEquals(1000L, Money.parse("  10.  "));
+    }
+
+    @Test
+    public void parse_roundsHalfUpPastTwoDecimals() {
+        assertEquals(2000L, Money.parse("19.995"));
+        assertEquals(1999L, Money.parse("19.994"));
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void parse_rejectsGarbage() {
+        Money.parse("12a.5");
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void parse_rejectsEmpty() {
+        Money.parse("₱ ");
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void parse_rejectsAmountsTooLargeForALong() {
+        Money.parse("99999999999999999999");
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void parse_rejectsOverflowInTheMinorUnits() {
+        // Fits in a long as whole pesos, but not once multiplied out to centavos
+        Money.parse("92233720368547759.00");
+    }
+
+    @Test
+    public void format_groupsThousandsAndPadsCents() {
+        assertEquals("₱0.00", Money.format(0));
+        assertEquals("₱0.05", Money.format(5));
+        assertEquals("₱1,234.50", Money.format(123450));
+        assertEquals("₱1,000,000.00", Money.format(100_000_000));
+        assertEquals("-₱12.34", Money.format(-1234));
+        assertEquals("1234.50", Money.toPlainString(123450));
+    }
+
+    @Test
+    public void format_parse_roundTrip() {
+        Random random = new Random(7);
+        for (int i = 0; i < 100_000; i++) {
+            long cents = random.nextLong() % 1_000_000_000_000L;
+            assertEquals(cents, Money.parse(Money.format(cents)));
+        }
+    }
+
+    @Test
+    public void summingTenMillionDimes_isExact() {
+        long dime = Money.parse("0.10");
+        long total = 0;
+        double floatingTotal = 0.0;
+        for (int i = 0; i < 10_000_000; i++) {
+            total += dime;
+            floatingTotal += 0.10;
+        }
+        assertEquals(100_000_000L, total);
+        assertEquals("₱1,000,000.00", Money.format(total));
+        // The double accumulator the app used to rely on drifts
+        assertNotEquals(1_000_000.0, floatingTotal, 0.0);
+    }
+
+    @Test
+    public void summingRandomAmounts_matchesIntegerReference() {
+        Random random = new Random(42);
+        long total = 0;
+        long referenceMajor = 0;
+        long referenceMinor = 0;
+        for (int i = 0; i < 5_000_000; i++) {
+            int major = random.nextInt(100_000);
+            int minor = random.nextInt(100);
+            total += major * Money.MINOR_UNITS_PER_MAJOR + minor;
+            referenceMajor += major;
+            referenceMinor += minor;
+        }
+        assertEquals(referenceMajor * Money.MINOR_UNITS_PER_MAJOR + referenceMinor, total);
+    }
+}
@@ -0,0 +1,50 @@
+package com.expensetracker.budgettracker.utils;
+
+import org.junit.Test;
+import org.mindrot.jbcrypt.BCrypt;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PasswordHasherTest {
+    private static final long TARGET_MILLIS = 100;
+
+    @Test
+    public void costOf_readsTheWorkFactorFromTheHashPrefix() {
+        assertEquals(10, PasswordHasher.costOf(BCrypt.hashpw("secret", BCrypt.gensalt(10))));
+        assertEquals(12, PasswordHasher.costOf("$2b$12$abcdefghijklmnopqrstuv"));
+        assertEquals(-1, PasswordHasher.costOf("plain-text"));
+        assertEquals(-1, PasswordHasher.costOf("$2a$x1$"));
+        assertEquals(-1, PasswordHasher.costOf(null));
+    }
+
+    @Test
+    public void verify_acceptsOnlyTheRightPassword() {
+        PasswordHasher hasher = new PasswordHasher(PasswordHasher.MIN_COST);
+        String hash = hasher.hash("correct horse");
+
+        assertTrue(hasher.verify("correct horse", hash));
+        assertFalse(hasher.verify("Correct horse", hash));
+        assertFalse(hasher.verify("correct horse", "not a bcrypt hash"));
+    }
+
+    @Test
+    public void needsRehash_whenStoredCostDiffers() {
+        String legacy = BCrypt.hashpw("secret", BCrypt.gensalt(PasswordHasher.MIN_COST));
+
+        assertFalse(new PasswordHasher(PasswordHasher.MIN_COST).needsRehash(legacy));
+        PasswordHasher stronger = new PasswordHasher(PasswordHasher.MIN_COST + 1);
+        assertTrue(stronger.needsRehash(legacy));
+        // The old hash still verifies, which is what lets login upgrade it
+        assertTrue(stronger.verify("secret", legacy));
+    }
+
+    @Test
+    public void calibrate_staysWithinBounds() {
+        int cost = PasswordHasher.calibrate(TARGET_MILLIS);
+        assertTrue(cost >= PasswordHasher.MIN_COST && cost <= PasswordHasher.MAX_COST);
+        assertEquals(PasswordHasher.MIN_COST, PasswordHasher.calibrate(0));
+        assertEquals(PasswordHasher.MAX_COST, PasswordHasher.calibrate(Long.MAX_VALUE / 1_000_000L));
+    }
+}
@@ -0,0 +1,51 @@
+package com.expensetracker.budgettracker.utils;
+
+import com.expensetracker.budgettracker.benchmark.BenchmarkRunner;
+
+import org.junit.Test;
+import org.mindrot.jbcrypt.BCrypt;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Hashing and verifying a password at each BCrypt cost the app may calibrate to on a fast
+ * device, and the whole login path for an account hashed at the library default: verify
+ * the old hash, rehash at the calibrated cost, then verify the new hash on the next login.
+ * Unlike the other suites this is parameterised by cost, not ledger size. Writes
+ * {@code password-hashing.json}.
+ */
+public class PasswordHashingBenchmark {
+    private static final long TARGET_MILLIS = 100;
+    private static final int[] COSTS = {PasswordHasher.MIN_COST, PasswordHasher.MIN_COST + 1, PasswordHasher.MIN_COST + 2};
+
+    @Test
+    public void hashing() throws Exception {
+        BenchmarkRunner runner = new BenchmarkRunner("password-hashing");
+
+        runner.run("hash", "cost", COSTS, PasswordHasher::new, hasher -> hasher.hash("correct horse"));
+        // Verification reads the cost from the hash, so one hasher checks them all
+        PasswordHasher verifier = new PasswordHasher(PasswordHasher.MIN_COST);
+        runner.run("verify", "cost", COSTS, cost -> new PasswordHasher(cost).hash("correct horse"), hash -> {
+            boolean verified = verifier.verify("correct horse", hash);
+            assertTrue(verified);
+            return verified;
+        });
+
+        String legacy = BCrypt.hashpw("correct horse", BCrypt.gensalt());
+        runner.run("login", "cost", COSTS, PasswordHasher::new, hasher -> {
+            assertTrue(hasher.verify("correct horse", legacy));
+            String upgraded = hasher.hash("correct horse");
+            assertTrue(hasher.verify("correct horse", upgraded));
+            assertFalse(hasher.needsRehash(upgraded));
+            return upgraded;
+        });
+
+        long start = System.nanoTime();
+        int calibrated = PasswordHasher.calibrate(TARGET_MILLIS);
+        runner.record("calibrate", "targetMillis", (int) TARGET_MILLIS, "ms", (System.nanoTime() - start) / 1e6);
+        runner.record("calibrate", "targetMillis", (int) TARGET_MILLIS, "cost", calibrated);
+
+        runner.writeJson(BenchmarkRunner.defaultOutputDir());
+    }
+}